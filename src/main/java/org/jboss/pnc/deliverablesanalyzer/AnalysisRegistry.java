@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.enterprise.context.ApplicationScoped;
+
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.eclipse.microprofile.metrics.annotation.Gauge;
+
+@ApplicationScoped
+public class AnalysisRegistry {
+    private final Map<String, Finder> finders = new ConcurrentHashMap<>();
+
+    public void register(String id, Finder finder) {
+        finders.put(id, finder);
+    }
+
+    public void unregister(String id, Finder finder) {
+        finders.remove(id, finder);
+    }
+
+    public boolean cancel(String id) {
+        var finder = finders.remove(id);
+
+        if (finder == null) {
+            return false;
+        }
+
+        finder.cancel();
+
+        return true;
+    }
+
+    public Map<String, Finder> getAll() {
+        return Map.copyOf(finders);
+    }
+
+    @Gauge(name = "runningAnalyses", unit = MetricUnits.NONE, description = "Submitted analyses not yet finished")
+    public int getRunning() {
+        return finders.size();
+    }
+}
@@ -0,0 +1,802 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer;
+
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.ClientErrorException;
+import javax.ws.rs.InternalServerErrorException;
+import javax.ws.rs.ServiceUnavailableException;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.collections4.MultiValuedMap;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.metrics.Counter;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.jboss.pnc.build.finder.core.BuildConfig;
+import org.jboss.pnc.build.finder.core.ChecksumType;
+import org.jboss.pnc.build.finder.core.JSONUtils;
+import org.jboss.pnc.deliverablesanalyzer.cache.Caches;
+import org.jboss.pnc.deliverablesanalyzer.checkpoint.Checkpoint;
+import org.jboss.pnc.deliverablesanalyzer.checkpoint.Checkpoints;
+import org.jboss.pnc.deliverablesanalyzer.journal.JobJournal;
+import org.jboss.pnc.deliverablesanalyzer.journal.JournalEntry;
+import org.jboss.pnc.deliverablesanalyzer.koji.KojiSessions;
+import org.jboss.pnc.deliverablesanalyzer.local.LocalFiles;
+import org.jboss.pnc.deliverablesanalyzer.model.FinderResult;
+import org.jboss.pnc.deliverablesanalyzer.model.FinderStatus;
+import org.jboss.pnc.deliverablesanalyzer.pnc.PncClients;
+import org.jboss.pnc.deliverablesanalyzer.remote.RemoteFileInfo;
+import org.jboss.pnc.deliverablesanalyzer.remote.RemoteFiles;
+import org.jboss.pnc.deliverablesanalyzer.scheduler.AnalysisScheduler;
+import org.jboss.pnc.deliverablesanalyzer.scheduler.Client;
+import org.jboss.pnc.deliverablesanalyzer.scheduler.ClientShares;
+import org.jboss.pnc.deliverablesanalyzer.store.ResultStore;
+import org.jboss.pnc.deliverablesanalyzer.store.StoredResult;
+import org.jboss.pnc.deliverablesanalyzer.upload.Upload;
+import org.jboss.pnc.deliverablesanalyzer.upload.Uploads;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.redhat.red.build.koji.KojiClientException;
+
+@ApplicationScoped
+public class AnalysisSubmitter {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AnalysisSubmitter.class);
+
+    private static final long DRAIN_POLL_MILLIS = 500L;
+
+    @ConfigProperty(name = "analyze.deadline", defaultValue = "3600000")
+    Long deadline;
+
+    @ConfigProperty(name = "analyze.shutdown.grace-period", defaultValue = "30000")
+    Long gracePeriod;
+
+    @ConfigProperty(name = "analyze.results.refresh-after", defaultValue = "86400000")
+    Long refreshAfter;
+
+    @ConfigProperty(name = "analyze.content.reuse", defaultValue = "true")
+    Boolean contentReuse;
+
+    @ConfigProperty(name = "analyze.content.sidecar", defaultValue = "true")
+    Boolean contentSidecar;
+
+    @Inject
+    AnalysisScheduler scheduler;
+
+    @Inject
+    ClientShares clientShares;
+
+    @Inject
+    AnalysisRegistry analyses;
+
+    @Inject
+    JobJournal journal;
+
+    @Inject
+    Checkpoints checkpoints;
+
+    @Inject
+    ResultStore resultStore;
+
+    @Inject
+    RemoteFiles remoteFiles;
+
+    @Inject
+    Uploads uploads;
+
+    @Inject
+    LocalFiles localFiles;
+
+    @Inject
+    MetricRegistry registry;
+
+    @Inject
+    Caches caches;
+
+    @Inject
+    KojiSessions kojiSessions;
+
+    @Inject
+    PncClients pncClients;
+
+    @Inject
+    BuildConfigCache<String, BuildConfig> configs;
+
+    @Inject
+    ResultCache<String, CompletionStage<FinderResult>> results;
+
+    @Inject
+    StatusCache<String, FinderStatus> statuses;
+
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean stopping;
+
+    private Counter remoteContentReuses;
+
+    private Counter computedContentReuses;
+
+    private Counter localContentReuses;
+
+    @PostConstruct
+    void init() {
+        remoteContentReuses = registry.counter("contentReuseRemoteChecksum");
+        computedContentReuses = registry.counter("contentReuseComputedChecksum");
+        localContentReuses = registry.counter("contentReuseLocalChecksum");
+    }
+
+    public static String getId(URI uri) {
+        // XXX: Hash URL instead of file contents so that we don't have to download the file
+        var sha256 = DigestUtils.sha256Hex(uri.toString());
+
+        return sha256.substring(0, 8);
+    }
+
+    /**
+     * Creates a finder with the default build config, overridden by the excludes, archive extensions and archive
+     * types of the given config.
+     */
+    private Finder createFinder(String config, Client client) throws IOException {
+        var finder = new Finder(caches, kojiSessions, pncClients, deadline, client);
+        var config1 = finder.getConfig();
+
+        if (config != null) {
+            var config2 = BuildConfig.load(config);
+
+            if (config2.getExcludes() != null) {
+                config1.setExcludes(config2.getExcludes());
+            }
+
+            if (config2.getArchiveExtensions() != null) {
+                config1.setArchiveExtensions(config2.getArchiveExtensions());
+            }
+
+            if (config2.getArchiveTypes() != null) {
+                config1.setArchiveTypes(config2.getArchiveTypes());
+            }
+        }
+
+        return finder;
+    }
+
+    private Checkpoint getBaselineLookups(String baseline) {
+        if (baseline == null) {
+            return null;
+        }
+
+        var baselineLookups = resultStore.getCheckpoint(baseline);
+
+        if (baselineLookups == null) {
+            throw new BadRequestException("Baseline result id " + baseline + " not found");
+        }
+
+        return baselineLookups;
+    }
+
+    public String submit(URI uri, String config, String baseline, Client client) throws IOException {
+        if (stopping) {
+            throw new ServiceUnavailableException("Shutting down, not accepting new analyses");
+        }
+
+        // Local files are identified by their real path, whatever link or relative path they were submitted as
+        var location = LocalFiles.isLocal(uri) ? localFiles.resolve(uri).toUri() : uri;
+        var id = getId(location);
+        var finder = createFinder(config, client);
+        var baselineLookups = getBaselineLookups(baseline);
+
+        if (!results.containsKey(id) && (serveStored(id, location, finder, client)
+                || (!LocalFiles.isLocal(location) && serveByRemoteChecksum(id, location, finder)))) {
+            return id;
+        }
+
+        submit(id, location, finder, client, baseline, baselineLookups);
+
+        return id;
+    }
+
+    /**
+     * Submits an uploaded file. Its id is derived from its content, and the stored result of the same content is
+     * reused without analyzing it again.
+     */
+    public String submit(Upload upload, String config, String baseline, Client client) throws IOException {
+        var uri = upload.getPath().toUri();
+
+        if (stopping) {
+            uploads.delete(uri);
+            throw new ServiceUnavailableException("Shutting down, not accepting new analyses");
+        }
+
+        var id = upload.getChecksums().get(ChecksumType.sha256.name()).substring(0, 8);
+        var finder = (Finder) null;
+        var baselineLookups = (Checkpoint) null;
+
+        try {
+            finder = createFinder(config, client);
+            baselineLookups = getBaselineLookups(baseline);
+        } catch (IOException | RuntimeException e) {
+            uploads.delete(uri);
+            throw e;
+        }
+
+        if (!results.containsKey(id)) {
+            var configDigest = Checkpoints.getConfigDigest(finder.getConfig());
+            var result = contentReuse ? reuse(id, uri, RemoteFileInfo.unknown(), upload.getChecksums(), configDigest)
+                    : null;
+
+            if (result != null) {
+                uploads.delete(uri);
+                configs.putIfAbsent(id, finder.getConfig());
+                results.putIfAbsent(id, CompletableFuture.completedFuture(result));
+                return id;
+            }
+        }
+
+        // The same content was submitted before, and its analysis holds its own reference to the file
+        if (!submit(id, uri, finder, client, baseline, baselineLookups)) {
+            uploads.delete(uri);
+        }
+
+        return id;
+    }
+
+    /**
+     * Starts an analysis unless one with the same id is already known.
+     *
+     * @return whether the analysis was started
+     */
+    private boolean submit(
+            String id,
+            URI uri,
+            Finder finder,
+            Client client,
+            String baseline,
+            Checkpoint baselineLookups) throws IOException {
+        var json = JSONUtils.dumpString(finder.getConfig());
+        var started = new AtomicBoolean();
+
+        results.computeIfAbsent(id, k -> {
+            started.set(true);
+            journal.submitted(id, uri.toString(), client.getId(), json, baseline);
+
+            try {
+                return start(id, uri, finder, client, baseline, baselineLookups);
+            } catch (ClientErrorException e) {
+                journal.failed(id);
+                uploads.delete(uri);
+                throw e;
+            }
+        });
+
+        return started.get();
+    }
+
+    /**
+     * Serves a stored result if the remote file has not changed since it was analyzed, and refreshes the lookups in
+     * the background if the result is older than the refresh interval.
+     */
+    private boolean serveStored(String id, URI uri, Finder finder, Client client) {
+        var meta = resultStore.getMeta(id);
+
+        if (meta == null) {
+            return false;
+        }
+
+        var config = finder.getConfig();
+        var configDigest = Checkpoints.getConfigDigest(config);
+
+        if (!configDigest.equals(meta.getConfigDigest())) {
+            LOGGER.info("Stored result {} was made with a different build config", id);
+            return false;
+        }
+
+        var current = remoteFiles.revalidate(uri);
+
+        if (meta.getRemote() == null || !meta.getRemote().isUnchanged(current)) {
+            LOGGER.info("Stored result {} is stale, {} has changed or cannot be revalidated", id, uri);
+            resultStore.delete(id);
+            return false;
+        }
+
+        var result = resultStore.getResult(id);
+
+        if (result == null) {
+            return false;
+        }
+
+        LOGGER.info("Serving stored result {} of unchanged {}", id, uri);
+
+        configs.putIfAbsent(id, config);
+        results.putIfAbsent(id, CompletableFuture.completedFuture(result));
+
+        if (refreshAfter > 0L && System.currentTimeMillis() - meta.getRefreshedAt() > refreshAfter) {
+            refresh(meta, finder, client);
+        }
+
+        return true;
+    }
+
+    /**
+     * Serves the stored result of another URL if the server announces a checksum of this file, in a header or a
+     * sidecar file, that matches the content of the other.
+     */
+    private boolean serveByRemoteChecksum(String id, URI uri, Finder finder) {
+        if (!contentReuse) {
+            return false;
+        }
+
+        var remote = remoteFiles.head(uri);
+        var checksums = new TreeMap<>(remote.getChecksums());
+
+        if (checksums.isEmpty() && contentSidecar) {
+            var sha256 = remoteFiles.getSidecarChecksum(uri, ChecksumType.sha256);
+
+            if (sha256 != null) {
+                checksums.put(ChecksumType.sha256.name(), sha256);
+            }
+        }
+
+        if (checksums.isEmpty()) {
+            return false;
+        }
+
+        var configDigest = Checkpoints.getConfigDigest(finder.getConfig());
+        var result = reuse(id, uri, remote, checksums, configDigest);
+
+        if (result == null) {
+            return false;
+        }
+
+        remoteContentReuses.inc();
+        configs.putIfAbsent(id, finder.getConfig());
+        results.putIfAbsent(id, CompletableFuture.completedFuture(result));
+
+        return true;
+    }
+
+    /**
+     * Reuses the stored result of another URL or upload if a local file has the same content. Directories are
+     * always analyzed. Hashing reads the whole file, so this runs in the scheduled analysis and not on the request.
+     */
+    private FinderResult reuseByLocalChecksum(String id, URI uri, RemoteFileInfo remote, String configDigest)
+            throws IOException {
+        var path = Paths.get(uri);
+
+        if (!contentReuse || resultStore.getContentIndexSize() == 0 || !Files.isRegularFile(path)) {
+            return null;
+        }
+
+        var checksums = Map.of(ChecksumType.sha256.name(), LocalFiles.sha256(path));
+        var result = reuse(id, uri, remote, checksums, configDigest);
+
+        if (result != null) {
+            localContentReuses.inc();
+        }
+
+        return result;
+    }
+
+    /**
+     * Looks up a stored result of a file with the same content and, if there is one, stores a copy of it under the
+     * given id and URL.
+     */
+    private FinderResult reuse(
+            String id,
+            URI uri,
+            RemoteFileInfo remote,
+            Map<String, String> contentChecksums,
+            String configDigest) {
+        var match = resultStore.findByContent(contentChecksums, configDigest);
+
+        if (match == null || match.getId().equals(id)) {
+            return null;
+        }
+
+        var stored = resultStore.getResult(match.getId());
+
+        if (stored == null) {
+            return null;
+        }
+
+        try {
+            var result = new FinderResult(id, uri.toURL(), stored);
+            var meta = new StoredResult();
+            var now = System.currentTimeMillis();
+            var allContentChecksums = new TreeMap<>(match.getContentChecksums());
+
+            allContentChecksums.putAll(contentChecksums);
+            meta.setId(id);
+            meta.setUrl(uri.toString());
+            meta.setConfigDigest(configDigest);
+            meta.setRemote(remote);
+            meta.setContentChecksums(allContentChecksums);
+            meta.setStoredAt(now);
+            meta.setRefreshedAt(match.getRefreshedAt());
+            resultStore.save(meta, result, resultStore.getCheckpoint(match.getId()));
+
+            LOGGER.info("Reusing result {} of {} for identical {}", match.getId(), match.getUrl(), uri);
+
+            return result;
+        } catch (MalformedURLException e) {
+            LOGGER.warn("Cannot reuse result {} for {}: {}", match.getId(), uri, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Gets the checksums of the analyzed file itself, which is the only file that is not inside an archive.
+     */
+    private static Map<String, String> getTopLevelChecksums(
+            Map<ChecksumType, MultiValuedMap<String, String>> checksums) {
+        var topLevel = new TreeMap<String, String>();
+
+        if (checksums == null) {
+            return topLevel;
+        }
+
+        checksums.forEach(
+                (type, values) -> values.entries()
+                        .stream()
+                        .filter(entry -> !entry.getValue().contains("!/"))
+                        .findFirst()
+                        .ifPresent(entry -> topLevel.put(type.name(), entry.getKey())));
+
+        return topLevel;
+    }
+
+    /**
+     * Repeats only the Koji and PNC lookups of a stored result, from its stored checksums, and swaps in the new
+     * result when done.
+     */
+    private void refresh(StoredResult meta, Finder finder, Client client) {
+        var id = meta.getId();
+        var stored = resultStore.getCheckpoint(id);
+        var checksums = stored != null ? stored.getChecksums() : null;
+
+        if (checksums == null || stopping || !refreshing.add(id)) {
+            return;
+        }
+
+        var uri = URI.create(meta.getUrl());
+        var checkpoint = new Checkpoint();
+
+        checkpoint.setChecksums(checksums);
+        checkpoint.setConfigDigest(meta.getConfigDigest());
+        finder.setCheckpoint(checkpoint);
+
+        LOGGER.info("Refreshing lookups of stored result {} in the background", id);
+
+        try {
+            scheduler.submit(uri, client, () -> {
+                var status = new FinderStatus();
+
+                try {
+                    return finder.find(id, uri.toURL(), status, status);
+                } catch (IOException | KojiClientException e) {
+                    throw new InternalServerErrorException(e);
+                }
+            }).whenComplete((result, error) -> {
+                refreshing.remove(id);
+
+                if (error != null) {
+                    LOGGER.warn("Refreshing stored result {} failed, keeping it: {}", id, error.getMessage());
+                    return;
+                }
+
+                meta.setRefreshedAt(System.currentTimeMillis());
+                resultStore.save(meta, result, checkpoint);
+                results.put(id, CompletableFuture.completedFuture(result));
+
+                LOGGER.info("Swapped in refreshed result {}", id);
+            });
+        } catch (ClientErrorException e) {
+            refreshing.remove(id);
+            LOGGER.info("Not refreshing stored result {}: {}", id, e.getMessage());
+        }
+    }
+
+    /**
+     * Replays the analyses that were submitted but not finished before the last shutdown, with their original ids
+     * and build configs.
+     */
+    public void replay() {
+        for (var entry : journal.recover()) {
+            try {
+                resume(entry);
+            } catch (IOException | RuntimeException e) {
+                LOGGER.error(
+                        "Failed to replay analysis {} of {}: {}",
+                        entry.getId(),
+                        entry.getUrl(),
+                        e.getMessage(),
+                        e);
+                journal.failed(entry.getId());
+                deleteUpload(entry);
+            }
+        }
+    }
+
+    private void deleteUpload(JournalEntry entry) {
+        try {
+            uploads.delete(URI.create(entry.getUrl()));
+        } catch (IllegalArgumentException e) {
+            LOGGER.debug("Not an upload: {}", entry.getUrl());
+        }
+    }
+
+    private void resume(JournalEntry entry) throws IOException {
+        var id = entry.getId();
+        var uri = URI.create(entry.getUrl());
+        var client = clientShares.get(entry.getClient(), null);
+        var finder = new Finder(caches, kojiSessions, pncClients, deadline, client);
+
+        if (uploads.isUpload(uri)) {
+            // Uploads are outside the allowed local roots, so only check that the file was kept
+            if (!uploads.retain(uri)) {
+                throw new BadRequestException("Uploaded file " + uri + " no longer exists");
+            }
+        } else if (LocalFiles.isLocal(uri)) {
+            localFiles.resolve(uri);
+        }
+
+        if (entry.getConfig() != null) {
+            finder.setConfig(BuildConfig.load(entry.getConfig()));
+        }
+
+        var baseline = entry.getBaseline();
+        var baselineLookups = baseline != null ? resultStore.getCheckpoint(baseline) : null;
+
+        LOGGER.info("Replaying analysis {} of {} for client {}", id, uri, client.getId());
+
+        results.computeIfAbsent(id, k -> start(id, uri, finder, client, baseline, baselineLookups));
+    }
+
+    private CompletionStage<FinderResult> start(
+            String id,
+            URI uri,
+            Finder finder,
+            Client client,
+            String baseline,
+            Checkpoint baselineLookups) {
+        var config = finder.getConfig();
+        var configDigest = Checkpoints.getConfigDigest(config);
+        var checkpoint = checkpoints.load(id, configDigest);
+
+        if (checkpoint != null) {
+            LOGGER.info("Analysis {} of {} resumes from its checkpoint", id, uri);
+            finder.setCheckpoint(checkpoint);
+        }
+
+        prepareCheckpoint(id, uri, finder, configDigest, baseline, baselineLookups);
+
+        var remote = new AtomicReference<>(RemoteFileInfo.unknown());
+        var reused = new AtomicBoolean();
+
+        finder.setCheckpointListener(computed -> checkpoints.save(id, computed));
+
+        if (contentReuse) {
+            finder.setReuse(checksums -> {
+                // The files of a directory have no single top-level checksum
+                if (finder.getInputs() != null) {
+                    return null;
+                }
+
+                var result = reuse(id, uri, remote.get(), getTopLevelChecksums(checksums), configDigest);
+
+                if (result != null) {
+                    computedContentReuses.inc();
+                }
+
+                return result;
+            });
+        }
+
+        analyses.register(id, finder);
+
+        try {
+            var future = scheduler.submit(uri, client, () -> {
+                // A resumed checkpoint is only valid for the same file, so ask the server rather than the HEAD cache
+                var current = checkpoint != null ? remoteFiles.revalidate(uri) : remoteFiles.head(uri);
+
+                if (checkpoint != null && !checkpoint.isFor(current)) {
+                    LOGGER.info("Discarding checkpoint of analysis {}: {} may have changed since it was made", id, uri);
+                    checkpoints.delete(id);
+                    finder.setCheckpoint(new Checkpoint());
+                    prepareCheckpoint(id, uri, finder, configDigest, baseline, baselineLookups);
+                }
+
+                remote.set(current);
+                finder.getCheckpoint().setRemote(current);
+                configs.putIfAbsent(id, config);
+
+                var status = new FinderStatus();
+
+                statuses.putIfAbsent(id, status);
+
+                try {
+                    if (LocalFiles.isLocal(uri)) {
+                        var result = reuseByLocalChecksum(id, uri, current, configDigest);
+
+                        if (result != null) {
+                            reused.set(true);
+                            return result;
+                        }
+
+                        if (Files.isDirectory(Paths.get(uri))) {
+                            finder.setInputs(localFiles.list(Paths.get(uri)));
+                        }
+                    }
+
+                    return finder.find(id, uri.toURL(), status, status);
+                } catch (IOException | KojiClientException e) {
+                    throw new InternalServerErrorException(e);
+                } finally {
+                    analyses.unregister(id, finder);
+                }
+            });
+
+            future.whenComplete(
+                    (result, error) -> finished(id, uri, finder, remote.get(), reused.get(), result, error));
+
+            return future;
+        } catch (ClientErrorException e) {
+            analyses.unregister(id, finder);
+            throw e;
+        }
+    }
+
+    private static void prepareCheckpoint(
+            String id,
+            URI uri,
+            Finder finder,
+            String configDigest,
+            String baseline,
+            Checkpoint baselineLookups) {
+        finder.getCheckpoint().setConfigDigest(configDigest);
+
+        if (baselineLookups != null) {
+            LOGGER.info(
+                    "Analysis {} of {} reuses {} lookups of baseline {}",
+                    id,
+                    uri,
+                    baselineLookups.getArchives().size() + baselineLookups.getPncArtifacts().size(),
+                    baseline);
+            finder.getCheckpoint().seed(baseline, baselineLookups);
+        }
+    }
+
+    private void finished(
+            String id,
+            URI uri,
+            Finder finder,
+            RemoteFileInfo remote,
+            boolean reused,
+            FinderResult result,
+            Throwable error) {
+        if (error == null && reused) {
+            // The reused result is already stored with the lookups of the result it was copied from
+            journal.completed(id);
+            checkpoints.delete(id);
+            return;
+        }
+
+        if (error == null) {
+            var meta = new StoredResult();
+            var now = System.currentTimeMillis();
+
+            meta.setId(id);
+            meta.setUrl(uri.toString());
+            meta.setConfigDigest(finder.getCheckpoint().getConfigDigest());
+            var checksums = finder.getCheckpoint().getChecksums();
+            var contentChecksums = finder.getInputs() == null ? getTopLevelChecksums(checksums)
+                    : new TreeMap<String, String>();
+
+            contentChecksums.putAll(remote.getChecksums());
+            meta.setRemote(remote);
+            meta.setContentChecksums(contentChecksums);
+            meta.setStoredAt(now);
+            meta.setRefreshedAt(now);
+            resultStore.save(meta, result, finder.getCheckpoint());
+            journal.completed(id);
+            checkpoints.delete(id);
+            uploads.delete(uri);
+            return;
+        }
+
+        var cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+
+        if (cause instanceof CancellationException) {
+            journal.cancelled(id);
+            checkpoints.delete(id);
+            uploads.delete(uri);
+        } else if (stopping) {
+            LOGGER.info("Analysis {} interrupted by shutdown, keeping it in the job journal", id);
+        } else {
+            // Keep the checksums and resolved lookups so that a retry does not start over
+            journal.failed(id);
+            checkpoints.save(id, finder.getCheckpoint());
+            uploads.delete(uri);
+        }
+    }
+
+    public boolean cancel(String id) {
+        var cancelled = analyses.cancel(id);
+        var futureResult = results.remove(id);
+
+        var stored = resultStore.delete(id);
+
+        configs.remove(id);
+        statuses.remove(id);
+
+        if (!cancelled && futureResult == null && !stored) {
+            return false;
+        }
+
+        if (futureResult != null) {
+            futureResult.toCompletableFuture().cancel(true);
+        }
+
+        LOGGER.info("Result id {} {}", id, cancelled ? "cancelled" : "deleted");
+
+        return true;
+    }
+
+    /**
+     * Stops accepting and starting analyses, gives running ones the grace period to finish, and checkpoints and
+     * stops the rest so that they resume from their checkpoint when replayed.
+     */
+    public void drain() {
+        stopping = true;
+        scheduler.pause();
+
+        var end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(gracePeriod);
+
+        LOGGER.info("Draining {} running analyses for at most {} ms", scheduler.getRunning(), gracePeriod);
+
+        try {
+            while (scheduler.getRunning() > 0 && System.nanoTime() - end < 0L) {
+                Thread.sleep(DRAIN_POLL_MILLIS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        analyses.getAll().forEach((id, finder) -> {
+            LOGGER.info("Checkpointing analysis {} after grace period", id);
+            checkpoints.save(id, finder.getCheckpoint());
+            finder.cancel();
+        });
+    }
+}
@@ -17,7 +17,9 @@ package org.jboss.pnc.deliverablesanalyzer;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.event.Observes;
+import javax.inject.Inject;
 
+import org.jboss.pnc.deliverablesanalyzer.cache.CacheWarmup;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -28,13 +30,24 @@ import io.quarkus.runtime.StartupEvent;
 public class ApplicationLifecycle {
     private static final Logger LOGGER = LoggerFactory.getLogger(ApplicationLifecycle.class);
 
+    @Inject
+    CacheWarmup cacheWarmup;
+
+    @Inject
+    AnalysisSubmitter submitter;
+
     public void onStart(@Observes StartupEvent event) {
         if (LOGGER.isInfoEnabled()) {
             LOGGER.info("{} started", Version.getVersion());
         }
+
+        cacheWarmup.start();
+        submitter.replay();
     }
 
     public void onStop(@Observes ShutdownEvent event) {
+        submitter.drain();
+
         if (LOGGER.isInfoEnabled()) {
             LOGGER.info("{} stopped", Version.getVersion());
         }
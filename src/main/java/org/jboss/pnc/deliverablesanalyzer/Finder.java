@@ -24,23 +24,24 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Stream;
 
 import org.apache.commons.collections4.MultiValuedMap;
 import org.eclipse.microprofile.config.ConfigProvider;
 import org.infinispan.commons.util.Version;
-import org.infinispan.configuration.cache.ConfigurationBuilder;
-import org.infinispan.configuration.global.GlobalConfigurationBuilder;
-import org.infinispan.configuration.global.GlobalConfigurationChildBuilder;
-import org.infinispan.jboss.marshalling.commons.GenericJBossMarshaller;
 import org.infinispan.manager.DefaultCacheManager;
-import org.infinispan.manager.EmbeddedCacheManager;
 import org.jboss.pnc.build.finder.core.BuildConfig;
 import org.jboss.pnc.build.finder.core.BuildFinder;
 import org.jboss.pnc.build.finder.core.BuildFinderListener;
@@ -49,10 +50,15 @@ import org.jboss.pnc.build.finder.core.ConfigDefaults;
 import org.jboss.pnc.build.finder.core.DistributionAnalyzer;
 import org.jboss.pnc.build.finder.core.DistributionAnalyzerListener;
 import org.jboss.pnc.build.finder.core.Utils;
-import org.jboss.pnc.build.finder.koji.KojiBuild;
-import org.jboss.pnc.build.finder.koji.KojiClientSession;
-import org.jboss.pnc.build.finder.pnc.client.HashMapCachingPncClient;
+import org.jboss.pnc.deliverablesanalyzer.cache.Caches;
+import org.jboss.pnc.deliverablesanalyzer.checkpoint.Checkpoint;
+import org.jboss.pnc.deliverablesanalyzer.koji.CheckpointClientSession;
+import org.jboss.pnc.deliverablesanalyzer.koji.KojiSessions;
 import org.jboss.pnc.deliverablesanalyzer.model.FinderResult;
+import org.jboss.pnc.deliverablesanalyzer.pnc.CheckpointPncClient;
+import org.jboss.pnc.deliverablesanalyzer.pnc.PncClients;
+import org.jboss.pnc.deliverablesanalyzer.resilience.Deadline;
+import org.jboss.pnc.deliverablesanalyzer.scheduler.Client;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -61,30 +67,46 @@ import com.redhat.red.build.koji.KojiClientException;
 public class Finder {
     private static final Logger LOGGER = LoggerFactory.getLogger(Finder.class);
 
-    private final File configFile = new File(ConfigDefaults.CONFIG);
+    private static final File CONFIG_FILE = new File(ConfigDefaults.CONFIG);
+
+    private static final long AWAIT_SLICE = 1000L;
+
+    private final Caches caches;
+
+    private final KojiSessions kojiSessions;
+
+    private final PncClients pncClients;
+
+    private final Deadline deadline;
+
+    private final Client client;
 
     private DefaultCacheManager cacheManager;
 
     private BuildConfig config;
 
-    public Finder() throws IOException {
-        config = setupBuildConfig();
-    }
+    private volatile ExecutorService pool;
 
-    private static void ensureConfigurationDirectoryExists() throws IOException {
-        var configPath = Paths.get(ConfigDefaults.CONFIG_PATH);
+    private volatile Checkpoint checkpoint = new Checkpoint();
 
-        LOGGER.info("Configuration directory is: {}", configPath);
+    private volatile Consumer<Checkpoint> checkpointListener;
 
-        if (Files.exists(configPath)) {
-            if (!Files.isDirectory(configPath)) {
-                throw new IOException("Configuration directory is not a directory: " + configPath);
-            }
-        } else {
-            LOGGER.info("Creating configuration directory: {}", configPath);
+    private volatile Function<Map<ChecksumType, MultiValuedMap<String, String>>, FinderResult> reuse;
 
-            Files.createDirectory(configPath);
-        }
+    private volatile List<String> inputs;
+
+    public Finder(
+            Caches caches,
+            KojiSessions kojiSessions,
+            PncClients pncClients,
+            long deadlineMillis,
+            Client client) throws IOException {
+        this.caches = caches;
+        this.kojiSessions = kojiSessions;
+        this.pncClients = pncClients;
+        this.deadline = new Deadline(deadlineMillis);
+        this.client = client;
+        config = setupBuildConfig();
     }
 
     private static void setKojiHubURL(BuildConfig config) throws IOException {
@@ -143,14 +165,15 @@ public class Finder {
 
     }
 
-    private BuildConfig setupBuildConfig() throws IOException {
+    public static BuildConfig loadBuildConfig() throws IOException {
         var defaults = BuildConfig.load(Finder.class.getClassLoader());
+        var config = (BuildConfig) null;
 
-        if (configFile.exists()) {
+        if (CONFIG_FILE.exists()) {
             if (defaults == null) {
-                config = BuildConfig.load(configFile);
+                config = BuildConfig.load(CONFIG_FILE);
             } else {
-                config = BuildConfig.merge(defaults, configFile);
+                config = BuildConfig.merge(defaults, CONFIG_FILE);
             }
         } else {
             config = Objects.requireNonNullElse(defaults, new BuildConfig());
@@ -160,6 +183,12 @@ public class Finder {
         setKojiWebURL(config);
         setPncURL(config);
 
+        return config;
+    }
+
+    private BuildConfig setupBuildConfig() throws IOException {
+        config = loadBuildConfig();
+
         // XXX: Force output directory since it defaults to "." which usually isn't the best
         var tmpDir = Files.createTempDirectory("deliverables-analyzer-");
 
@@ -178,79 +207,9 @@ public class Finder {
         }
     }
 
-    @SuppressWarnings("deprecation")
-    private void initCaches(BuildConfig config) throws IOException {
-        ensureConfigurationDirectoryExists();
-
-        var locationPath = Paths.get(ConfigDefaults.CONFIG_PATH, "cache");
-        var location = locationPath.toAbsolutePath().toString();
-
-        LOGGER.info("Cache location is: {}", location);
-
-        if (!Files.exists(locationPath)) {
-            Files.createDirectory(locationPath);
-        }
-
-        if (!Files.isDirectory(locationPath)) {
-            throw new IOException("Tried to set cache location to non-directory: " + locationPath);
-        }
-
-        if (!Files.isReadable(locationPath)) {
-            throw new IOException("Cache location is not readable: " + locationPath);
-        }
-
-        if (!Files.isWritable(locationPath)) {
-            throw new IOException("Cache location is not writable: " + locationPath);
-        }
-
-        var externalizer = new KojiBuild.KojiBuildExternalizer();
-        GlobalConfigurationChildBuilder globalConfig = new GlobalConfigurationBuilder();
-
-        globalConfig.globalState()
-                .persistentLocation(location)
-                .serialization()
-                .marshaller(new GenericJBossMarshaller())
-                .addAdvancedExternalizer(externalizer.getId(), externalizer)
-                .whiteList()
-                .addRegexp(".*")
-                .create();
-
-        var configuration = new ConfigurationBuilder().expiration()
-                .lifespan(config.getCacheLifespan())
-                .maxIdle(config.getCacheMaxIdle())
-                .wakeUpInterval(-1L)
-                .persistence()
-                .passivation(false)
-                .addSingleFileStore()
-                .segmented(true)
-                .shared(false)
-                .preload(true)
-                .fetchPersistentState(true)
-                .purgeOnStartup(false)
-                .location(location)
-                .build();
-
-        var checksumTypes = config.getChecksumTypes();
-        var globalConfiguration = globalConfig.build();
-        cacheManager = new DefaultCacheManager(globalConfiguration);
-
-        LOGGER.info("Setting up caches for checksum types size: {}", checksumTypes.size());
-
-        for (var checksumType : checksumTypes) {
-            cacheManager.defineConfiguration("files-" + checksumType, configuration);
-            cacheManager.defineConfiguration("checksums-" + checksumType, configuration);
-            cacheManager.defineConfiguration("checksums-pnc-" + checksumType, configuration);
-            cacheManager.defineConfiguration("rpms-" + checksumType, configuration);
-        }
-
-        cacheManager.defineConfiguration("builds", configuration);
-        cacheManager.defineConfiguration("builds-pnc", configuration);
-    }
-
-    private static boolean cleanup(String directory, EmbeddedCacheManager cacheManager, ExecutorService pool) {
+    private static boolean cleanup(String directory, ExecutorService pool) {
         var success = cleanupOutput(directory);
 
-        success |= cleanupCache(cacheManager);
         success |= cleanupPool(pool);
 
         return success;
@@ -269,19 +228,6 @@ public class Finder {
         return true;
     }
 
-    private static boolean cleanupCache(EmbeddedCacheManager cacheManager) {
-        if (cacheManager != null) {
-            try {
-                cacheManager.close();
-            } catch (IOException e) {
-                LOGGER.warn("Failed to close cache manager {}", cacheManager.getCache().getName(), e);
-                return false;
-            }
-        }
-
-        return true;
-    }
-
     private static boolean cleanupPool(ExecutorService pool) {
         if (pool != null) {
             Utils.shutdownAndAwaitTermination(pool);
@@ -298,11 +244,15 @@ public class Finder {
         var result = (FinderResult) null;
         var pool = (ExecutorService) null;
 
+        deadline.start();
+
         try {
+            checkDeadline(url);
+
             if (cacheManager == null && !config.getDisableCache()) {
                 LOGGER.info("Initializing {} {} cache", Version.getBrandName(), Version.getVersion());
 
-                initCaches(config);
+                cacheManager = caches.getCacheManager(config);
 
                 LOGGER.info(
                         "Initialized {} {} cache {}",
@@ -318,25 +268,44 @@ public class Finder {
             LOGGER.info("Setting up fixed thread pool of size: {}", nThreads);
 
             pool = Executors.newFixedThreadPool(nThreads);
+            this.pool = pool;
+
+            if (deadline.isCancelled()) {
+                pool.shutdownNow();
+            }
 
-            var files = Collections.singletonList(url.toExternalForm());
+            var checksums = checkpoint.getChecksums();
 
-            LOGGER.info(
-                    "Starting distribution analysis for {} with config {} and cache manager {}",
-                    files,
-                    config,
-                    cacheManager != null ? cacheManager.getName() : "disabled");
+            if (checksums != null) {
+                LOGGER.info("Resuming analysis of {} from checkpointed checksums", url);
 
-            var analyzer = new DistributionAnalyzer(files, config, cacheManager);
+                result = findBuilds(
+                        id,
+                        url,
+                        null,
+                        pool,
+                        CompletableFuture.completedFuture(checksums),
+                        buildFinderListener);
+            } else {
+                var files = inputs != null ? inputs : Collections.singletonList(url.toExternalForm());
+
+                LOGGER.info(
+                        "Starting distribution analysis for {} with config {} and cache manager {}",
+                        files,
+                        config,
+                        cacheManager != null ? cacheManager.getName() : "disabled");
 
-            analyzer.setListener(distributionAnalyzerListener);
+                var analyzer = new DistributionAnalyzer(files, config, cacheManager);
 
-            var futureChecksum = pool.submit(analyzer);
-            result = findBuilds(id, url, analyzer, pool, futureChecksum, buildFinderListener);
+                analyzer.setListener(distributionAnalyzerListener);
+
+                var futureChecksum = pool.submit(analyzer);
+                result = findBuilds(id, url, analyzer, pool, futureChecksum, buildFinderListener);
+            }
 
             LOGGER.info("Done finding builds for {}", url);
         } finally {
-            var isClean = cleanup(config.getOutputDirectory(), cacheManager, pool);
+            var isClean = cleanup(config.getOutputDirectory(), pool);
 
             if (isClean) {
                 LOGGER.info("Cleanup after finding URL: {}", url);
@@ -363,29 +332,45 @@ public class Finder {
             throw new KojiClientException("Koji hub URL is not set");
         }
 
-        LOGGER.info("Initializing Koji client session with URL {}", kojiHubURL);
-
         var pncURL = config.getPncURL();
 
-        try (var session = new KojiClientSession(kojiHubURL);
-                var pncClient = pncURL != null ? new HashMapCachingPncClient(config) : null) {
+        try (var session = new CheckpointClientSession(kojiSessions.open(config, deadline, client), checkpoint);
+                var pncClient = pncURL != null
+                        ? new CheckpointPncClient(pncClients.open(config, deadline), checkpoint)
+                        : null) {
             var buildFinder = (BuildFinder) null;
 
             if (pncClient == null) {
                 LOGGER.warn("Initializing Build Finder with PNC support disabled because PNC URL is not set");
                 buildFinder = new BuildFinder(session, config, analyzer, cacheManager);
             } else {
-                LOGGER.info("Initializing Build Finder PNC client with URL {}", pncURL);
                 buildFinder = new BuildFinder(session, config, analyzer, cacheManager, pncClient);
             }
 
             buildFinder.setListener(buildFinderListener);
 
-            var futureBuilds = pool.submit(buildFinder);
+            var checkpointedFinder = buildFinder;
+            var futureBuilds = analyzer != null ? pool.submit(buildFinder)
+                    : pool.submit(() -> checkpointedFinder.findBuilds(futureChecksum.get()));
 
             try {
-                var checksums = futureChecksum.get();
-                var builds = futureBuilds.get();
+                var checksums = await(url, pool, futureChecksum);
+
+                checkpoint.setChecksums(checksums);
+
+                if (analyzer != null && checkpointListener != null) {
+                    checkpointListener.accept(checkpoint);
+                }
+
+                var reused = analyzer != null && reuse != null ? reuse.apply(checksums) : null;
+
+                if (reused != null) {
+                    LOGGER.info("Reusing result of an identical file for {}, skipping remaining lookups", url);
+                    futureBuilds.cancel(true);
+                    return reused;
+                }
+
+                var builds = await(url, pool, futureBuilds);
 
                 if (LOGGER.isInfoEnabled()) {
                     var size = builds.size();
@@ -396,22 +381,120 @@ public class Finder {
 
                 var result = new FinderResult(id, url, builds);
 
+                if (checkpoint.getBaseline() != null) {
+                    LOGGER.info(
+                            "Baseline {} answered {} lookups for {}",
+                            checkpoint.getBaseline(),
+                            checkpoint.getHits(),
+                            url);
+                    result.setBaseline(checkpoint.getBaseline());
+                    result.setSavedLookups(checkpoint.getHits());
+                }
+
                 LOGGER.info("Returning result for {}", url);
 
                 return result;
             } catch (ExecutionException e) {
-                throw new KojiClientException("Got ExecutionException", e);
+                var cause = e.getCause();
+
+                if (cause instanceof KojiClientException) {
+                    throw (KojiClientException) cause;
+                }
+
+                throw new KojiClientException("Finding builds for %s failed: %s", cause, url, cause);
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
             }
+        } catch (KojiClientException e) {
+            throw e;
         } catch (Exception e) {
-            throw new KojiClientException("Got Exception", e);
+            throw new KojiClientException("Finding builds for %s failed: %s", e, url, e);
         }
 
         return null;
     }
 
+    private void checkDeadline(URL url) throws KojiClientException {
+        var violation = deadline.getViolation();
+
+        if (violation != null) {
+            throw new KojiClientException("Finding builds for %s aborted: %s", url, violation);
+        }
+    }
+
+    private <T> T await(URL url, ExecutorService pool, Future<T> future)
+            throws InterruptedException, ExecutionException, KojiClientException {
+        while (true) {
+            if (deadline.getViolation() != null) {
+                pool.shutdownNow();
+                checkDeadline(url);
+            }
+
+            try {
+                return future.get(Math.min(AWAIT_SLICE, deadline.getRemainingMillis()), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                LOGGER.trace("Still waiting for {}", url);
+            }
+        }
+    }
+
+    public void cancel() {
+        LOGGER.info("Cancelling analysis with output directory {}", config.getOutputDirectory());
+
+        deadline.cancel();
+
+        var currentPool = pool;
+
+        if (currentPool != null) {
+            currentPool.shutdownNow();
+        }
+
+        cleanupOutput(config.getOutputDirectory());
+    }
+
+    public Checkpoint getCheckpoint() {
+        return checkpoint;
+    }
+
+    public void setCheckpoint(Checkpoint checkpoint) {
+        this.checkpoint = checkpoint;
+    }
+
+    /**
+     * Sets a function called with the checksums as soon as the distribution analyzer has computed them. If it returns
+     * a result, the remaining lookups are cancelled and that result is returned.
+     */
+    public void setReuse(Function<Map<ChecksumType, MultiValuedMap<String, String>>, FinderResult> reuse) {
+        this.reuse = reuse;
+    }
+
+    public List<String> getInputs() {
+        return inputs;
+    }
+
+    /**
+     * Sets the files to analyze instead of the URL itself, such as the files of a local directory.
+     */
+    public void setInputs(List<String> inputs) {
+        this.inputs = inputs;
+    }
+
+    /**
+     * Sets a listener called with the checkpoint as soon as the distribution analyzer has computed the checksums.
+     */
+    public void setCheckpointListener(Consumer<Checkpoint> checkpointListener) {
+        this.checkpointListener = checkpointListener;
+    }
+
     public BuildConfig getConfig() {
         return config;
     }
+
+    /**
+     * Replaces the build config, keeping this finder's output directory.
+     */
+    public void setConfig(BuildConfig config) {
+        config.setOutputDirectory(this.config.getOutputDirectory());
+        this.config = config;
+    }
 }
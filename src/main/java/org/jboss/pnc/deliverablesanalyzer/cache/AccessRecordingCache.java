@@ -0,0 +1,45 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.cache;
+
+import org.infinispan.AdvancedCache;
+import org.infinispan.Cache;
+import org.infinispan.cache.impl.AbstractDelegatingCache;
+
+public class AccessRecordingCache extends AbstractDelegatingCache<Object, Object> {
+    private final CacheAccessLog accessLog;
+
+    public AccessRecordingCache(Cache<Object, Object> cache, CacheAccessLog accessLog) {
+        super(cache);
+        this.accessLog = accessLog;
+    }
+
+    @Override
+    public AdvancedCache<Object, Object> getAdvancedCache() {
+        return getDelegate().getAdvancedCache();
+    }
+
+    @Override
+    public Object get(Object key) {
+        var value = super.get(key);
+
+        if (value != null) {
+            accessLog.record(getName(), key);
+        }
+
+        return value;
+    }
+}
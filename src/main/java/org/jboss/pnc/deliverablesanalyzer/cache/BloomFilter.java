@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.cache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.apache.commons.codec.digest.DigestUtils;
+
+public class BloomFilter {
+    private static final int HEX_LONG_LENGTH = 16;
+
+    private static final double LN2 = Math.log(2.0D);
+
+    private final AtomicLongArray bits;
+
+    private final long numBits;
+
+    private final int numHashFunctions;
+
+    public BloomFilter(long expectedInsertions, double falsePositiveProbability) {
+        var n = Math.max(1L, expectedInsertions);
+        var m = (long) Math.ceil(-n * Math.log(falsePositiveProbability) / (LN2 * LN2));
+
+        this.numHashFunctions = Math.max(1, (int) Math.round((double) m / (double) n * LN2));
+        this.bits = new AtomicLongArray((int) ((m + Long.SIZE - 1) / Long.SIZE));
+        this.numBits = (long) bits.length() * Long.SIZE;
+    }
+
+    private BloomFilter(long[] data, int numHashFunctions) {
+        this.bits = new AtomicLongArray(data);
+        this.numBits = (long) data.length * Long.SIZE;
+        this.numHashFunctions = numHashFunctions;
+    }
+
+    private static long[] hash(String checksum) {
+        var hex = checksum;
+
+        if (hex.length() < 2 * HEX_LONG_LENGTH) {
+            hex = DigestUtils.md5Hex(checksum);
+        }
+
+        try {
+            var h1 = Long.parseUnsignedLong(hex.substring(0, HEX_LONG_LENGTH), 16);
+            var h2 = Long.parseUnsignedLong(hex.substring(HEX_LONG_LENGTH, 2 * HEX_LONG_LENGTH), 16);
+
+            return new long[] { h1, h2 };
+        } catch (NumberFormatException e) {
+            return hash(DigestUtils.md5Hex(checksum));
+        }
+    }
+
+    public void put(String checksum) {
+        var h = hash(checksum);
+
+        for (var i = 0; i < numHashFunctions; i++) {
+            var index = Math.floorMod(h[0] + i * h[1], numBits);
+            var word = (int) (index / Long.SIZE);
+            var mask = 1L << (index % Long.SIZE);
+
+            bits.getAndUpdate(word, value -> value | mask);
+        }
+    }
+
+    public boolean mightContain(String checksum) {
+        var h = hash(checksum);
+
+        for (var i = 0; i < numHashFunctions; i++) {
+            var index = Math.floorMod(h[0] + i * h[1], numBits);
+
+            if ((bits.get((int) (index / Long.SIZE)) & (1L << (index % Long.SIZE))) == 0L) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    public double getExpectedFalsePositiveProbability() {
+        var bitCount = 0L;
+
+        for (var i = 0; i < bits.length(); i++) {
+            bitCount += Long.bitCount(bits.get(i));
+        }
+
+        return Math.pow((double) bitCount / (double) numBits, numHashFunctions);
+    }
+
+    public void save(Path path) throws IOException {
+        try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            out.writeInt(numHashFunctions);
+            out.writeInt(bits.length());
+
+            for (var i = 0; i < bits.length(); i++) {
+                out.writeLong(bits.get(i));
+            }
+        }
+    }
+
+    public static BloomFilter load(Path path) throws IOException {
+        try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            var numHashFunctions = in.readInt();
+            var data = new long[in.readInt()];
+
+            for (var i = 0; i < data.length; i++) {
+                data[i] = in.readLong();
+            }
+
+            return new BloomFilter(data, numHashFunctions);
+        }
+    }
+}
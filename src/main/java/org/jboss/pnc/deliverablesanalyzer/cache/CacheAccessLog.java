@@ -0,0 +1,174 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.cache;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class CacheAccessLog {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CacheAccessLog.class);
+
+    private static final String SEPARATOR = "\t";
+
+    private static final int NUM_FIELDS = 4;
+
+    private final int maxKeysPerCache;
+
+    private final Map<String, Map<Object, LongAdder>> hits = new ConcurrentHashMap<>();
+
+    public CacheAccessLog(int maxKeysPerCache) {
+        this.maxKeysPerCache = maxKeysPerCache;
+    }
+
+    public static boolean isTracked(String cacheName) {
+        return "builds".equals(cacheName) || "builds-pnc".equals(cacheName) || cacheName.startsWith("checksums-");
+    }
+
+    public void record(String cacheName, Object key) {
+        var counts = hits.computeIfAbsent(cacheName, k -> new ConcurrentHashMap<>());
+        var adder = counts.get(key);
+
+        if (adder == null) {
+            if (counts.size() >= maxKeysPerCache) {
+                return;
+            }
+
+            adder = counts.computeIfAbsent(key, k -> new LongAdder());
+        }
+
+        adder.increment();
+    }
+
+    private void record(String cacheName, Object key, long count) {
+        var counts = hits.computeIfAbsent(cacheName, k -> new ConcurrentHashMap<>());
+
+        if (counts.size() < maxKeysPerCache) {
+            counts.computeIfAbsent(key, k -> new LongAdder()).add(count);
+        }
+    }
+
+    private static List<Map.Entry<Object, LongAdder>> sortByHits(Map<Object, LongAdder> counts, int limit) {
+        return counts.entrySet()
+                .stream()
+                .sorted(Comparator.comparingLong((Map.Entry<Object, LongAdder> e) -> e.getValue().sum()).reversed())
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    public Map<String, List<Object>> getHottestKeys(int limit) {
+        var hottestKeys = (Map<String, List<Object>>) new LinkedHashMap<String, List<Object>>();
+
+        for (var entry : hits.entrySet()) {
+            var keys = sortByHits(entry.getValue(), limit).stream()
+                    .map(Map.Entry::getKey)
+                    .collect(Collectors.toUnmodifiableList());
+
+            hottestKeys.put(entry.getKey(), keys);
+        }
+
+        return Collections.unmodifiableMap(hottestKeys);
+    }
+
+    private static boolean isSupportedKey(Object key) {
+        return key instanceof String || key instanceof Integer || key instanceof Long;
+    }
+
+    private static Object parseKey(String type, String value) {
+        switch (type) {
+            case "java.lang.String":
+                return value;
+            case "java.lang.Integer":
+                return Integer.valueOf(value);
+            case "java.lang.Long":
+                return Long.valueOf(value);
+            default:
+                return null;
+        }
+    }
+
+    public void load(Path path) {
+        if (!Files.exists(path)) {
+            LOGGER.info("No cache access log found at {}", path);
+            return;
+        }
+
+        try {
+            var lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+
+            for (var line : lines) {
+                var fields = line.split(SEPARATOR, NUM_FIELDS);
+
+                if (fields.length != NUM_FIELDS) {
+                    continue;
+                }
+
+                var key = parseKey(fields[2], fields[3]);
+
+                if (key != null) {
+                    record(fields[0], key, Long.parseLong(fields[1]));
+                }
+            }
+
+            LOGGER.info("Loaded {} entries from cache access log {}", lines.size(), path);
+        } catch (IOException | NumberFormatException e) {
+            LOGGER.warn("Failed to load cache access log {}", path, e);
+        }
+    }
+
+    public void save(Path path, int limit) {
+        var lines = (List<String>) new ArrayList<String>();
+
+        for (var entry : hits.entrySet()) {
+            for (var hit : sortByHits(entry.getValue(), limit)) {
+                var key = hit.getKey();
+
+                if (!isSupportedKey(key)) {
+                    continue;
+                }
+
+                lines.add(
+                        String.join(
+                                SEPARATOR,
+                                entry.getKey(),
+                                String.valueOf(hit.getValue().sum()),
+                                key.getClass().getName(),
+                                String.valueOf(key)));
+            }
+        }
+
+        try {
+            Files.write(path, lines, StandardCharsets.UTF_8);
+
+            LOGGER.info("Saved {} entries to cache access log {}", lines.size(), path);
+        } catch (IOException e) {
+            LOGGER.warn("Failed to save cache access log {}", path, e);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.cache;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.context.ManagedExecutor;
+import org.jboss.pnc.deliverablesanalyzer.Finder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+@ApplicationScoped
+public class CacheWarmup {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CacheWarmup.class);
+
+    @ConfigProperty(name = "analyze.cache.warmup.enabled", defaultValue = "false")
+    Boolean enabled;
+
+    @ConfigProperty(name = "analyze.cache.warmup.keys", defaultValue = "10000")
+    Integer maxKeys;
+
+    @Inject
+    Caches caches;
+
+    @Inject
+    ManagedExecutor pool;
+
+    private final AtomicInteger total = new AtomicInteger();
+
+    private final AtomicInteger loaded = new AtomicInteger();
+
+    private volatile State state = State.DISABLED;
+
+    public void start() {
+        if (!Boolean.TRUE.equals(enabled)) {
+            LOGGER.info("Cache warm-up disabled");
+            return;
+        }
+
+        state = State.PENDING;
+
+        pool.runAsync(this::warmUp);
+    }
+
+    private void warmUp() {
+        state = State.RUNNING;
+
+        try {
+            var config = Finder.loadBuildConfig();
+
+            if (config.getDisableCache()) {
+                LOGGER.info("Cache disabled. Skipping cache warm-up");
+                state = State.DONE;
+                return;
+            }
+
+            var cacheManager = caches.getCacheManager(config);
+            var hottestKeys = caches.getHottestKeys(maxKeys);
+
+            total.set(hottestKeys.values().stream().mapToInt(List::size).sum());
+
+            LOGGER.info("Warming up {} keys in {} caches", total.get(), hottestKeys.size());
+
+            for (var entry : hottestKeys.entrySet()) {
+                var cache = cacheManager.getCache(entry.getKey()).getAdvancedCache();
+
+                for (var key : entry.getValue()) {
+                    cache.get(key);
+                    loaded.incrementAndGet();
+                }
+            }
+
+            state = State.DONE;
+
+            LOGGER.info("Cache warm-up done. Loaded {} keys", loaded.get());
+        } catch (IOException | RuntimeException e) {
+            state = State.FAILED;
+
+            LOGGER.warn("Cache warm-up failed after loading {} keys", loaded.get(), e);
+        }
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public int getTotal() {
+        return total.get();
+    }
+
+    public int getLoaded() {
+        return loaded.get();
+    }
+
+    public int getPercent() {
+        if (state == State.DONE) {
+            return 100;
+        }
+
+        var totalInt = total.get();
+
+        if (totalInt == 0) {
+            return 0;
+        }
+
+        return (int) (((double) loaded.get() / (double) totalInt) * 100.0D);
+    }
+
+    public boolean isFinished() {
+        return state != State.PENDING && state != State.RUNNING;
+    }
+
+    public enum State {
+        DISABLED, PENDING, RUNNING, DONE, FAILED
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.cache;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.health.HealthCheck;
+import org.eclipse.microprofile.health.HealthCheckResponse;
+import org.eclipse.microprofile.health.Readiness;
+
+@Readiness
+@ApplicationScoped
+public class CacheWarmupHealthCheck implements HealthCheck {
+    @ConfigProperty(name = "analyze.cache.warmup.readiness", defaultValue = "false")
+    Boolean readiness;
+
+    @Inject
+    CacheWarmup warmup;
+
+    @Override
+    public HealthCheckResponse call() {
+        var up = !Boolean.TRUE.equals(readiness) || warmup.isFinished();
+
+        return HealthCheckResponse.named("Cache warm-up")
+                .withData("state", warmup.getState().name())
+                .withData("loaded", warmup.getLoaded())
+                .withData("total", warmup.getTotal())
+                .withData("percent", warmup.getPercent())
+                .state(up)
+                .build();
+    }
+}
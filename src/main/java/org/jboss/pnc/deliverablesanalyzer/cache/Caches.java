@@ -0,0 +1,307 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.cache;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.eclipse.microprofile.metrics.annotation.Gauge;
+import org.infinispan.Cache;
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.infinispan.configuration.global.GlobalConfigurationBuilder;
+import org.infinispan.configuration.global.GlobalConfigurationChildBuilder;
+import org.infinispan.jboss.marshalling.commons.GenericJBossMarshaller;
+import org.infinispan.manager.DefaultCacheManager;
+import org.jboss.pnc.build.finder.core.BuildConfig;
+import org.jboss.pnc.build.finder.core.BuildSystem;
+import org.jboss.pnc.build.finder.core.ConfigDefaults;
+import org.jboss.pnc.build.finder.koji.KojiBuild;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+@ApplicationScoped
+public class Caches {
+    private static final Logger LOGGER = LoggerFactory.getLogger(Caches.class);
+
+    @ConfigProperty(name = "analyze.cache.preload", defaultValue = "true")
+    Boolean preload;
+
+    @ConfigProperty(name = "analyze.cache.access-log.max-keys", defaultValue = "100000")
+    Integer accessLogMaxKeys;
+
+    @ConfigProperty(name = "analyze.cache.write-behind.enabled", defaultValue = "false")
+    Boolean writeBehindEnabled;
+
+    @ConfigProperty(name = "analyze.cache.write-behind.queue-size", defaultValue = "10000")
+    Integer writeBehindQueueSize;
+
+    @ConfigProperty(name = "analyze.cache.write-behind.batch-size", defaultValue = "500")
+    Integer writeBehindBatchSize;
+
+    @ConfigProperty(name = "analyze.cache.write-behind.flush-interval", defaultValue = "1000")
+    Long writeBehindFlushInterval;
+
+    @ConfigProperty(name = "analyze.cache.negative.ttl", defaultValue = "86400000")
+    Long negativeCacheTtl;
+
+    @ConfigProperty(name = "analyze.cache.near.enabled", defaultValue = "true")
+    Boolean nearCacheEnabled;
+
+    @ConfigProperty(name = "analyze.cache.near.max-size", defaultValue = "100000")
+    Long nearCacheMaxSize;
+
+    @ConfigProperty(name = "analyze.cache.near.ttl", defaultValue = "3600000")
+    Long nearCacheTtl;
+
+    @Inject
+    MetricRegistry registry;
+
+    private volatile DecoratingCacheManager cacheManager;
+
+    private WriteBehindQueue writeBehindQueue;
+
+    private CacheAccessLog accessLog;
+
+    private NearCache nearCache;
+
+    private static void ensureConfigurationDirectoryExists() throws IOException {
+        var configPath = Paths.get(ConfigDefaults.CONFIG_PATH);
+
+        LOGGER.info("Configuration directory is: {}", configPath);
+
+        if (Files.exists(configPath)) {
+            if (!Files.isDirectory(configPath)) {
+                throw new IOException("Configuration directory is not a directory: " + configPath);
+            }
+        } else {
+            LOGGER.info("Creating configuration directory: {}", configPath);
+
+            Files.createDirectory(configPath);
+        }
+    }
+
+    public synchronized DefaultCacheManager getCacheManager(BuildConfig config) throws IOException {
+        if (cacheManager == null) {
+            initCaches(config);
+        }
+
+        return cacheManager;
+    }
+
+    @SuppressWarnings("deprecation")
+    private void initCaches(BuildConfig config) throws IOException {
+        ensureConfigurationDirectoryExists();
+
+        var locationPath = Paths.get(ConfigDefaults.CONFIG_PATH, "cache");
+        var location = locationPath.toAbsolutePath().toString();
+
+        LOGGER.info("Cache location is: {}", location);
+
+        if (!Files.exists(locationPath)) {
+            Files.createDirectory(locationPath);
+        }
+
+        if (!Files.isDirectory(locationPath)) {
+            throw new IOException("Tried to set cache location to non-directory: " + locationPath);
+        }
+
+        if (!Files.isReadable(locationPath)) {
+            throw new IOException("Cache location is not readable: " + locationPath);
+        }
+
+        if (!Files.isWritable(locationPath)) {
+            throw new IOException("Cache location is not writable: " + locationPath);
+        }
+
+        var externalizer = new KojiBuild.KojiBuildExternalizer();
+        GlobalConfigurationChildBuilder globalConfig = new GlobalConfigurationBuilder();
+
+        globalConfig.globalState()
+                .persistentLocation(location)
+                .serialization()
+                .marshaller(new GenericJBossMarshaller())
+                .addAdvancedExternalizer(externalizer.getId(), externalizer)
+                .whiteList()
+                .addRegexp(".*")
+                .create();
+
+        var configuration = new ConfigurationBuilder().expiration()
+                .lifespan(config.getCacheLifespan())
+                .maxIdle(config.getCacheMaxIdle())
+                .wakeUpInterval(-1L)
+                .persistence()
+                .passivation(false)
+                .addSingleFileStore()
+                .segmented(true)
+                .shared(false)
+                .preload(preload)
+                .fetchPersistentState(true)
+                .purgeOnStartup(false)
+                .location(location)
+                .build();
+
+        var checksumTypes = config.getChecksumTypes();
+        var globalConfiguration = globalConfig.build();
+        var manager = new DecoratingCacheManager(globalConfiguration);
+
+        LOGGER.info("Setting up caches for checksum types size: {}", checksumTypes.size());
+
+        for (var checksumType : checksumTypes) {
+            manager.defineConfiguration("files-" + checksumType, configuration);
+            manager.defineConfiguration("checksums-" + checksumType, configuration);
+            manager.defineConfiguration("checksums-pnc-" + checksumType, configuration);
+            manager.defineConfiguration("rpms-" + checksumType, configuration);
+        }
+
+        manager.defineConfiguration("builds", configuration);
+        manager.defineConfiguration("builds-pnc", configuration);
+
+        var negativeConfiguration = new ConfigurationBuilder().read(configuration)
+                .expiration()
+                .lifespan(negativeCacheTtl)
+                .maxIdle(-1L)
+                .build();
+
+        manager.defineConfiguration(getNegativeCacheName(BuildSystem.koji), negativeConfiguration);
+        manager.defineConfiguration(getNegativeCacheName(BuildSystem.pnc), negativeConfiguration);
+
+        accessLog = new CacheAccessLog(accessLogMaxKeys);
+        accessLog.load(getAccessLogPath());
+
+        if (Boolean.TRUE.equals(writeBehindEnabled)) {
+            LOGGER.info(
+                    "Enabling cache store write-behind with queue size {}, batch size {} and flush interval {} ms",
+                    writeBehindQueueSize,
+                    writeBehindBatchSize,
+                    writeBehindFlushInterval);
+
+            writeBehindQueue = new WriteBehindQueue(
+                    writeBehindQueueSize,
+                    writeBehindBatchSize,
+                    writeBehindFlushInterval,
+                    registry.timer("cacheStoreFlushLatency"),
+                    registry.counter("cacheStoreFlushFailures"));
+
+            manager.addDecorator((cacheName, cache) -> new WriteBehindCache(cache, writeBehindQueue));
+        }
+
+        if (Boolean.TRUE.equals(nearCacheEnabled)) {
+            LOGGER.info("Enabling near cache with maximum size {} and TTL {} ms", nearCacheMaxSize, nearCacheTtl);
+
+            nearCache = new NearCache(nearCacheMaxSize, Duration.ofMillis(nearCacheTtl));
+
+            manager.addDecorator(nearCache::decorate);
+        }
+
+        // Outermost, so that near cache hits are recorded for the warm-up too
+        manager.addDecorator(this::recordAccess);
+
+        cacheManager = manager;
+    }
+
+    private Cache<Object, Object> recordAccess(String cacheName, Cache<Object, Object> cache) {
+        if (!CacheAccessLog.isTracked(cacheName)) {
+            return cache;
+        }
+
+        return new AccessRecordingCache(cache, accessLog);
+    }
+
+    private static String getNegativeCacheName(BuildSystem buildSystem) {
+        return buildSystem == BuildSystem.pnc ? "negative-checksums-pnc" : "negative-checksums";
+    }
+
+    public Cache<String, Boolean> getNegativeCache(BuildSystem buildSystem) {
+        var manager = cacheManager;
+
+        if (manager == null) {
+            return null;
+        }
+
+        return manager.getCache(getNegativeCacheName(buildSystem));
+    }
+
+    private static Path getAccessLogPath() {
+        return Paths.get(ConfigDefaults.CONFIG_PATH, "cache-access.log");
+    }
+
+    public synchronized Map<String, List<Object>> getHottestKeys(int limit) {
+        if (accessLog == null) {
+            return Collections.emptyMap();
+        }
+
+        return accessLog.getHottestKeys(limit);
+    }
+
+    @Gauge(
+            name = "cacheStoreQueueDepth",
+            unit = MetricUnits.NONE,
+            description = "Number of cache modifications waiting to be written to the persistent store")
+    public int getStoreQueueDepth() {
+        var queue = writeBehindQueue;
+
+        return queue != null ? queue.size() : 0;
+    }
+
+    @Gauge(name = "nearCacheSize", unit = MetricUnits.NONE, description = "Number of entries in the near cache")
+    public long getNearCacheSize() {
+        var cache = nearCache;
+
+        return cache != null ? cache.size() : 0L;
+    }
+
+    @Gauge(name = "nearCacheHitRate", unit = MetricUnits.NONE, description = "Fraction of near cache gets that hit")
+    public double getNearCacheHitRate() {
+        var cache = nearCache;
+
+        return cache != null ? cache.stats().hitRate() : 0.0D;
+    }
+
+    @PreDestroy
+    synchronized void close() {
+        if (accessLog != null) {
+            accessLog.save(getAccessLogPath(), accessLogMaxKeys);
+        }
+
+        if (writeBehindQueue != null) {
+            writeBehindQueue.close();
+            writeBehindQueue = null;
+        }
+
+        if (cacheManager != null) {
+            try {
+                cacheManager.close();
+            } catch (IOException e) {
+                LOGGER.warn("Failed to close cache manager {}", cacheManager.getName(), e);
+            }
+
+            cacheManager = null;
+        }
+    }
+}
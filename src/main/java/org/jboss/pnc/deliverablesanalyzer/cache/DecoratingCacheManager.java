@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.cache;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.infinispan.Cache;
+import org.infinispan.configuration.global.GlobalConfiguration;
+import org.infinispan.manager.DefaultCacheManager;
+
+public class DecoratingCacheManager extends DefaultCacheManager {
+    private final List<CacheDecorator> decorators = new CopyOnWriteArrayList<>();
+
+    private final ConcurrentMap<String, Cache<Object, Object>> decoratedCaches = new ConcurrentHashMap<>();
+
+    public DecoratingCacheManager(GlobalConfiguration globalConfiguration) {
+        super(globalConfiguration);
+    }
+
+    public void addDecorator(CacheDecorator decorator) {
+        decorators.add(decorator);
+        decoratedCaches.clear();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <K, V> Cache<K, V> getCache(String cacheName) {
+        if (decorators.isEmpty()) {
+            return super.getCache(cacheName);
+        }
+
+        var cache = decoratedCaches.get(cacheName);
+
+        if (cache == null) {
+            cache = decorate(cacheName);
+
+            var existing = decoratedCaches.putIfAbsent(cacheName, cache);
+
+            if (existing != null) {
+                cache = existing;
+            }
+        }
+
+        return (Cache<K, V>) cache;
+    }
+
+    private Cache<Object, Object> decorate(String cacheName) {
+        Cache<Object, Object> cache = super.getCache(cacheName);
+
+        for (var decorator : decorators) {
+            cache = decorator.decorate(cacheName, cache);
+        }
+
+        return cache;
+    }
+}
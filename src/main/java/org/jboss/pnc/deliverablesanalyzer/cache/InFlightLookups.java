@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.cache;
+
+import java.util.List;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.eclipse.microprofile.metrics.annotation.Gauge;
+import org.jboss.pnc.client.RemoteCollection;
+import org.jboss.pnc.dto.Artifact;
+
+import com.redhat.red.build.koji.model.xmlrpc.KojiArchiveInfo;
+import com.redhat.red.build.koji.model.xmlrpc.KojiBuildInfo;
+
+@ApplicationScoped
+public class InFlightLookups {
+    @ConfigProperty(name = "analyze.lookups.coalesce", defaultValue = "true")
+    Boolean enabled;
+
+    @Inject
+    MetricRegistry registry;
+
+    private SingleFlight<String, List<KojiArchiveInfo>> kojiArchives;
+
+    private SingleFlight<Integer, KojiBuildInfo> kojiBuilds;
+
+    private SingleFlight<String, RemoteCollection<Artifact>> pncArtifacts;
+
+    @PostConstruct
+    void init() {
+        var kojiCoalesced = registry.counter("kojiCoalescedCalls");
+
+        kojiArchives = new SingleFlight<>(kojiCoalesced);
+        kojiBuilds = new SingleFlight<>(kojiCoalesced);
+        pncArtifacts = new SingleFlight<>(registry.counter("pncCoalescedCalls"));
+    }
+
+    public boolean isEnabled() {
+        return Boolean.TRUE.equals(enabled);
+    }
+
+    public SingleFlight<String, List<KojiArchiveInfo>> getKojiArchives() {
+        return kojiArchives;
+    }
+
+    public SingleFlight<Integer, KojiBuildInfo> getKojiBuilds() {
+        return kojiBuilds;
+    }
+
+    public SingleFlight<String, RemoteCollection<Artifact>> getPncArtifacts() {
+        return pncArtifacts;
+    }
+
+    @Gauge(name = "inFlightLookups", unit = MetricUnits.NONE, description = "Remote lookups currently in flight")
+    public int getInFlight() {
+        return kojiArchives.size() + kojiBuilds.size() + pncArtifacts.size();
+    }
+}
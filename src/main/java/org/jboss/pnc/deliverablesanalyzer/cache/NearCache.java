@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.cache;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.infinispan.Cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+public class NearCache {
+    private static final int GENERATION_STRIPES = 1024;
+
+    private final com.github.benmanes.caffeine.cache.Cache<Key, Object> cache;
+
+    // Write generations of key stripes, so that a get does not cache a value read before a write finished
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+    public NearCache(long maximumSize, Duration timeToLive) {
+        cache = Caffeine.newBuilder().maximumSize(maximumSize).expireAfterWrite(timeToLive).recordStats().build();
+    }
+
+    public static boolean isNearCached(String cacheName) {
+        return cacheName.startsWith("checksums-");
+    }
+
+    public Cache<Object, Object> decorate(String cacheName, Cache<Object, Object> delegate) {
+        if (!isNearCached(cacheName)) {
+            return delegate;
+        }
+
+        return new NearCachedCache(delegate, this);
+    }
+
+    Object get(String cacheName, Object key) {
+        return cache.getIfPresent(new Key(cacheName, key));
+    }
+
+    /**
+     * Gets the write generation of a key, to be read before reading the value from the delegate cache.
+     */
+    long generation(String cacheName, Object key) {
+        return generations.get(stripe(new Key(cacheName, key)));
+    }
+
+    /**
+     * Caches a value read from the delegate cache unless the key was written since the generation was read. The
+     * check runs under the entry lock that {@link #invalidate(String, Object)} also takes, so a write either makes
+     * the check fail or removes the inserted value afterwards.
+     */
+    void put(String cacheName, Object key, Object value, long generation) {
+        var nearKey = new Key(cacheName, key);
+        var stripe = stripe(nearKey);
+
+        cache.asMap().compute(nearKey, (k, old) -> generations.get(stripe) == generation ? value : old);
+    }
+
+    void invalidate(String cacheName, Object key) {
+        var nearKey = new Key(cacheName, key);
+
+        generations.incrementAndGet(stripe(nearKey));
+        cache.invalidate(nearKey);
+    }
+
+    void invalidateAll(String cacheName) {
+        for (var i = 0; i < GENERATION_STRIPES; i++) {
+            generations.incrementAndGet(i);
+        }
+
+        cache.asMap().keySet().removeIf(key -> key.cacheName.equals(cacheName));
+    }
+
+    private static int stripe(Key key) {
+        return key.hashCode() & (GENERATION_STRIPES - 1);
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    private static final class Key {
+        private final String cacheName;
+
+        private final Object key;
+
+        Key(String cacheName, Object key) {
+            this.cacheName = cacheName;
+            this.key = key;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+
+            var other = (Key) o;
+
+            return cacheName.equals(other.cacheName) && key.equals(other.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(cacheName, key);
+        }
+    }
+}
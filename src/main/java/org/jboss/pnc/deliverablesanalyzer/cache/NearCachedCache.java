@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.cache;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.infinispan.AdvancedCache;
+import org.infinispan.Cache;
+import org.infinispan.cache.impl.AbstractDelegatingCache;
+
+public class NearCachedCache extends AbstractDelegatingCache<Object, Object> {
+    private final NearCache nearCache;
+
+    public NearCachedCache(Cache<Object, Object> cache, NearCache nearCache) {
+        super(cache);
+        this.nearCache = nearCache;
+    }
+
+    @Override
+    public AdvancedCache<Object, Object> getAdvancedCache() {
+        return getDelegate().getAdvancedCache();
+    }
+
+    @Override
+    public Object get(Object key) {
+        var value = nearCache.get(getName(), key);
+
+        if (value == null) {
+            var generation = nearCache.generation(getName(), key);
+
+            value = super.get(key);
+
+            if (value != null) {
+                nearCache.put(getName(), key, value, generation);
+            }
+        }
+
+        return value;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return nearCache.get(getName(), key) != null || super.containsKey(key);
+    }
+
+    @Override
+    public Object put(Object key, Object value) {
+        nearCache.invalidate(getName(), key);
+
+        try {
+            return super.put(key, value);
+        } finally {
+            // Makes a get that read the old value during the write skip or drop caching it
+            nearCache.invalidate(getName(), key);
+        }
+    }
+
+    @Override
+    public Object put(Object key, Object value, long lifespan, TimeUnit unit) {
+        nearCache.invalidate(getName(), key);
+
+        try {
+            return super.put(key, value, lifespan, unit);
+        } finally {
+            nearCache.invalidate(getName(), key);
+        }
+    }
+
+    @Override
+    public Object putIfAbsent(Object key, Object value) {
+        nearCache.invalidate(getName(), key);
+
+        try {
+            return super.putIfAbsent(key, value);
+        } finally {
+            nearCache.invalidate(getName(), key);
+        }
+    }
+
+    @Override
+    public void putAll(Map<? extends Object, ? extends Object> map) {
+        for (var key : map.keySet()) {
+            nearCache.invalidate(getName(), key);
+        }
+
+        try {
+            super.putAll(map);
+        } finally {
+            for (var key : map.keySet()) {
+                nearCache.invalidate(getName(), key);
+            }
+        }
+    }
+
+    @Override
+    public Object replace(Object key, Object value) {
+        nearCache.invalidate(getName(), key);
+
+        try {
+            return super.replace(key, value);
+        } finally {
+            nearCache.invalidate(getName(), key);
+        }
+    }
+
+    @Override
+    public Object remove(Object key) {
+        nearCache.invalidate(getName(), key);
+
+        try {
+            return super.remove(key);
+        } finally {
+            nearCache.invalidate(getName(), key);
+        }
+    }
+
+    @Override
+    public void clear() {
+        nearCache.invalidateAll(getName());
+
+        try {
+            super.clear();
+        } finally {
+            nearCache.invalidateAll(getName());
+        }
+    }
+}
@@ -0,0 +1,250 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.cache;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.metrics.Counter;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.eclipse.microprofile.metrics.annotation.Gauge;
+import org.jboss.pnc.build.finder.core.BuildSystem;
+import org.jboss.pnc.build.finder.core.ConfigDefaults;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+@ApplicationScoped
+public class NegativeLookupCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(NegativeLookupCache.class);
+
+    @ConfigProperty(name = "analyze.cache.negative.enabled", defaultValue = "true")
+    Boolean negativeCacheEnabled;
+
+    @ConfigProperty(name = "analyze.cache.bloom.enabled", defaultValue = "false")
+    Boolean bloomFilterEnabled;
+
+    @ConfigProperty(name = "analyze.cache.bloom.expected-insertions", defaultValue = "10000000")
+    Long bloomFilterExpectedInsertions;
+
+    @ConfigProperty(name = "analyze.cache.bloom.false-positive-probability", defaultValue = "0.01")
+    Double bloomFilterFalsePositiveProbability;
+
+    @ConfigProperty(name = "analyze.cache.bloom.seed")
+    Optional<String> bloomFilterSeed;
+
+    @Inject
+    Caches caches;
+
+    @Inject
+    MetricRegistry registry;
+
+    private BloomFilter bloomFilter;
+
+    private String bloomFilterSeedIdentity;
+
+    private Counter negativeCacheSkippedCalls;
+
+    private Counter bloomFilterSkippedCalls;
+
+    private Counter bloomFilterChecks;
+
+    private Counter bloomFilterFalsePositives;
+
+    private static Path getBloomFilterPath() {
+        return Paths.get(ConfigDefaults.CONFIG_PATH, "checksums.bloom");
+    }
+
+    private static Path getBloomFilterSeedIdentityPath() {
+        return Paths.get(ConfigDefaults.CONFIG_PATH, "checksums.bloom.seed");
+    }
+
+    /**
+     * Identifies the seed file and filter size that a saved filter was built from, so that a changed seed or size
+     * rebuilds the filter instead of loading a stale one.
+     */
+    private String getSeedIdentity(Path seed) throws IOException {
+        return String.join(
+                " ",
+                seed.toRealPath().toString(),
+                Long.toString(Files.size(seed)),
+                Files.getLastModifiedTime(seed).toString(),
+                Long.toString(bloomFilterExpectedInsertions),
+                Double.toString(bloomFilterFalsePositiveProbability));
+    }
+
+    private boolean isSavedFilterCurrent(Path path) {
+        var identityPath = getBloomFilterSeedIdentityPath();
+
+        if (!Files.exists(path) || !Files.exists(identityPath)) {
+            return false;
+        }
+
+        try {
+            return bloomFilterSeedIdentity.equals(Files.readString(identityPath, StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            LOGGER.warn("Failed to read Bloom filter seed identity from {}", identityPath, e);
+            return false;
+        }
+    }
+
+    @PostConstruct
+    void init() {
+        negativeCacheSkippedCalls = registry.counter("negativeCacheSkippedCalls");
+        bloomFilterSkippedCalls = registry.counter("bloomFilterSkippedCalls");
+        bloomFilterChecks = registry.counter("bloomFilterChecks");
+        bloomFilterFalsePositives = registry.counter("bloomFilterFalsePositives");
+
+        if (!Boolean.TRUE.equals(bloomFilterEnabled)) {
+            return;
+        }
+
+        // Without all known checksums, the filter would report every new artifact as missing
+        if (bloomFilterSeed.isEmpty()) {
+            LOGGER.error("Not enabling the Bloom filter because analyze.cache.bloom.seed is not set");
+            return;
+        }
+
+        var seed = Paths.get(bloomFilterSeed.get());
+
+        try {
+            bloomFilterSeedIdentity = getSeedIdentity(seed);
+        } catch (IOException e) {
+            LOGGER.error("Not enabling the Bloom filter because its seed {} cannot be read", seed, e);
+            return;
+        }
+
+        var path = getBloomFilterPath();
+
+        if (isSavedFilterCurrent(path)) {
+            try {
+                bloomFilter = BloomFilter.load(path);
+
+                LOGGER.info("Loaded Bloom filter of known checksums from {}", path);
+                return;
+            } catch (IOException e) {
+                LOGGER.warn("Failed to load Bloom filter from {}. Creating a new one", path, e);
+            }
+        }
+
+        var filter = new BloomFilter(bloomFilterExpectedInsertions, bloomFilterFalsePositiveProbability);
+
+        if (seedBloomFilter(filter, seed)) {
+            bloomFilter = filter;
+        }
+    }
+
+    private static boolean seedBloomFilter(BloomFilter filter, Path seed) {
+        LOGGER.info("Seeding Bloom filter of known checksums from {}", seed);
+
+        try (Stream<String> lines = Files.lines(seed, StandardCharsets.UTF_8)) {
+            lines.map(String::trim).filter(line -> !line.isEmpty()).forEach(filter::put);
+            return true;
+        } catch (IOException | UncheckedIOException e) {
+            LOGGER.error("Not enabling the Bloom filter because seeding it from {} failed", seed, e);
+            return false;
+        }
+    }
+
+    public boolean isKnownMissing(BuildSystem buildSystem, String checksum) {
+        if (Boolean.TRUE.equals(negativeCacheEnabled)) {
+            var cache = caches.getNegativeCache(buildSystem);
+
+            if (cache != null && cache.containsKey(checksum)) {
+                negativeCacheSkippedCalls.inc();
+                return true;
+            }
+        }
+
+        if (bloomFilter != null && !bloomFilter.mightContain(checksum)) {
+            bloomFilterSkippedCalls.inc();
+            return true;
+        }
+
+        return false;
+    }
+
+    public void recordResult(BuildSystem buildSystem, String checksum, boolean found) {
+        if (bloomFilter != null) {
+            bloomFilterChecks.inc();
+
+            if (found) {
+                bloomFilter.put(checksum);
+            } else {
+                bloomFilterFalsePositives.inc();
+            }
+        }
+
+        if (!found && Boolean.TRUE.equals(negativeCacheEnabled)) {
+            var cache = caches.getNegativeCache(buildSystem);
+
+            if (cache != null) {
+                cache.put(checksum, Boolean.TRUE);
+            }
+        }
+    }
+
+    @Gauge(
+            name = "bloomFilterFalsePositiveRate",
+            unit = MetricUnits.NONE,
+            description = "Fraction of remote lookups allowed by the Bloom filter that found nothing")
+    public double getBloomFilterFalsePositiveRate() {
+        var checks = bloomFilterChecks.getCount();
+
+        return checks > 0L ? (double) bloomFilterFalsePositives.getCount() / (double) checks : 0.0D;
+    }
+
+    @Gauge(
+            name = "bloomFilterExpectedFalsePositiveRate",
+            unit = MetricUnits.NONE,
+            description = "Fraction of unknown checksums the Bloom filter is expected to allow, from its fill ratio")
+    public double getBloomFilterExpectedFalsePositiveRate() {
+        return bloomFilter != null ? bloomFilter.getExpectedFalsePositiveProbability() : 0.0D;
+    }
+
+    @PreDestroy
+    void close() {
+        if (bloomFilter == null) {
+            return;
+        }
+
+        var path = getBloomFilterPath();
+        var identityPath = getBloomFilterSeedIdentityPath();
+
+        try {
+            // A filter without its identity is rebuilt, so a save interrupted halfway is never loaded
+            Files.deleteIfExists(identityPath);
+            bloomFilter.save(path);
+            Files.writeString(identityPath, bloomFilterSeedIdentity, StandardCharsets.UTF_8);
+
+            LOGGER.info("Saved Bloom filter of known checksums to {}", path);
+        } catch (IOException e) {
+            LOGGER.warn("Failed to save Bloom filter to {}", path, e);
+        }
+    }
+}
@@ -0,0 +1,242 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.cache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+import org.eclipse.microprofile.metrics.Counter;
+import org.jboss.pnc.deliverablesanalyzer.resilience.Deadline;
+
+public class SingleFlight<K, V> {
+    private static final long AWAIT_SLICE = 1000L;
+
+    private final ConcurrentMap<K, CompletableFuture<V>> calls = new ConcurrentHashMap<>();
+
+    private final Counter coalesced;
+
+    public SingleFlight(Counter coalesced) {
+        this.coalesced = coalesced;
+    }
+
+    @FunctionalInterface
+    public interface Call<V, E extends Exception> {
+        V call() throws E;
+    }
+
+    @FunctionalInterface
+    public interface BatchCall<Q, V, E extends Exception> {
+        List<V> call(List<Q> requests) throws E;
+    }
+
+    /**
+     * Runs the call, or waits for the result of the same call already in flight. A waiting caller gives up once its
+     * own deadline is violated, with the exception made by {@code aborted}, and leaves the call itself running. If
+     * the caller running the call gives up instead, because its own deadline is violated, the waiting callers run
+     * the call again rather than fail with it.
+     */
+    public <E extends Exception> V execute(
+            K key,
+            Deadline deadline,
+            Class<E> exceptionType,
+            Function<String, E> aborted,
+            Call<V, E> call) throws E {
+        while (true) {
+            var future = new CompletableFuture<V>();
+            var existing = calls.putIfAbsent(key, future);
+
+            if (existing == null) {
+                return lead(key, future, deadline, call);
+            }
+
+            coalesced.inc();
+
+            try {
+                return await(existing, deadline, exceptionType, aborted);
+            } catch (LeaderAbortedException e) {
+                // Run the call, or join whoever ran it first
+            }
+        }
+    }
+
+    private <E extends Exception> V lead(K key, CompletableFuture<V> future, Deadline deadline, Call<V, E> call)
+            throws E {
+        try {
+            var value = call.call();
+
+            future.complete(value);
+
+            return value;
+        } catch (Exception | Error e) {
+            fail(key, future, deadline, e);
+            throw e;
+        } finally {
+            calls.remove(key, future);
+        }
+    }
+
+    public <Q, E extends Exception> List<V> executeAll(
+            List<Q> requests,
+            Function<Q, K> keyOf,
+            Deadline deadline,
+            Class<E> exceptionType,
+            Function<String, E> aborted,
+            BatchCall<Q, V, E> call) throws E {
+        var size = requests.size();
+        var futures = new ArrayList<CompletableFuture<V>>(Collections.nCopies(size, null));
+        var ownedKeys = new ArrayList<K>(size);
+        var ownedRequests = new ArrayList<Q>(size);
+        var ownedIndexes = new ArrayList<Integer>(size);
+
+        for (var i = 0; i < size; i++) {
+            var request = requests.get(i);
+            var key = keyOf.apply(request);
+            var future = new CompletableFuture<V>();
+            var existing = key != null ? calls.putIfAbsent(key, future) : null;
+
+            if (existing != null) {
+                coalesced.inc();
+                futures.set(i, existing);
+            } else {
+                futures.set(i, future);
+                ownedKeys.add(key);
+                ownedRequests.add(request);
+                ownedIndexes.add(i);
+            }
+        }
+
+        try {
+            var values = ownedRequests.isEmpty() ? Collections.<V> emptyList() : call.call(ownedRequests);
+
+            for (var i = 0; i < ownedIndexes.size(); i++) {
+                futures.get(ownedIndexes.get(i)).complete(values.get(i));
+            }
+        } catch (Exception | Error e) {
+            for (var i = 0; i < ownedIndexes.size(); i++) {
+                fail(ownedKeys.get(i), futures.get(ownedIndexes.get(i)), deadline, e);
+            }
+
+            throw e;
+        } finally {
+            for (var i = 0; i < ownedKeys.size(); i++) {
+                var key = ownedKeys.get(i);
+
+                if (key != null) {
+                    calls.remove(key, futures.get(ownedIndexes.get(i)));
+                }
+            }
+        }
+
+        var values = new ArrayList<V>(size);
+
+        for (var i = 0; i < size; i++) {
+            var request = requests.get(i);
+
+            try {
+                values.add(await(futures.get(i), deadline, exceptionType, aborted));
+            } catch (LeaderAbortedException e) {
+                values.add(
+                        execute(
+                                keyOf.apply(request),
+                                deadline,
+                                exceptionType,
+                                aborted,
+                                () -> call.call(Collections.singletonList(request)).get(0)));
+            }
+        }
+
+        return values;
+    }
+
+    /**
+     * Fails the waiters of a call. If the caller running it gave up, they get a {@link LeaderAbortedException} after
+     * the call is removed, so that they run it again.
+     */
+    private void fail(K key, CompletableFuture<V> future, Deadline deadline, Throwable e) {
+        if (deadline.getViolation() != null || Thread.currentThread().isInterrupted()) {
+            if (key != null) {
+                calls.remove(key, future);
+            }
+
+            future.completeExceptionally(new LeaderAbortedException());
+        } else {
+            future.completeExceptionally(e);
+        }
+    }
+
+    private static <V, E extends Exception> V await(
+            CompletableFuture<V> future,
+            Deadline deadline,
+            Class<E> exceptionType,
+            Function<String, E> aborted) throws E {
+        while (true) {
+            var violation = deadline.getViolation();
+
+            if (violation != null) {
+                throw aborted.apply(violation);
+            }
+
+            try {
+                return future.get(Math.min(AWAIT_SLICE, deadline.getRemainingMillis()), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                // Check the deadline again
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw aborted.apply("interrupted");
+            } catch (ExecutionException e) {
+                var cause = e.getCause();
+
+                if (cause instanceof LeaderAbortedException) {
+                    throw (LeaderAbortedException) cause;
+                }
+
+                if (exceptionType.isInstance(cause)) {
+                    throw exceptionType.cast(cause);
+                }
+
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+
+                throw new IllegalStateException(cause);
+            }
+        }
+    }
+
+    public int size() {
+        return calls.size();
+    }
+
+    private static final class LeaderAbortedException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        LeaderAbortedException() {
+            super("The caller running the shared call gave up", null, false, false);
+        }
+    }
+}
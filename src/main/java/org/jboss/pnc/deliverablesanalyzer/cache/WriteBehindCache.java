@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.cache;
+
+import java.util.Map;
+
+import org.infinispan.AdvancedCache;
+import org.infinispan.Cache;
+import org.infinispan.cache.impl.AbstractDelegatingCache;
+import org.infinispan.context.Flag;
+
+public class WriteBehindCache extends AbstractDelegatingCache<Object, Object> {
+    private final WriteBehindQueue queue;
+
+    public WriteBehindCache(Cache<Object, Object> cache, WriteBehindQueue queue) {
+        super(cache);
+        this.queue = queue;
+    }
+
+    private AdvancedCache<Object, Object> memory() {
+        return getDelegate().getAdvancedCache().withFlags(Flag.SKIP_CACHE_STORE);
+    }
+
+    private void enqueue(Object key, Object value) {
+        if (!queue.offer(getDelegate(), key)) {
+            getDelegate().put(key, value);
+        }
+    }
+
+    @Override
+    public AdvancedCache<Object, Object> getAdvancedCache() {
+        return getDelegate().getAdvancedCache();
+    }
+
+    @Override
+    public Object put(Object key, Object value) {
+        var previous = memory().put(key, value);
+
+        enqueue(key, value);
+
+        return previous;
+    }
+
+    @Override
+    public Object putIfAbsent(Object key, Object value) {
+        var previous = memory().putIfAbsent(key, value);
+
+        if (previous == null) {
+            enqueue(key, value);
+        }
+
+        return previous;
+    }
+
+    @Override
+    public void putAll(Map<? extends Object, ? extends Object> map) {
+        memory().putAll(map);
+
+        for (var entry : map.entrySet()) {
+            enqueue(entry.getKey(), entry.getValue());
+        }
+    }
+}
@@ -0,0 +1,240 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.cache;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.eclipse.microprofile.metrics.Counter;
+import org.eclipse.microprofile.metrics.Timer;
+import org.infinispan.Cache;
+import org.infinispan.context.Flag;
+import org.jboss.pnc.build.finder.core.Utils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class WriteBehindQueue implements Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(WriteBehindQueue.class);
+
+    private final BlockingQueue<Modification> queue;
+
+    private final int batchSize;
+
+    private final Timer flushTimer;
+
+    private final Counter flushFailures;
+
+    private final Map<String, Cache<Object, Object>> caches = new ConcurrentHashMap<>();
+
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+
+    private final ScheduledExecutorService executor;
+
+    public WriteBehindQueue(
+            int queueSize,
+            int batchSize,
+            long flushIntervalMillis,
+            Timer flushTimer,
+            Counter flushFailures) {
+        this.queue = new ArrayBlockingQueue<>(queueSize);
+        this.batchSize = batchSize;
+        this.flushTimer = flushTimer;
+        this.flushFailures = flushFailures;
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            var thread = new Thread(r, "cache-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        executor.scheduleWithFixedDelay(
+                this::flushQuietly,
+                flushIntervalMillis,
+                flushIntervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    public boolean offer(Cache<Object, Object> cache, Object key) {
+        var cacheName = cache.getName();
+
+        caches.putIfAbsent(cacheName, cache);
+
+        if (!queue.offer(new Modification(cacheName, key))) {
+            LOGGER.debug("Write-behind queue is full, writing key {} to cache {} synchronously", key, cacheName);
+            return false;
+        }
+
+        if (queue.size() >= batchSize && flushRequested.compareAndSet(false, true)) {
+            executor.execute(this::flushQuietly);
+        }
+
+        return true;
+    }
+
+    public int size() {
+        return queue.size();
+    }
+
+    /**
+     * Writes the queued modifications to the store. Modifications of a batch that fails to be written are queued
+     * again, or written synchronously if the queue is full, and the flush stops until the next interval.
+     *
+     * @return whether every queued modification was written
+     */
+    public synchronized boolean flush() {
+        flushRequested.set(false);
+
+        var batch = (List<Modification>) new ArrayList<Modification>(batchSize);
+
+        while (queue.drainTo(batch, batchSize) > 0) {
+            var failed = write(batch);
+
+            batch.clear();
+
+            if (!failed.isEmpty()) {
+                requeue(failed);
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            LOGGER.warn("Failed to flush write-behind queue", e);
+        }
+    }
+
+    private List<Modification> write(List<Modification> batch) {
+        var start = System.nanoTime();
+        var keysByCache = (Map<String, Set<Object>>) new HashMap<String, Set<Object>>();
+        var failed = (List<Modification>) new ArrayList<Modification>();
+
+        for (var modification : batch) {
+            keysByCache.computeIfAbsent(modification.getCacheName(), k -> new LinkedHashSet<>())
+                    .add(modification.getKey());
+        }
+
+        for (var entry : keysByCache.entrySet()) {
+            var cache = caches.get(entry.getKey());
+            var memory = cache.getAdvancedCache().withFlags(Flag.SKIP_CACHE_LOAD);
+            var values = (Map<Object, Object>) new HashMap<>(entry.getValue().size());
+
+            for (var key : entry.getValue()) {
+                var value = memory.get(key);
+
+                // A missing value means the entry was removed or expired, which was already written through
+                if (value != null) {
+                    values.put(key, value);
+                }
+            }
+
+            try {
+                cache.putAll(values);
+            } catch (RuntimeException e) {
+                flushFailures.inc();
+
+                LOGGER.warn("Failed to flush {} entries to store of cache {}", values.size(), entry.getKey(), e);
+
+                for (var key : values.keySet()) {
+                    failed.add(new Modification(entry.getKey(), key));
+                }
+
+                continue;
+            }
+
+            LOGGER.debug("Flushed {} entries to store of cache {}", values.size(), entry.getKey());
+        }
+
+        flushTimer.update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+        return failed;
+    }
+
+    private void requeue(List<Modification> failed) {
+        for (var modification : failed) {
+            if (!queue.offer(modification)) {
+                writeSynchronously(modification);
+            }
+        }
+    }
+
+    private void writeSynchronously(Modification modification) {
+        var cache = caches.get(modification.getCacheName());
+        var key = modification.getKey();
+        var value = cache.getAdvancedCache().withFlags(Flag.SKIP_CACHE_LOAD).get(key);
+
+        if (value == null) {
+            return;
+        }
+
+        try {
+            cache.put(key, value);
+        } catch (RuntimeException e) {
+            flushFailures.inc();
+
+            LOGGER.error("Failed to write key {} to store of cache {}, dropping it", key, cache.getName(), e);
+        }
+    }
+
+    @Override
+    public void close() {
+        Utils.shutdownAndAwaitTermination(executor);
+
+        LOGGER.info("Flushing {} pending cache store modifications", queue.size());
+
+        if (!flush()) {
+            // Write what the store refused in batches one by one before shutting down
+            var batch = (List<Modification>) new ArrayList<Modification>(queue.size());
+
+            queue.drainTo(batch);
+            batch.forEach(this::writeSynchronously);
+        }
+    }
+
+    private static final class Modification {
+        private final String cacheName;
+
+        private final Object key;
+
+        Modification(String cacheName, Object key) {
+            this.cacheName = cacheName;
+            this.key = key;
+        }
+
+        String getCacheName() {
+            return cacheName;
+        }
+
+        Object getKey() {
+            return key;
+        }
+    }
+}
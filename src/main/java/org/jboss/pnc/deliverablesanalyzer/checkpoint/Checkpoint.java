@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.checkpoint;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.collections4.MultiValuedMap;
+import org.jboss.pnc.build.finder.core.ChecksumType;
+import org.jboss.pnc.deliverablesanalyzer.index.ChecksumIndexEntry;
+import org.jboss.pnc.deliverablesanalyzer.remote.RemoteFileInfo;
+import org.jboss.pnc.dto.Artifact;
+
+/**
+ * Partial state of an analysis: the checksums computed by the distribution analyzer and the Koji archives and PNC
+ * artifacts already found for them. An empty list records that a checksum is not in Koji or PNC.
+ */
+public class Checkpoint {
+    private volatile String configDigest;
+
+    private volatile RemoteFileInfo remote;
+
+    private volatile Map<ChecksumType, MultiValuedMap<String, String>> checksums;
+
+    private final Map<String, List<ChecksumIndexEntry>> archives = new ConcurrentHashMap<>();
+
+    private final Map<String, List<Artifact>> pncArtifacts = new ConcurrentHashMap<>();
+
+    private final AtomicInteger hits = new AtomicInteger();
+
+    private volatile String baseline;
+
+    public String getConfigDigest() {
+        return configDigest;
+    }
+
+    public void setConfigDigest(String configDigest) {
+        this.configDigest = configDigest;
+    }
+
+    /**
+     * What a {@code HEAD} request said about the analyzed file when the analysis started, to tell whether a
+     * checkpoint still belongs to the file.
+     */
+    public RemoteFileInfo getRemote() {
+        return remote;
+    }
+
+    public void setRemote(RemoteFileInfo remote) {
+        this.remote = remote;
+    }
+
+    /**
+     * Whether the checkpoint was made for the file as it is now. A file without validators cannot be told apart from
+     * a changed one.
+     */
+    public boolean isFor(RemoteFileInfo current) {
+        return remote != null && remote.isUnchanged(current);
+    }
+
+    public Map<ChecksumType, MultiValuedMap<String, String>> getChecksums() {
+        return checksums;
+    }
+
+    public void setChecksums(Map<ChecksumType, MultiValuedMap<String, String>> checksums) {
+        this.checksums = checksums;
+    }
+
+    public Map<String, List<ChecksumIndexEntry>> getArchives() {
+        return archives;
+    }
+
+    public List<ChecksumIndexEntry> getArchives(String checksum) {
+        return archives.get(checksum);
+    }
+
+    public void putArchives(String checksum, List<ChecksumIndexEntry> entries) {
+        archives.put(checksum, entries);
+    }
+
+    public Map<String, List<Artifact>> getPncArtifacts() {
+        return pncArtifacts;
+    }
+
+    public List<Artifact> getPncArtifacts(String checksum) {
+        return pncArtifacts.get(checksum);
+    }
+
+    public void putPncArtifacts(String checksum, List<Artifact> artifacts) {
+        pncArtifacts.put(checksum, artifacts);
+    }
+
+    /**
+     * Adds the lookups of a stored baseline result that are not already in this checkpoint.
+     */
+    public void seed(String baseline, Checkpoint other) {
+        this.baseline = baseline;
+        other.archives.forEach(archives::putIfAbsent);
+        other.pncArtifacts.forEach(pncArtifacts::putIfAbsent);
+    }
+
+    /**
+     * Counts a lookup answered from this checkpoint instead of Koji or PNC.
+     */
+    public void hit() {
+        hits.incrementAndGet();
+    }
+
+    public int getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Id of the result whose lookups were seeded into this checkpoint, if any.
+     */
+    public String getBaseline() {
+        return baseline;
+    }
+
+    public boolean isEmpty() {
+        return checksums == null && archives.isEmpty() && pncArtifacts.isEmpty();
+    }
+}
@@ -0,0 +1,314 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.checkpoint;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import javax.enterprise.context.ApplicationScoped;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.collections4.MultiValuedMap;
+import org.apache.commons.collections4.multimap.ArrayListValuedHashMap;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.pnc.build.finder.core.BuildConfig;
+import org.jboss.pnc.build.finder.core.ChecksumType;
+import org.jboss.pnc.build.finder.core.ConfigDefaults;
+import org.jboss.pnc.deliverablesanalyzer.index.ChecksumIndexEntry;
+import org.jboss.pnc.deliverablesanalyzer.remote.RemoteFileInfo;
+import org.jboss.pnc.dto.Artifact;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+@ApplicationScoped
+public class Checkpoints {
+    private static final Logger LOGGER = LoggerFactory.getLogger(Checkpoints.class);
+
+    private static final ObjectMapper MAPPER = new ObjectMapper().registerModule(new JavaTimeModule())
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private static final String CHECKSUMS_FILE = "checksums.json";
+
+    private static final String ARCHIVES_FILE = "archives.json";
+
+    private static final String PNC_ARTIFACTS_FILE = "pnc-artifacts.json";
+
+    private static final String CONFIG_DIGEST_FILE = "config.sha256";
+
+    private static final String REMOTE_FILE = "remote.json";
+
+    private static final TypeReference<Map<ChecksumType, Map<String, List<String>>>> CHECKSUMS_TYPE =
+            new TypeReference<>() {
+            };
+
+    private static final TypeReference<Map<String, List<ChecksumIndexEntry>>> ARCHIVES_TYPE =
+            new TypeReference<>() {
+            };
+
+    private static final TypeReference<Map<String, List<Artifact>>> PNC_ARTIFACTS_TYPE =
+            new TypeReference<>() {
+            };
+
+    @ConfigProperty(name = "analyze.checkpoint.enabled", defaultValue = "true")
+    Boolean enabled;
+
+    @ConfigProperty(name = "analyze.checkpoint.ttl", defaultValue = "86400000")
+    Long ttl;
+
+    Path directory = getCheckpointDirectory();
+
+    public static Path getCheckpointDirectory() {
+        return Paths.get(ConfigDefaults.CONFIG_PATH, "checkpoints");
+    }
+
+    /**
+     * Digest of the build config settings that decide which files are hashed. A checkpoint is only reused by an
+     * analysis with the same digest.
+     */
+    public static String getConfigDigest(BuildConfig config) {
+        var settings = String.join(
+                "\n",
+                String.valueOf(config.getChecksumTypes()),
+                String.valueOf(config.getArchiveExtensions()),
+                String.valueOf(config.getArchiveTypes()),
+                String.valueOf(config.getExcludes()));
+
+        return DigestUtils.sha256Hex(settings);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Writes the checksums and resolved lookups of a checkpoint to a directory, which must exist.
+     */
+    public static void write(Path directory, Checkpoint checkpoint) throws IOException {
+        if (checkpoint.getConfigDigest() != null) {
+            var tmp = directory.resolve(CONFIG_DIGEST_FILE + ".tmp");
+
+            Files.writeString(tmp, checkpoint.getConfigDigest());
+            Files.move(
+                    tmp,
+                    directory.resolve(CONFIG_DIGEST_FILE),
+                    StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        if (checkpoint.getRemote() != null) {
+            write(directory.resolve(REMOTE_FILE), checkpoint.getRemote());
+        }
+
+        var checksums = checkpoint.getChecksums();
+        var computed = (Set<String>) null;
+
+        if (checksums != null) {
+            writeChecksums(directory.resolve(CHECKSUMS_FILE), checksums);
+            computed = checksums.values()
+                    .stream()
+                    .flatMap(values -> values.keySet().stream())
+                    .collect(Collectors.toSet());
+        }
+
+        // Lookups seeded from a baseline are only kept for the checksums of this file
+        write(directory.resolve(ARCHIVES_FILE), retain(checkpoint.getArchives(), computed));
+        write(directory.resolve(PNC_ARTIFACTS_FILE), retain(checkpoint.getPncArtifacts(), computed));
+    }
+
+    private static <T> Map<String, T> retain(Map<String, T> lookups, Set<String> checksums) {
+        var retained = new LinkedHashMap<String, T>();
+
+        lookups.forEach((checksum, value) -> {
+            if (checksums == null || checksums.contains(checksum)) {
+                retained.put(checksum, value);
+            }
+        });
+
+        return retained;
+    }
+
+    /**
+     * Reads a checkpoint written by {@link #write(Path, Checkpoint)}.
+     */
+    public static Checkpoint read(Path directory) throws IOException {
+        var checkpoint = new Checkpoint();
+        var configDigestFile = directory.resolve(CONFIG_DIGEST_FILE);
+
+        if (Files.exists(configDigestFile)) {
+            checkpoint.setConfigDigest(Files.readString(configDigestFile));
+        }
+
+        var remoteFile = directory.resolve(REMOTE_FILE);
+
+        if (Files.exists(remoteFile)) {
+            checkpoint.setRemote(MAPPER.readValue(remoteFile.toFile(), RemoteFileInfo.class));
+        }
+
+        var checksumsFile = directory.resolve(CHECKSUMS_FILE);
+
+        if (Files.exists(checksumsFile)) {
+            checkpoint.setChecksums(readChecksums(checksumsFile));
+        }
+
+        var archivesFile = directory.resolve(ARCHIVES_FILE);
+
+        if (Files.exists(archivesFile)) {
+            MAPPER.readValue(archivesFile.toFile(), ARCHIVES_TYPE).forEach(checkpoint::putArchives);
+        }
+
+        var pncArtifactsFile = directory.resolve(PNC_ARTIFACTS_FILE);
+
+        if (Files.exists(pncArtifactsFile)) {
+            MAPPER.readValue(pncArtifactsFile.toFile(), PNC_ARTIFACTS_TYPE).forEach(checkpoint::putPncArtifacts);
+        }
+
+        return checkpoint;
+    }
+
+    public synchronized void save(String id, Checkpoint checkpoint) {
+        if (!enabled || checkpoint == null || checkpoint.isEmpty()) {
+            return;
+        }
+
+        var checkpointDirectory = directory.resolve(id);
+
+        try {
+            Files.createDirectories(checkpointDirectory);
+            write(checkpointDirectory, checkpoint);
+
+            LOGGER.info(
+                    "Saved checkpoint of analysis {} with {} checksum types and {} resolved checksums",
+                    id,
+                    checkpoint.getChecksums() != null ? checkpoint.getChecksums().size() : 0,
+                    checkpoint.getArchives().size() + checkpoint.getPncArtifacts().size());
+        } catch (IOException e) {
+            LOGGER.warn("Failed to save checkpoint of analysis {}: {}", id, e.getMessage(), e);
+        }
+    }
+
+    private static void write(Path file, Object value) throws IOException {
+        var tmp = file.resolveSibling(file.getFileName() + ".tmp");
+
+        MAPPER.writeValue(tmp.toFile(), value);
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void writeChecksums(Path file, Map<ChecksumType, MultiValuedMap<String, String>> checksums)
+            throws IOException {
+        var map = new EnumMap<ChecksumType, Map<String, List<String>>>(ChecksumType.class);
+
+        checksums.forEach((type, values) -> {
+            var entries = new LinkedHashMap<String, List<String>>();
+
+            values.asMap().forEach((checksum, filenames) -> entries.put(checksum, new ArrayList<>(filenames)));
+            map.put(type, entries);
+        });
+
+        write(file, map);
+    }
+
+    private static Map<ChecksumType, MultiValuedMap<String, String>> readChecksums(Path file) throws IOException {
+        var map = MAPPER.readValue(file.toFile(), CHECKSUMS_TYPE);
+        var checksums = new EnumMap<ChecksumType, MultiValuedMap<String, String>>(ChecksumType.class);
+
+        map.forEach((type, entries) -> {
+            var values = new ArrayListValuedHashMap<String, String>();
+
+            entries.forEach(values::putAll);
+            checksums.put(type, values);
+        });
+
+        return checksums;
+    }
+
+    public synchronized Checkpoint load(String id, String configDigest) {
+        if (!enabled) {
+            return null;
+        }
+
+        var checkpointDirectory = directory.resolve(id);
+
+        if (!Files.isDirectory(checkpointDirectory)) {
+            return null;
+        }
+
+        var checkpoint = (Checkpoint) null;
+
+        try {
+            var age = System.currentTimeMillis() - Files.getLastModifiedTime(checkpointDirectory).toMillis();
+
+            if (age > ttl) {
+                LOGGER.info("Discarding checkpoint of analysis {} older than {} ms", id, ttl);
+                delete(id);
+                return null;
+            }
+
+            checkpoint = read(checkpointDirectory);
+
+            if (!configDigest.equals(checkpoint.getConfigDigest())) {
+                LOGGER.info("Discarding checkpoint of analysis {} made with a different build config", id);
+                delete(id);
+                return null;
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Ignoring unreadable checkpoint of analysis {}: {}", id, e.getMessage(), e);
+            return null;
+        }
+
+        LOGGER.info(
+                "Loaded checkpoint of analysis {} with {} resolved checksums",
+                id,
+                checkpoint.getArchives().size() + checkpoint.getPncArtifacts().size());
+
+        return checkpoint;
+    }
+
+    public synchronized void delete(String id) {
+        var checkpointDirectory = directory.resolve(id);
+
+        if (!Files.isDirectory(checkpointDirectory)) {
+            return;
+        }
+
+        try (var paths = Files.walk(checkpointDirectory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.delete(path);
+                } catch (IOException e) {
+                    LOGGER.warn("Failed to delete checkpoint file {}", path, e);
+                }
+            });
+        } catch (IOException e) {
+            LOGGER.warn("Failed to delete checkpoint of analysis {}", id, e);
+        }
+    }
+}
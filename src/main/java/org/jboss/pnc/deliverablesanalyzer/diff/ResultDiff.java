@@ -0,0 +1,322 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.diff;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.jboss.pnc.deliverablesanalyzer.model.Artifact;
+import org.jboss.pnc.deliverablesanalyzer.model.Build;
+import org.jboss.pnc.deliverablesanalyzer.model.FinderResult;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * Added, removed and changed builds and artifacts between two results. Both results are indexed by identifier in
+ * hash maps, so the diff is linear in the number of artifacts, and only the differences are kept. Artifacts that were
+ * not found have no identifier and are indexed by checksum instead.
+ */
+public class ResultDiff {
+    private static final String NOT_FOUND = "";
+
+    private static final Comparator<String> KEY_ORDER = Comparator.nullsFirst(Comparator.naturalOrder());
+
+    private static final Comparator<Build> BUILD_ORDER = Comparator.comparing(Build::getIdentifier, KEY_ORDER);
+
+    private static final Comparator<Located> ARTIFACT_ORDER = Comparator.comparing(located -> located.key, KEY_ORDER);
+
+    private final String from;
+
+    private final String to;
+
+    private final List<Build> addedBuilds = new ArrayList<>();
+
+    private final List<Build> removedBuilds = new ArrayList<>();
+
+    private final List<Build[]> changedBuilds = new ArrayList<>();
+
+    private final List<Located> addedArtifacts = new ArrayList<>();
+
+    private final List<Located> removedArtifacts = new ArrayList<>();
+
+    private final List<Located[]> changedArtifacts = new ArrayList<>();
+
+    private ResultDiff(String from, String to) {
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * An artifact together with the identifier of the build it was found in, which is not serialized with it.
+     */
+    private static final class Located {
+        private final Artifact artifact;
+
+        private final String build;
+
+        private final String key;
+
+        private Located(Artifact artifact, String build) {
+            this.artifact = artifact;
+            this.build = build;
+            this.key = getKey(artifact);
+        }
+    }
+
+    /**
+     * Gets the identifier of an artifact or, for an artifact that was not found, its strongest checksum.
+     */
+    static String getKey(Artifact artifact) {
+        if (artifact.getIdentifier() != null) {
+            return artifact.getIdentifier();
+        }
+
+        if (artifact.getSha256() != null) {
+            return "sha256:" + artifact.getSha256();
+        }
+
+        if (artifact.getSha1() != null) {
+            return "sha1:" + artifact.getSha1();
+        }
+
+        if (artifact.getMd5() != null) {
+            return "md5:" + artifact.getMd5();
+        }
+
+        return "files:" + String.join(",", artifact.getFilesNotBuiltFromSource());
+    }
+
+    public static ResultDiff compute(FinderResult from, FinderResult to) {
+        var diff = new ResultDiff(from.getId(), to.getId());
+        var fromBuilds = indexBuilds(from);
+        var toBuilds = indexBuilds(to);
+
+        toBuilds.forEach((identifier, build) -> {
+            var old = fromBuilds.get(identifier);
+
+            if (old == null) {
+                diff.addedBuilds.add(build);
+            } else if (isChanged(old, build)) {
+                diff.changedBuilds.add(new Build[] { old, build });
+            }
+        });
+
+        fromBuilds.forEach((identifier, build) -> {
+            if (!toBuilds.containsKey(identifier)) {
+                diff.removedBuilds.add(build);
+            }
+        });
+
+        var fromArtifacts = indexArtifacts(from);
+        var toArtifacts = indexArtifacts(to);
+
+        toArtifacts.forEach((identifier, located) -> {
+            var old = fromArtifacts.get(identifier);
+
+            if (old == null) {
+                diff.addedArtifacts.add(located);
+            } else if (isChanged(old, located)) {
+                diff.changedArtifacts.add(new Located[] { old, located });
+            }
+        });
+
+        fromArtifacts.forEach((identifier, located) -> {
+            if (!toArtifacts.containsKey(identifier)) {
+                diff.removedArtifacts.add(located);
+            }
+        });
+
+        // Only the differences are sorted, so that the output is stable
+        diff.addedBuilds.sort(BUILD_ORDER);
+        diff.removedBuilds.sort(BUILD_ORDER);
+        diff.changedBuilds.sort((a, b) -> BUILD_ORDER.compare(a[1], b[1]));
+        diff.addedArtifacts.sort(ARTIFACT_ORDER);
+        diff.removedArtifacts.sort(ARTIFACT_ORDER);
+        diff.changedArtifacts.sort((a, b) -> ARTIFACT_ORDER.compare(a[1], b[1]));
+
+        return diff;
+    }
+
+    private static Map<String, Build> indexBuilds(FinderResult result) {
+        var builds = new HashMap<String, Build>(result.getBuilds().size() * 2);
+
+        result.getBuilds().forEach(build -> builds.put(build.getIdentifier(), build));
+
+        return builds;
+    }
+
+    private static Map<String, Located> indexArtifacts(FinderResult result) {
+        var size = result.getNotFoundArtifacts().size()
+                + result.getBuilds().stream().mapToInt(build -> build.getArtifacts().size()).sum();
+        var artifacts = new HashMap<String, Located>(size * 2);
+
+        for (var build : result.getBuilds()) {
+            for (var artifact : build.getArtifacts()) {
+                var located = new Located(artifact, build.getIdentifier());
+
+                artifacts.put(located.key, located);
+            }
+        }
+
+        for (var artifact : result.getNotFoundArtifacts()) {
+            var located = new Located(artifact, NOT_FOUND);
+
+            artifacts.put(located.key, located);
+        }
+
+        return artifacts;
+    }
+
+    private static boolean isChanged(Build a, Build b) {
+        return !Objects.equals(a.getBuildSystemType(), b.getBuildSystemType())
+                || !Objects.equals(a.getKojiId(), b.getKojiId()) || !Objects.equals(a.getPncId(), b.getPncId())
+                || !Objects.equals(a.getBuiltFromSource(), b.getBuiltFromSource())
+                || !Objects.equals(a.getSource(), b.getSource());
+    }
+
+    private static boolean isChanged(Located a, Located b) {
+        var x = a.artifact;
+        var y = b.artifact;
+
+        return !Objects.equals(a.build, b.build) || !Objects.equals(x.getMd5(), y.getMd5())
+                || !Objects.equals(x.getSha1(), y.getSha1()) || !Objects.equals(x.getSha256(), y.getSha256())
+                || !Objects.equals(x.getKojiId(), y.getKojiId()) || !Objects.equals(x.getPncId(), y.getPncId())
+                || !Objects.equals(x.getBuildSystemType(), y.getBuildSystemType())
+                || !Objects.equals(x.getBuiltFromSource(), y.getBuiltFromSource())
+                || !Objects.equals(x.getFilesNotBuiltFromSource(), y.getFilesNotBuiltFromSource());
+    }
+
+    public int getChanges() {
+        return addedBuilds.size() + removedBuilds.size() + changedBuilds.size() + addedArtifacts.size()
+                + removedArtifacts.size() + changedArtifacts.size();
+    }
+
+    /**
+     * Writes the diff one entry at a time. Builds are written without their artifacts, and artifacts with the
+     * identifier of their build, which is empty for artifacts that were not found.
+     */
+    public void write(JsonGenerator generator) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("from", from);
+        generator.writeStringField("to", to);
+
+        generator.writeObjectFieldStart("summary");
+        generator.writeNumberField("added_builds", addedBuilds.size());
+        generator.writeNumberField("removed_builds", removedBuilds.size());
+        generator.writeNumberField("changed_builds", changedBuilds.size());
+        generator.writeNumberField("added_artifacts", addedArtifacts.size());
+        generator.writeNumberField("removed_artifacts", removedArtifacts.size());
+        generator.writeNumberField("changed_artifacts", changedArtifacts.size());
+        generator.writeEndObject();
+
+        generator.writeObjectFieldStart("builds");
+        writeBuilds(generator, "added", addedBuilds);
+        writeBuilds(generator, "removed", removedBuilds);
+        generator.writeArrayFieldStart("changed");
+
+        for (var pair : changedBuilds) {
+            generator.writeStartObject();
+            generator.writeFieldName("from");
+            writeBuild(generator, pair[0]);
+            generator.writeFieldName("to");
+            writeBuild(generator, pair[1]);
+            generator.writeEndObject();
+        }
+
+        generator.writeEndArray();
+        generator.writeEndObject();
+
+        generator.writeObjectFieldStart("artifacts");
+        writeArtifacts(generator, "added", addedArtifacts);
+        writeArtifacts(generator, "removed", removedArtifacts);
+        generator.writeArrayFieldStart("changed");
+
+        for (var pair : changedArtifacts) {
+            generator.writeStartObject();
+            generator.writeFieldName("from");
+            writeArtifact(generator, pair[0]);
+            generator.writeFieldName("to");
+            writeArtifact(generator, pair[1]);
+            generator.writeEndObject();
+        }
+
+        generator.writeEndArray();
+        generator.writeEndObject();
+
+        generator.writeEndObject();
+    }
+
+    private static void writeBuilds(JsonGenerator generator, String name, List<Build> builds) throws IOException {
+        generator.writeArrayFieldStart(name);
+
+        for (var build : builds) {
+            writeBuild(generator, build);
+        }
+
+        generator.writeEndArray();
+    }
+
+    private static void writeBuild(JsonGenerator generator, Build build) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("identifier", build.getIdentifier());
+
+        if (build.getKojiId() != null) {
+            generator.writeNumberField("koji_id", build.getKojiId());
+        }
+
+        if (build.getPncId() != null) {
+            generator.writeNumberField("pnc_id", build.getPncId());
+        }
+
+        if (build.getBuiltFromSource() != null) {
+            generator.writeBooleanField("built_from_source", build.getBuiltFromSource());
+        }
+
+        if (build.getSource() != null) {
+            generator.writeStringField("source", build.getSource());
+        }
+
+        if (build.getBuildSystemType() != null) {
+            generator.writeObjectField("build_system_type", build.getBuildSystemType());
+        }
+
+        generator.writeEndObject();
+    }
+
+    private static void writeArtifacts(JsonGenerator generator, String name, List<Located> artifacts)
+            throws IOException {
+        generator.writeArrayFieldStart(name);
+
+        for (var located : artifacts) {
+            writeArtifact(generator, located);
+        }
+
+        generator.writeEndArray();
+    }
+
+    private static void writeArtifact(JsonGenerator generator, Located located) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("build", located.build != null ? located.build : NOT_FOUND);
+        generator.writeFieldName("artifact");
+        generator.writeObject(located.artifact);
+        generator.writeEndObject();
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.diff;
+
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.ws.rs.InternalServerErrorException;
+import javax.ws.rs.NotFoundException;
+import javax.ws.rs.ServiceUnavailableException;
+import javax.ws.rs.core.StreamingOutput;
+
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.Timer;
+import org.jboss.pnc.deliverablesanalyzer.ResultCache;
+import org.jboss.pnc.deliverablesanalyzer.model.FinderResult;
+import org.jboss.pnc.deliverablesanalyzer.store.ResultStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+@ApplicationScoped
+public class ResultDiffs {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ResultDiffs.class);
+
+    private static final long RETRY_AFTER_SECONDS = TimeUnit.MINUTES.toSeconds(5L);
+
+    @Inject
+    ResultCache<String, CompletionStage<FinderResult>> results;
+
+    @Inject
+    ResultStore resultStore;
+
+    @Inject
+    ObjectMapper mapper;
+
+    @Inject
+    MetricRegistry registry;
+
+    private Timer diffTimer;
+
+    @PostConstruct
+    void init() {
+        diffTimer = registry.timer("resultDiffLatency");
+    }
+
+    /**
+     * Gets a finished result from memory or, failing that, from the result store.
+     */
+    private FinderResult get(String id) {
+        var futureResult = results.get(id);
+
+        if (futureResult != null) {
+            var completableFuture = futureResult.toCompletableFuture();
+
+            if (!completableFuture.isDone()) {
+                throw new ServiceUnavailableException(RETRY_AFTER_SECONDS);
+            }
+
+            if (!completableFuture.isCancelled() && !completableFuture.isCompletedExceptionally()) {
+                try {
+                    return completableFuture.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InternalServerErrorException(e);
+                } catch (ExecutionException e) {
+                    throw new InternalServerErrorException(e);
+                }
+            }
+        }
+
+        var result = resultStore.getResult(id);
+
+        if (result == null) {
+            throw new NotFoundException("Result id " + id + " not found");
+        }
+
+        return result;
+    }
+
+    /**
+     * Computes the diff up front, so that errors are still reported with a status code, and streams its output.
+     */
+    public StreamingOutput stream(String from, String to) {
+        var fromResult = get(from);
+        var toResult = get(to);
+        var start = System.nanoTime();
+        var diff = ResultDiff.compute(fromResult, toResult);
+
+        diffTimer.update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+        LOGGER.info("Result {} differs from {} in {} builds and artifacts", to, from, diff.getChanges());
+
+        return output -> {
+            try (var generator = mapper.getFactory().createGenerator(output, JsonEncoding.UTF8)) {
+                diff.write(generator);
+            }
+        };
+    }
+}
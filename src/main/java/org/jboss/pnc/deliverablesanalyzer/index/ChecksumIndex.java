@@ -0,0 +1,203 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.index;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.metrics.Counter;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.eclipse.microprofile.metrics.annotation.Gauge;
+import org.jboss.pnc.build.finder.core.BuildSystem;
+import org.jboss.pnc.build.finder.core.ChecksumType;
+import org.jboss.pnc.build.finder.core.ConfigDefaults;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+@ApplicationScoped
+public class ChecksumIndex {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ChecksumIndex.class);
+
+    private static final String SEGMENT_SUFFIX = ".idx";
+
+    @ConfigProperty(name = "analyze.index.enabled", defaultValue = "true")
+    Boolean enabled;
+
+    @Inject
+    MetricRegistry registry;
+
+    private final List<ChecksumIndexSegment> segments = new CopyOnWriteArrayList<>();
+
+    private Counter indexLookups;
+
+    private Counter indexHits;
+
+    public static Path getIndexDirectory() {
+        return Paths.get(ConfigDefaults.CONFIG_PATH, "index");
+    }
+
+    public static ChecksumType getChecksumType(String checksum) {
+        switch (checksum.length()) {
+            case 32:
+                return ChecksumType.md5;
+            case 40:
+                return ChecksumType.sha1;
+            case 64:
+                return ChecksumType.sha256;
+            default:
+                return null;
+        }
+    }
+
+    @PostConstruct
+    void init() {
+        indexLookups = registry.counter("checksumIndexLookups");
+        indexHits = registry.counter("checksumIndexHits");
+
+        if (!isEnabled()) {
+            return;
+        }
+
+        var directory = getIndexDirectory();
+
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+
+        try (var paths = Files.list(directory)) {
+            for (var path : paths.filter(p -> p.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .collect(Collectors.toList())) {
+                openSegment(path);
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Failed to list checksum index directory {}", directory, e);
+        }
+
+        LOGGER.info("Opened {} checksum index segments with {} checksums", segments.size(), getEntries());
+    }
+
+    private void openSegment(Path path) {
+        try {
+            segments.add(ChecksumIndexSegment.open(path));
+        } catch (IOException e) {
+            LOGGER.warn("Failed to open checksum index segment {}", path, e);
+        }
+    }
+
+    public boolean isEnabled() {
+        return Boolean.TRUE.equals(enabled);
+    }
+
+    public List<ChecksumIndexEntry> find(BuildSystem buildSystem, String checksum) {
+        if (!isEnabled() || segments.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        var checksumType = getChecksumType(checksum);
+
+        if (checksumType == null) {
+            return Collections.emptyList();
+        }
+
+        var key = ChecksumIndexWriter.toKey(checksumType, checksum);
+
+        if (key == null) {
+            return Collections.emptyList();
+        }
+
+        indexLookups.inc();
+
+        var entries = new ArrayList<ChecksumIndexEntry>();
+        var seen = new HashSet<Integer>();
+
+        for (var segment : segments) {
+            if (segment.getKeyLength() != key.length) {
+                continue;
+            }
+
+            try {
+                var payload = segment.find(key);
+
+                if (payload == null) {
+                    continue;
+                }
+
+                for (var entry : ChecksumIndexWriter.parsePayload(payload)) {
+                    if (entry.getBuildSystem() == buildSystem && seen.add(entry.getArchiveId())) {
+                        entries.add(entry);
+                    }
+                }
+            } catch (IOException e) {
+                LOGGER.warn("Failed to read checksum {} from index segment {}", checksum, segment.getPath(), e);
+            }
+        }
+
+        if (!entries.isEmpty()) {
+            indexHits.inc();
+        }
+
+        return entries;
+    }
+
+    @Gauge(name = "checksumIndexSegments", unit = MetricUnits.NONE, description = "Open checksum index segments")
+    public int getSegments() {
+        return segments.size();
+    }
+
+    @Gauge(name = "checksumIndexEntries", unit = MetricUnits.NONE, description = "Checksums in the index")
+    public long getEntries() {
+        return segments.stream().mapToLong(ChecksumIndexSegment::size).sum();
+    }
+
+    @Gauge(
+            name = "checksumIndexHitRate",
+            unit = MetricUnits.NONE,
+            description = "Fraction of checksum lookups answered by the offline index")
+    public double getHitRate() {
+        var lookups = indexLookups.getCount();
+
+        return lookups > 0L ? (double) indexHits.getCount() / (double) lookups : 0.0D;
+    }
+
+    @PreDestroy
+    void close() {
+        for (var segment : segments) {
+            try {
+                segment.close();
+            } catch (IOException e) {
+                LOGGER.warn("Failed to close checksum index segment {}", segment.getPath(), e);
+            }
+        }
+
+        segments.clear();
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.index;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public final class ChecksumIndexImporter {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ChecksumIndexImporter.class);
+
+    private static final int DEFAULT_SEGMENT_SIZE = 5_000_000;
+
+    private ChecksumIndexImporter() {
+
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length > 2) {
+            LOGGER.error("Usage: {} <dump.jsonl|-> [index-directory]", ChecksumIndexImporter.class.getName());
+            throw new IllegalArgumentException("Expected a dump file and an optional index directory");
+        }
+
+        var directory = args.length > 1 ? Paths.get(args[1]) : ChecksumIndex.getIndexDirectory();
+        var in = "-".equals(args[0]) ? System.in : Files.newInputStream(Paths.get(args[0]));
+
+        try (var reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            var segmentSize = Integer.getInteger("analyze.index.segment-size", DEFAULT_SEGMENT_SIZE);
+            var imported = new ChecksumIndexWriter(directory, segmentSize).importAll(reader);
+
+            LOGGER.info("Imported {} checksum index entries into {}", imported, directory);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.error("Failed to import checksum index entries into {}, nothing was imported", directory, e);
+            throw e;
+        }
+    }
+}
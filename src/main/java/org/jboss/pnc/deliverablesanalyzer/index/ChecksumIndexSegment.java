@@ -0,0 +1,186 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.index;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.jboss.pnc.build.finder.core.ChecksumType;
+
+final class ChecksumIndexSegment implements Closeable {
+    static final int MAGIC = 0x44414958;
+
+    static final int VERSION = 1;
+
+    static final int HEADER_SIZE = 16;
+
+    static final int OFFSET_SIZE = Long.BYTES;
+
+    private final Path path;
+
+    private final FileChannel channel;
+
+    private final MappedByteBuffer keys;
+
+    private final int keyLength;
+
+    private final int count;
+
+    private final long payloadStart;
+
+    private ChecksumIndexSegment(Path path, FileChannel channel, int keyLength, int count) throws IOException {
+        this.path = path;
+        this.channel = channel;
+        this.keyLength = keyLength;
+        this.count = count;
+
+        var keysSize = (long) count * (long) (keyLength + OFFSET_SIZE);
+
+        this.keys = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, keysSize);
+        this.payloadStart = HEADER_SIZE + keysSize;
+    }
+
+    static ChecksumIndexSegment open(Path path) throws IOException {
+        var channel = FileChannel.open(path, StandardOpenOption.READ);
+
+        try {
+            var header = ByteBuffer.allocate(HEADER_SIZE);
+
+            readFully(channel, header, 0L);
+
+            header.flip();
+
+            var magic = header.getInt();
+            var version = header.getInt();
+            var keyLength = header.getInt();
+            var count = header.getInt();
+
+            if (magic != MAGIC || version != VERSION) {
+                throw new IOException("Unsupported checksum index segment " + path);
+            }
+
+            if ((long) count * (long) (keyLength + OFFSET_SIZE) > Integer.MAX_VALUE) {
+                throw new IOException("Checksum index segment " + path + " is too large to map");
+            }
+
+            return new ChecksumIndexSegment(path, channel, keyLength, count);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    static int getKeyLength(ChecksumType checksumType) {
+        switch (checksumType) {
+            case md5:
+                return 16;
+            case sha1:
+                return 20;
+            case sha256:
+                return 32;
+            default:
+                throw new IllegalArgumentException("Unsupported checksum type " + checksumType);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        var offset = position;
+
+        while (buffer.hasRemaining()) {
+            var read = channel.read(buffer, offset);
+
+            if (read < 0) {
+                throw new IOException("Unexpected end of checksum index segment");
+            }
+
+            offset += read;
+        }
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    int getKeyLength() {
+        return keyLength;
+    }
+
+    int size() {
+        return count;
+    }
+
+    byte[] find(byte[] key) throws IOException {
+        if (key.length != keyLength) {
+            return null;
+        }
+
+        var recordSize = keyLength + OFFSET_SIZE;
+        var low = 0;
+        var high = count - 1;
+
+        while (low <= high) {
+            var mid = (low + high) >>> 1;
+            var cmp = compare(mid * recordSize, key);
+
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return readPayload(keys.getLong(mid * recordSize + keyLength));
+            }
+        }
+
+        return null;
+    }
+
+    private int compare(int index, byte[] key) {
+        for (var i = 0; i < keyLength; i++) {
+            var cmp = Integer.compare(keys.get(index + i) & 0xff, key[i] & 0xff);
+
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+
+        return 0;
+    }
+
+    private byte[] readPayload(long offset) throws IOException {
+        var position = payloadStart + offset;
+        var length = ByteBuffer.allocate(Integer.BYTES);
+
+        readFully(channel, length, position);
+
+        length.flip();
+
+        var payload = ByteBuffer.allocate(length.getInt());
+
+        readFully(channel, payload, position + Integer.BYTES);
+
+        return payload.array();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
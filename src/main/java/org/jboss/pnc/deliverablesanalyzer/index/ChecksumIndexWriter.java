@@ -0,0 +1,341 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.index;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.codec.DecoderException;
+import org.apache.commons.codec.binary.Hex;
+import org.jboss.pnc.build.finder.core.ChecksumType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+final class ChecksumIndexWriter implements Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ChecksumIndexWriter.class);
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final Path directory;
+
+    private final int maxEntriesPerSegment;
+
+    private final Map<ChecksumType, SegmentBuilder> builders = new EnumMap<>(ChecksumType.class);
+
+    private final List<Path> segments = new ArrayList<>();
+
+    private final String prefix = Long.toString(System.currentTimeMillis());
+
+    private int sequence;
+
+    ChecksumIndexWriter(Path directory, int maxEntriesPerSegment) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.maxEntriesPerSegment = maxEntriesPerSegment;
+    }
+
+    static byte[] toKey(ChecksumType checksumType, String checksum) {
+        try {
+            var key = Hex.decodeHex(checksum);
+
+            return key.length == ChecksumIndexSegment.getKeyLength(checksumType) ? key : null;
+        } catch (DecoderException e) {
+            return null;
+        }
+    }
+
+    static List<ChecksumIndexEntry> parsePayload(byte[] payload) throws IOException {
+        return Arrays.asList(MAPPER.readValue(payload, ChecksumIndexEntry[].class));
+    }
+
+    /**
+     * Adds every entry of a JSON lines dump and writes the segments. If any line cannot be read or any segment cannot
+     * be written, the segments already written by this import are deleted, so that the import has no effect.
+     */
+    long importAll(BufferedReader reader) throws IOException {
+        try {
+            var added = addAll(reader);
+
+            close();
+
+            return added;
+        } catch (IOException | RuntimeException e) {
+            abort();
+            throw e;
+        }
+    }
+
+    long addAll(BufferedReader reader) throws IOException {
+        var added = 0L;
+        String line;
+
+        while ((line = reader.readLine()) != null) {
+            line = line.trim();
+
+            if (line.isEmpty()) {
+                continue;
+            }
+
+            var entry = MAPPER.readValue(line, ChecksumIndexEntry.class);
+
+            if (add(entry)) {
+                added++;
+            }
+        }
+
+        return added;
+    }
+
+    boolean add(ChecksumIndexEntry entry) throws IOException {
+        var checksumType = entry.getChecksumType();
+        var checksum = entry.getChecksum();
+
+        if (checksumType == null || checksum == null || entry.getBuildSystem() == null) {
+            LOGGER.warn("Skipping incomplete checksum index entry for checksum {}", checksum);
+            return false;
+        }
+
+        var key = toKey(checksumType, checksum);
+
+        if (key == null) {
+            LOGGER.warn("Skipping checksum index entry with invalid {} checksum {}", checksumType, checksum);
+            return false;
+        }
+
+        var builder = builders.get(checksumType);
+
+        if (builder == null) {
+            builder = new SegmentBuilder(
+                    ChecksumIndexSegment.getKeyLength(checksumType),
+                    Files.createTempFile(directory, checksumType.name() + "-", ".payloads"));
+            builders.put(checksumType, builder);
+        }
+
+        builder.add(key, MAPPER.writeValueAsBytes(entry));
+
+        if (builder.size() >= maxEntriesPerSegment) {
+            builders.remove(checksumType);
+            flush(checksumType, builder);
+        }
+
+        return true;
+    }
+
+    private void flush(ChecksumType checksumType, SegmentBuilder builder) throws IOException {
+        try (builder) {
+            var name = String.format("%s-%s-%04d.idx", checksumType.name(), prefix, sequence++);
+            var segment = builder.write(directory.resolve(name));
+
+            LOGGER.info("Wrote checksum index segment {} with {} entries", segment, builder.size());
+
+            segments.add(segment);
+        }
+    }
+
+    List<Path> getSegments() {
+        return Collections.unmodifiableList(segments);
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (var iterator = builders.entrySet().iterator(); iterator.hasNext();) {
+            var entry = iterator.next();
+
+            iterator.remove();
+            flush(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Discards the pending entries and deletes the segments written so far.
+     */
+    void abort() {
+        for (var builder : builders.values()) {
+            try {
+                builder.close();
+            } catch (IOException e) {
+                LOGGER.warn("Failed to delete checksum index payloads {}", builder.payloads, e);
+            }
+        }
+
+        builders.clear();
+
+        for (var segment : segments) {
+            try {
+                Files.deleteIfExists(segment);
+
+                LOGGER.info("Deleted checksum index segment {} of failed import", segment);
+            } catch (IOException e) {
+                LOGGER.warn("Failed to delete checksum index segment {} of failed import", segment, e);
+            }
+        }
+
+        segments.clear();
+    }
+
+    private static final class Record implements Comparable<Record> {
+        private final byte[] key;
+
+        private final long offset;
+
+        private final int length;
+
+        Record(byte[] key, long offset, int length) {
+            this.key = key;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override
+        public int compareTo(Record o) {
+            return Arrays.compareUnsigned(key, o.key);
+        }
+    }
+
+    private static final class SegmentBuilder implements Closeable {
+        private final int keyLength;
+
+        private final Path payloads;
+
+        private final DataOutputStream out;
+
+        private final List<Record> records = new ArrayList<>();
+
+        private long position;
+
+        SegmentBuilder(int keyLength, Path payloads) throws IOException {
+            this.keyLength = keyLength;
+            this.payloads = payloads;
+            this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(payloads)));
+        }
+
+        void add(byte[] key, byte[] payload) throws IOException {
+            out.write(payload);
+            records.add(new Record(key, position, payload.length));
+            position += payload.length;
+        }
+
+        int size() {
+            return records.size();
+        }
+
+        Path write(Path target) throws IOException {
+            out.close();
+
+            Collections.sort(records);
+
+            var unique = 0;
+
+            for (var i = 0; i < records.size(); i++) {
+                if (i == 0 || !Arrays.equals(records.get(i - 1).key, records.get(i).key)) {
+                    unique++;
+                }
+            }
+
+            var keysFile = target.resolveSibling(target.getFileName() + ".tmp");
+            var sortedPayloads = Files.createTempFile(target.getParent(), "sorted-", ".payloads");
+
+            try (var in = FileChannel.open(payloads, StandardOpenOption.READ);
+                    var keysOut = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(keysFile)));
+                    var payloadsOut = new DataOutputStream(
+                            new BufferedOutputStream(Files.newOutputStream(sortedPayloads)))) {
+                keysOut.writeInt(ChecksumIndexSegment.MAGIC);
+                keysOut.writeInt(ChecksumIndexSegment.VERSION);
+                keysOut.writeInt(keyLength);
+                keysOut.writeInt(unique);
+
+                var payloadOffset = 0L;
+                var i = 0;
+
+                while (i < records.size()) {
+                    var key = records.get(i).key;
+                    var array = new ByteArrayOutputStream();
+
+                    array.write('[');
+
+                    var j = i;
+
+                    while (j < records.size() && Arrays.equals(key, records.get(j).key)) {
+                        if (j > i) {
+                            array.write(',');
+                        }
+
+                        array.write(read(in, records.get(j)));
+                        j++;
+                    }
+
+                    array.write(']');
+
+                    keysOut.write(key);
+                    keysOut.writeLong(payloadOffset);
+                    payloadsOut.writeInt(array.size());
+                    array.writeTo(payloadsOut);
+
+                    payloadOffset += Integer.BYTES + array.size();
+                    i = j;
+                }
+            }
+
+            try (var keysOut = Files.newOutputStream(keysFile, StandardOpenOption.APPEND)) {
+                Files.copy(sortedPayloads, keysOut);
+            } finally {
+                Files.deleteIfExists(sortedPayloads);
+            }
+
+            return Files.move(keysFile, target, StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        private static byte[] read(FileChannel in, Record record) throws IOException {
+            var buffer = ByteBuffer.allocate(record.length);
+            var offset = record.offset;
+
+            while (buffer.hasRemaining()) {
+                var read = in.read(buffer, offset);
+
+                if (read < 0) {
+                    throw new IOException("Unexpected end of checksum index payloads");
+                }
+
+                offset += read;
+            }
+
+            return buffer.array();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+            Files.deleteIfExists(payloads);
+        }
+    }
+}
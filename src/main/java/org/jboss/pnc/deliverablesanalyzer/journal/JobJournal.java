@@ -0,0 +1,207 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.journal;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.eclipse.microprofile.metrics.annotation.Gauge;
+import org.jboss.pnc.build.finder.core.ConfigDefaults;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Append-only JSON lines journal of analysis submissions. An analysis that has a submitted entry but no completed,
+ * failed or cancelled entry was interrupted and is replayed on startup.
+ */
+@ApplicationScoped
+public class JobJournal {
+    private static final Logger LOGGER = LoggerFactory.getLogger(JobJournal.class);
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @ConfigProperty(name = "analyze.journal.enabled", defaultValue = "true")
+    Boolean enabled;
+
+    @ConfigProperty(name = "analyze.journal.sync", defaultValue = "true")
+    Boolean sync;
+
+    Path file = getJournalFile();
+
+    private final LinkedHashMap<String, JournalEntry> unfinished = new LinkedHashMap<>();
+
+    private FileChannel channel;
+
+    public static Path getJournalFile() {
+        return Paths.get(ConfigDefaults.CONFIG_PATH, "journal", "jobs.jsonl");
+    }
+
+    /**
+     * Reads the journal, rewrites it with only the unfinished submissions and opens it for appending.
+     *
+     * @return the unfinished submissions, oldest first
+     */
+    public synchronized List<JournalEntry> recover() {
+        if (!enabled) {
+            return List.of();
+        }
+
+        try {
+            Files.createDirectories(file.getParent());
+
+            if (Files.exists(file)) {
+                read(file);
+            }
+
+            rewrite(file, unfinished.values());
+
+            channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            LOGGER.error("Disabling job journal {}: {}", file, e.getMessage(), e);
+            enabled = false;
+            return List.of();
+        }
+
+        LOGGER.info("Recovered {} unfinished analyses from job journal {}", unfinished.size(), file);
+
+        return new ArrayList<>(unfinished.values());
+    }
+
+    private void read(Path file) throws IOException {
+        try (var lines = Files.lines(file, UTF_8)) {
+            lines.filter(line -> !line.isBlank()).forEach(line -> {
+                try {
+                    var entry = MAPPER.readValue(line, JournalEntry.class);
+
+                    apply(entry);
+                } catch (JsonProcessingException e) {
+                    // A crash while appending leaves a truncated last line
+                    LOGGER.warn("Skipping unreadable job journal line: {}", e.getOriginalMessage());
+                }
+            });
+        }
+    }
+
+    private void apply(JournalEntry entry) {
+        if (entry.getEvent() == null || entry.getId() == null) {
+            return;
+        }
+
+        if (entry.getEvent() == JournalEntry.Event.SUBMITTED) {
+            unfinished.put(entry.getId(), entry);
+        } else {
+            unfinished.remove(entry.getId());
+        }
+    }
+
+    private static void rewrite(Path file, Collection<JournalEntry> entries) throws IOException {
+        var tmp = file.resolveSibling(file.getFileName() + ".tmp");
+
+        try (var out = FileChannel.open(
+                tmp,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (var entry : entries) {
+                out.write(ByteBuffer.wrap(toLine(entry)));
+            }
+
+            out.force(true);
+        }
+
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static byte[] toLine(JournalEntry entry) throws JsonProcessingException {
+        return (MAPPER.writeValueAsString(entry) + "\n").getBytes(UTF_8);
+    }
+
+    public void submitted(String id, String url, String client, String config, String baseline) {
+        append(JournalEntry.submitted(id, url, client, config, baseline));
+    }
+
+    public void completed(String id) {
+        append(JournalEntry.of(JournalEntry.Event.COMPLETED, id));
+    }
+
+    public void failed(String id) {
+        append(JournalEntry.of(JournalEntry.Event.FAILED, id));
+    }
+
+    public void cancelled(String id) {
+        append(JournalEntry.of(JournalEntry.Event.CANCELLED, id));
+    }
+
+    private synchronized void append(JournalEntry entry) {
+        if (!enabled || channel == null) {
+            return;
+        }
+
+        try {
+            var buffer = ByteBuffer.wrap(toLine(entry));
+
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+
+            if (sync) {
+                channel.force(false);
+            }
+
+            apply(entry);
+        } catch (IOException e) {
+            LOGGER.error("Failed to append {} of analysis {} to job journal", entry.getEvent(), entry.getId(), e);
+        }
+    }
+
+    @Gauge(name = "journaledAnalyses", unit = MetricUnits.NONE, description = "Journaled analyses not yet finished")
+    public synchronized int getUnfinished() {
+        return unfinished.size();
+    }
+
+    @PreDestroy
+    synchronized void close() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                LOGGER.warn("Failed to close job journal", e);
+            }
+
+            channel = null;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.koji;
+
+import java.net.URL;
+import java.util.Collections;
+import java.util.List;
+
+import org.jboss.pnc.build.finder.koji.ClientSession;
+import org.jboss.pnc.deliverablesanalyzer.resilience.Deadline;
+
+import com.redhat.red.build.koji.KojiClientException;
+import com.redhat.red.build.koji.model.xmlrpc.KojiArchiveInfo;
+import com.redhat.red.build.koji.model.xmlrpc.KojiArchiveQuery;
+
+public class BatchingClientSession extends DelegatingClientSession {
+    private final KojiMulticallBatcher batcher;
+
+    private final URL kojiHubURL;
+
+    private final Deadline deadline;
+
+    public BatchingClientSession(
+            ClientSession delegate,
+            KojiMulticallBatcher batcher,
+            URL kojiHubURL,
+            Deadline deadline) {
+        super(delegate);
+        this.batcher = batcher;
+        this.kojiHubURL = kojiHubURL;
+        this.deadline = deadline;
+    }
+
+    @Override
+    public List<KojiArchiveInfo> listArchives(KojiArchiveQuery query) throws KojiClientException {
+        return listArchives(Collections.singletonList(query)).get(0);
+    }
+
+    @Override
+    public List<List<KojiArchiveInfo>> listArchives(List<KojiArchiveQuery> queries) throws KojiClientException {
+        if (!batcher.isEnabled()) {
+            return super.listArchives(queries);
+        }
+
+        return batcher.listArchives(kojiHubURL, queries, deadline);
+    }
+}
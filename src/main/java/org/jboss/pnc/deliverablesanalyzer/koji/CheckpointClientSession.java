@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.koji;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.jboss.pnc.build.finder.core.BuildSystem;
+import org.jboss.pnc.build.finder.core.ChecksumType;
+import org.jboss.pnc.build.finder.koji.ClientSession;
+import org.jboss.pnc.deliverablesanalyzer.checkpoint.Checkpoint;
+import org.jboss.pnc.deliverablesanalyzer.index.ChecksumIndexEntry;
+
+import com.redhat.red.build.koji.KojiClientException;
+import com.redhat.red.build.koji.model.xmlrpc.KojiArchiveInfo;
+import com.redhat.red.build.koji.model.xmlrpc.KojiArchiveQuery;
+
+/**
+ * Answers archive lookups already resolved in the checkpoint and records new ones, so that an interrupted analysis
+ * does not repeat them.
+ */
+public class CheckpointClientSession extends DelegatingClientSession {
+    private final Checkpoint checkpoint;
+
+    public CheckpointClientSession(ClientSession delegate, Checkpoint checkpoint) {
+        super(delegate);
+        this.checkpoint = checkpoint;
+    }
+
+    static ChecksumIndexEntry toEntry(KojiArchiveInfo archiveInfo) {
+        var entry = new ChecksumIndexEntry();
+
+        entry.setChecksumType(ChecksumType.valueOf(archiveInfo.getChecksumType().name()));
+        entry.setChecksum(archiveInfo.getChecksum());
+        entry.setBuildSystem(BuildSystem.koji);
+        entry.setArchiveId(archiveInfo.getArchiveId());
+        entry.setBuildId(archiveInfo.getBuildId());
+        entry.setFilename(archiveInfo.getFilename());
+        entry.setBuildType(archiveInfo.getBuildType());
+        entry.setGroupId(archiveInfo.getGroupId());
+        entry.setArtifactId(archiveInfo.getArtifactId());
+        entry.setVersion(archiveInfo.getVersion());
+        entry.setClassifier(archiveInfo.getClassifier());
+        entry.setExtension(archiveInfo.getExtension());
+
+        return entry;
+    }
+
+    @Override
+    public List<KojiArchiveInfo> listArchives(KojiArchiveQuery query) throws KojiClientException {
+        return listArchives(Collections.singletonList(query)).get(0);
+    }
+
+    @Override
+    public List<List<KojiArchiveInfo>> listArchives(List<KojiArchiveQuery> queries) throws KojiClientException {
+        var size = queries.size();
+        var results = new ArrayList<List<KojiArchiveInfo>>(Collections.nCopies(size, null));
+        var remoteQueries = new ArrayList<KojiArchiveQuery>(size);
+        var remoteIndexes = new ArrayList<Integer>(size);
+
+        for (var i = 0; i < size; i++) {
+            var query = queries.get(i);
+            var checksum = query.getChecksum();
+            var entries = checksum != null ? checkpoint.getArchives(checksum) : null;
+
+            if (entries == null) {
+                remoteQueries.add(query);
+                remoteIndexes.add(i);
+            } else {
+                checkpoint.hit();
+                results.set(
+                        i,
+                        entries.stream().map(IndexedClientSession::toArchiveInfo).collect(Collectors.toList()));
+            }
+        }
+
+        if (remoteQueries.isEmpty()) {
+            return results;
+        }
+
+        var remoteResults = super.listArchives(remoteQueries);
+
+        for (var i = 0; i < remoteResults.size(); i++) {
+            var query = remoteQueries.get(i);
+            var archiveInfos = remoteResults.get(i);
+
+            if (query.getChecksum() != null && archiveInfos != null
+                    && archiveInfos.stream().allMatch(archiveInfo -> archiveInfo.getChecksumType() != null)) {
+                checkpoint.putArchives(
+                        query.getChecksum(),
+                        archiveInfos.stream().map(CheckpointClientSession::toEntry).collect(Collectors.toList()));
+            }
+
+            results.set(remoteIndexes.get(i), archiveInfos);
+        }
+
+        return results;
+    }
+}
@@ -0,0 +1,267 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.koji;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeSet;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.ws.rs.BadRequestException;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.metrics.Counter;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.infinispan.Cache;
+import org.jboss.pnc.build.finder.core.BuildConfig;
+import org.jboss.pnc.build.finder.core.ChecksumType;
+import org.jboss.pnc.build.finder.koji.KojiBuild;
+import org.jboss.pnc.deliverablesanalyzer.Finder;
+import org.jboss.pnc.deliverablesanalyzer.cache.Caches;
+import org.jboss.pnc.deliverablesanalyzer.index.ChecksumIndex;
+import org.jboss.pnc.deliverablesanalyzer.model.Build;
+import org.jboss.pnc.deliverablesanalyzer.model.BuildSystemType;
+import org.jboss.pnc.deliverablesanalyzer.model.LookupResult;
+import org.jboss.pnc.deliverablesanalyzer.resilience.Deadline;
+import org.jboss.pnc.deliverablesanalyzer.scheduler.Client;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.redhat.red.build.koji.KojiClientException;
+import com.redhat.red.build.koji.model.xmlrpc.KojiArchiveInfo;
+import com.redhat.red.build.koji.model.xmlrpc.KojiArchiveQuery;
+import com.redhat.red.build.koji.model.xmlrpc.KojiBuildInfo;
+import com.redhat.red.build.koji.model.xmlrpc.KojiChecksumType;
+import com.redhat.red.build.koji.model.xmlrpc.KojiIdOrName;
+
+/**
+ * Maps a batch of checksums to Koji archives and builds. Checksums and builds in the Build Finder caches are answered
+ * from there, and the rest go through the usual Koji session, so they are answered by the checksum index and the
+ * negative cache where possible, coalesced with concurrent analyses, and sent as multicalls.
+ */
+@ApplicationScoped
+public class ChecksumLookup {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ChecksumLookup.class);
+
+    @ConfigProperty(name = "analyze.lookup.max-checksums", defaultValue = "10000")
+    Integer maxChecksums;
+
+    @ConfigProperty(name = "analyze.lookup.timeout", defaultValue = "60000")
+    Long timeout;
+
+    @Inject
+    Caches caches;
+
+    @Inject
+    KojiSessions kojiSessions;
+
+    @Inject
+    MetricRegistry registry;
+
+    private volatile BuildConfig config;
+
+    private Counter cachedLookups;
+
+    private Counter remoteLookups;
+
+    @PostConstruct
+    void init() {
+        cachedLookups = registry.counter("checksumLookupCached");
+        remoteLookups = registry.counter("checksumLookupRemote");
+    }
+
+    private BuildConfig getConfig() throws IOException {
+        if (config == null) {
+            config = Finder.loadBuildConfig();
+        }
+
+        return config;
+    }
+
+    /**
+     * Normalizes and deduplicates the requested checksums.
+     *
+     * @return an empty result per distinct checksum, in request order
+     */
+    Map<String, LookupResult> parse(List<String> checksums) {
+        var results = new LinkedHashMap<String, LookupResult>();
+
+        for (var value : checksums) {
+            var checksum = Objects.requireNonNullElse(value, "").trim().toLowerCase(Locale.ROOT);
+            var checksumType = ChecksumIndex.getChecksumType(checksum);
+
+            if (checksumType == null || !checksum.matches("[a-f0-9]+")) {
+                throw new BadRequestException("Not an MD5, SHA-1 or SHA-256 checksum: " + value);
+            }
+
+            results.putIfAbsent(checksum, new LookupResult(checksum, checksumType));
+        }
+
+        if (results.size() > maxChecksums) {
+            throw new BadRequestException("At most " + maxChecksums + " checksums may be looked up at once");
+        }
+
+        return results;
+    }
+
+    /**
+     * Looks up each distinct checksum once.
+     *
+     * @return one result per distinct checksum, in request order
+     */
+    public List<LookupResult> lookup(List<String> checksums, Client client) throws IOException, KojiClientException {
+        var results = parse(checksums);
+        var buildConfig = getConfig();
+        var cacheManager = caches.getCacheManager(buildConfig);
+        var archives = new HashMap<String, List<KojiArchiveInfo>>();
+        var misses = new ArrayList<LookupResult>();
+
+        // Build Finder only caches Koji archives by MD5
+        Cache<String, List<KojiArchiveInfo>> checksumCache = cacheManager.getCache("checksums-" + ChecksumType.md5);
+
+        for (var result : results.values()) {
+            var cached = result.getChecksumType() == ChecksumType.md5 ? checksumCache.get(result.getChecksum()) : null;
+
+            if (cached != null) {
+                archives.put(result.getChecksum(), cached);
+            } else {
+                misses.add(result);
+            }
+        }
+
+        cachedLookups.inc(results.size() - misses.size());
+        remoteLookups.inc(misses.size());
+
+        var deadline = new Deadline(timeout);
+
+        deadline.start();
+
+        try (var session = kojiSessions.open(buildConfig, deadline, client)) {
+            if (!misses.isEmpty()) {
+                var queries = new ArrayList<KojiArchiveQuery>(misses.size());
+
+                for (var miss : misses) {
+                    queries.add(new KojiArchiveQuery().withChecksum(miss.getChecksum()));
+                }
+
+                var found = session.listArchives(queries);
+
+                for (var i = 0; i < misses.size(); i++) {
+                    var miss = misses.get(i);
+                    var archiveInfos = found.get(i);
+
+                    if (archiveInfos != null) {
+                        for (var archiveInfo : archiveInfos) {
+                            if (archiveInfo.getChecksumType() == null) {
+                                archiveInfo.setChecksumType(KojiChecksumType.valueOf(miss.getChecksumType().name()));
+                            }
+                        }
+
+                        archives.put(miss.getChecksum(), archiveInfos);
+                    }
+                }
+            }
+
+            var builds = getBuilds(session, cacheManager.getCache("builds"), archives);
+
+            for (var result : results.values()) {
+                var archiveInfos = archives.getOrDefault(result.getChecksum(), List.of());
+                var buildIds = new TreeSet<Integer>();
+
+                for (var archiveInfo : archiveInfos) {
+                    result.getArchives().add(CheckpointClientSession.toEntry(archiveInfo));
+
+                    if (archiveInfo.getBuildId() != null && buildIds.add(archiveInfo.getBuildId())) {
+                        var build = builds.get(archiveInfo.getBuildId());
+
+                        if (build != null) {
+                            result.getBuilds().add(build);
+                        }
+                    }
+                }
+            }
+        }
+
+        LOGGER.info(
+                "Looked up {} checksums, {} of them from the caches",
+                results.size(),
+                results.size() - misses.size());
+
+        return new ArrayList<>(results.values());
+    }
+
+    private static Map<Integer, Build> getBuilds(
+            DelegatingClientSession session,
+            Cache<Integer, KojiBuild> buildCache,
+            Map<String, List<KojiArchiveInfo>> archives) throws KojiClientException {
+        var builds = new HashMap<Integer, Build>();
+        var missing = new ArrayList<Integer>();
+
+        archives.values()
+                .stream()
+                .flatMap(List::stream)
+                .map(KojiArchiveInfo::getBuildId)
+                .filter(Objects::nonNull)
+                .distinct()
+                .forEach(buildId -> {
+                    var cached = buildCache.get(buildId);
+
+                    if (cached != null && cached.getBuildInfo() != null) {
+                        builds.put(buildId, toBuild(cached.getBuildInfo()));
+                    } else {
+                        missing.add(buildId);
+                    }
+                });
+
+        if (missing.isEmpty()) {
+            return builds;
+        }
+
+        var idsOrNames = new ArrayList<KojiIdOrName>(missing.size());
+
+        for (var buildId : missing) {
+            idsOrNames.add(KojiIdOrName.getFor(buildId));
+        }
+
+        for (var buildInfo : session.getBuild(idsOrNames)) {
+            if (buildInfo != null) {
+                builds.put(buildInfo.getId(), toBuild(buildInfo));
+            }
+        }
+
+        return builds;
+    }
+
+    static Build toBuild(KojiBuildInfo buildInfo) {
+        var build = new Build();
+
+        build.setIdentifier(buildInfo.getNvr());
+        build.setKojiId((long) buildInfo.getId());
+        build.setBuildSystemType(BuildSystemType.KOJI);
+        build.setSource(buildInfo.getSource());
+        build.setBuiltFromSource(buildInfo.getTaskId() != null);
+
+        return build;
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.koji;
+
+import java.util.List;
+import java.util.Map;
+
+import org.jboss.pnc.build.finder.koji.ClientSession;
+import org.jboss.pnc.deliverablesanalyzer.resilience.Deadline;
+import org.jboss.pnc.deliverablesanalyzer.scheduler.Client;
+
+import com.redhat.red.build.koji.KojiClientException;
+import com.redhat.red.build.koji.model.xmlrpc.KojiArchiveInfo;
+import com.redhat.red.build.koji.model.xmlrpc.KojiArchiveQuery;
+import com.redhat.red.build.koji.model.xmlrpc.KojiArchiveType;
+import com.redhat.red.build.koji.model.xmlrpc.KojiBuildInfo;
+import com.redhat.red.build.koji.model.xmlrpc.KojiIdOrName;
+import com.redhat.red.build.koji.model.xmlrpc.KojiRpmInfo;
+import com.redhat.red.build.koji.model.xmlrpc.KojiTagInfo;
+import com.redhat.red.build.koji.model.xmlrpc.KojiTaskInfo;
+
+public class ClientBudgetClientSession extends DelegatingClientSession {
+    private final Client client;
+
+    private final Deadline deadline;
+
+    public ClientBudgetClientSession(ClientSession delegate, Client client, Deadline deadline) {
+        super(delegate);
+        this.client = client;
+        this.deadline = deadline;
+    }
+
+    @Override
+    public List<KojiArchiveInfo> listArchives(KojiArchiveQuery query) throws KojiClientException {
+        return client.callKoji(deadline, () -> super.listArchives(query));
+    }
+
+    @Override
+    public List<List<KojiArchiveInfo>> listArchives(List<KojiArchiveQuery> queries) throws KojiClientException {
+        return client.callKoji(deadline, () -> super.listArchives(queries));
+    }
+
+    @Override
+    public Map<String, KojiArchiveType> getArchiveTypeMap() throws KojiClientException {
+        return client.callKoji(deadline, super::getArchiveTypeMap);
+    }
+
+    @Override
+    public KojiBuildInfo getBuild(int buildId) throws KojiClientException {
+        return client.callKoji(deadline, () -> super.getBuild(buildId));
+    }
+
+    @Override
+    public List<KojiBuildInfo> getBuild(List<KojiIdOrName> idsOrNames) throws KojiClientException {
+        return client.callKoji(deadline, () -> super.getBuild(idsOrNames));
+    }
+
+    @Override
+    public KojiTaskInfo getTaskInfo(int taskId, boolean request) throws KojiClientException {
+        return client.callKoji(deadline, () -> super.getTaskInfo(taskId, request));
+    }
+
+    @Override
+    public List<KojiTaskInfo> getTaskInfo(List<Integer> taskIds, List<Boolean> requests)
+            throws KojiClientException {
+        return client.callKoji(deadline, () -> super.getTaskInfo(taskIds, requests));
+    }
+
+    @Override
+    public void enrichArchiveTypeInfo(List<KojiArchiveInfo> archiveInfos) throws KojiClientException {
+        client.callKoji(deadline, () -> {
+            super.enrichArchiveTypeInfo(archiveInfos);
+            return null;
+        });
+    }
+
+    @Override
+    public List<KojiTagInfo> listTags(int id) throws KojiClientException {
+        return client.callKoji(deadline, () -> super.listTags(id));
+    }
+
+    @Override
+    public List<List<KojiTagInfo>> listTags(List<KojiIdOrName> idsOrNames) throws KojiClientException {
+        return client.callKoji(deadline, () -> super.listTags(idsOrNames));
+    }
+
+    @Override
+    public List<KojiRpmInfo> getRPM(List<KojiIdOrName> idsOrNames) throws KojiClientException {
+        return client.callKoji(deadline, () -> super.getRPM(idsOrNames));
+    }
+
+    @Override
+    public List<List<KojiRpmInfo>> listBuildRPMs(List<KojiIdOrName> idsOrNames) throws KojiClientException {
+        return client.callKoji(deadline, () -> super.listBuildRPMs(idsOrNames));
+    }
+}
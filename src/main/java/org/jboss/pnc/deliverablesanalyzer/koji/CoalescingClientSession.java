@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.koji;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.jboss.pnc.build.finder.koji.ClientSession;
+import org.jboss.pnc.deliverablesanalyzer.cache.InFlightLookups;
+import org.jboss.pnc.deliverablesanalyzer.resilience.Deadline;
+
+import com.redhat.red.build.koji.KojiClientException;
+import com.redhat.red.build.koji.model.xmlrpc.KojiArchiveInfo;
+import com.redhat.red.build.koji.model.xmlrpc.KojiArchiveQuery;
+import com.redhat.red.build.koji.model.xmlrpc.KojiBuildInfo;
+import com.redhat.red.build.koji.model.xmlrpc.KojiIdOrName;
+
+/**
+ * Shares a Koji lookup between the analyses making it at the same time. Each caller gets its own copy of the result,
+ * since the build finder modifies the archives and builds it is given.
+ */
+public class CoalescingClientSession extends DelegatingClientSession {
+    private final InFlightLookups inFlightLookups;
+
+    private final Deadline deadline;
+
+    public CoalescingClientSession(ClientSession delegate, InFlightLookups inFlightLookups, Deadline deadline) {
+        super(delegate);
+        this.inFlightLookups = inFlightLookups;
+        this.deadline = deadline;
+    }
+
+    private static KojiClientException aborted(String violation) {
+        return new KojiClientException("Koji call aborted: %s", violation);
+    }
+
+    @Override
+    public List<KojiArchiveInfo> listArchives(KojiArchiveQuery query) throws KojiClientException {
+        return listArchives(Collections.singletonList(query)).get(0);
+    }
+
+    @Override
+    public List<List<KojiArchiveInfo>> listArchives(List<KojiArchiveQuery> queries) throws KojiClientException {
+        if (!inFlightLookups.isEnabled()) {
+            return super.listArchives(queries);
+        }
+
+        var archives = inFlightLookups.getKojiArchives()
+                .executeAll(
+                        queries,
+                        KojiArchiveQuery::getChecksum,
+                        deadline,
+                        KojiClientException.class,
+                        CoalescingClientSession::aborted,
+                        super::listArchives);
+        var copies = new ArrayList<List<KojiArchiveInfo>>(archives.size());
+
+        for (var list : archives) {
+            copies.add(copy(list));
+        }
+
+        return copies;
+    }
+
+    @Override
+    public KojiBuildInfo getBuild(int buildId) throws KojiClientException {
+        if (!inFlightLookups.isEnabled()) {
+            return super.getBuild(buildId);
+        }
+
+        return copy(
+                inFlightLookups.getKojiBuilds()
+                        .execute(
+                                buildId,
+                                deadline,
+                                KojiClientException.class,
+                                CoalescingClientSession::aborted,
+                                () -> super.getBuild(buildId)));
+    }
+
+    @Override
+    public List<KojiBuildInfo> getBuild(List<KojiIdOrName> idsOrNames) throws KojiClientException {
+        if (!inFlightLookups.isEnabled()) {
+            return super.getBuild(idsOrNames);
+        }
+
+        var builds = inFlightLookups.getKojiBuilds()
+                .executeAll(
+                        idsOrNames,
+                        KojiIdOrName::getId,
+                        deadline,
+                        KojiClientException.class,
+                        CoalescingClientSession::aborted,
+                        super::getBuild);
+        var copies = new ArrayList<KojiBuildInfo>(builds.size());
+
+        for (var build : builds) {
+            copies.add(copy(build));
+        }
+
+        return copies;
+    }
+
+    /**
+     * Deep copies a shared result. The Koji model objects are serializable, as they are also kept in the caches.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> T copy(T value) throws KojiClientException {
+        if (value == null) {
+            return null;
+        }
+
+        try {
+            var bytes = new ByteArrayOutputStream();
+
+            try (var out = new ObjectOutputStream(bytes)) {
+                out.writeObject(value);
+            }
+
+            try (var in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+                return (T) in.readObject();
+            }
+        } catch (IOException | ClassNotFoundException e) {
+            throw new KojiClientException("Could not copy shared Koji result: %s", e, e.getMessage());
+        }
+    }
+}
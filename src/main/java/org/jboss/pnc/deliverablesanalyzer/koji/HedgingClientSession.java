@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.koji;
+
+import java.util.List;
+import java.util.Map;
+
+import org.jboss.pnc.build.finder.koji.ClientSession;
+
+import com.redhat.red.build.koji.KojiClientException;
+import com.redhat.red.build.koji.model.xmlrpc.KojiArchiveInfo;
+import com.redhat.red.build.koji.model.xmlrpc.KojiArchiveQuery;
+import com.redhat.red.build.koji.model.xmlrpc.KojiArchiveType;
+import com.redhat.red.build.koji.model.xmlrpc.KojiBuildInfo;
+import com.redhat.red.build.koji.model.xmlrpc.KojiIdOrName;
+import com.redhat.red.build.koji.model.xmlrpc.KojiRpmInfo;
+import com.redhat.red.build.koji.model.xmlrpc.KojiTagInfo;
+import com.redhat.red.build.koji.model.xmlrpc.KojiTaskInfo;
+
+public class HedgingClientSession extends DelegatingClientSession {
+    private final KojiHedging hedging;
+
+    public HedgingClientSession(ClientSession delegate, KojiHedging hedging) {
+        super(delegate);
+        this.hedging = hedging;
+    }
+
+    @Override
+    public List<KojiArchiveInfo> listArchives(KojiArchiveQuery query) throws KojiClientException {
+        return hedging.call("listArchives", getDelegate(), session -> session.listArchives(query));
+    }
+
+    @Override
+    public List<List<KojiArchiveInfo>> listArchives(List<KojiArchiveQuery> queries) throws KojiClientException {
+        return hedging.call("listArchivesMulticall", getDelegate(), session -> session.listArchives(queries));
+    }
+
+    @Override
+    public Map<String, KojiArchiveType> getArchiveTypeMap() throws KojiClientException {
+        return hedging.call("getArchiveTypeMap", getDelegate(), ClientSession::getArchiveTypeMap);
+    }
+
+    @Override
+    public KojiBuildInfo getBuild(int buildId) throws KojiClientException {
+        return hedging.call("getBuild", getDelegate(), session -> session.getBuild(buildId));
+    }
+
+    @Override
+    public List<KojiBuildInfo> getBuild(List<KojiIdOrName> idsOrNames) throws KojiClientException {
+        return hedging.call("getBuildMulticall", getDelegate(), session -> session.getBuild(idsOrNames));
+    }
+
+    @Override
+    public KojiTaskInfo getTaskInfo(int taskId, boolean request) throws KojiClientException {
+        return hedging.call("getTaskInfo", getDelegate(), session -> session.getTaskInfo(taskId, request));
+    }
+
+    @Override
+    public List<KojiTaskInfo> getTaskInfo(List<Integer> taskIds, List<Boolean> requests)
+            throws KojiClientException {
+        return hedging.call("getTaskInfoMulticall", getDelegate(), session -> session.getTaskInfo(taskIds, requests));
+    }
+
+    @Override
+    public List<KojiTagInfo> listTags(int id) throws KojiClientException {
+        return hedging.call("listTags", getDelegate(), session -> session.listTags(id));
+    }
+
+    @Override
+    public List<List<KojiTagInfo>> listTags(List<KojiIdOrName> idsOrNames) throws KojiClientException {
+        return hedging.call("listTagsMulticall", getDelegate(), session -> session.listTags(idsOrNames));
+    }
+
+    @Override
+    public List<KojiRpmInfo> getRPM(List<KojiIdOrName> idsOrNames) throws KojiClientException {
+        return hedging.call("getRPMMulticall", getDelegate(), session -> session.getRPM(idsOrNames));
+    }
+
+    @Override
+    public List<List<KojiRpmInfo>> listBuildRPMs(List<KojiIdOrName> idsOrNames) throws KojiClientException {
+        return hedging.call("listBuildRPMsMulticall", getDelegate(), session -> session.listBuildRPMs(idsOrNames));
+    }
+}
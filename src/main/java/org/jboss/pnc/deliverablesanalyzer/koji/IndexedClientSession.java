@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.koji;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.jboss.pnc.build.finder.core.BuildSystem;
+import org.jboss.pnc.build.finder.koji.ClientSession;
+import org.jboss.pnc.deliverablesanalyzer.index.ChecksumIndex;
+import org.jboss.pnc.deliverablesanalyzer.index.ChecksumIndexEntry;
+
+import com.redhat.red.build.koji.KojiClientException;
+import com.redhat.red.build.koji.model.xmlrpc.KojiArchiveInfo;
+import com.redhat.red.build.koji.model.xmlrpc.KojiArchiveQuery;
+import com.redhat.red.build.koji.model.xmlrpc.KojiChecksumType;
+
+public class IndexedClientSession extends DelegatingClientSession {
+    private final ChecksumIndex index;
+
+    public IndexedClientSession(ClientSession delegate, ChecksumIndex index) {
+        super(delegate);
+        this.index = index;
+    }
+
+    static KojiArchiveInfo toArchiveInfo(ChecksumIndexEntry entry) {
+        var archiveInfo = new KojiArchiveInfo();
+
+        archiveInfo.setArchiveId(entry.getArchiveId());
+        archiveInfo.setBuildId(entry.getBuildId());
+        archiveInfo.setFilename(entry.getFilename());
+        archiveInfo.setChecksum(entry.getChecksum());
+        archiveInfo.setChecksumType(KojiChecksumType.valueOf(entry.getChecksumType().name()));
+        archiveInfo.setBuildType(entry.getBuildType());
+        archiveInfo.setGroupId(entry.getGroupId());
+        archiveInfo.setArtifactId(entry.getArtifactId());
+        archiveInfo.setVersion(entry.getVersion());
+        archiveInfo.setClassifier(entry.getClassifier());
+        archiveInfo.setExtension(entry.getExtension());
+
+        return archiveInfo;
+    }
+
+    @Override
+    public List<KojiArchiveInfo> listArchives(KojiArchiveQuery query) throws KojiClientException {
+        return listArchives(Collections.singletonList(query)).get(0);
+    }
+
+    @Override
+    public List<List<KojiArchiveInfo>> listArchives(List<KojiArchiveQuery> queries) throws KojiClientException {
+        if (!index.isEnabled()) {
+            return super.listArchives(queries);
+        }
+
+        var size = queries.size();
+        var results = new ArrayList<List<KojiArchiveInfo>>(Collections.nCopies(size, null));
+        var remoteQueries = new ArrayList<KojiArchiveQuery>(size);
+        var remoteIndexes = new ArrayList<Integer>(size);
+
+        for (var i = 0; i < size; i++) {
+            var query = queries.get(i);
+            var checksum = query.getChecksum();
+            var entries = checksum != null ? index.find(BuildSystem.koji, checksum)
+                    : Collections.<ChecksumIndexEntry> emptyList();
+
+            if (entries.isEmpty()) {
+                remoteQueries.add(query);
+                remoteIndexes.add(i);
+            } else {
+                results.set(
+                        i,
+                        entries.stream().map(IndexedClientSession::toArchiveInfo).collect(Collectors.toList()));
+            }
+        }
+
+        if (remoteQueries.isEmpty()) {
+            return results;
+        }
+
+        var remoteResults = super.listArchives(remoteQueries);
+
+        for (var i = 0; i < remoteResults.size(); i++) {
+            results.set(remoteIndexes.get(i), remoteResults.get(i));
+        }
+
+        return results;
+    }
+}
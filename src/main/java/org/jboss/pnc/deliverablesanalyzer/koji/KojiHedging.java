@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.koji;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.Optional;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.eclipse.microprofile.metrics.annotation.Gauge;
+import org.jboss.pnc.build.finder.koji.ClientSession;
+import org.jboss.pnc.deliverablesanalyzer.resilience.Hedger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.redhat.red.build.koji.KojiClientException;
+
+@ApplicationScoped
+public class KojiHedging {
+    private static final Logger LOGGER = LoggerFactory.getLogger(KojiHedging.class);
+
+    @ConfigProperty(name = "analyze.koji.hedge.enabled", defaultValue = "false")
+    Boolean enabled;
+
+    @ConfigProperty(name = "analyze.koji.hedge.percentile", defaultValue = "0.95")
+    Double percentile;
+
+    @ConfigProperty(name = "analyze.koji.hedge.min-delay", defaultValue = "100")
+    Long minDelay;
+
+    @ConfigProperty(name = "analyze.koji.hedge.budget", defaultValue = "0.05")
+    Double budget;
+
+    @ConfigProperty(name = "analyze.koji.hedge.replica-url")
+    Optional<String> replicaURL;
+
+    @Inject
+    MetricRegistry registry;
+
+    @Inject
+    KojiSessionPool pool;
+
+    private Hedger hedger;
+
+    private volatile ClientSession replica;
+
+    @FunctionalInterface
+    public interface SessionCall<V> {
+        V call(ClientSession session) throws KojiClientException;
+    }
+
+    @PostConstruct
+    void init() {
+        hedger = new Hedger(
+                "koji",
+                percentile,
+                minDelay,
+                budget,
+                registry.counter("kojiHedgeableCalls"),
+                registry.counter("kojiHedgedCalls"),
+                registry.counter("kojiHedgeWins"));
+    }
+
+    public boolean isEnabled() {
+        return Boolean.TRUE.equals(enabled);
+    }
+
+    public <V> V call(String method, ClientSession session, SessionCall<V> call) throws KojiClientException {
+        if (!isEnabled()) {
+            return call.call(session);
+        }
+
+        var hedgeSession = getReplica().orElse(session);
+
+        return hedger
+                .call(method, () -> call.call(session), () -> call.call(hedgeSession), KojiClientException.class);
+    }
+
+    private Optional<ClientSession> getReplica() throws KojiClientException {
+        if (replicaURL.isEmpty()) {
+            return Optional.empty();
+        }
+
+        if (replica == null) {
+            synchronized (this) {
+                if (replica == null) {
+                    try {
+                        var url = new URL(replicaURL.get());
+
+                        LOGGER.info("Hedging Koji calls to replica with URL {}", url);
+
+                        // Pooled under the replica URL, which caps and closes its connections
+                        replica = new LeasingClientSession(pool, url);
+                    } catch (MalformedURLException e) {
+                        throw new KojiClientException("Bad Koji replica URL %s", e, replicaURL.get());
+                    }
+                }
+            }
+        }
+
+        return Optional.of(replica);
+    }
+
+    @Gauge(
+            name = "kojiHedgeDelay",
+            unit = MetricUnits.MILLISECONDS,
+            description = "Highest latency after which calls of any Koji method are hedged, or -1 until known")
+    public long getHedgeDelay() {
+        return hedger.getThresholdMillis();
+    }
+
+    @Gauge(
+            name = "kojiHedgeAbandonedCalls",
+            unit = MetricUnits.NONE,
+            description = "Koji calls that lost to their hedged copy and are still running")
+    public int getAbandonedCalls() {
+        return hedger.getAbandonedCalls();
+    }
+
+    @PreDestroy
+    void close() {
+        hedger.close();
+    }
+}
@@ -0,0 +1,376 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.koji;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.metrics.Counter;
+import org.eclipse.microprofile.metrics.Histogram;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.eclipse.microprofile.metrics.Timer;
+import org.eclipse.microprofile.metrics.annotation.Gauge;
+import org.jboss.pnc.build.finder.koji.ClientSession;
+import org.jboss.pnc.deliverablesanalyzer.resilience.Backends;
+import org.jboss.pnc.deliverablesanalyzer.resilience.Deadline;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.redhat.red.build.koji.KojiClientException;
+import com.redhat.red.build.koji.model.xmlrpc.KojiArchiveInfo;
+import com.redhat.red.build.koji.model.xmlrpc.KojiArchiveQuery;
+
+@ApplicationScoped
+public class KojiMulticallBatcher {
+    private static final Logger LOGGER = LoggerFactory.getLogger(KojiMulticallBatcher.class);
+
+    private static final long AWAIT_SLICE = 1000L;
+
+    @ConfigProperty(name = "analyze.koji.batch.enabled", defaultValue = "true")
+    Boolean enabled;
+
+    @ConfigProperty(name = "analyze.koji.batch.min-size", defaultValue = "10")
+    Integer minBatchSize;
+
+    @ConfigProperty(name = "analyze.koji.batch.max-size", defaultValue = "1000")
+    Integer maxBatchSize;
+
+    @ConfigProperty(name = "analyze.koji.batch.linger", defaultValue = "20")
+    Long linger;
+
+    @ConfigProperty(name = "analyze.koji.batch.max-in-flight", defaultValue = "4")
+    Integer maxInFlight;
+
+    @ConfigProperty(name = "analyze.koji.batch.target-latency", defaultValue = "2000")
+    Long targetLatency;
+
+    @Inject
+    MetricRegistry registry;
+
+    @Inject
+    Backends backends;
+
+    @Inject
+    KojiHedging hedging;
+
+    @Inject
+    KojiSessionPool pool;
+
+    private final Map<String, HubBatcher> batchers = new ConcurrentHashMap<>();
+
+    private Timer batchLatency;
+
+    private Histogram batchSizes;
+
+    private Counter batchErrors;
+
+    @PostConstruct
+    void init() {
+        batchLatency = registry.timer("kojiMulticallLatency");
+        batchSizes = registry.histogram("kojiMulticallSize");
+        batchErrors = registry.counter("kojiMulticallErrors");
+    }
+
+    public boolean isEnabled() {
+        return Boolean.TRUE.equals(enabled);
+    }
+
+    public List<List<KojiArchiveInfo>> listArchives(
+            URL kojiHubURL,
+            List<KojiArchiveQuery> queries,
+            Deadline deadline) throws KojiClientException {
+        var batcher = batchers.computeIfAbsent(kojiHubURL.toExternalForm(), k -> new HubBatcher(kojiHubURL));
+        var futures = queries.stream().map(query -> batcher.submit(query, deadline)).collect(Collectors.toList());
+        var results = new ArrayList<List<KojiArchiveInfo>>(futures.size());
+
+        try {
+            for (var future : futures) {
+                results.add(await(future, deadline));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new KojiClientException("Interrupted waiting for Koji multicall", e);
+        } catch (ExecutionException e) {
+            var cause = e.getCause();
+
+            if (cause instanceof KojiClientException) {
+                throw (KojiClientException) cause;
+            }
+
+            throw new KojiClientException("Koji multicall failed", cause);
+        } finally {
+            // Queries nobody waits for any more are left out of the batches still to be sent
+            futures.forEach(future -> future.cancel(false));
+        }
+
+        return results;
+    }
+
+    private static List<KojiArchiveInfo> await(CompletableFuture<List<KojiArchiveInfo>> future, Deadline deadline)
+            throws InterruptedException, ExecutionException, KojiClientException {
+        while (true) {
+            var violation = deadline.getViolation();
+
+            if (violation != null) {
+                throw new KojiClientException("Koji multicall aborted: %s", violation);
+            }
+
+            try {
+                return future.get(Math.min(AWAIT_SLICE, deadline.getRemainingMillis()), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                LOGGER.trace("Still waiting for Koji multicall");
+            }
+        }
+    }
+
+    /**
+     * Whether the hub answered with an XML-RPC fault, as it does for a query it rejects within a multicall, rather
+     * than failing to answer at all.
+     */
+    private static boolean isFault(Throwable e) {
+        for (var cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof IOException) {
+                return false;
+            }
+
+            var message = cause.getMessage();
+
+            if (message != null && message.toLowerCase(Locale.ROOT).contains("fault")) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    @Gauge(
+            name = "kojiMulticallBatchSize",
+            unit = MetricUnits.NONE,
+            description = "Smallest current adaptive maximum number of queries per Koji multicall of any hub")
+    public int getBatchSize() {
+        return batchers.values()
+                .stream()
+                .mapToInt(batcher -> batcher.batchSize.get())
+                .min()
+                .orElse(getInitialBatchSize());
+    }
+
+    private int getInitialBatchSize() {
+        return Math.max(minBatchSize, Math.min(maxBatchSize, 100));
+    }
+
+    @PreDestroy
+    void close() {
+        batchers.values().forEach(HubBatcher::close);
+        batchers.clear();
+    }
+
+    private static final class Pending {
+        private final KojiArchiveQuery query;
+
+        private final Deadline deadline;
+
+        private final CompletableFuture<List<KojiArchiveInfo>> future = new CompletableFuture<>();
+
+        Pending(KojiArchiveQuery query, Deadline deadline) {
+            this.query = query;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Whether the query still has to be sent, failing it if its analysis is past its deadline or cancelled.
+         */
+        boolean isWanted() {
+            if (future.isDone()) {
+                return false;
+            }
+
+            var violation = deadline.getViolation();
+
+            if (violation != null) {
+                future.completeExceptionally(new KojiClientException("Koji multicall aborted: %s", violation));
+                return false;
+            }
+
+            return true;
+        }
+    }
+
+    private final class HubBatcher {
+        private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+
+        private final Semaphore inFlight = new Semaphore(maxInFlight);
+
+        private final ExecutorService executor;
+
+        private final Thread dispatcher;
+
+        private final AtomicInteger batchSize = new AtomicInteger(getInitialBatchSize());
+
+        private final ClientSession session;
+
+        HubBatcher(URL kojiHubURL) {
+            // Each multicall, and each hedged copy of it, leases its own pooled session
+            this.session = new LeasingClientSession(pool, kojiHubURL);
+            this.executor = Executors.newFixedThreadPool(maxInFlight, r -> {
+                var thread = new Thread(r, "koji-multicall");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.dispatcher = new Thread(this::dispatch, "koji-multicall-dispatcher");
+            this.dispatcher.setDaemon(true);
+            this.dispatcher.start();
+        }
+
+        CompletableFuture<List<KojiArchiveInfo>> submit(KojiArchiveQuery query, Deadline deadline) {
+            var pending = new Pending(query, deadline);
+
+            queue.add(pending);
+
+            return pending.future;
+        }
+
+        private void dispatch() {
+            try {
+                while (!Thread.currentThread().isInterrupted()) {
+                    var batch = new ArrayList<Pending>();
+
+                    batch.add(queue.take());
+
+                    var size = batchSize.get();
+                    var deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(linger);
+
+                    while (batch.size() < size) {
+                        queue.drainTo(batch, size - batch.size());
+
+                        var remaining = deadline - System.nanoTime();
+
+                        if (batch.size() >= size || remaining <= 0L) {
+                            break;
+                        }
+
+                        var next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+
+                        if (next == null) {
+                            break;
+                        }
+
+                        batch.add(next);
+                    }
+
+                    inFlight.acquire();
+
+                    executor.execute(() -> {
+                        try {
+                            execute(batch);
+                        } finally {
+                            inFlight.release();
+                        }
+                    });
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void adapt(long latencyNanos, boolean failed) {
+            var latency = TimeUnit.NANOSECONDS.toMillis(latencyNanos);
+
+            batchSize.updateAndGet(size -> {
+                if (failed || latency > targetLatency) {
+                    return Math.max(minBatchSize, size / 2);
+                }
+
+                return Math.min(maxBatchSize, size + minBatchSize);
+            });
+        }
+
+        private void execute(List<Pending> pendings) {
+            var batch = pendings.stream().filter(Pending::isWanted).collect(Collectors.toList());
+
+            if (batch.isEmpty()) {
+                return;
+            }
+
+            var queries = batch.stream().map(pending -> pending.query).collect(Collectors.toList());
+            var start = System.nanoTime();
+
+            try {
+                var results = backends
+                        .koji(() -> hedging.call("listArchivesMulticall", session, s -> s.listArchives(queries)));
+                var latency = System.nanoTime() - start;
+
+                batchLatency.update(latency, TimeUnit.NANOSECONDS);
+                batchSizes.update(batch.size());
+                adapt(latency, false);
+
+                for (var i = 0; i < batch.size(); i++) {
+                    batch.get(i).future.complete(results.get(i));
+                }
+            } catch (KojiClientException | RuntimeException e) {
+                batchErrors.inc();
+                adapt(System.nanoTime() - start, true);
+
+                // Only a fault for some query is isolated by splitting. A hub that fails to answer, or whose circuit
+                // breaker is open, would just get more calls.
+                if (batch.size() > 1 && isFault(e) && backends.isKojiAvailable()) {
+                    LOGGER.info("Koji multicall of {} queries returned a fault. Retrying in halves", batch.size(), e);
+
+                    var half = batch.size() / 2;
+
+                    execute(batch.subList(0, half));
+                    execute(batch.subList(half, batch.size()));
+                } else {
+                    batch.forEach(pending -> pending.future.completeExceptionally(e));
+                }
+            }
+        }
+
+        void close() {
+            dispatcher.interrupt();
+            executor.shutdownNow();
+
+            Pending pending;
+
+            while ((pending = queue.poll()) != null) {
+                pending.future.completeExceptionally(new KojiClientException("Koji multicall batcher closed"));
+            }
+        }
+    }
+}
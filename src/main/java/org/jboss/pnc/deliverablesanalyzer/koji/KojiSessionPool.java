@@ -0,0 +1,261 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.koji;
+
+import java.net.URL;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.eclipse.microprofile.metrics.Timer;
+import org.eclipse.microprofile.metrics.annotation.Gauge;
+import org.jboss.pnc.build.finder.koji.ClientSession;
+import org.jboss.pnc.build.finder.koji.KojiClientSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.redhat.red.build.koji.KojiClientException;
+
+@ApplicationScoped
+public class KojiSessionPool {
+    private static final Logger LOGGER = LoggerFactory.getLogger(KojiSessionPool.class);
+
+    @ConfigProperty(name = "analyze.koji.pool.max-size", defaultValue = "10")
+    Integer maxSize;
+
+    @ConfigProperty(name = "analyze.koji.pool.max-wait", defaultValue = "60000")
+    Long maxWait;
+
+    @ConfigProperty(name = "analyze.koji.pool.idle-timeout", defaultValue = "300000")
+    Long idleTimeout;
+
+    @ConfigProperty(name = "analyze.koji.pool.validation-interval", defaultValue = "30000")
+    Long validationInterval;
+
+    @Inject
+    MetricRegistry registry;
+
+    private final Map<String, HubPool> pools = new ConcurrentHashMap<>();
+
+    private final AtomicInteger leased = new AtomicInteger();
+
+    private Timer waitTimer;
+
+    private ScheduledExecutorService evictor;
+
+    @PostConstruct
+    void init() {
+        waitTimer = registry.timer("kojiSessionPoolWait");
+        evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            var thread = new Thread(r, "koji-session-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        var period = Math.max(1000L, idleTimeout / 2L);
+
+        evictor.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    public DelegatingClientSession lease(URL kojiHubURL) throws KojiClientException {
+        var pool = pools.computeIfAbsent(kojiHubURL.toExternalForm(), k -> new HubPool(kojiHubURL));
+        var start = System.nanoTime();
+
+        try {
+            if (!pool.permits.tryAcquire(maxWait, TimeUnit.MILLISECONDS)) {
+                throw new KojiClientException(
+                        "Timed out after %d ms waiting for one of %d Koji sessions to %s",
+                        maxWait,
+                        maxSize,
+                        kojiHubURL);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new KojiClientException("Interrupted waiting for a Koji session to %s", e, kojiHubURL);
+        } finally {
+            waitTimer.update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+
+        try {
+            var pooled = pool.take();
+
+            leased.incrementAndGet();
+
+            return new PooledClientSession(pooled, pool);
+        } catch (KojiClientException | RuntimeException e) {
+            pool.permits.release();
+            throw e;
+        }
+    }
+
+    private void evictIdle() {
+        var now = System.currentTimeMillis();
+
+        for (var pool : pools.values()) {
+            pool.idle.removeIf(pooled -> {
+                if (now - pooled.lastUsed < idleTimeout) {
+                    return false;
+                }
+
+                LOGGER.debug("Evicting Koji session to {} idle for {} ms", pool.kojiHubURL, now - pooled.lastUsed);
+                pooled.session.close();
+                return true;
+            });
+        }
+    }
+
+    @Gauge(name = "kojiSessionPoolLeased", unit = MetricUnits.NONE, description = "Koji sessions in use")
+    public int getLeased() {
+        return leased.get();
+    }
+
+    @Gauge(name = "kojiSessionPoolIdle", unit = MetricUnits.NONE, description = "Idle pooled Koji sessions")
+    public int getIdle() {
+        return pools.values().stream().mapToInt(pool -> pool.idle.size()).sum();
+    }
+
+    @Gauge(
+            name = "kojiSessionPoolUtilization",
+            unit = MetricUnits.NONE,
+            description = "Fraction of the Koji session pool capacity in use")
+    public double getUtilization() {
+        var capacity = pools.size() * maxSize;
+
+        return capacity > 0 ? (double) leased.get() / (double) capacity : 0.0D;
+    }
+
+    @PreDestroy
+    void close() {
+        evictor.shutdownNow();
+
+        for (var pool : pools.values()) {
+            PooledSession pooled;
+
+            while ((pooled = pool.idle.pollFirst()) != null) {
+                pooled.session.close();
+            }
+        }
+
+        pools.clear();
+    }
+
+    private static final class PooledSession {
+        private final ClientSession session;
+
+        private final long lastUsed;
+
+        private final long lastValidated;
+
+        PooledSession(ClientSession session, long lastUsed, long lastValidated) {
+            this.session = session;
+            this.lastUsed = lastUsed;
+            this.lastValidated = lastValidated;
+        }
+    }
+
+    private final class HubPool {
+        private final URL kojiHubURL;
+
+        private final Semaphore permits = new Semaphore(maxSize, true);
+
+        private final Deque<PooledSession> idle = new ConcurrentLinkedDeque<>();
+
+        HubPool(URL kojiHubURL) {
+            this.kojiHubURL = kojiHubURL;
+        }
+
+        PooledSession take() throws KojiClientException {
+            PooledSession pooled;
+
+            while ((pooled = idle.pollFirst()) != null) {
+                var now = System.currentTimeMillis();
+
+                if (now - pooled.lastUsed >= idleTimeout) {
+                    pooled.session.close();
+                    continue;
+                }
+
+                if (now - pooled.lastValidated < validationInterval) {
+                    return pooled;
+                }
+
+                if (isValid(pooled.session)) {
+                    return new PooledSession(pooled.session, pooled.lastUsed, now);
+                }
+
+                pooled.session.close();
+            }
+
+            LOGGER.info("Initializing Koji client session with URL {}", kojiHubURL);
+
+            var now = System.currentTimeMillis();
+
+            return new PooledSession(new KojiClientSession(kojiHubURL), now, now);
+        }
+
+        private boolean isValid(ClientSession session) {
+            try {
+                ((KojiClientSession) session).getApiVersion();
+                return true;
+            } catch (KojiClientException | RuntimeException e) {
+                LOGGER.info("Discarding pooled Koji session to {} that failed validation", kojiHubURL, e);
+                return false;
+            }
+        }
+
+        void release(PooledSession pooled) {
+            idle.offerFirst(new PooledSession(pooled.session, System.currentTimeMillis(), pooled.lastValidated));
+            leased.decrementAndGet();
+            permits.release();
+        }
+    }
+
+    private static final class PooledClientSession extends DelegatingClientSession {
+        private final PooledSession pooled;
+
+        private final HubPool pool;
+
+        private boolean closed;
+
+        PooledClientSession(PooledSession pooled, HubPool pool) {
+            super(pooled.session);
+            this.pooled = pooled;
+            this.pool = pool;
+        }
+
+        @Override
+        public synchronized void close() {
+            if (!closed) {
+                closed = true;
+                pool.release(pooled);
+            }
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.koji;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.jboss.pnc.build.finder.core.BuildConfig;
+import org.jboss.pnc.build.finder.koji.ClientSession;
+import org.jboss.pnc.deliverablesanalyzer.cache.InFlightLookups;
+import org.jboss.pnc.deliverablesanalyzer.cache.NegativeLookupCache;
+import org.jboss.pnc.deliverablesanalyzer.index.ChecksumIndex;
+import org.jboss.pnc.deliverablesanalyzer.resilience.Backends;
+import org.jboss.pnc.deliverablesanalyzer.resilience.Deadline;
+import org.jboss.pnc.deliverablesanalyzer.scheduler.Client;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.redhat.red.build.koji.KojiClientException;
+
+@ApplicationScoped
+public class KojiSessions {
+    private static final Logger LOGGER = LoggerFactory.getLogger(KojiSessions.class);
+
+    @Inject
+    KojiSessionPool sessionPool;
+
+    @Inject
+    Backends backends;
+
+    @Inject
+    KojiHedging hedging;
+
+    @Inject
+    KojiMulticallBatcher batcher;
+
+    @Inject
+    InFlightLookups inFlightLookups;
+
+    @Inject
+    NegativeLookupCache negativeLookups;
+
+    @Inject
+    ChecksumIndex index;
+
+    public DelegatingClientSession open(BuildConfig config, Deadline deadline, Client client)
+            throws KojiClientException {
+        var kojiHubURL = config.getKojiHubURL();
+
+        LOGGER.info("Opening Koji client session with URL {}", kojiHubURL);
+
+        ClientSession session = new HedgingClientSession(new LeasingClientSession(sessionPool, kojiHubURL), hedging);
+
+        session = new ResilientClientSession(session, backends, deadline);
+        session = new BatchingClientSession(session, batcher, kojiHubURL, deadline);
+        // Below the client budget, so that an analysis waiting for another one's lookup only spends its own budget
+        session = new CoalescingClientSession(session, inFlightLookups, deadline);
+        session = new ClientBudgetClientSession(session, client, deadline);
+        session = new NegativeCachingClientSession(session, negativeLookups);
+
+        return new IndexedClientSession(session, index);
+    }
+}
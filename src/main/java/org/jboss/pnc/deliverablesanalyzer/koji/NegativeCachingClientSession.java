@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.koji;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.jboss.pnc.build.finder.core.BuildSystem;
+import org.jboss.pnc.build.finder.koji.ClientSession;
+import org.jboss.pnc.deliverablesanalyzer.cache.NegativeLookupCache;
+
+import com.redhat.red.build.koji.KojiClientException;
+import com.redhat.red.build.koji.model.xmlrpc.KojiArchiveInfo;
+import com.redhat.red.build.koji.model.xmlrpc.KojiArchiveQuery;
+
+public class NegativeCachingClientSession extends DelegatingClientSession {
+    private final NegativeLookupCache negativeLookups;
+
+    public NegativeCachingClientSession(ClientSession delegate, NegativeLookupCache negativeLookups) {
+        super(delegate);
+        this.negativeLookups = negativeLookups;
+    }
+
+    @Override
+    public List<KojiArchiveInfo> listArchives(KojiArchiveQuery query) throws KojiClientException {
+        return listArchives(Collections.singletonList(query)).get(0);
+    }
+
+    @Override
+    public List<List<KojiArchiveInfo>> listArchives(List<KojiArchiveQuery> queries) throws KojiClientException {
+        var size = queries.size();
+        var results = new ArrayList<List<KojiArchiveInfo>>(Collections.nCopies(size, null));
+        var remoteQueries = new ArrayList<KojiArchiveQuery>(size);
+        var remoteIndexes = new ArrayList<Integer>(size);
+
+        for (var i = 0; i < size; i++) {
+            var query = queries.get(i);
+            var checksum = query.getChecksum();
+
+            if (checksum != null && negativeLookups.isKnownMissing(BuildSystem.koji, checksum)) {
+                results.set(i, new ArrayList<>());
+            } else {
+                remoteQueries.add(query);
+                remoteIndexes.add(i);
+            }
+        }
+
+        if (remoteQueries.isEmpty()) {
+            return results;
+        }
+
+        var remoteResults = super.listArchives(remoteQueries);
+
+        for (var i = 0; i < remoteResults.size(); i++) {
+            var archives = remoteResults.get(i);
+            var checksum = remoteQueries.get(i).getChecksum();
+
+            results.set(remoteIndexes.get(i), archives);
+
+            if (checksum != null) {
+                negativeLookups.recordResult(BuildSystem.koji, checksum, archives != null && !archives.isEmpty());
+            }
+        }
+
+        return results;
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.local;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.ForbiddenException;
+
+import org.apache.commons.codec.binary.Hex;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.pnc.deliverablesanalyzer.upload.Uploads;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Gives access to files on a local or shared volume under the configured roots, so that they are analyzed in place
+ * instead of being fetched over HTTP.
+ */
+@ApplicationScoped
+public class LocalFiles {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LocalFiles.class);
+
+    private static final long MAP_SIZE = 1L << 30;
+
+    @ConfigProperty(name = "analyze.files.allowed-roots")
+    Optional<List<String>> allowedRoots;
+
+    @ConfigProperty(name = "analyze.files.walk-parallelism", defaultValue = "0")
+    Integer walkParallelism;
+
+    @Inject
+    Uploads uploads;
+
+    private List<Path> roots;
+
+    private ForkJoinPool walkPool;
+
+    @PostConstruct
+    void init() {
+        roots = new ArrayList<>();
+
+        for (var root : allowedRoots.orElse(Collections.emptyList())) {
+            try {
+                roots.add(Paths.get(root).toRealPath());
+            } catch (IOException e) {
+                LOGGER.warn("Ignoring allowed root {} which cannot be resolved: {}", root, e.getMessage());
+            }
+        }
+
+        var parallelism = walkParallelism > 0 ? walkParallelism : Runtime.getRuntime().availableProcessors();
+
+        walkPool = new ForkJoinPool(parallelism);
+
+        LOGGER.info("Local files {} under roots {}", roots.isEmpty() ? "disabled" : "enabled", roots);
+    }
+
+    @PreDestroy
+    void destroy() {
+        walkPool.shutdownNow();
+    }
+
+    public static boolean isLocal(URI uri) {
+        return "file".equals(uri.getScheme());
+    }
+
+    /**
+     * Resolves a {@code file:} URL to the real path of an existing file or directory. Symbolic links are followed
+     * before the path is checked against the allowed roots, so a link cannot point outside of them.
+     */
+    public Path resolve(URI uri) {
+        if (roots.isEmpty()) {
+            throw new ForbiddenException("Local files are disabled");
+        }
+
+        var path = (Path) null;
+
+        try {
+            path = Paths.get(uri).toRealPath();
+        } catch (IOException | RuntimeException e) {
+            throw new BadRequestException("Local file " + uri + " not found");
+        }
+
+        if (uploads.isUpload(path.toUri()) || roots.stream().noneMatch(path::startsWith)) {
+            throw new ForbiddenException("Local file " + uri + " is not under an allowed root");
+        }
+
+        return path;
+    }
+
+    /**
+     * Lists the regular files of a directory tree, walking the subdirectories in parallel. Symbolic links are not
+     * followed.
+     */
+    public List<String> list(Path directory) throws IOException {
+        try {
+            var files = walkPool.invoke(new Walk(directory));
+
+            LOGGER.info("Found {} files under {}", files.size(), directory);
+
+            return files.stream().sorted().map(path -> path.toUri().toString()).collect(Collectors.toList());
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Computes the SHA-256 of a file, mapping it into memory in chunks instead of copying it through a buffer.
+     */
+    public static String sha256(Path file) throws IOException {
+        var digest = (MessageDigest) null;
+
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            var size = channel.size();
+
+            for (var position = 0L; position < size; position += MAP_SIZE) {
+                var length = Math.min(MAP_SIZE, size - position);
+
+                digest.update(channel.map(FileChannel.MapMode.READ_ONLY, position, length));
+            }
+        }
+
+        return Hex.encodeHexString(digest.digest());
+    }
+
+    private static final class Walk extends RecursiveTask<List<Path>> {
+        private static final long serialVersionUID = 1L;
+
+        private final transient Path directory;
+
+        private Walk(Path directory) {
+            this.directory = directory;
+        }
+
+        @Override
+        protected List<Path> compute() {
+            var files = new ArrayList<Path>();
+            var walks = new ArrayList<Walk>();
+
+            try (var paths = Files.newDirectoryStream(directory)) {
+                for (var path : paths) {
+                    if (Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+                        var walk = new Walk(path);
+
+                        walk.fork();
+                        walks.add(walk);
+                    } else if (Files.isRegularFile(path, LinkOption.NOFOLLOW_LINKS)) {
+                        files.add(path);
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            for (var walk : walks) {
+                files.addAll(walk.join());
+            }
+
+            return files;
+        }
+    }
+}
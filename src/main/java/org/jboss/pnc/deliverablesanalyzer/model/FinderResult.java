@@ -40,6 +40,7 @@ import org.jboss.pnc.build.finder.koji.KojiLocalArchive;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.redhat.red.build.koji.model.xmlrpc.KojiArchiveInfo;
 
 public class FinderResult {
@@ -63,6 +64,12 @@ public class FinderResult {
     @Valid
     private final BuildStatistics statistics;
 
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String baseline;
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer savedLookups;
+
     public FinderResult() {
         this.builds = Collections.emptySet();
         this.notFoundArtifacts = Collections.emptySet();
@@ -77,6 +84,17 @@ public class FinderResult {
         this.statistics = new BuildStatistics(getBuildsAsList(builds));
     }
 
+    /**
+     * Copies a result of the same file analyzed under another id and URL.
+     */
+    public FinderResult(String id, URL url, FinderResult result) {
+        this.id = id;
+        this.url = url;
+        this.builds = result.builds;
+        this.notFoundArtifacts = result.notFoundArtifacts;
+        this.statistics = result.statistics;
+    }
+
     public String getId() {
         return id;
     }
@@ -97,6 +115,28 @@ public class FinderResult {
         return statistics;
     }
 
+    /**
+     * Id of the result whose lookups this analysis reused, if it was submitted with a baseline.
+     */
+    public String getBaseline() {
+        return baseline;
+    }
+
+    public void setBaseline(String baseline) {
+        this.baseline = baseline;
+    }
+
+    /**
+     * Number of Koji and PNC checksum lookups answered from the baseline instead of the remote services.
+     */
+    public Integer getSavedLookups() {
+        return savedLookups;
+    }
+
+    public void setSavedLookups(Integer savedLookups) {
+        this.savedLookups = savedLookups;
+    }
+
     private static void setArtifactChecksums(Artifact artifact, Iterable<Checksum> checksums) {
         for (var checksum : checksums) {
             switch (checksum.getType()) {
@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+
+import org.jboss.pnc.build.finder.core.ChecksumType;
+import org.jboss.pnc.deliverablesanalyzer.index.ChecksumIndexEntry;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+public class LookupResult {
+    @NotEmpty
+    private String checksum;
+
+    @NotNull
+    private ChecksumType checksumType;
+
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    private List<ChecksumIndexEntry> archives = new ArrayList<>();
+
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    private List<Build> builds = new ArrayList<>();
+
+    public LookupResult() {
+    }
+
+    public LookupResult(String checksum, ChecksumType checksumType) {
+        this.checksum = checksum;
+        this.checksumType = checksumType;
+    }
+
+    public String getChecksum() {
+        return checksum;
+    }
+
+    public void setChecksum(String checksum) {
+        this.checksum = checksum;
+    }
+
+    public ChecksumType getChecksumType() {
+        return checksumType;
+    }
+
+    public void setChecksumType(ChecksumType checksumType) {
+        this.checksumType = checksumType;
+    }
+
+    public List<ChecksumIndexEntry> getArchives() {
+        return archives;
+    }
+
+    public void setArchives(List<ChecksumIndexEntry> archives) {
+        this.archives = archives;
+    }
+
+    public List<Build> getBuilds() {
+        return builds;
+    }
+
+    public void setBuilds(List<Build> builds) {
+        this.builds = builds;
+    }
+}
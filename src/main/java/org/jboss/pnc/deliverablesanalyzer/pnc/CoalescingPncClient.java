@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.pnc;
+
+import org.jboss.pnc.build.finder.pnc.client.PncClient;
+import org.jboss.pnc.client.RemoteCollection;
+import org.jboss.pnc.client.RemoteResourceException;
+import org.jboss.pnc.deliverablesanalyzer.cache.InFlightLookups;
+import org.jboss.pnc.deliverablesanalyzer.resilience.Deadline;
+import org.jboss.pnc.dto.Artifact;
+
+public class CoalescingPncClient extends DelegatingPncClient {
+    private final InFlightLookups inFlightLookups;
+
+    private final Deadline deadline;
+
+    public CoalescingPncClient(PncClient delegate, InFlightLookups inFlightLookups, Deadline deadline) {
+        super(delegate);
+        this.inFlightLookups = inFlightLookups;
+        this.deadline = deadline;
+    }
+
+    private RemoteCollection<Artifact> lookup(String checksum, ArtifactLookup lookup)
+            throws RemoteResourceException {
+        if (!inFlightLookups.isEnabled()) {
+            return lookup.apply(checksum);
+        }
+
+        return inFlightLookups.getPncArtifacts()
+                .execute(
+                        checksum,
+                        deadline,
+                        RemoteResourceException.class,
+                        violation -> new RemoteResourceException("PNC call aborted: " + violation, null),
+                        () -> lookup.apply(checksum));
+    }
+
+    @Override
+    public RemoteCollection<Artifact> getArtifactsByMd5(String md5) throws RemoteResourceException {
+        return lookup(md5, super::getArtifactsByMd5);
+    }
+
+    @Override
+    public RemoteCollection<Artifact> getArtifactsBySha1(String sha1) throws RemoteResourceException {
+        return lookup(sha1, super::getArtifactsBySha1);
+    }
+
+    @Override
+    public RemoteCollection<Artifact> getArtifactsBySha256(String sha256) throws RemoteResourceException {
+        return lookup(sha256, super::getArtifactsBySha256);
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.pnc;
+
+import org.jboss.pnc.build.finder.pnc.client.PncClient;
+import org.jboss.pnc.client.RemoteCollection;
+import org.jboss.pnc.client.RemoteResourceException;
+import org.jboss.pnc.deliverablesanalyzer.resilience.Deadline;
+import org.jboss.pnc.dto.Artifact;
+import org.jboss.pnc.dto.BuildPushResult;
+import org.jboss.pnc.dto.ProductVersion;
+
+public class DeadlinePncClient extends DelegatingPncClient {
+    private final Deadline deadline;
+
+    public DeadlinePncClient(PncClient delegate, Deadline deadline) {
+        super(delegate);
+        this.deadline = deadline;
+    }
+
+    private void check() throws RemoteResourceException {
+        var violation = deadline.getViolation();
+
+        if (violation != null) {
+            throw new RemoteResourceException("PNC call aborted: " + violation, null);
+        }
+    }
+
+    @Override
+    public RemoteCollection<Artifact> getArtifactsByMd5(String md5) throws RemoteResourceException {
+        check();
+        return super.getArtifactsByMd5(md5);
+    }
+
+    @Override
+    public RemoteCollection<Artifact> getArtifactsBySha1(String sha1) throws RemoteResourceException {
+        check();
+        return super.getArtifactsBySha1(sha1);
+    }
+
+    @Override
+    public RemoteCollection<Artifact> getArtifactsBySha256(String sha256) throws RemoteResourceException {
+        check();
+        return super.getArtifactsBySha256(sha256);
+    }
+
+    @Override
+    public BuildPushResult getBuildPushResult(String buildId) throws RemoteResourceException {
+        check();
+        return super.getBuildPushResult(buildId);
+    }
+
+    @Override
+    public ProductVersion getProductVersion(String productMilestoneId) throws RemoteResourceException {
+        check();
+        return super.getProductVersion(productMilestoneId);
+    }
+}
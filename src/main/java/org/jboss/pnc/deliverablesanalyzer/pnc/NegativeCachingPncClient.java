@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.pnc;
+
+import org.jboss.pnc.build.finder.core.BuildSystem;
+import org.jboss.pnc.build.finder.pnc.client.PncClient;
+import org.jboss.pnc.client.RemoteCollection;
+import org.jboss.pnc.client.RemoteResourceException;
+import org.jboss.pnc.deliverablesanalyzer.cache.NegativeLookupCache;
+import org.jboss.pnc.dto.Artifact;
+
+public class NegativeCachingPncClient extends DelegatingPncClient {
+    private final NegativeLookupCache negativeLookups;
+
+    public NegativeCachingPncClient(PncClient delegate, NegativeLookupCache negativeLookups) {
+        super(delegate);
+        this.negativeLookups = negativeLookups;
+    }
+
+    private RemoteCollection<Artifact> lookup(String checksum, ArtifactLookup lookup)
+            throws RemoteResourceException {
+        if (negativeLookups.isKnownMissing(BuildSystem.pnc, checksum)) {
+            return StaticRemoteCollection.empty();
+        }
+
+        var artifacts = lookup.apply(checksum);
+
+        negativeLookups.recordResult(BuildSystem.pnc, checksum, artifacts != null && artifacts.size() > 0);
+
+        return artifacts;
+    }
+
+    @Override
+    public RemoteCollection<Artifact> getArtifactsByMd5(String md5) throws RemoteResourceException {
+        return lookup(md5, super::getArtifactsByMd5);
+    }
+
+    @Override
+    public RemoteCollection<Artifact> getArtifactsBySha1(String sha1) throws RemoteResourceException {
+        return lookup(sha1, super::getArtifactsBySha1);
+    }
+
+    @Override
+    public RemoteCollection<Artifact> getArtifactsBySha256(String sha256) throws RemoteResourceException {
+        return lookup(sha256, super::getArtifactsBySha256);
+    }
+}
@@ -0,0 +1,328 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.pnc;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+import org.eclipse.microprofile.metrics.Counter;
+import org.jboss.pnc.build.finder.core.ChecksumType;
+import org.jboss.pnc.client.RemoteResourceException;
+import org.jboss.pnc.deliverablesanalyzer.resilience.Backends;
+import org.jboss.pnc.deliverablesanalyzer.resilience.Deadline;
+import org.jboss.pnc.dto.Artifact;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+final class PncArtifactBatcher implements Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PncArtifactBatcher.class);
+
+    private static final int PAGE_SIZE = 200;
+
+    private static final long AWAIT_SLICE = 1000L;
+
+    private final HttpClient httpClient;
+
+    private final ObjectMapper mapper;
+
+    private final URI artifactsURI;
+
+    private final ChecksumType checksumType;
+
+    private final int maxBatchSize;
+
+    private final long linger;
+
+    private final Counter remoteRequests;
+
+    private final Backends backends;
+
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+
+    private final Semaphore inFlight;
+
+    private final ExecutorService executor;
+
+    private final Thread dispatcher;
+
+    PncArtifactBatcher(
+            HttpClient httpClient,
+            ObjectMapper mapper,
+            URI artifactsURI,
+            ChecksumType checksumType,
+            int maxBatchSize,
+            long linger,
+            int maxInFlight,
+            Counter remoteRequests,
+            Backends backends) {
+        this.httpClient = httpClient;
+        this.mapper = mapper;
+        this.artifactsURI = artifactsURI;
+        this.checksumType = checksumType;
+        this.maxBatchSize = maxBatchSize;
+        this.linger = linger;
+        this.remoteRequests = remoteRequests;
+        this.backends = backends;
+        this.inFlight = new Semaphore(maxInFlight);
+        this.executor = Executors.newFixedThreadPool(maxInFlight, r -> {
+            var thread = new Thread(r, "pnc-artifacts-" + checksumType);
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.dispatcher = new Thread(this::dispatch, "pnc-artifacts-dispatcher-" + checksumType);
+        this.dispatcher.setDaemon(true);
+        this.dispatcher.start();
+    }
+
+    List<Artifact> lookup(String checksum, Deadline deadline) throws RemoteResourceException, ExecutionException {
+        var pending = new Pending(checksum, deadline);
+
+        queue.add(pending);
+
+        try {
+            return await(pending.future, deadline);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RemoteResourceException("Interrupted waiting for PNC artifacts", e);
+        } finally {
+            // A lookup nobody waits for any more is left out of the batches still to be sent
+            pending.future.cancel(false);
+        }
+    }
+
+    private static List<Artifact> await(CompletableFuture<List<Artifact>> future, Deadline deadline)
+            throws InterruptedException, ExecutionException, RemoteResourceException {
+        while (true) {
+            var violation = deadline.getViolation();
+
+            if (violation != null) {
+                throw new RemoteResourceException("PNC call aborted: " + violation, null);
+            }
+
+            try {
+                return future.get(Math.min(AWAIT_SLICE, deadline.getRemainingMillis()), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                LOGGER.trace("Still waiting for batched PNC query");
+            }
+        }
+    }
+
+    private void dispatch() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                var batch = new ArrayList<Pending>();
+
+                batch.add(queue.take());
+
+                var deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(linger);
+
+                while (batch.size() < maxBatchSize) {
+                    queue.drainTo(batch, maxBatchSize - batch.size());
+
+                    var remaining = deadline - System.nanoTime();
+
+                    if (batch.size() >= maxBatchSize || remaining <= 0L) {
+                        break;
+                    }
+
+                    var next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+
+                    if (next == null) {
+                        break;
+                    }
+
+                    batch.add(next);
+                }
+
+                inFlight.acquire();
+
+                executor.execute(() -> {
+                    try {
+                        execute(batch);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void execute(List<Pending> pendings) {
+        var batch = pendings.stream().filter(Pending::isWanted).collect(Collectors.toList());
+
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        var checksums = batch.stream()
+                .map(pending -> pending.checksum)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+
+        try {
+            var artifacts = backends.pnc(() -> fetch(checksums));
+
+            for (var pending : batch) {
+                pending.future.complete(artifacts.getOrDefault(pending.checksum, Collections.emptyList()));
+            }
+        } catch (RemoteResourceException | RuntimeException e) {
+            LOGGER.debug("Batched PNC query for {} {} checksums failed", checksums.size(), checksumType, e);
+
+            for (var pending : batch) {
+                pending.future.completeExceptionally(e);
+            }
+        }
+    }
+
+    private Map<String, List<Artifact>> fetch(Collection<String> checksums) throws RemoteResourceException {
+        try {
+            return query(checksums);
+        } catch (IOException e) {
+            throw new RemoteResourceException("Batched PNC query failed: " + e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RemoteResourceException("Batched PNC query was interrupted", e);
+        }
+    }
+
+    private Map<String, List<Artifact>> query(Collection<String> checksums) throws IOException, InterruptedException {
+        var query = checksumType.name() + "=in=(" + String.join(",", checksums) + ")";
+        var artifacts = new HashMap<String, List<Artifact>>();
+        var pageIndex = 0;
+        var totalPages = 1;
+
+        while (pageIndex < totalPages) {
+            var uri = URI.create(
+                    artifactsURI + "?pageIndex=" + pageIndex + "&pageSize=" + PAGE_SIZE + "&q="
+                            + URLEncoder.encode(query, StandardCharsets.UTF_8));
+            var request = HttpRequest.newBuilder(uri)
+                    .header("Accept", "application/json")
+                    .timeout(Duration.ofMinutes(5L))
+                    .GET()
+                    .build();
+
+            remoteRequests.inc();
+
+            var response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+
+            try (var body = response.body()) {
+                if (response.statusCode() != 200) {
+                    throw new IOException("PNC returned status " + response.statusCode() + " for " + uri);
+                }
+
+                var page = mapper.readTree(body);
+
+                for (var node : page.path("content")) {
+                    var artifact = mapper.treeToValue(node, Artifact.class);
+                    var checksum = getChecksum(artifact);
+
+                    if (checksum != null) {
+                        artifacts.computeIfAbsent(checksum, k -> new ArrayList<>()).add(artifact);
+                    }
+                }
+
+                totalPages = page.path("totalPages").asInt(1);
+            }
+
+            pageIndex++;
+        }
+
+        return artifacts;
+    }
+
+    private String getChecksum(Artifact artifact) {
+        switch (checksumType) {
+            case md5:
+                return artifact.getMd5();
+            case sha1:
+                return artifact.getSha1();
+            case sha256:
+                return artifact.getSha256();
+            default:
+                return null;
+        }
+    }
+
+    @Override
+    public void close() {
+        dispatcher.interrupt();
+        executor.shutdownNow();
+
+        Pending pending;
+
+        while ((pending = queue.poll()) != null) {
+            pending.future.completeExceptionally(new IOException("PNC artifact batcher closed"));
+        }
+    }
+
+    private static final class Pending {
+        private final String checksum;
+
+        private final Deadline deadline;
+
+        private final CompletableFuture<List<Artifact>> future = new CompletableFuture<>();
+
+        Pending(String checksum, Deadline deadline) {
+            this.checksum = checksum;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Whether the checksum still has to be queried, failing it if its analysis is past its deadline or cancelled.
+         */
+        boolean isWanted() {
+            if (future.isDone()) {
+                return false;
+            }
+
+            var violation = deadline.getViolation();
+
+            if (violation != null) {
+                future.completeExceptionally(new RemoteResourceException("PNC call aborted: " + violation, null));
+                return false;
+            }
+
+            return true;
+        }
+    }
+}
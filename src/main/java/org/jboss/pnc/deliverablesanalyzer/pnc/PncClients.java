@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.pnc;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.jboss.pnc.build.finder.core.BuildConfig;
+import org.jboss.pnc.deliverablesanalyzer.cache.InFlightLookups;
+import org.jboss.pnc.deliverablesanalyzer.cache.NegativeLookupCache;
+import org.jboss.pnc.deliverablesanalyzer.resilience.Deadline;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+@ApplicationScoped
+public class PncClients {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PncClients.class);
+
+    @Inject
+    SharedPncClient sharedPncClient;
+
+    @Inject
+    InFlightLookups inFlightLookups;
+
+    @Inject
+    NegativeLookupCache negativeLookups;
+
+    public DelegatingPncClient open(BuildConfig config, Deadline deadline) {
+        LOGGER.info("Using shared PNC client with URL {}", config.getPncURL());
+
+        var pncClient = new CoalescingPncClient(sharedPncClient.open(config, deadline), inFlightLookups, deadline);
+
+        return new DeadlinePncClient(new NegativeCachingPncClient(pncClient, negativeLookups), deadline);
+    }
+}
@@ -0,0 +1,384 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.pnc;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.metrics.Counter;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.eclipse.microprofile.metrics.annotation.Gauge;
+import org.jboss.pnc.build.finder.core.BuildConfig;
+import org.jboss.pnc.build.finder.core.ChecksumType;
+import org.jboss.pnc.build.finder.pnc.client.PncClient;
+import org.jboss.pnc.build.finder.pnc.client.PncClientImpl;
+import org.jboss.pnc.client.RemoteCollection;
+import org.jboss.pnc.client.RemoteResourceException;
+import org.jboss.pnc.deliverablesanalyzer.resilience.Backends;
+import org.jboss.pnc.deliverablesanalyzer.resilience.Deadline;
+import org.jboss.pnc.dto.Artifact;
+import org.jboss.pnc.dto.BuildPushResult;
+import org.jboss.pnc.dto.ProductVersion;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+@ApplicationScoped
+public class SharedPncClient {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SharedPncClient.class);
+
+    private static final String ARTIFACTS_PATH = "/pnc-rest/v2/artifacts";
+
+    private static final long AWAIT_SLICE = 1000L;
+
+    @ConfigProperty(name = "analyze.pnc.cache.max-size", defaultValue = "100000")
+    Long maxSize;
+
+    @ConfigProperty(name = "analyze.pnc.cache.ttl", defaultValue = "3600000")
+    Long ttl;
+
+    @ConfigProperty(name = "analyze.pnc.batch.enabled", defaultValue = "true")
+    Boolean batchEnabled;
+
+    @ConfigProperty(name = "analyze.pnc.batch.max-size", defaultValue = "50")
+    Integer maxBatchSize;
+
+    @ConfigProperty(name = "analyze.pnc.batch.linger", defaultValue = "0")
+    Long linger;
+
+    @ConfigProperty(name = "analyze.pnc.batch.max-in-flight", defaultValue = "4")
+    Integer maxInFlight;
+
+    @ConfigProperty(name = "analyze.pnc.batch.max-fallbacks", defaultValue = "4")
+    Integer maxFallbacks;
+
+    @Inject
+    MetricRegistry registry;
+
+    @Inject
+    Backends backends;
+
+    private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+
+    private final ObjectMapper mapper = new ObjectMapper().registerModule(new JavaTimeModule())
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private HttpClient httpClient;
+
+    private Cache<String, List<Artifact>> artifacts;
+
+    private Cache<String, BuildPushResult> buildPushResults;
+
+    private Cache<String, ProductVersion> productVersions;
+
+    private Counter lookups;
+
+    private Counter remoteRequests;
+
+    @PostConstruct
+    void init() {
+        httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(30L))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+        artifacts = newCache();
+        buildPushResults = newCache();
+        productVersions = newCache();
+        lookups = registry.counter("pncLookups");
+        remoteRequests = registry.counter("pncRemoteRequests");
+    }
+
+    private <V> Cache<String, V> newCache() {
+        return Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl, TimeUnit.MILLISECONDS)
+                .recordStats()
+                .build();
+    }
+
+    public PncClient open(BuildConfig config, Deadline deadline) {
+        var endpoint = endpoints.computeIfAbsent(config.getPncURL().toExternalForm(), k -> new Endpoint(config));
+
+        return new EndpointClient(endpoint, deadline);
+    }
+
+    private RemoteCollection<Artifact> getArtifacts(
+            Endpoint endpoint,
+            Deadline deadline,
+            ChecksumType checksumType,
+            String checksum) throws RemoteResourceException {
+        lookups.inc();
+
+        var key = endpoint.url + '|' + checksumType + '|' + checksum;
+        var cached = artifacts.getIfPresent(key);
+
+        if (cached != null) {
+            return new StaticRemoteCollection<>(cached);
+        }
+
+        var result = endpoint.fetch(deadline, checksumType, checksum);
+
+        artifacts.put(key, result);
+
+        return new StaticRemoteCollection<>(result);
+    }
+
+    private BuildPushResult getBuildPushResult(Endpoint endpoint, Deadline deadline, String buildId)
+            throws RemoteResourceException {
+        lookups.inc();
+
+        var key = endpoint.url + '|' + buildId;
+        var cached = buildPushResults.getIfPresent(key);
+
+        if (cached != null) {
+            return cached;
+        }
+
+        remoteRequests.inc();
+
+        var result = backends.pnc(deadline, () -> endpoint.delegate.getBuildPushResult(buildId));
+
+        if (result != null) {
+            buildPushResults.put(key, result);
+        }
+
+        return result;
+    }
+
+    private ProductVersion getProductVersion(Endpoint endpoint, Deadline deadline, String productMilestoneId)
+            throws RemoteResourceException {
+        lookups.inc();
+
+        var key = endpoint.url + '|' + productMilestoneId;
+        var cached = productVersions.getIfPresent(key);
+
+        if (cached != null) {
+            return cached;
+        }
+
+        remoteRequests.inc();
+
+        var result = backends.pnc(deadline, () -> endpoint.delegate.getProductVersion(productMilestoneId));
+
+        if (result != null) {
+            productVersions.put(key, result);
+        }
+
+        return result;
+    }
+
+    @Gauge(
+            name = "pncCallReduction",
+            unit = MetricUnits.NONE,
+            description = "Fraction of PNC lookups that did not need a request of their own")
+    public double getCallReduction() {
+        var count = lookups.getCount();
+
+        return count > 0L ? 1.0D - (double) remoteRequests.getCount() / (double) count : 0.0D;
+    }
+
+    @Gauge(
+            name = "pncCacheHitRate",
+            unit = MetricUnits.NONE,
+            description = "Fraction of shared PNC cache lookups that hit")
+    public double getCacheHitRate() {
+        return artifacts.stats().hitRate();
+    }
+
+    @PreDestroy
+    void close() {
+        for (var endpoint : endpoints.values()) {
+            endpoint.batchers.values().forEach(PncArtifactBatcher::close);
+            endpoint.delegate.close();
+        }
+
+        endpoints.clear();
+    }
+
+    private final class Endpoint {
+        private final String url;
+
+        private final PncClient delegate;
+
+        private final Map<ChecksumType, PncArtifactBatcher> batchers = new EnumMap<>(ChecksumType.class);
+
+        private final Semaphore fallbacks = new Semaphore(maxFallbacks);
+
+        Endpoint(BuildConfig config) {
+            var pncURL = config.getPncURL();
+
+            LOGGER.info("Initializing shared PNC client with URL {}", pncURL);
+
+            this.url = pncURL.toExternalForm();
+            this.delegate = new PncClientImpl(config);
+
+            if (Boolean.TRUE.equals(batchEnabled)) {
+                var artifactsURI = URI.create(url.replaceAll("/+$", "") + ARTIFACTS_PATH);
+
+                for (var checksumType : ChecksumType.values()) {
+                    batchers.put(
+                            checksumType,
+                            new PncArtifactBatcher(
+                                    httpClient,
+                                    mapper,
+                                    artifactsURI,
+                                    checksumType,
+                                    maxBatchSize,
+                                    linger,
+                                    maxInFlight,
+                                    remoteRequests,
+                                    backends));
+                }
+            }
+        }
+
+        List<Artifact> fetch(Deadline deadline, ChecksumType checksumType, String checksum)
+                throws RemoteResourceException {
+            var batcher = batchers.get(checksumType);
+
+            if (batcher == null) {
+                return fetchSingle(deadline, checksumType, checksum);
+            }
+
+            try {
+                return batcher.lookup(checksum, deadline);
+            } catch (ExecutionException e) {
+                // Every lookup of a failed batch would otherwise retry on its own at once
+                if (!backends.isPncAvailable()) {
+                    throw new RemoteResourceException("Batched PNC query failed: " + e.getCause(), e.getCause());
+                }
+
+                LOGGER.debug("Batched PNC query failed. Falling back to a single query", e.getCause());
+
+                acquireFallback(deadline);
+
+                try {
+                    return fetchSingle(deadline, checksumType, checksum);
+                } finally {
+                    fallbacks.release();
+                }
+            }
+        }
+
+        private void acquireFallback(Deadline deadline) throws RemoteResourceException {
+            try {
+                while (!fallbacks.tryAcquire(
+                        Math.min(AWAIT_SLICE, deadline.getRemainingMillis()),
+                        TimeUnit.MILLISECONDS)) {
+                    var violation = deadline.getViolation();
+
+                    if (violation != null) {
+                        throw new RemoteResourceException("PNC call aborted: " + violation, null);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RemoteResourceException("Interrupted waiting for a single PNC query", e);
+            }
+        }
+
+        private List<Artifact> fetchSingle(Deadline deadline, ChecksumType checksumType, String checksum)
+                throws RemoteResourceException {
+            remoteRequests.inc();
+
+            RemoteCollection<Artifact> result;
+
+            switch (checksumType) {
+                case md5:
+                    result = backends.pnc(deadline, () -> delegate.getArtifactsByMd5(checksum));
+                    break;
+                case sha1:
+                    result = backends.pnc(deadline, () -> delegate.getArtifactsBySha1(checksum));
+                    break;
+                case sha256:
+                    result = backends.pnc(deadline, () -> delegate.getArtifactsBySha256(checksum));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unsupported checksum type " + checksumType);
+            }
+
+            var list = new ArrayList<Artifact>();
+
+            if (result != null) {
+                result.forEach(list::add);
+            }
+
+            return list;
+        }
+    }
+
+    private final class EndpointClient implements PncClient {
+        private final Endpoint endpoint;
+
+        private final Deadline deadline;
+
+        EndpointClient(Endpoint endpoint, Deadline deadline) {
+            this.endpoint = endpoint;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public RemoteCollection<Artifact> getArtifactsByMd5(String md5) throws RemoteResourceException {
+            return getArtifacts(endpoint, deadline, ChecksumType.md5, md5);
+        }
+
+        @Override
+        public RemoteCollection<Artifact> getArtifactsBySha1(String sha1) throws RemoteResourceException {
+            return getArtifacts(endpoint, deadline, ChecksumType.sha1, sha1);
+        }
+
+        @Override
+        public RemoteCollection<Artifact> getArtifactsBySha256(String sha256) throws RemoteResourceException {
+            return getArtifacts(endpoint, deadline, ChecksumType.sha256, sha256);
+        }
+
+        @Override
+        public BuildPushResult getBuildPushResult(String buildId) throws RemoteResourceException {
+            return SharedPncClient.this.getBuildPushResult(endpoint, deadline, buildId);
+        }
+
+        @Override
+        public ProductVersion getProductVersion(String productMilestoneId) throws RemoteResourceException {
+            return SharedPncClient.this.getProductVersion(endpoint, deadline, productMilestoneId);
+        }
+
+        @Override
+        public void close() {
+
+        }
+    }
+}
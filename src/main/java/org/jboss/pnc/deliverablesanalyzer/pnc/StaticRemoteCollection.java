@@ -0,0 +1,49 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.pnc;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import org.jboss.pnc.client.RemoteCollection;
+
+public class StaticRemoteCollection<T> implements RemoteCollection<T> {
+    private final List<T> elements;
+
+    public StaticRemoteCollection(List<T> elements) {
+        this.elements = Collections.unmodifiableList(elements);
+    }
+
+    public static <T> StaticRemoteCollection<T> empty() {
+        return new StaticRemoteCollection<>(Collections.emptyList());
+    }
+
+    @Override
+    public int size() {
+        return elements.size();
+    }
+
+    public Collection<T> getAll() {
+        return elements;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return elements.iterator();
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.remote;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.PropertyNamingStrategy;
+import com.fasterxml.jackson.databind.annotation.JsonNaming;
+
+/**
+ * What a {@code HEAD} request says about a remote file. Unknown values are {@code -1} or {@code null}.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+@JsonNaming(PropertyNamingStrategy.SnakeCaseStrategy.class)
+public class RemoteFileInfo {
+    private long size = -1L;
+
+    private String etag;
+
+    private String lastModified;
+
+    private Map<String, String> checksums = new TreeMap<>();
+
+    public static RemoteFileInfo unknown() {
+        return new RemoteFileInfo();
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public void setSize(long size) {
+        this.size = size;
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+
+    public void setEtag(String etag) {
+        this.etag = etag;
+    }
+
+    public String getLastModified() {
+        return lastModified;
+    }
+
+    public void setLastModified(String lastModified) {
+        this.lastModified = lastModified;
+    }
+
+    /**
+     * Checksums of the whole file announced by the server, keyed by checksum type name.
+     */
+    public Map<String, String> getChecksums() {
+        return checksums;
+    }
+
+    public void setChecksums(Map<String, String> checksums) {
+        this.checksums = checksums;
+    }
+
+    @JsonIgnore
+    public boolean hasValidator() {
+        return etag != null || lastModified != null;
+    }
+
+    /**
+     * Whether the file is known to be unchanged. Strong ETags are compared when both sides have one, otherwise the
+     * Last-Modified date and size are.
+     */
+    public boolean isUnchanged(RemoteFileInfo current) {
+        if (current == null || !hasValidator() || !current.hasValidator()) {
+            return false;
+        }
+
+        if (etag != null && current.etag != null && !etag.startsWith("W/") && !current.etag.startsWith("W/")) {
+            return etag.equals(current.etag);
+        }
+
+        return lastModified != null && lastModified.equals(current.lastModified) && size == current.size;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+
+        var that = (RemoteFileInfo) o;
+
+        return size == that.size && Objects.equals(etag, that.etag) && Objects.equals(lastModified, that.lastModified)
+                && Objects.equals(checksums, that.checksums);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(size, etag, lastModified, checksums);
+    }
+
+    @Override
+    public String toString() {
+        return "RemoteFileInfo{size=" + size + ", etag=" + etag + ", lastModified=" + lastModified + ", checksums="
+                + checksums + "}";
+    }
+}
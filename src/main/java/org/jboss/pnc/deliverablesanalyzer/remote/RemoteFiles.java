@@ -0,0 +1,233 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.remote;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+
+import org.apache.commons.codec.binary.Hex;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.pnc.build.finder.core.ChecksumType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+@ApplicationScoped
+public class RemoteFiles {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RemoteFiles.class);
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(10L);
+
+    private static final Map<ChecksumType, Integer> HEX_LENGTHS = Map.of(
+            ChecksumType.md5,
+            32,
+            ChecksumType.sha1,
+            40,
+            ChecksumType.sha256,
+            64);
+
+    @ConfigProperty(name = "analyze.remote.head-cache-ttl", defaultValue = "60000")
+    Long headCacheTtl;
+
+    private HttpClient httpClient;
+
+    private Cache<URI, RemoteFileInfo> infos;
+
+    @PostConstruct
+    void init() {
+        httpClient = HttpClient.newBuilder()
+                .connectTimeout(TIMEOUT)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+        infos = Caffeine.newBuilder()
+                .maximumSize(10000L)
+                .expireAfterWrite(headCacheTtl, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    /**
+     * Gets the size and validators of a remote file, reusing a recent answer for the same URI.
+     */
+    public RemoteFileInfo head(URI uri) {
+        return infos.get(uri, this::fetch);
+    }
+
+    /**
+     * Gets the size and validators of a remote file, always asking the server.
+     */
+    public RemoteFileInfo revalidate(URI uri) {
+        var info = fetch(uri);
+
+        infos.put(uri, info);
+
+        return info;
+    }
+
+    private static boolean isChecksum(ChecksumType checksumType, String value) {
+        return value.length() == HEX_LENGTHS.get(checksumType)
+                && value.chars().allMatch(c -> Character.digit(c, 16) >= 0);
+    }
+
+    /**
+     * Parses an RFC 3230 {@code Digest} header such as {@code SHA-256=base64, MD5=base64}.
+     */
+    static void parseDigest(String header, Map<String, String> checksums) {
+        for (var instance : header.split(",")) {
+            var pair = instance.trim().split("=", 2);
+
+            if (pair.length != 2) {
+                continue;
+            }
+
+            var algorithm = pair[0].trim().toLowerCase(Locale.ROOT).replace("-", "");
+
+            try {
+                var checksumType = ChecksumType.valueOf(algorithm);
+                var value = Hex.encodeHexString(Base64.getDecoder().decode(pair[1].trim()));
+
+                if (isChecksum(checksumType, value)) {
+                    checksums.putIfAbsent(checksumType.name(), value);
+                }
+            } catch (IllegalArgumentException e) {
+                LOGGER.debug("Ignoring digest {}", instance);
+            }
+        }
+    }
+
+    /**
+     * Parses a sidecar file, which holds the checksum optionally followed by the file name as written by
+     * {@code sha256sum}.
+     */
+    static String parseSidecar(String body, ChecksumType checksumType) {
+        var value = body.trim().split("\\s+", 2)[0].toLowerCase(Locale.ROOT);
+
+        return isChecksum(checksumType, value) ? value : null;
+    }
+
+    /**
+     * Gets a checksum of the whole file from a sidecar file such as {@code file.zip.sha256}, as published next to
+     * many Maven repository and download server files.
+     */
+    public String getSidecarChecksum(URI uri, ChecksumType checksumType) {
+        if (!"http".equals(uri.getScheme()) && !"https".equals(uri.getScheme())) {
+            return null;
+        }
+
+        var request = HttpRequest.newBuilder(URI.create(uri + "." + checksumType.name())).timeout(TIMEOUT).build();
+
+        try {
+            var response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+
+            if (response.statusCode() != 200) {
+                return null;
+            }
+
+            return parseSidecar(response.body(), checksumType);
+        } catch (IOException e) {
+            LOGGER.debug("Could not get {} sidecar of {}", checksumType, uri, e);
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    private static RemoteFileInfo stat(URI uri) {
+        try {
+            var path = Paths.get(uri);
+
+            // The size and modification time of a directory do not change with its nested files
+            if (!Files.isRegularFile(path)) {
+                return RemoteFileInfo.unknown();
+            }
+
+            var info = new RemoteFileInfo();
+
+            info.setSize(Files.size(path));
+            info.setLastModified(Files.getLastModifiedTime(path).toString());
+
+            return info;
+        } catch (IOException | RuntimeException e) {
+            LOGGER.debug("Could not get information about {}", uri, e);
+            return RemoteFileInfo.unknown();
+        }
+    }
+
+    private RemoteFileInfo fetch(URI uri) {
+        if ("file".equals(uri.getScheme())) {
+            return stat(uri);
+        }
+
+        if (!"http".equals(uri.getScheme()) && !"https".equals(uri.getScheme())) {
+            return RemoteFileInfo.unknown();
+        }
+
+        var request = HttpRequest.newBuilder(uri)
+                .method("HEAD", HttpRequest.BodyPublishers.noBody())
+                .timeout(TIMEOUT)
+                .build();
+
+        try {
+            var response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+
+            if (response.statusCode() != 200) {
+                LOGGER.debug("HEAD {} returned status {}", uri, response.statusCode());
+                return RemoteFileInfo.unknown();
+            }
+
+            var headers = response.headers();
+            var info = new RemoteFileInfo();
+
+            info.setSize(headers.firstValueAsLong("Content-Length").orElse(-1L));
+            info.setEtag(headers.firstValue("ETag").orElse(null));
+            info.setLastModified(headers.firstValue("Last-Modified").orElse(null));
+
+            for (var checksumType : ChecksumType.values()) {
+                var name = checksumType.name();
+
+                // As sent by Artifactory and Nexus
+                headers.firstValue("X-Checksum-" + name)
+                        .filter(value -> isChecksum(checksumType, value))
+                        .ifPresent(value -> info.getChecksums().put(name, value.toLowerCase(Locale.ROOT)));
+            }
+
+            headers.allValues("Digest").forEach(digest -> parseDigest(digest, info.getChecksums()));
+
+            return info;
+        } catch (IOException e) {
+            LOGGER.debug("Could not get information about {}", uri, e);
+            return RemoteFileInfo.unknown();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return RemoteFileInfo.unknown();
+        }
+    }
+}
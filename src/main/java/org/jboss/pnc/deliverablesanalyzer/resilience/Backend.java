@@ -0,0 +1,218 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.resilience;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.nio.channels.ClosedByInterruptException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.ServerErrorException;
+
+import org.eclipse.microprofile.metrics.Counter;
+import org.eclipse.microprofile.metrics.Gauge;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class Backend {
+    private static final Logger LOGGER = LoggerFactory.getLogger(Backend.class);
+
+    private final String name;
+
+    private final AdaptiveLimiter limiter;
+
+    private final CircuitBreaker circuitBreaker;
+
+    private final long maxWaitMillis;
+
+    private final int retries;
+
+    private final long retryBackoffMillis;
+
+    private final long retryMaxBackoffMillis;
+
+    private final Counter rejections;
+
+    private final Counter retryCount;
+
+    private final Counter failures;
+
+    public Backend(String name, BackendSettings settings, MetricRegistry registry) {
+        this.name = name;
+        this.limiter = new AdaptiveLimiter(
+                settings.getInitialLimit(),
+                settings.getMinLimit(),
+                settings.getMaxLimit(),
+                settings.getTargetLatency());
+        this.circuitBreaker = new CircuitBreaker(settings.getFailureThreshold(), settings.getOpenDuration());
+        this.maxWaitMillis = settings.getMaxWait();
+        this.retries = settings.getRetries();
+        this.retryBackoffMillis = settings.getRetryBackoff();
+        this.retryMaxBackoffMillis = settings.getRetryMaxBackoff();
+        this.rejections = registry.counter(name + "Rejections");
+        this.retryCount = registry.counter(name + "Retries");
+        this.failures = registry.counter(name + "Failures");
+
+        registry.register(name + "ConcurrencyLimit", (Gauge<Double>) limiter::getLimit);
+        registry.register(name + "InFlight", (Gauge<Integer>) limiter::getInFlight);
+        registry.register(name + "CircuitBreakerState", (Gauge<Integer>) () -> circuitBreaker.getState().ordinal());
+    }
+
+    /**
+     * Whether calls are let through, that is whether the circuit breaker is not open.
+     */
+    public boolean isAvailable() {
+        return circuitBreaker.getState() != CircuitBreaker.State.OPEN;
+    }
+
+    @FunctionalInterface
+    public interface Call<V, E extends Exception> {
+        V call() throws E;
+    }
+
+    public <V, E extends Exception> V call(Deadline deadline, Call<V, E> call, Function<String, E> unavailable)
+            throws E {
+        for (var attempt = 0;; attempt++) {
+            var violation = deadline.getViolation();
+
+            if (violation != null) {
+                throw unavailable.apply(name + " call aborted: " + violation);
+            }
+
+            if (!circuitBreaker.allowRequest()) {
+                rejections.inc();
+                throw unavailable.apply(
+                        String.format(
+                                "%s is unavailable: circuit breaker opened after %d consecutive failures, "
+                                        + "retry in %d ms",
+                                name,
+                                circuitBreaker.getConsecutiveFailures(),
+                                circuitBreaker.getRetryAfterMillis()));
+            }
+
+            var maxWait = Math.min(maxWaitMillis, deadline.getRemainingMillis());
+
+            try {
+                if (!limiter.acquire(maxWait)) {
+                    circuitBreaker.onCancel();
+                    rejections.inc();
+                    throw unavailable.apply(
+                            String.format(
+                                    "%s is overloaded: no capacity within %d ms at concurrency limit %d",
+                                    name,
+                                    maxWait,
+                                    (int) limiter.getLimit()));
+                }
+            } catch (InterruptedException e) {
+                circuitBreaker.onCancel();
+                Thread.currentThread().interrupt();
+                throw unavailable.apply(name + " call was interrupted while waiting for capacity");
+            }
+
+            var start = System.nanoTime();
+
+            try {
+                var value = call.call();
+
+                limiter.release(System.nanoTime() - start, false);
+                circuitBreaker.onSuccess();
+
+                return value;
+            } catch (Exception e) {
+                var latency = System.nanoTime() - start;
+
+                if (isAbort(e, deadline)) {
+                    // Given up by the caller, which says nothing about the backend
+                    limiter.cancel();
+                    circuitBreaker.onCancel();
+                    throw e;
+                }
+
+                if (!isTransient(e)) {
+                    // The backend answered, with an error that a retry would only repeat
+                    limiter.release(latency, false);
+                    circuitBreaker.onSuccess();
+                    throw e;
+                }
+
+                limiter.release(latency, true);
+                circuitBreaker.onFailure();
+                failures.inc();
+
+                var backoff = ThreadLocalRandom.current()
+                        .nextLong(Math.min(retryMaxBackoffMillis, retryBackoffMillis << Math.min(attempt, 20)) + 1L);
+
+                if (attempt >= retries || backoff >= deadline.getRemainingMillis()) {
+                    throw e;
+                }
+
+                retryCount.inc();
+
+                LOGGER.info(
+                        "{} call failed (attempt {} of {}), retrying in {} ms: {}",
+                        name,
+                        attempt + 1,
+                        retries + 1,
+                        backoff,
+                        e.getMessage());
+
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    static boolean isAbort(Throwable e, Deadline deadline) {
+        if (Thread.currentThread().isInterrupted() || deadline.getViolation() != null) {
+            return true;
+        }
+
+        for (var cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof InterruptedException || cause instanceof CancellationException
+                    || cause instanceof ClosedByInterruptException
+                    || cause instanceof InterruptedIOException && !(cause instanceof SocketTimeoutException)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Whether a call failed in transport or timed out, rather than with an error returned by the backend, such as an
+     * XML-RPC fault or a client error status.
+     */
+    static boolean isTransient(Throwable e) {
+        for (var cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof IOException || cause instanceof TimeoutException
+                    || cause instanceof ProcessingException || cause instanceof ServerErrorException) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.resilience;
+
+import java.util.function.Function;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.jboss.pnc.client.RemoteResourceException;
+
+import com.redhat.red.build.koji.KojiClientException;
+
+@ApplicationScoped
+public class Backends {
+    @ConfigProperty(name = "analyze.resilience.enabled", defaultValue = "true")
+    Boolean enabled;
+
+    @ConfigProperty(name = "analyze.resilience.initial-limit", defaultValue = "20")
+    Integer initialLimit;
+
+    @ConfigProperty(name = "analyze.resilience.min-limit", defaultValue = "1")
+    Integer minLimit;
+
+    @ConfigProperty(name = "analyze.resilience.max-limit", defaultValue = "100")
+    Integer maxLimit;
+
+    @ConfigProperty(name = "analyze.resilience.target-latency", defaultValue = "10000")
+    Long targetLatency;
+
+    @ConfigProperty(name = "analyze.resilience.max-wait", defaultValue = "120000")
+    Long maxWait;
+
+    @ConfigProperty(name = "analyze.resilience.failure-threshold", defaultValue = "5")
+    Integer failureThreshold;
+
+    @ConfigProperty(name = "analyze.resilience.open-duration", defaultValue = "30000")
+    Long openDuration;
+
+    @ConfigProperty(name = "analyze.resilience.retries", defaultValue = "3")
+    Integer retries;
+
+    @ConfigProperty(name = "analyze.resilience.retry-backoff", defaultValue = "500")
+    Long retryBackoff;
+
+    @ConfigProperty(name = "analyze.resilience.retry-max-backoff", defaultValue = "10000")
+    Long retryMaxBackoff;
+
+    @Inject
+    MetricRegistry registry;
+
+    private Backend koji;
+
+    private Backend pnc;
+
+    @PostConstruct
+    void init() {
+        var settings = new BackendSettings();
+
+        settings.setInitialLimit(initialLimit);
+        settings.setMinLimit(minLimit);
+        settings.setMaxLimit(maxLimit);
+        settings.setTargetLatency(targetLatency);
+        settings.setMaxWait(maxWait);
+        settings.setFailureThreshold(failureThreshold);
+        settings.setOpenDuration(openDuration);
+        settings.setRetries(retries);
+        settings.setRetryBackoff(retryBackoff);
+        settings.setRetryMaxBackoff(retryMaxBackoff);
+
+        koji = new Backend("koji", settings, registry);
+        pnc = new Backend("pnc", settings, registry);
+    }
+
+    private static <V, E extends Exception> V call(
+            Backend backend,
+            boolean enabled,
+            Deadline deadline,
+            Backend.Call<V, E> call,
+            Function<String, E> unavailable) throws E {
+        if (enabled) {
+            return backend.call(deadline, call, unavailable);
+        }
+
+        var violation = deadline.getViolation();
+
+        if (violation != null) {
+            throw unavailable.apply(violation);
+        }
+
+        return call.call();
+    }
+
+    public <V> V koji(Backend.Call<V, KojiClientException> call) throws KojiClientException {
+        return koji(Deadline.none(), call);
+    }
+
+    public <V> V koji(Deadline deadline, Backend.Call<V, KojiClientException> call) throws KojiClientException {
+        return call(koji, Boolean.TRUE.equals(enabled), deadline, call, KojiClientException::new);
+    }
+
+    public boolean isKojiAvailable() {
+        return !Boolean.TRUE.equals(enabled) || koji.isAvailable();
+    }
+
+    public <V> V pnc(Backend.Call<V, RemoteResourceException> call) throws RemoteResourceException {
+        return pnc(Deadline.none(), call);
+    }
+
+    public <V> V pnc(Deadline deadline, Backend.Call<V, RemoteResourceException> call)
+            throws RemoteResourceException {
+        return call(
+                pnc,
+                Boolean.TRUE.equals(enabled),
+                deadline,
+                call,
+                message -> new RemoteResourceException(message, null));
+    }
+
+    public boolean isPncAvailable() {
+        return !Boolean.TRUE.equals(enabled) || pnc.isAvailable();
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.resilience;
+
+import java.util.concurrent.TimeUnit;
+
+public class Deadline {
+    private final long timeoutMillis;
+
+    private volatile long expiresAt = Long.MAX_VALUE;
+
+    private volatile boolean started;
+
+    private volatile boolean cancelled;
+
+    public Deadline(long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    public static Deadline none() {
+        return new Deadline(0L);
+    }
+
+    public void start() {
+        if (timeoutMillis > 0L) {
+            expiresAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        }
+
+        started = true;
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public boolean isExpired() {
+        return started && expiresAt != Long.MAX_VALUE && System.nanoTime() - expiresAt >= 0L;
+    }
+
+    public long getRemainingMillis() {
+        if (!started || expiresAt == Long.MAX_VALUE) {
+            return Long.MAX_VALUE;
+        }
+
+        return Math.max(0L, TimeUnit.NANOSECONDS.toMillis(expiresAt - System.nanoTime()));
+    }
+
+    public String getViolation() {
+        if (cancelled) {
+            return "analysis was cancelled";
+        }
+
+        if (isExpired()) {
+            return "analysis exceeded its deadline of " + timeoutMillis + " ms";
+        }
+
+        return null;
+    }
+}
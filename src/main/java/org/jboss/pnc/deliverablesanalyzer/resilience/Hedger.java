@@ -0,0 +1,277 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.resilience;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.microprofile.metrics.Counter;
+
+/**
+ * Sends a second copy of a call that takes longer than the given percentile of the latencies of earlier calls of the
+ * same method. The first result is used. The other call cannot be aborted, as a blocking read is not interrupted, so
+ * it is left to finish and holds back one hedging token until it does.
+ */
+public class Hedger implements AutoCloseable {
+    private static final int SAMPLES = 1024;
+
+    private static final int MIN_SAMPLES = 100;
+
+    private static final int RECOMPUTE_INTERVAL = 64;
+
+    private static final double MAX_TOKENS = 10.0D;
+
+    private final double percentile;
+
+    private final long minDelayNanos;
+
+    private final double budget;
+
+    private final Counter calls;
+
+    private final Counter hedged;
+
+    private final Counter hedgeWins;
+
+    private final Map<String, Latencies> latencies = new ConcurrentHashMap<>();
+
+    private final AtomicInteger abandoned = new AtomicInteger();
+
+    private final ExecutorService executor;
+
+    private double tokens;
+
+    public Hedger(
+            String name,
+            double percentile,
+            long minDelayMillis,
+            double budget,
+            Counter calls,
+            Counter hedged,
+            Counter hedgeWins) {
+        this.percentile = percentile;
+        this.minDelayNanos = TimeUnit.MILLISECONDS.toNanos(minDelayMillis);
+        this.budget = budget;
+        this.calls = calls;
+        this.hedged = hedged;
+        this.hedgeWins = hedgeWins;
+        this.executor = Executors.newCachedThreadPool(r -> {
+            var thread = new Thread(r, name + "-hedged-call");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public <V, E extends Exception> V call(
+            String method,
+            Backend.Call<V, E> primary,
+            Backend.Call<V, E> hedge,
+            Class<E> exceptionType) throws E {
+        var methodLatencies = latencies.computeIfAbsent(method, k -> new Latencies());
+        var completionService = new ExecutorCompletionService<V>(executor);
+        var attempts = new ArrayList<Attempt<V>>(2);
+        var futures = new ArrayList<Future<V>>(2);
+        var start = System.nanoTime();
+        var threshold = onCall(methodLatencies);
+
+        attempts.add(new Attempt<>(primary));
+        futures.add(completionService.submit(attempts.get(0)));
+
+        try {
+            var done = threshold < 0L ? completionService.take()
+                    : completionService.poll(threshold, TimeUnit.NANOSECONDS);
+
+            if (done == null) {
+                if (acquireBudget()) {
+                    hedged.inc();
+                    attempts.add(new Attempt<>(hedge));
+                    futures.add(completionService.submit(attempts.get(1)));
+                }
+
+                done = completionService.take();
+            }
+
+            var remaining = futures.size() - 1;
+
+            while (true) {
+                try {
+                    var value = done.get();
+
+                    methodLatencies.record(System.nanoTime() - start);
+
+                    if (done != futures.get(0)) {
+                        hedgeWins.inc();
+                    }
+
+                    return value;
+                } catch (ExecutionException e) {
+                    if (remaining == 0) {
+                        throw rethrow(e.getCause(), exceptionType);
+                    }
+
+                    remaining--;
+                    done = completionService.take();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for a hedged call");
+        } finally {
+            attempts.forEach(Attempt::abandon);
+        }
+    }
+
+    private static <E extends Exception> E rethrow(Throwable cause, Class<E> exceptionType) {
+        if (exceptionType.isInstance(cause)) {
+            return exceptionType.cast(cause);
+        }
+
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        }
+
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+
+        throw new CompletionException(cause);
+    }
+
+    private synchronized long onCall(Latencies methodLatencies) {
+        calls.inc();
+        tokens = Math.min(MAX_TOKENS, tokens + budget);
+
+        return methodLatencies.getThresholdNanos();
+    }
+
+    private synchronized boolean acquireBudget() {
+        if (tokens - abandoned.get() < 1.0D) {
+            return false;
+        }
+
+        tokens -= 1.0D;
+
+        return true;
+    }
+
+    /**
+     * Gets the highest latency after which a call of any method is hedged.
+     */
+    public long getThresholdMillis() {
+        var threshold = latencies.values().stream().mapToLong(Latencies::getThresholdNanos).max().orElse(-1L);
+
+        return threshold < 0L ? -1L : TimeUnit.NANOSECONDS.toMillis(threshold);
+    }
+
+    public long getThresholdMillis(String method) {
+        var methodLatencies = latencies.get(method);
+        var threshold = methodLatencies != null ? methodLatencies.getThresholdNanos() : -1L;
+
+        return threshold < 0L ? -1L : TimeUnit.NANOSECONDS.toMillis(threshold);
+    }
+
+    /**
+     * Gets the number of calls that lost to their copy, or whose caller gave up, and are still running.
+     */
+    public int getAbandonedCalls() {
+        return abandoned.get();
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private final class Latencies {
+        private final long[] samples = new long[SAMPLES];
+
+        private int sampleIndex;
+
+        private int sampleCount;
+
+        private long thresholdNanos = -1L;
+
+        synchronized void record(long latencyNanos) {
+            samples[sampleIndex] = latencyNanos;
+            sampleIndex = (sampleIndex + 1) % SAMPLES;
+            sampleCount = Math.min(SAMPLES, sampleCount + 1);
+
+            if (sampleCount >= MIN_SAMPLES && sampleIndex % RECOMPUTE_INTERVAL == 0) {
+                var sorted = Arrays.copyOf(samples, sampleCount);
+
+                Arrays.sort(sorted);
+
+                var index = Math.min(sampleCount - 1, (int) Math.ceil(percentile * sampleCount) - 1);
+
+                thresholdNanos = Math.max(minDelayNanos, sorted[Math.max(0, index)]);
+            }
+        }
+
+        synchronized long getThresholdNanos() {
+            return thresholdNanos;
+        }
+    }
+
+    private final class Attempt<V> implements Callable<V> {
+        private static final int RUNNING = 0;
+
+        private static final int DONE = 1;
+
+        private static final int ABANDONED = 2;
+
+        private final Backend.Call<V, ?> call;
+
+        private final AtomicInteger state = new AtomicInteger(RUNNING);
+
+        Attempt(Backend.Call<V, ?> call) {
+            this.call = call;
+        }
+
+        @Override
+        public V call() throws Exception {
+            try {
+                return call.call();
+            } finally {
+                if (!state.compareAndSet(RUNNING, DONE)) {
+                    abandoned.decrementAndGet();
+                }
+            }
+        }
+
+        /**
+         * Leaves the attempt running if it has not finished yet, counting it against the budget until it does.
+         */
+        void abandon() {
+            abandoned.incrementAndGet();
+
+            if (!state.compareAndSet(RUNNING, ABANDONED)) {
+                abandoned.decrementAndGet();
+            }
+        }
+    }
+}
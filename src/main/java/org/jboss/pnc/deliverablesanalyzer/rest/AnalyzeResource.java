@@ -16,6 +16,7 @@
 package org.jboss.pnc.deliverablesanalyzer.rest;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.time.Duration;
 import java.util.concurrent.CompletionStage;
@@ -29,6 +30,7 @@ import javax.inject.Inject;
 import javax.validation.constraints.NotEmpty;
 import javax.validation.constraints.Pattern;
 import javax.ws.rs.Consumes;
+import javax.ws.rs.DELETE;
 import javax.ws.rs.GET;
 import javax.ws.rs.InternalServerErrorException;
 import javax.ws.rs.NotFoundException;
@@ -37,13 +39,13 @@ import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.ServiceUnavailableException;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.SecurityContext;
 import javax.ws.rs.core.UriInfo;
 
-import org.apache.commons.codec.digest.DigestUtils;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
-import org.eclipse.microprofile.context.ManagedExecutor;
 import org.eclipse.microprofile.openapi.annotations.Operation;
 import org.eclipse.microprofile.openapi.annotations.enums.ParameterStyle;
 import org.eclipse.microprofile.openapi.annotations.enums.SchemaType;
@@ -54,19 +56,21 @@ import org.eclipse.microprofile.openapi.annotations.parameters.Parameter;
 import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
 import org.hibernate.validator.constraints.URL;
 import org.jboss.pnc.build.finder.core.BuildConfig;
+import org.jboss.pnc.deliverablesanalyzer.AnalysisSubmitter;
 import org.jboss.pnc.deliverablesanalyzer.BuildConfigCache;
-import org.jboss.pnc.deliverablesanalyzer.Finder;
 import org.jboss.pnc.deliverablesanalyzer.ResultCache;
 import org.jboss.pnc.deliverablesanalyzer.StatusCache;
+import org.jboss.pnc.deliverablesanalyzer.diff.ResultDiffs;
 import org.jboss.pnc.deliverablesanalyzer.model.FinderResult;
 import org.jboss.pnc.deliverablesanalyzer.model.FinderStatus;
+import org.jboss.pnc.deliverablesanalyzer.scheduler.ClientShares;
+import org.jboss.pnc.deliverablesanalyzer.upload.Uploads;
 import org.jboss.resteasy.annotations.jaxrs.FormParam;
 import org.jboss.resteasy.annotations.jaxrs.PathParam;
+import org.jboss.resteasy.annotations.jaxrs.QueryParam;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.redhat.red.build.koji.KojiClientException;
-
 @ApplicationScoped
 @Path("analyze")
 public class AnalyzeResource implements AnalyzeService {
@@ -76,7 +80,16 @@ public class AnalyzeResource implements AnalyzeService {
     Long timeout;
 
     @Inject
-    ManagedExecutor pool;
+    AnalysisSubmitter submitter;
+
+    @Inject
+    ClientShares clientShares;
+
+    @Inject
+    ResultDiffs diffs;
+
+    @Inject
+    Uploads uploads;
 
     @Inject
     BuildConfigCache<String, BuildConfig> configs;
@@ -90,6 +103,12 @@ public class AnalyzeResource implements AnalyzeService {
     @Context
     UriInfo uriInfo;
 
+    @Context
+    HttpHeaders headers;
+
+    @Context
+    SecurityContext securityContext;
+
     @Override
     @Operation(summary = "Get build config", description = "Get build config.")
     @APIResponse(
@@ -247,6 +266,68 @@ public class AnalyzeResource implements AnalyzeService {
         }
     }
 
+    @Override
+    @Operation(
+            summary = "Diff two results",
+            description = "Get the builds and artifacts added, removed, or changed between two finished results.")
+    @APIResponse(responseCode = "200", description = "Diff of the two results.")
+    @APIResponse(
+            responseCode = "404",
+            description = "Result not found.",
+            content = @Content(
+                    mediaType = MediaType.APPLICATION_JSON,
+                    schema = @Schema(implementation = ErrorMessage.class)))
+    @APIResponse(
+            responseCode = "503",
+            description = "Result not ready. Try again later.",
+            content = @Content(
+                    mediaType = MediaType.APPLICATION_JSON,
+                    schema = @Schema(implementation = ErrorMessage.class)))
+    @GET
+    @Path("results/{from}/diff/{to}")
+    @PermitAll
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response diff(
+            @NotEmpty @Parameter(
+                    name = "from",
+                    description = "Identifier of the older result",
+                    schema = @Schema(type = SchemaType.STRING),
+                    required = true,
+                    style = ParameterStyle.SIMPLE) @Pattern(regexp = "^[a-f0-9]{8}$") @PathParam String from,
+            @NotEmpty @Parameter(
+                    name = "to",
+                    description = "Identifier of the newer result",
+                    schema = @Schema(type = SchemaType.STRING),
+                    required = true,
+                    style = ParameterStyle.SIMPLE) @Pattern(regexp = "^[a-f0-9]{8}$") @PathParam String to) {
+        return Response.ok(diffs.stream(from, to), MediaType.APPLICATION_JSON_TYPE).build();
+    }
+
+    @Override
+    @Operation(summary = "Cancel or delete result", description = "Cancel a running analysis or delete its result.")
+    @APIResponse(responseCode = "204", description = "Cancelled or deleted.")
+    @APIResponse(
+            responseCode = "404",
+            description = "Result not found.",
+            content = @Content(
+                    mediaType = MediaType.APPLICATION_JSON,
+                    schema = @Schema(implementation = ErrorMessage.class)))
+    @DELETE
+    @Path("results/{id}")
+    @PermitAll
+    public void cancel(
+            @NotEmpty @Parameter(
+                    name = "id",
+                    description = "Result identifier",
+                    schema = @Schema(type = SchemaType.STRING),
+                    required = true,
+                    style = ParameterStyle.SIMPLE) @Pattern(regexp = "^[a-f0-9]{8}$") @PathParam String id) {
+        if (!submitter.cancel(id)) {
+            LOGGER.info("Result id {} is null. Returning Not Found", id);
+            throw new NotFoundException("Result id " + id + " not found");
+        }
+    }
+
     @Override
     @Operation(summary = "Analyze a URL", description = "Analyze a URL.")
     @APIResponse(
@@ -263,6 +344,18 @@ public class AnalyzeResource implements AnalyzeService {
             content = @Content(
                     mediaType = MediaType.APPLICATION_JSON,
                     schema = @Schema(implementation = ErrorMessage.class)))
+    @APIResponse(
+            responseCode = "403",
+            description = "Local file not under an allowed root.",
+            content = @Content(
+                    mediaType = MediaType.APPLICATION_JSON,
+                    schema = @Schema(implementation = ErrorMessage.class)))
+    @APIResponse(
+            responseCode = "429",
+            description = "Too many queued analyses for this client.",
+            content = @Content(
+                    mediaType = MediaType.APPLICATION_JSON,
+                    schema = @Schema(implementation = ErrorMessage.class)))
     @APIResponse(
             responseCode = "500",
             description = "Error during find.",
@@ -285,57 +378,114 @@ public class AnalyzeResource implements AnalyzeService {
                     description = "URL to analyze",
                     schema = @Schema(type = SchemaType.STRING),
                     required = true,
-                    style = ParameterStyle.SIMPLE) @URL(regexp = "^http(s)?:.*") String url,
+                    style = ParameterStyle.SIMPLE) @URL(regexp = "^(http(s)?|file):.*") String url,
             @FormParam @Parameter(
                     name = "config",
                     description = "Build config",
                     schema = @Schema(type = SchemaType.STRING),
                     required = true,
-                    style = ParameterStyle.SIMPLE) String config) {
+                    style = ParameterStyle.SIMPLE) String config,
+            @FormParam @Parameter(
+                    name = "baseline",
+                    description = "Result id of a previous analysis whose lookups to reuse for unchanged files",
+                    schema = @Schema(type = SchemaType.STRING),
+                    style = ParameterStyle.SIMPLE) @Pattern(regexp = "^[a-f0-9]{8}$") String baseline) {
         var uri = URI.create(url).normalize();
-        var normalizedUrl = uri.toString();
-        // XXX: Hash URL instead of file contents so that we don't have to download the file
-        var sha256 = DigestUtils.sha256Hex(normalizedUrl);
-        var id = sha256.substring(0, 8);
+        var client = clientShares.get(
+                headers.getHeaderString(ClientShares.CLIENT_ID_HEADER),
+                securityContext.getUserPrincipal());
+        var id = (String) null;
 
         try {
-            var finder = new Finder();
-            var config1 = finder.getConfig();
-
-            if (config != null) {
-                var config2 = BuildConfig.load(config);
-
-                if (config2.getExcludes() != null) {
-                    config1.setExcludes(config2.getExcludes());
-                }
-
-                if (config2.getArchiveExtensions() != null) {
-                    config1.setArchiveExtensions(config2.getArchiveExtensions());
-                }
+            id = submitter.submit(uri, config, baseline, client);
+        } catch (IOException e) {
+            throw new InternalServerErrorException(e);
+        }
 
-                if (config2.getArchiveTypes() != null) {
-                    config1.setArchiveTypes(config2.getArchiveTypes());
-                }
-            }
+        var location = uriInfo.getAbsolutePathBuilder()
+                .path("results")
+                .path("{id}")
+                .resolveTemplate("id", id)
+                .toTemplate();
 
-            results.computeIfAbsent(id, k -> pool.supplyAsync(() -> {
-                configs.putIfAbsent(id, config1);
+        return Response.created(URI.create(location).normalize()).entity(id).build();
+    }
 
-                var status = new FinderStatus();
+    @Override
+    @Operation(
+            summary = "Analyze an uploaded file",
+            description = "Analyze a file sent as the request body, hashing it while it is received.")
+    @APIResponse(
+            responseCode = "201",
+            description = "Created.",
+            headers = @Header(
+                    name = "Location",
+                    description = "URL containing result generated by this request.",
+                    schema = @Schema(type = SchemaType.STRING),
+                    required = true))
+    @APIResponse(
+            responseCode = "400",
+            description = "Bad filename.",
+            content = @Content(
+                    mediaType = MediaType.APPLICATION_JSON,
+                    schema = @Schema(implementation = ErrorMessage.class)))
+    @APIResponse(
+            responseCode = "413",
+            description = "Upload too large.",
+            content = @Content(
+                    mediaType = MediaType.APPLICATION_JSON,
+                    schema = @Schema(implementation = ErrorMessage.class)))
+    @APIResponse(
+            responseCode = "429",
+            description = "Too many queued analyses for this client.",
+            content = @Content(
+                    mediaType = MediaType.APPLICATION_JSON,
+                    schema = @Schema(implementation = ErrorMessage.class)))
+    @APIResponse(
+            responseCode = "503",
+            description = "Too many uploads in progress. Try again later.",
+            content = @Content(
+                    mediaType = MediaType.APPLICATION_JSON,
+                    schema = @Schema(implementation = ErrorMessage.class)))
+    @POST
+    @Path("upload")
+    @PermitAll
+    @Consumes(MediaType.APPLICATION_OCTET_STREAM)
+    @Produces(MediaType.TEXT_PLAIN)
+    public Response upload(
+            InputStream in,
+            @NotEmpty @Parameter(
+                    name = "filename",
+                    description = "File name, whose extension tells the archive type",
+                    schema = @Schema(type = SchemaType.STRING),
+                    required = true,
+                    style = ParameterStyle.FORM) @Pattern(
+                            regexp = "^[A-Za-z0-9][A-Za-z0-9._+-]{0,254}$") @QueryParam String filename,
+            @QueryParam @Parameter(
+                    name = "config",
+                    description = "Build config",
+                    schema = @Schema(type = SchemaType.STRING),
+                    style = ParameterStyle.FORM) String config,
+            @QueryParam @Parameter(
+                    name = "baseline",
+                    description = "Result id of a previous analysis whose lookups to reuse for unchanged files",
+                    schema = @Schema(type = SchemaType.STRING),
+                    style = ParameterStyle.FORM) @Pattern(regexp = "^[a-f0-9]{8}$") String baseline) {
+        var client = clientShares.get(
+                headers.getHeaderString(ClientShares.CLIENT_ID_HEADER),
+                securityContext.getUserPrincipal());
+        var id = (String) null;
 
-                statuses.putIfAbsent(id, status);
+        try {
+            var upload = uploads.receive(in, filename);
 
-                try {
-                    return finder.find(id, uri.toURL(), status, status);
-                } catch (IOException | KojiClientException e) {
-                    throw new InternalServerErrorException(e);
-                }
-            }));
+            id = submitter.submit(upload, config, baseline, client);
         } catch (IOException e) {
             throw new InternalServerErrorException(e);
         }
 
-        var location = uriInfo.getAbsolutePathBuilder()
+        var location = uriInfo.getBaseUriBuilder()
+                .path(AnalyzeService.class)
                 .path("results")
                 .path("{id}")
                 .resolveTemplate("id", id)
@@ -15,11 +15,14 @@
  */
 package org.jboss.pnc.deliverablesanalyzer.rest;
 
+import java.io.InputStream;
+
 import javax.annotation.security.PermitAll;
 import javax.enterprise.context.ApplicationScoped;
 import javax.validation.constraints.NotEmpty;
 import javax.validation.constraints.Pattern;
 import javax.ws.rs.Consumes;
+import javax.ws.rs.DELETE;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
@@ -33,6 +36,7 @@ import org.jboss.pnc.deliverablesanalyzer.model.FinderResult;
 import org.jboss.pnc.deliverablesanalyzer.model.FinderStatus;
 import org.jboss.resteasy.annotations.jaxrs.FormParam;
 import org.jboss.resteasy.annotations.jaxrs.PathParam;
+import org.jboss.resteasy.annotations.jaxrs.QueryParam;
 
 @ApplicationScoped
 @Path("analyze")
@@ -49,6 +53,19 @@ public interface AnalyzeService {
     @Produces(MediaType.APPLICATION_JSON)
     FinderResult results(@NotEmpty @Pattern(regexp = "^[a-f0-9]{8}$") @PathParam String id);
 
+    @GET
+    @Path("results/{from}/diff/{to}")
+    @PermitAll
+    @Produces(MediaType.APPLICATION_JSON)
+    Response diff(
+            @NotEmpty @Pattern(regexp = "^[a-f0-9]{8}$") @PathParam String from,
+            @NotEmpty @Pattern(regexp = "^[a-f0-9]{8}$") @PathParam String to);
+
+    @DELETE
+    @Path("results/{id}")
+    @PermitAll
+    void cancel(@NotEmpty @Pattern(regexp = "^[a-f0-9]{8}$") @PathParam String id);
+
     @GET
     @Path("statuses/{id}")
     @PermitAll
@@ -59,5 +76,19 @@ public interface AnalyzeService {
     @PermitAll
     @Consumes(MediaType.APPLICATION_FORM_URLENCODED)
     @Produces(MediaType.TEXT_PLAIN)
-    Response analyze(@NotEmpty @FormParam @URL(regexp = "^http(s)?:.*") String url, @FormParam String config);
+    Response analyze(
+            @NotEmpty @FormParam @URL(regexp = "^(http(s)?|file):.*") String url,
+            @FormParam String config,
+            @Pattern(regexp = "^[a-f0-9]{8}$") @FormParam String baseline);
+
+    @POST
+    @Path("upload")
+    @PermitAll
+    @Consumes(MediaType.APPLICATION_OCTET_STREAM)
+    @Produces(MediaType.TEXT_PLAIN)
+    Response upload(
+            InputStream in,
+            @NotEmpty @Pattern(regexp = "^[A-Za-z0-9][A-Za-z0-9._+-]{0,254}$") @QueryParam String filename,
+            @QueryParam String config,
+            @Pattern(regexp = "^[a-f0-9]{8}$") @QueryParam String baseline);
 }
@@ -0,0 +1,178 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.rest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.security.PermitAll;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.Pattern;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+
+import org.eclipse.microprofile.openapi.annotations.Operation;
+import org.eclipse.microprofile.openapi.annotations.enums.ParameterStyle;
+import org.eclipse.microprofile.openapi.annotations.enums.SchemaType;
+import org.eclipse.microprofile.openapi.annotations.media.Content;
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+import org.eclipse.microprofile.openapi.annotations.parameters.Parameter;
+import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
+import org.jboss.pnc.build.finder.core.BuildSystem;
+import org.jboss.pnc.deliverablesanalyzer.index.ChecksumIndex;
+import org.jboss.pnc.deliverablesanalyzer.index.ChecksumIndexEntry;
+import org.jboss.pnc.deliverablesanalyzer.store.ResultIndex;
+import org.jboss.resteasy.annotations.jaxrs.PathParam;
+
+@ApplicationScoped
+@Path("index")
+public class IndexResource implements IndexService {
+    @Inject
+    ChecksumIndex index;
+
+    @Inject
+    ResultIndex resultIndex;
+
+    @Override
+    @Operation(summary = "Look up a checksum in the index", description = "Look up a checksum in the index.")
+    @APIResponse(
+            responseCode = "200",
+            description = "Indexed archives with the checksum",
+            content = @Content(
+                    mediaType = MediaType.APPLICATION_JSON,
+                    schema = @Schema(type = SchemaType.ARRAY, implementation = ChecksumIndexEntry.class)))
+    @GET
+    @Path("checksums/{checksum}")
+    @PermitAll
+    @Produces(MediaType.APPLICATION_JSON)
+    public List<ChecksumIndexEntry> checksums(
+            @NotEmpty @Parameter(
+                    name = "checksum",
+                    description = "MD5, SHA-1 or SHA-256 checksum",
+                    schema = @Schema(type = SchemaType.STRING),
+                    required = true,
+                    style = ParameterStyle.SIMPLE) @Pattern(
+                            regexp = "^([a-f0-9]{32}|[a-f0-9]{40}|[a-f0-9]{64})$") @PathParam String checksum) {
+        var entries = new ArrayList<ChecksumIndexEntry>();
+
+        for (var buildSystem : BuildSystem.values()) {
+            entries.addAll(index.find(buildSystem, checksum));
+        }
+
+        return entries;
+    }
+
+    @Override
+    @Operation(
+            summary = "Find stored results containing a checksum",
+            description = "Find stored results containing a checksum.")
+    @APIResponse(
+            responseCode = "200",
+            description = "Ids of the stored results",
+            content = @Content(
+                    mediaType = MediaType.APPLICATION_JSON,
+                    schema = @Schema(type = SchemaType.ARRAY, implementation = String.class)))
+    @GET
+    @Path("results/checksums/{checksum}")
+    @PermitAll
+    @Produces(MediaType.APPLICATION_JSON)
+    public List<String> resultsByChecksum(
+            @NotEmpty @Parameter(
+                    name = "checksum",
+                    description = "MD5, SHA-1 or SHA-256 checksum",
+                    schema = @Schema(type = SchemaType.STRING),
+                    required = true,
+                    style = ParameterStyle.SIMPLE) @Pattern(
+                            regexp = "^([a-f0-9]{32}|[a-f0-9]{40}|[a-f0-9]{64})$") @PathParam String checksum) {
+        return resultIndex.find(ResultIndex.Kind.CHECKSUM, checksum);
+    }
+
+    @Override
+    @Operation(
+            summary = "Find stored results containing a Maven artifact",
+            description = "Find stored results containing a Maven artifact.")
+    @APIResponse(
+            responseCode = "200",
+            description = "Ids of the stored results",
+            content = @Content(
+                    mediaType = MediaType.APPLICATION_JSON,
+                    schema = @Schema(type = SchemaType.ARRAY, implementation = String.class)))
+    @GET
+    @Path("results/gavs/{gav}")
+    @PermitAll
+    @Produces(MediaType.APPLICATION_JSON)
+    public List<String> resultsByGav(
+            @NotEmpty @Parameter(
+                    name = "gav",
+                    description = "Maven groupId:artifactId:version",
+                    schema = @Schema(type = SchemaType.STRING),
+                    required = true,
+                    style = ParameterStyle.SIMPLE) @Pattern(regexp = "^[^:]+:[^:]+:[^:]+$") @PathParam String gav) {
+        return resultIndex.find(ResultIndex.Kind.GAV, gav);
+    }
+
+    @Override
+    @Operation(
+            summary = "Find stored results containing an npm package",
+            description = "Find stored results containing an npm package.")
+    @APIResponse(
+            responseCode = "200",
+            description = "Ids of the stored results",
+            content = @Content(
+                    mediaType = MediaType.APPLICATION_JSON,
+                    schema = @Schema(type = SchemaType.ARRAY, implementation = String.class)))
+    @GET
+    @Path("results/npm/{npm: .+}")
+    @PermitAll
+    @Produces(MediaType.APPLICATION_JSON)
+    public List<String> resultsByNpm(
+            @NotEmpty @Parameter(
+                    name = "npm",
+                    description = "npm package name@version",
+                    schema = @Schema(type = SchemaType.STRING),
+                    required = true,
+                    style = ParameterStyle.SIMPLE) @Pattern(regexp = "^.+@[^@]+$") @PathParam String npm) {
+        return resultIndex.find(ResultIndex.Kind.NPM, npm);
+    }
+
+    @Override
+    @Operation(
+            summary = "Find stored results containing a build",
+            description = "Find stored results containing a build.")
+    @APIResponse(
+            responseCode = "200",
+            description = "Ids of the stored results",
+            content = @Content(
+                    mediaType = MediaType.APPLICATION_JSON,
+                    schema = @Schema(type = SchemaType.ARRAY, implementation = String.class)))
+    @GET
+    @Path("results/builds/{build}")
+    @PermitAll
+    @Produces(MediaType.APPLICATION_JSON)
+    public List<String> resultsByBuild(
+            @NotEmpty @Parameter(
+                    name = "build",
+                    description = "Build identifier, such as a Koji NVR",
+                    schema = @Schema(type = SchemaType.STRING),
+                    required = true,
+                    style = ParameterStyle.SIMPLE) @PathParam String build) {
+        return resultIndex.find(ResultIndex.Kind.BUILD, build);
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.rest;
+
+import java.util.List;
+
+import javax.annotation.security.PermitAll;
+import javax.enterprise.context.ApplicationScoped;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.Pattern;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+
+import org.jboss.pnc.deliverablesanalyzer.index.ChecksumIndexEntry;
+import org.jboss.resteasy.annotations.jaxrs.PathParam;
+
+@ApplicationScoped
+@Path("index")
+public interface IndexService {
+    @GET
+    @Path("checksums/{checksum}")
+    @PermitAll
+    @Produces(MediaType.APPLICATION_JSON)
+    List<ChecksumIndexEntry> checksums(
+            @NotEmpty @Pattern(regexp = "^([a-f0-9]{32}|[a-f0-9]{40}|[a-f0-9]{64})$") @PathParam String checksum);
+
+    @GET
+    @Path("results/checksums/{checksum}")
+    @PermitAll
+    @Produces(MediaType.APPLICATION_JSON)
+    List<String> resultsByChecksum(
+            @NotEmpty @Pattern(regexp = "^([a-f0-9]{32}|[a-f0-9]{40}|[a-f0-9]{64})$") @PathParam String checksum);
+
+    @GET
+    @Path("results/gavs/{gav}")
+    @PermitAll
+    @Produces(MediaType.APPLICATION_JSON)
+    List<String> resultsByGav(@NotEmpty @Pattern(regexp = "^[^:]+:[^:]+:[^:]+$") @PathParam String gav);
+
+    @GET
+    @Path("results/npm/{npm: .+}")
+    @PermitAll
+    @Produces(MediaType.APPLICATION_JSON)
+    List<String> resultsByNpm(@NotEmpty @Pattern(regexp = "^.+@[^@]+$") @PathParam String npm);
+
+    @GET
+    @Path("results/builds/{build}")
+    @PermitAll
+    @Produces(MediaType.APPLICATION_JSON)
+    List<String> resultsByBuild(@NotEmpty @PathParam String build);
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.rest;
+
+import java.io.IOException;
+import java.util.List;
+
+import javax.annotation.security.PermitAll;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.validation.constraints.NotEmpty;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.InternalServerErrorException;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.SecurityContext;
+
+import org.eclipse.microprofile.openapi.annotations.Operation;
+import org.eclipse.microprofile.openapi.annotations.enums.SchemaType;
+import org.eclipse.microprofile.openapi.annotations.media.Content;
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
+import org.jboss.pnc.deliverablesanalyzer.koji.ChecksumLookup;
+import org.jboss.pnc.deliverablesanalyzer.model.LookupResult;
+import org.jboss.pnc.deliverablesanalyzer.scheduler.ClientShares;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.redhat.red.build.koji.KojiClientException;
+
+@ApplicationScoped
+@Path("lookup")
+public class LookupResource implements LookupService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LookupResource.class);
+
+    @Inject
+    ChecksumLookup checksumLookup;
+
+    @Inject
+    ClientShares clientShares;
+
+    @Context
+    HttpHeaders headers;
+
+    @Context
+    SecurityContext securityContext;
+
+    @Override
+    @Operation(
+            summary = "Look up checksums",
+            description = "Find the Koji archives and builds of a batch of MD5, SHA-1 or SHA-256 checksums.")
+    @APIResponse(
+            responseCode = "200",
+            description = "Archives and builds of each distinct checksum, in request order",
+            content = @Content(
+                    mediaType = MediaType.APPLICATION_JSON,
+                    schema = @Schema(type = SchemaType.ARRAY, implementation = LookupResult.class)))
+    @APIResponse(
+            responseCode = "400",
+            description = "Bad checksum or too many checksums.",
+            content = @Content(
+                    mediaType = MediaType.APPLICATION_JSON,
+                    schema = @Schema(implementation = ErrorMessage.class)))
+    @APIResponse(
+            responseCode = "500",
+            description = "Error during lookup.",
+            content = @Content(
+                    mediaType = MediaType.APPLICATION_JSON,
+                    schema = @Schema(implementation = ErrorMessage.class)))
+    @POST
+    @PermitAll
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public List<LookupResult> lookup(@NotEmpty List<String> checksums) {
+        var client = clientShares.get(
+                headers.getHeaderString(ClientShares.CLIENT_ID_HEADER),
+                securityContext.getUserPrincipal());
+
+        try {
+            return checksumLookup.lookup(checksums, client);
+        } catch (IOException | KojiClientException e) {
+            LOGGER.info("Checksum lookup failed. Returning Server Error", e);
+            throw new InternalServerErrorException(e);
+        }
+    }
+}
@@ -0,0 +1,366 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.scheduler;
+
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.ws.rs.ClientErrorException;
+import javax.ws.rs.core.Response;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.context.ManagedExecutor;
+import org.eclipse.microprofile.metrics.Gauge;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.eclipse.microprofile.metrics.Tag;
+import org.eclipse.microprofile.metrics.Timer;
+import org.jboss.pnc.deliverablesanalyzer.remote.RemoteFiles;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+@ApplicationScoped
+public class AnalysisScheduler {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AnalysisScheduler.class);
+
+    @ConfigProperty(name = "analyze.scheduler.max-concurrent", defaultValue = "8")
+    Integer maxConcurrent;
+
+    @ConfigProperty(name = "analyze.scheduler.small.max-size", defaultValue = "104857600")
+    Long smallMaxSize;
+
+    @ConfigProperty(name = "analyze.scheduler.large.min-size", defaultValue = "2147483648")
+    Long largeMinSize;
+
+    @ConfigProperty(name = "analyze.scheduler.small.reserved", defaultValue = "2")
+    Integer smallReserved;
+
+    @ConfigProperty(name = "analyze.scheduler.medium.reserved", defaultValue = "1")
+    Integer mediumReserved;
+
+    @ConfigProperty(name = "analyze.scheduler.large.reserved", defaultValue = "1")
+    Integer largeReserved;
+
+    @ConfigProperty(name = "analyze.scheduler.aging", defaultValue = "600000")
+    Long aging;
+
+    @Inject
+    ManagedExecutor pool;
+
+    @Inject
+    MetricRegistry registry;
+
+    @Inject
+    RemoteFiles remoteFiles;
+
+    private final Map<Lane, Deque<Job<?>>> queues = new EnumMap<>(Lane.class);
+
+    private final Map<Lane, Integer> reserved = new EnumMap<>(Lane.class);
+
+    private final Map<Lane, Integer> running = new EnumMap<>(Lane.class);
+
+    private final Map<Lane, Integer> reservedInUse = new EnumMap<>(Lane.class);
+
+    private final Map<Lane, Timer> queueWait = new EnumMap<>(Lane.class);
+
+    private int shared;
+
+    private int sharedInUse;
+
+    private double virtualTime;
+
+    private boolean paused;
+
+    @PostConstruct
+    void init() {
+        reserved.put(Lane.SMALL, smallReserved);
+        reserved.put(Lane.MEDIUM, mediumReserved);
+        reserved.put(Lane.LARGE, largeReserved);
+
+        shared = Math.max(0, maxConcurrent - smallReserved - mediumReserved - largeReserved);
+
+        for (var lane : Lane.values()) {
+            var tag = new Tag("lane", lane.getTag());
+
+            queues.put(lane, new ArrayDeque<>());
+            running.put(lane, 0);
+            reservedInUse.put(lane, 0);
+            queueWait.put(lane, registry.timer("analysisQueueWait", tag));
+            registry.register(
+                    Metadata.builder()
+                            .withName("analysisQueueLength")
+                            .withType(MetricType.GAUGE)
+                            .withUnit(MetricUnits.NONE)
+                            .withDescription("Analyses waiting in the lane")
+                            .build(),
+                    (Gauge<Integer>) () -> getQueued(lane),
+                    tag);
+        }
+    }
+
+    public Lane getLane(long size) {
+        if (size < 0L) {
+            return Lane.MEDIUM;
+        }
+
+        if (size <= smallMaxSize) {
+            return Lane.SMALL;
+        }
+
+        return size >= largeMinSize ? Lane.LARGE : Lane.MEDIUM;
+    }
+
+    public <T> CompletableFuture<T> submit(URI uri, Client client, Supplier<T> task) {
+        admit(client);
+
+        var future = new CompletableFuture<T>();
+
+        pool.runAsync(() -> {
+            var size = remoteFiles.head(uri).getSize();
+            var lane = getLane(size);
+
+            LOGGER.info(
+                    "Queueing analysis of {} for client {} with size {} in lane {}",
+                    uri,
+                    client.getId(),
+                    size,
+                    lane);
+
+            enqueue(new Job<>(lane, client, task, future));
+        }).exceptionally(e -> {
+            client.finished(false);
+            future.completeExceptionally(e);
+            return null;
+        });
+
+        return future;
+    }
+
+    <T> CompletableFuture<T> submit(Lane lane, Client client, Supplier<T> task) {
+        admit(client);
+
+        var future = new CompletableFuture<T>();
+
+        enqueue(new Job<>(lane, client, task, future));
+
+        return future;
+    }
+
+    private static void admit(Client client) {
+        if (!client.tryAdmit()) {
+            throw new ClientErrorException(
+                    "Client " + client.getId() + " has too many queued analyses",
+                    Response.Status.TOO_MANY_REQUESTS);
+        }
+    }
+
+    private synchronized void enqueue(Job<?> job) {
+        queues.get(job.lane).addLast(job);
+        // A cancelled analysis leaves the queue at once, so that it no longer counts for its client
+        job.future.whenComplete((result, error) -> dequeue(job));
+        dispatch();
+    }
+
+    private synchronized void dequeue(Job<?> job) {
+        if (queues.get(job.lane).remove(job)) {
+            job.client.finished(false);
+        }
+    }
+
+    /**
+     * Stops starting queued analyses. Running analyses are not affected.
+     */
+    public synchronized void pause() {
+        paused = true;
+    }
+
+    private synchronized void dispatch() {
+        if (paused) {
+            return;
+        }
+
+        var now = System.nanoTime();
+        var agingNanos = TimeUnit.MILLISECONDS.toNanos(aging);
+
+        while (true) {
+            var admitted = false;
+
+            for (var lane : Lane.values()) {
+                if (reservedInUse.get(lane) < reserved.get(lane)) {
+                    var job = next(lane, now, agingNanos);
+
+                    if (job != null) {
+                        start(job, false, now);
+                        admitted = true;
+                    }
+                }
+            }
+
+            if (admitted) {
+                continue;
+            }
+
+            if (sharedInUse >= shared) {
+                return;
+            }
+
+            var next = (Job<?>) null;
+
+            for (var lane : Lane.values()) {
+                var job = next(lane, now, agingNanos);
+
+                if (job != null && (next == null || job.isBefore(next, now, agingNanos))) {
+                    next = job;
+                }
+            }
+
+            if (next == null) {
+                return;
+            }
+
+            start(next, true, now);
+        }
+    }
+
+    /**
+     * Picks the next job of a lane. Jobs that have waited longer than the aging threshold go first, oldest first.
+     * Otherwise the job of the client with the smallest weighted virtual start time goes first, so that a client
+     * submitting many analyses gets no more than its share.
+     */
+    private Job<?> next(Lane lane, long now, long agingNanos) {
+        var best = (Job<?>) null;
+        var bestTag = 0.0D;
+
+        for (var job : queues.get(lane)) {
+            // A cancelled job is about to be dequeued
+            if (job.future.isDone() || !job.client.canStart()) {
+                continue;
+            }
+
+            var aged = now - job.enqueued >= agingNanos;
+
+            if (aged) {
+                return job;
+            }
+
+            var tag = job.client.getNextTag(virtualTime);
+
+            if (best == null || tag < bestTag) {
+                best = job;
+                bestTag = tag;
+            }
+        }
+
+        return best;
+    }
+
+    private void start(Job<?> job, boolean usesShared, long now) {
+        queues.get(job.lane).remove(job);
+        running.merge(job.lane, 1, Integer::sum);
+
+        if (usesShared) {
+            sharedInUse++;
+        } else {
+            reservedInUse.merge(job.lane, 1, Integer::sum);
+        }
+
+        virtualTime = Math.max(virtualTime, job.client.charge(virtualTime));
+        job.client.started();
+        queueWait.get(job.lane).update(now - job.enqueued, TimeUnit.NANOSECONDS);
+
+        job.run(pool, () -> finish(job, usesShared));
+    }
+
+    private synchronized void finish(Job<?> job, boolean usesShared) {
+        running.merge(job.lane, -1, Integer::sum);
+
+        if (usesShared) {
+            sharedInUse--;
+        } else {
+            reservedInUse.merge(job.lane, -1, Integer::sum);
+        }
+
+        job.client.finished(true);
+        dispatch();
+    }
+
+    public synchronized int getRunning() {
+        return running.values().stream().mapToInt(Integer::intValue).sum();
+    }
+
+    public synchronized int getQueued(Lane lane) {
+        return queues.get(lane).size();
+    }
+
+    private static final class Job<T> {
+        private final Lane lane;
+
+        private final Client client;
+
+        private final Supplier<T> task;
+
+        private final long enqueued = System.nanoTime();
+
+        private final CompletableFuture<T> future;
+
+        Job(Lane lane, Client client, Supplier<T> task, CompletableFuture<T> future) {
+            this.lane = lane;
+            this.client = client;
+            this.task = task;
+            this.future = future;
+        }
+
+        boolean isBefore(Job<?> other, long now, long agingNanos) {
+            var aged = now - enqueued >= agingNanos;
+            var otherAged = now - other.enqueued >= agingNanos;
+
+            if (aged != otherAged) {
+                return aged;
+            }
+
+            if (!aged && lane != other.lane) {
+                return lane.compareTo(other.lane) < 0;
+            }
+
+            return enqueued - other.enqueued < 0L;
+        }
+
+        void run(ManagedExecutor pool, Runnable onFinish) {
+            pool.supplyAsync(task).whenComplete((result, error) -> {
+                try {
+                    if (error != null) {
+                        future.completeExceptionally(error);
+                    } else {
+                        future.complete(result);
+                    }
+                } finally {
+                    onFinish.run();
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.scheduler;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.microprofile.metrics.Counter;
+import org.jboss.pnc.deliverablesanalyzer.resilience.Deadline;
+
+import com.redhat.red.build.koji.KojiClientException;
+
+public class Client {
+    private final String id;
+
+    private final double weight;
+
+    private final int maxConcurrent;
+
+    private final int maxQueued;
+
+    private final Semaphore kojiPermits;
+
+    private final AtomicInteger pending = new AtomicInteger();
+
+    private final AtomicInteger running = new AtomicInteger();
+
+    private final Counter submitted;
+
+    private final Counter rejected;
+
+    private final Counter kojiCalls;
+
+    private double virtualTime;
+
+    Client(
+            String id,
+            double weight,
+            int maxConcurrent,
+            int maxQueued,
+            int maxKojiInFlight,
+            Counter submitted,
+            Counter rejected,
+            Counter kojiCalls) {
+        this.id = id;
+        this.weight = weight;
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueued = maxQueued;
+        this.kojiPermits = maxKojiInFlight > 0 ? new Semaphore(maxKojiInFlight, true) : null;
+        this.submitted = submitted;
+        this.rejected = rejected;
+        this.kojiCalls = kojiCalls;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public double getWeight() {
+        return weight;
+    }
+
+    public int getRunning() {
+        return running.get();
+    }
+
+    public int getQueued() {
+        return pending.get() - running.get();
+    }
+
+    boolean tryAdmit() {
+        while (true) {
+            var current = pending.get();
+
+            if (maxQueued > 0 && current - running.get() >= maxQueued) {
+                rejected.inc();
+                return false;
+            }
+
+            if (pending.compareAndSet(current, current + 1)) {
+                submitted.inc();
+                return true;
+            }
+        }
+    }
+
+    boolean canStart() {
+        return maxConcurrent <= 0 || running.get() < maxConcurrent;
+    }
+
+    void started() {
+        running.incrementAndGet();
+    }
+
+    void finished(boolean wasStarted) {
+        if (wasStarted) {
+            running.decrementAndGet();
+        }
+
+        pending.decrementAndGet();
+    }
+
+    double getNextTag(double globalVirtualTime) {
+        return Math.max(virtualTime, globalVirtualTime) + 1.0D / weight;
+    }
+
+    double charge(double globalVirtualTime) {
+        var startTag = Math.max(virtualTime, globalVirtualTime);
+
+        virtualTime = startTag + 1.0D / weight;
+
+        return startTag;
+    }
+
+    public <T> T callKoji(Deadline deadline, KojiCall<T> call) throws KojiClientException {
+        kojiCalls.inc();
+
+        if (kojiPermits == null) {
+            return call.call();
+        }
+
+        try {
+            var waitMillis = Math.min(deadline.getRemainingMillis(), Long.MAX_VALUE / 2L);
+
+            if (!kojiPermits.tryAcquire(waitMillis, TimeUnit.MILLISECONDS)) {
+                throw new KojiClientException("Koji call budget of client %s exhausted before deadline", id);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new KojiClientException("Interrupted waiting for Koji call budget of client %s", e, id);
+        }
+
+        try {
+            return call.call();
+        } finally {
+            kojiPermits.release();
+        }
+    }
+
+    @FunctionalInterface
+    public interface KojiCall<T> {
+        T call() throws KojiClientException;
+    }
+}
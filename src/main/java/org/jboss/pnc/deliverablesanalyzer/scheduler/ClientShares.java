@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.scheduler;
+
+import java.security.Principal;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.metrics.Gauge;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.eclipse.microprofile.metrics.Tag;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+@ApplicationScoped
+public class ClientShares {
+    public static final String CLIENT_ID_HEADER = "X-Client-Id";
+
+    public static final String ANONYMOUS = "anonymous";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ClientShares.class);
+
+    private static final Pattern CLIENT_ID_PATTERN = Pattern.compile("[A-Za-z0-9._@-]{1,64}");
+
+    @ConfigProperty(name = "analyze.clients.weights")
+    Optional<String> weightsProperty;
+
+    @ConfigProperty(name = "analyze.clients.default-weight", defaultValue = "1")
+    Double defaultWeight;
+
+    @ConfigProperty(name = "analyze.clients.max-concurrent", defaultValue = "0")
+    Integer maxConcurrent;
+
+    @ConfigProperty(name = "analyze.clients.max-queued", defaultValue = "0")
+    Integer maxQueued;
+
+    @ConfigProperty(name = "analyze.clients.koji-max-in-flight", defaultValue = "0")
+    Integer kojiMaxInFlight;
+
+    @ConfigProperty(name = "analyze.clients.max-tracked", defaultValue = "100")
+    Integer maxTracked;
+
+    @Inject
+    MetricRegistry registry;
+
+    private final Map<String, Double> weights = new HashMap<>();
+
+    private final Map<String, Client> clients = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void init() {
+        weightsProperty.ifPresent(property -> {
+            for (var entry : property.split(",")) {
+                var pair = entry.split("=", 2);
+
+                if (pair.length != 2) {
+                    LOGGER.warn("Ignoring client weight without '=': {}", entry);
+                    continue;
+                }
+
+                try {
+                    var weight = Double.parseDouble(pair[1].trim());
+
+                    if (weight > 0.0D) {
+                        weights.put(pair[0].trim(), weight);
+                    } else {
+                        LOGGER.warn("Ignoring non-positive client weight: {}", entry);
+                    }
+                } catch (NumberFormatException e) {
+                    LOGGER.warn("Ignoring invalid client weight: {}", entry);
+                }
+            }
+        });
+    }
+
+    public Client get(String header, Principal principal) {
+        var id = header != null && !header.isBlank() ? header.trim() : null;
+
+        if (id == null && principal != null) {
+            id = principal.getName();
+        }
+
+        if (id == null || !CLIENT_ID_PATTERN.matcher(id).matches()) {
+            id = ANONYMOUS;
+        }
+
+        if (!clients.containsKey(id) && !weights.containsKey(id) && clients.size() >= maxTracked) {
+            LOGGER.debug("Tracking too many clients, treating {} as {}", id, ANONYMOUS);
+            id = ANONYMOUS;
+        }
+
+        return clients.computeIfAbsent(id, this::create);
+    }
+
+    private Client create(String id) {
+        var tag = new Tag("client", id);
+        var weight = weights.getOrDefault(id, defaultWeight);
+        var kojiPermits = kojiMaxInFlight > 0 ? Math.max(1, (int) Math.round(kojiMaxInFlight * weight)) : 0;
+        var client = new Client(
+                id,
+                weight,
+                maxConcurrent > 0 ? Math.max(1, (int) Math.round(maxConcurrent * weight)) : 0,
+                maxQueued > 0 ? Math.max(1, (int) Math.round(maxQueued * weight)) : 0,
+                kojiPermits,
+                registry.counter("clientAnalysesSubmitted", tag),
+                registry.counter("clientAnalysesRejected", tag),
+                registry.counter("clientKojiCalls", tag));
+
+        registry.register(gauge("clientAnalysesRunning"), (Gauge<Integer>) client::getRunning, tag);
+        registry.register(gauge("clientAnalysesQueued"), (Gauge<Integer>) client::getQueued, tag);
+
+        LOGGER.info("Tracking client {} with weight {}", id, weight);
+
+        return client;
+    }
+
+    private static Metadata gauge(String name) {
+        return Metadata.builder().withName(name).withType(MetricType.GAUGE).withUnit(MetricUnits.NONE).build();
+    }
+}
@@ -0,0 +1,323 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.store;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.eclipse.microprofile.metrics.annotation.Gauge;
+import org.jboss.pnc.build.finder.core.ConfigDefaults;
+import org.jboss.pnc.deliverablesanalyzer.model.Artifact;
+import org.jboss.pnc.deliverablesanalyzer.model.FinderResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Inverted index from the checksums, Maven GAVs, npm packages and builds in stored results to the ids of the results
+ * that contain them. It is held in memory and persisted as an append-only log with one line per stored result, which
+ * is compacted on startup.
+ */
+@ApplicationScoped
+public class ResultIndex {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ResultIndex.class);
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    public enum Kind {
+        CHECKSUM("checksum:"), GAV("gav:"), NPM("npm:"), BUILD("build:");
+
+        private final String prefix;
+
+        Kind(String prefix) {
+            this.prefix = prefix;
+        }
+
+        public String getKey(String value) {
+            return prefix + (this == CHECKSUM ? value.toLowerCase(Locale.ROOT) : value);
+        }
+    }
+
+    @ConfigProperty(name = "analyze.results.store.enabled", defaultValue = "true")
+    Boolean enabled;
+
+    Path file = getIndexFile();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, Set<String>> postings = new HashMap<>();
+
+    private final Map<String, List<String>> keysById = new HashMap<>();
+
+    private FileChannel channel;
+
+    public static Path getIndexFile() {
+        return Paths.get(ConfigDefaults.CONFIG_PATH, "results-index", "results.jsonl");
+    }
+
+    @PostConstruct
+    void init() {
+        if (!enabled) {
+            return;
+        }
+
+        try {
+            Files.createDirectories(file.getParent());
+
+            if (Files.exists(file)) {
+                read(file);
+            }
+
+            rewrite(file);
+
+            channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            LOGGER.error("Failed to open result index {}, keeping it in memory only: {}", file, e.getMessage(), e);
+        }
+
+        LOGGER.info("Loaded result index of {} results with {} keys", keysById.size(), postings.size());
+    }
+
+    private void read(Path file) throws IOException {
+        try (var lines = Files.lines(file, UTF_8)) {
+            lines.filter(line -> !line.isBlank()).forEach(line -> {
+                try {
+                    apply(MAPPER.readValue(line, ResultIndexEntry.class));
+                } catch (JsonProcessingException e) {
+                    // A crash while appending leaves a truncated last line
+                    LOGGER.warn("Skipping unreadable result index line: {}", e.getOriginalMessage());
+                }
+            });
+        }
+    }
+
+    private void rewrite(Path file) throws IOException {
+        var tmp = file.resolveSibling(file.getFileName() + ".tmp");
+
+        try (var out = FileChannel.open(
+                tmp,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (var entry : keysById.entrySet()) {
+                write(out, new ResultIndexEntry(entry.getKey(), entry.getValue()));
+            }
+
+            out.force(true);
+        }
+
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void write(FileChannel out, ResultIndexEntry entry) throws IOException {
+        var buffer = ByteBuffer.wrap((MAPPER.writeValueAsString(entry) + "\n").getBytes(UTF_8));
+
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+    }
+
+    private void apply(ResultIndexEntry entry) {
+        if (entry.getId() == null) {
+            return;
+        }
+
+        var id = entry.getId();
+        var old = keysById.remove(id);
+
+        if (old != null) {
+            for (var key : old) {
+                var ids = postings.get(key);
+
+                if (ids != null && ids.remove(id) && ids.isEmpty()) {
+                    postings.remove(key);
+                }
+            }
+        }
+
+        if (entry.getKeys().isEmpty()) {
+            return;
+        }
+
+        keysById.put(id, entry.getKeys());
+
+        for (var key : entry.getKeys()) {
+            postings.computeIfAbsent(key, k -> new HashSet<>(2)).add(id);
+        }
+    }
+
+    private void append(ResultIndexEntry entry) {
+        lock.writeLock().lock();
+
+        try {
+            apply(entry);
+
+            if (channel != null) {
+                write(channel, entry);
+            }
+        } catch (IOException e) {
+            LOGGER.error("Failed to append result {} to result index", entry.getId(), e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the keys of everything a result contains.
+     */
+    static List<String> getKeys(FinderResult result) {
+        var keys = new LinkedHashSet<String>();
+
+        for (var build : result.getBuilds()) {
+            if (build.getIdentifier() != null) {
+                keys.add(Kind.BUILD.getKey(build.getIdentifier()));
+            }
+
+            build.getArtifacts().forEach(artifact -> addKeys(keys, artifact));
+        }
+
+        result.getNotFoundArtifacts().forEach(artifact -> addKeys(keys, artifact));
+
+        return new ArrayList<>(keys);
+    }
+
+    private static void addKeys(Set<String> keys, Artifact artifact) {
+        for (var checksum : new String[] { artifact.getMd5(), artifact.getSha1(), artifact.getSha256() }) {
+            if (checksum != null) {
+                keys.add(Kind.CHECKSUM.getKey(checksum));
+            }
+        }
+
+        var mavenArtifact = artifact.getMavenArtifact();
+
+        if (mavenArtifact != null) {
+            keys.add(
+                    Kind.GAV.getKey(
+                            mavenArtifact.getGroupId() + ":" + mavenArtifact.getArtifactId() + ":"
+                                    + mavenArtifact.getVersion()));
+        }
+
+        var npmArtifact = artifact.getNpmArtifact();
+
+        if (npmArtifact != null) {
+            keys.add(Kind.NPM.getKey(npmArtifact.getName() + "@" + npmArtifact.getVersion()));
+        }
+    }
+
+    public void add(String id, FinderResult result) {
+        if (!enabled) {
+            return;
+        }
+
+        append(new ResultIndexEntry(id, getKeys(result)));
+    }
+
+    public void remove(String id) {
+        if (!enabled || !contains(id)) {
+            return;
+        }
+
+        append(new ResultIndexEntry(id, List.of()));
+    }
+
+    public boolean contains(String id) {
+        lock.readLock().lock();
+
+        try {
+            return keysById.containsKey(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the ids of the stored results that contain a checksum, a GAV, an npm package or a build.
+     *
+     * @return the result ids in ascending order
+     */
+    public List<String> find(Kind kind, String value) {
+        lock.readLock().lock();
+
+        try {
+            var ids = postings.get(kind.getKey(value));
+
+            if (ids == null) {
+                return List.of();
+            }
+
+            var sorted = new ArrayList<>(ids);
+
+            sorted.sort(null);
+
+            return sorted;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Gauge(name = "resultIndexKeys", unit = MetricUnits.NONE, description = "Distinct keys in the result index")
+    public int getKeyCount() {
+        lock.readLock().lock();
+
+        try {
+            return postings.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @PreDestroy
+    void close() {
+        lock.writeLock().lock();
+
+        try {
+            if (channel != null) {
+                channel.close();
+                channel = null;
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Failed to close result index", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.store;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+/**
+ * One line of the {@link ResultIndex} log: all keys of a result, replacing any earlier line for the same id. No
+ * keys means that the result was deleted.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ResultIndexEntry {
+    private String id;
+
+    private List<String> keys = new ArrayList<>();
+
+    public ResultIndexEntry() {
+    }
+
+    public ResultIndexEntry(String id, List<String> keys) {
+        this.id = id;
+        this.keys = keys;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public List<String> getKeys() {
+        return keys;
+    }
+
+    public void setKeys(List<String> keys) {
+        this.keys = keys;
+    }
+}
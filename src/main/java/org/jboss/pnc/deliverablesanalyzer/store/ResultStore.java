@@ -0,0 +1,339 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.store;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.eclipse.microprofile.metrics.annotation.Gauge;
+import org.jboss.pnc.build.finder.core.ChecksumType;
+import org.jboss.pnc.build.finder.core.ConfigDefaults;
+import org.jboss.pnc.deliverablesanalyzer.checkpoint.Checkpoint;
+import org.jboss.pnc.deliverablesanalyzer.checkpoint.Checkpoints;
+import org.jboss.pnc.deliverablesanalyzer.model.FinderResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Completed results kept on disk, one directory per analysis id, together with the checksums and lookups they were
+ * computed from so that the lookups can be repeated without hashing again or reused by later analyses.
+ */
+@ApplicationScoped
+public class ResultStore {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ResultStore.class);
+
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+    private static final String META_FILE = "meta.json";
+
+    private static final String RESULT_FILE = "result.json";
+
+    private static final List<ChecksumType> CONTENT_CHECKSUM_TYPES =
+            List.of(ChecksumType.sha256, ChecksumType.sha1, ChecksumType.md5);
+
+    private static final long MAX_EVICTION_PERIOD = 3600000L;
+
+    @ConfigProperty(name = "analyze.results.store.enabled", defaultValue = "true")
+    Boolean enabled;
+
+    @ConfigProperty(name = "analyze.results.store.ttl", defaultValue = "604800000")
+    Long ttl;
+
+    @Inject
+    ResultIndex resultIndex;
+
+    Path directory = getResultDirectory();
+
+    // Several ids share a content key when the same file was stored for several URLs or uploads
+    private final Map<String, Set<String>> contentIndex = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService evictor;
+
+    @PostConstruct
+    void init() {
+        if (!enabled) {
+            return;
+        }
+
+        if (Files.isDirectory(directory)) {
+            for (var meta : getMetas()) {
+                if (isExpired(meta)) {
+                    LOGGER.info("Deleting stored result {} not refreshed for {} ms", meta.getId(), ttl);
+                    delete(meta.getId());
+                    continue;
+                }
+
+                index(meta);
+
+                // Results stored before the result index existed, or before a crash, are indexed now
+                if (!resultIndex.contains(meta.getId())) {
+                    var result = getResult(meta.getId());
+
+                    if (result != null) {
+                        resultIndex.add(meta.getId(), result);
+                    }
+                }
+            }
+
+            LOGGER.info("Indexed {} content checksums of stored results", contentIndex.size());
+        }
+
+        if (ttl > 0L) {
+            evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+                var thread = new Thread(r, "result-store-evictor");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+            var period = Math.max(1000L, Math.min(MAX_EVICTION_PERIOD, ttl / 2L));
+
+            evictor.scheduleWithFixedDelay(this::evictExpired, period, period, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private List<StoredResult> getMetas() {
+        try (var paths = Files.list(directory)) {
+            return paths.map(path -> getMeta(path.getFileName().toString()))
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            LOGGER.warn("Failed to list stored results in {}", directory, e);
+            return List.of();
+        }
+    }
+
+    /**
+     * Whether a stored result was neither stored nor refreshed within the retention time. Served results are
+     * refreshed after {@code analyze.results.refresh-after}, so results that are still used are kept.
+     */
+    boolean isExpired(StoredResult meta) {
+        return ttl > 0L && System.currentTimeMillis() - Math.max(meta.getStoredAt(), meta.getRefreshedAt()) > ttl;
+    }
+
+    void evictExpired() {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+
+        var evicted = 0;
+
+        for (var meta : getMetas()) {
+            if (isExpired(meta) && deleteIfExpired(meta.getId())) {
+                evicted++;
+            }
+        }
+
+        if (evicted > 0) {
+            LOGGER.info("Deleted {} stored results not refreshed for {} ms", evicted, ttl);
+        }
+    }
+
+    // Checked again under the lock, in case the result was refreshed since it was listed
+    private synchronized boolean deleteIfExpired(String id) {
+        var meta = getMeta(id);
+
+        return meta != null && isExpired(meta) && delete(id);
+    }
+
+    private static String getContentKey(String checksumType, String checksum) {
+        return checksumType + ":" + checksum;
+    }
+
+    private void index(StoredResult meta) {
+        meta.getContentChecksums()
+                .forEach(
+                        (type, checksum) -> contentIndex
+                                .computeIfAbsent(getContentKey(type, checksum), k -> ConcurrentHashMap.newKeySet())
+                                .add(meta.getId()));
+    }
+
+    private void unindex(String id) {
+        contentIndex.values().forEach(ids -> ids.remove(id));
+        contentIndex.values().removeIf(Set::isEmpty);
+    }
+
+    public static Path getResultDirectory() {
+        return Paths.get(ConfigDefaults.CONFIG_PATH, "results");
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public synchronized void save(StoredResult meta, FinderResult result, Checkpoint checkpoint) {
+        if (!enabled) {
+            return;
+        }
+
+        var resultDirectory = directory.resolve(meta.getId());
+
+        try {
+            Files.createDirectories(resultDirectory);
+
+            if (checkpoint != null) {
+                Checkpoints.write(resultDirectory, checkpoint);
+            }
+
+            write(resultDirectory.resolve(RESULT_FILE), result);
+            // Written last, so that a result without metadata is never served
+            write(resultDirectory.resolve(META_FILE), meta);
+            unindex(meta.getId());
+            index(meta);
+            resultIndex.add(meta.getId(), result);
+
+            LOGGER.info("Stored result {} of {}", meta.getId(), meta.getUrl());
+        } catch (IOException e) {
+            LOGGER.warn("Failed to store result {}: {}", meta.getId(), e.getMessage(), e);
+        }
+    }
+
+    private static void write(Path file, Object value) throws IOException {
+        var tmp = file.resolveSibling(file.getFileName() + ".tmp");
+
+        MAPPER.writeValue(tmp.toFile(), value);
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private <T> T read(String id, String filename, Class<T> type) {
+        if (!enabled) {
+            return null;
+        }
+
+        var file = directory.resolve(id).resolve(filename);
+
+        if (!Files.exists(file)) {
+            return null;
+        }
+
+        try {
+            return MAPPER.readValue(file.toFile(), type);
+        } catch (IOException e) {
+            LOGGER.warn("Ignoring unreadable stored {} of result {}: {}", filename, id, e.getMessage(), e);
+            return null;
+        }
+    }
+
+    public StoredResult getMeta(String id) {
+        return read(id, META_FILE, StoredResult.class);
+    }
+
+    public FinderResult getResult(String id) {
+        return read(id, RESULT_FILE, FinderResult.class);
+    }
+
+    /**
+     * Gets the checksums and the Koji and PNC lookups that a stored result was made from.
+     */
+    public Checkpoint getCheckpoint(String id) {
+        var resultDirectory = directory.resolve(id);
+
+        if (!enabled || !Files.isDirectory(resultDirectory)) {
+            return null;
+        }
+
+        try {
+            return Checkpoints.read(resultDirectory);
+        } catch (IOException e) {
+            LOGGER.warn("Ignoring unreadable stored lookups of result {}: {}", id, e.getMessage(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Finds a stored result of a file with any of the given checksums that was made with the same build config.
+     */
+    public StoredResult findByContent(Map<String, String> checksums, String configDigest) {
+        for (var checksumType : CONTENT_CHECKSUM_TYPES) {
+            var checksum = checksums.get(checksumType.name());
+            var ids = checksum != null ? contentIndex.get(getContentKey(checksumType.name(), checksum)) : null;
+
+            if (ids == null) {
+                continue;
+            }
+
+            for (var id : ids) {
+                var meta = getMeta(id);
+
+                if (meta != null && configDigest.equals(meta.getConfigDigest()) && !isExpired(meta)) {
+                    return meta;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    @Gauge(name = "contentIndexEntries", unit = MetricUnits.NONE, description = "Indexed content checksums")
+    public int getContentIndexSize() {
+        return contentIndex.size();
+    }
+
+    public synchronized boolean delete(String id) {
+        unindex(id);
+        resultIndex.remove(id);
+
+        var resultDirectory = directory.resolve(id);
+
+        if (!Files.isDirectory(resultDirectory)) {
+            return false;
+        }
+
+        try (var paths = Files.walk(resultDirectory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.delete(path);
+                } catch (IOException e) {
+                    LOGGER.warn("Failed to delete stored result file {}", path, e);
+                }
+            });
+        } catch (IOException e) {
+            LOGGER.warn("Failed to delete stored result {}", id, e);
+        }
+
+        return true;
+    }
+
+    @PreDestroy
+    void close() {
+        if (evictor != null) {
+            evictor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.store;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.jboss.pnc.deliverablesanalyzer.remote.RemoteFileInfo;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.PropertyNamingStrategy;
+import com.fasterxml.jackson.databind.annotation.JsonNaming;
+
+/**
+ * Metadata of a result in the {@link ResultStore}: where it came from, which build config produced it, and what the
+ * remote file looked like when it was analyzed.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonNaming(PropertyNamingStrategy.SnakeCaseStrategy.class)
+public class StoredResult {
+    private String id;
+
+    private String url;
+
+    private String configDigest;
+
+    private RemoteFileInfo remote;
+
+    private Map<String, String> contentChecksums = new TreeMap<>();
+
+    private long storedAt;
+
+    private long refreshedAt;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public void setUrl(String url) {
+        this.url = url;
+    }
+
+    public String getConfigDigest() {
+        return configDigest;
+    }
+
+    public void setConfigDigest(String configDigest) {
+        this.configDigest = configDigest;
+    }
+
+    public RemoteFileInfo getRemote() {
+        return remote;
+    }
+
+    public void setRemote(RemoteFileInfo remote) {
+        this.remote = remote;
+    }
+
+    /**
+     * Checksums of the analyzed file itself, keyed by checksum type name.
+     */
+    public Map<String, String> getContentChecksums() {
+        return contentChecksums;
+    }
+
+    public void setContentChecksums(Map<String, String> contentChecksums) {
+        this.contentChecksums = contentChecksums;
+    }
+
+    public long getStoredAt() {
+        return storedAt;
+    }
+
+    public void setStoredAt(long storedAt) {
+        this.storedAt = storedAt;
+    }
+
+    public long getRefreshedAt() {
+        return refreshedAt;
+    }
+
+    public void setRefreshedAt(long refreshedAt) {
+        this.refreshedAt = refreshedAt;
+    }
+}
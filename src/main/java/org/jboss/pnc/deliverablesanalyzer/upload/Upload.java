@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.upload;
+
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * An uploaded file on disk, with the checksums computed while it was received.
+ */
+public class Upload {
+    private final Path path;
+
+    private final long size;
+
+    private final Map<String, String> checksums;
+
+    public Upload(Path path, long size, Map<String, String> checksums) {
+        this.path = path;
+        this.size = size;
+        this.checksums = checksums;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Gets the checksums of the whole file, keyed by checksum type name.
+     */
+    public Map<String, String> getChecksums() {
+        return checksums;
+    }
+}
@@ -0,0 +1,260 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.upload;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.ws.rs.ClientErrorException;
+import javax.ws.rs.ServiceUnavailableException;
+import javax.ws.rs.core.Response;
+
+import org.apache.commons.codec.binary.Hex;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.metrics.Counter;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.eclipse.microprofile.metrics.annotation.Gauge;
+import org.jboss.pnc.build.finder.core.ChecksumType;
+import org.jboss.pnc.build.finder.core.ConfigDefaults;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Receives uploaded files. The bytes are hashed as they arrive and written once to disk, where the distribution
+ * analyzer opens the file and extracts any nested archives.
+ */
+@ApplicationScoped
+public class Uploads {
+    private static final Logger LOGGER = LoggerFactory.getLogger(Uploads.class);
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private static final long RETRY_AFTER_SECONDS = 30L;
+
+    @ConfigProperty(name = "analyze.upload.max-size", defaultValue = "10737418240")
+    Long maxSize;
+
+    @ConfigProperty(name = "analyze.upload.max-concurrent", defaultValue = "4")
+    Integer maxConcurrent;
+
+    @ConfigProperty(name = "analyze.upload.wait", defaultValue = "10000")
+    Long wait;
+
+    @Inject
+    MetricRegistry registry;
+
+    Path directory = getUploadDirectory().toAbsolutePath();
+
+    /**
+     * Analyses using each upload. Concurrent uploads of the same content under the same name share one file.
+     */
+    private final Map<Path, Integer> references = new HashMap<>();
+
+    private Semaphore permits;
+
+    private Counter uploadedBytes;
+
+    @PostConstruct
+    void init() {
+        permits = new Semaphore(maxConcurrent, true);
+        uploadedBytes = registry.counter("uploadedBytes");
+    }
+
+    public static Path getUploadDirectory() {
+        return Paths.get(ConfigDefaults.CONFIG_PATH, "uploads");
+    }
+
+    public boolean isUpload(URI uri) {
+        return "file".equals(uri.getScheme()) && Paths.get(uri).startsWith(directory);
+    }
+
+    private static Map<ChecksumType, MessageDigest> createDigests() {
+        var digests = new EnumMap<ChecksumType, MessageDigest>(ChecksumType.class);
+
+        try {
+            digests.put(ChecksumType.md5, MessageDigest.getInstance("MD5"));
+            digests.put(ChecksumType.sha1, MessageDigest.getInstance("SHA-1"));
+            digests.put(ChecksumType.sha256, MessageDigest.getInstance("SHA-256"));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+
+        return digests;
+    }
+
+    /**
+     * Receives an upload. At most {@code analyze.upload.max-concurrent} uploads are received at once, and a caller
+     * that cannot start one within {@code analyze.upload.wait} milliseconds is told to retry later. An upload is
+     * stored under the SHA-256 of its content, so the same file uploaded twice is kept once.
+     */
+    public Upload receive(InputStream in, String filename) throws IOException {
+        try {
+            if (!permits.tryAcquire(wait, TimeUnit.MILLISECONDS)) {
+                throw new ServiceUnavailableException("Too many uploads in progress", RETRY_AFTER_SECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException("Interrupted waiting to receive upload", RETRY_AFTER_SECONDS);
+        }
+
+        try {
+            return write(in, filename);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private Upload write(InputStream in, String filename) throws IOException {
+        Files.createDirectories(directory);
+
+        var tmp = Files.createTempFile(directory, "upload-", ".part");
+        var digests = createDigests();
+        var size = 0L;
+
+        try {
+            try (var out = FileChannel.open(tmp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                var bytes = new byte[BUFFER_SIZE];
+                var read = 0;
+
+                while ((read = in.read(bytes)) != -1) {
+                    size += read;
+
+                    if (size > maxSize) {
+                        throw new ClientErrorException(
+                                "Upload is larger than " + maxSize + " bytes",
+                                Response.Status.REQUEST_ENTITY_TOO_LARGE);
+                    }
+
+                    for (var digest : digests.values()) {
+                        digest.update(bytes, 0, read);
+                    }
+
+                    var buffer = ByteBuffer.wrap(bytes, 0, read);
+
+                    while (buffer.hasRemaining()) {
+                        out.write(buffer);
+                    }
+
+                    uploadedBytes.inc(read);
+                }
+            }
+
+            var checksums = new TreeMap<String, String>();
+
+            digests.forEach((type, digest) -> checksums.put(type.name(), Hex.encodeHexString(digest.digest())));
+
+            var sha256 = checksums.get(ChecksumType.sha256.name());
+            var target = directory.resolve(sha256).resolve(filename);
+
+            synchronized (references) {
+                Files.createDirectories(target.getParent());
+
+                // The same content under the same name is only kept once
+                if (!Files.exists(target)) {
+                    Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+                }
+
+                references.merge(target, 1, Integer::sum);
+            }
+
+            LOGGER.info("Received upload {} of {} bytes with SHA-256 {}", filename, size, sha256);
+
+            return new Upload(target, size, checksums);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Counts a replayed analysis as using the upload it was submitted with before a restart.
+     *
+     * @return whether the uploaded file still exists
+     */
+    public boolean retain(URI uri) {
+        if (!isUpload(uri)) {
+            return false;
+        }
+
+        var file = Paths.get(uri);
+
+        synchronized (references) {
+            if (!Files.isRegularFile(file)) {
+                return false;
+            }
+
+            references.merge(file, 1, Integer::sum);
+        }
+
+        return true;
+    }
+
+    /**
+     * Deletes an uploaded file once no analysis needs it any more, and its directory once no other upload of the
+     * same content is in it. An upload received before a restart that no replayed analysis retained counts as used
+     * by one analysis.
+     */
+    public void delete(URI uri) {
+        if (!isUpload(uri)) {
+            return;
+        }
+
+        var file = Paths.get(uri);
+
+        synchronized (references) {
+            var remaining = references.computeIfPresent(file, (k, count) -> count > 1 ? count - 1 : null);
+
+            if (remaining != null) {
+                LOGGER.debug("Keeping upload {} still used by {} analyses", file, remaining);
+                return;
+            }
+
+            try {
+                Files.deleteIfExists(file);
+                Files.deleteIfExists(file.getParent());
+            } catch (DirectoryNotEmptyException e) {
+                LOGGER.debug("Keeping upload directory {} with other uploads of the same content", file.getParent());
+            } catch (IOException e) {
+                LOGGER.warn("Failed to delete upload {}", file, e);
+            }
+        }
+    }
+
+    @Gauge(name = "uploadsInProgress", unit = MetricUnits.NONE, description = "Uploads being received")
+    public int getInProgress() {
+        return maxConcurrent - permits.availablePermits();
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.cache;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BloomFilterTest {
+    private static final int INSERTIONS = 100000;
+
+    private static final double FALSE_POSITIVE_PROBABILITY = 0.01D;
+
+    private static String checksum(String prefix, int i) {
+        return DigestUtils.md5Hex(prefix + i);
+    }
+
+    private static BloomFilter newFilter() {
+        var filter = new BloomFilter(INSERTIONS, FALSE_POSITIVE_PROBABILITY);
+
+        for (var i = 0; i < INSERTIONS; i++) {
+            filter.put(checksum("known", i));
+        }
+
+        return filter;
+    }
+
+    @Test
+    void testNoFalseNegatives() {
+        var filter = newFilter();
+
+        for (var i = 0; i < INSERTIONS; i++) {
+            assertThat(filter.mightContain(checksum("known", i)), is(true));
+        }
+    }
+
+    @Test
+    void testFalsePositiveRate() {
+        var filter = newFilter();
+        var falsePositives = 0;
+
+        for (var i = 0; i < INSERTIONS; i++) {
+            if (filter.mightContain(checksum("unknown", i))) {
+                falsePositives++;
+            }
+        }
+
+        var rate = (double) falsePositives / (double) INSERTIONS;
+
+        assertThat(rate, lessThan(2.0D * FALSE_POSITIVE_PROBABILITY));
+        assertThat(filter.getExpectedFalsePositiveProbability(), closeTo(FALSE_POSITIVE_PROBABILITY, 0.005D));
+    }
+
+    @Test
+    void testShortAndNonHexKeys() {
+        var filter = new BloomFilter(10L, FALSE_POSITIVE_PROBABILITY);
+
+        filter.put("abc");
+        filter.put("not a checksum at all, but long enough to be parsed");
+
+        assertThat(filter.mightContain("abc"), is(true));
+        assertThat(filter.mightContain("not a checksum at all, but long enough to be parsed"), is(true));
+    }
+
+    @Test
+    void testSaveAndLoad(@TempDir Path directory) throws IOException {
+        var filter = newFilter();
+        var path = directory.resolve("checksums.bloom");
+
+        filter.save(path);
+
+        var loaded = BloomFilter.load(path);
+
+        for (var i = 0; i < INSERTIONS; i++) {
+            assertThat(loaded.mightContain(checksum("known", i)), is(true));
+            assertThat(loaded.mightContain(checksum("unknown", i)), is(filter.mightContain(checksum("unknown", i))));
+        }
+
+        assertThat(loaded.getExpectedFalsePositiveProbability(), is(filter.getExpectedFalsePositiveProbability()));
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.cache;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+class NearCacheTest {
+    private static final String CACHE = "checksums-md5";
+
+    private static NearCache newNearCache() {
+        return new NearCache(100L, Duration.ofHours(1L));
+    }
+
+    @Test
+    void testPutsValueReadWithoutWrite() {
+        var nearCache = newNearCache();
+        var generation = nearCache.generation(CACHE, "key");
+
+        nearCache.put(CACHE, "key", "value", generation);
+
+        assertThat(nearCache.get(CACHE, "key"), is("value"));
+    }
+
+    @Test
+    void testSkipsValueReadBeforeWrite() {
+        var nearCache = newNearCache();
+        var generation = nearCache.generation(CACHE, "key");
+
+        // The writer invalidates after its write, before the reader inserts what it read earlier
+        nearCache.invalidate(CACHE, "key");
+        nearCache.put(CACHE, "key", "stale", generation);
+
+        assertThat(nearCache.get(CACHE, "key"), is(nullValue()));
+    }
+
+    @Test
+    void testSkipsValueReadBeforeClear() {
+        var nearCache = newNearCache();
+        var generation = nearCache.generation(CACHE, "key");
+
+        nearCache.invalidateAll(CACHE);
+        nearCache.put(CACHE, "key", "stale", generation);
+
+        assertThat(nearCache.get(CACHE, "key"), is(nullValue()));
+    }
+
+    @Test
+    void testKeepsOtherCachesApart() {
+        var nearCache = newNearCache();
+
+        nearCache.put(CACHE, "key", "md5", nearCache.generation(CACHE, "key"));
+        nearCache.put("checksums-sha1", "key", "sha1", nearCache.generation("checksums-sha1", "key"));
+        nearCache.invalidateAll("checksums-sha1");
+
+        assertThat(nearCache.get(CACHE, "key"), is("md5"));
+        assertThat(nearCache.get("checksums-sha1", "key"), is(nullValue()));
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.infinispan.Cache;
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.infinispan.manager.DefaultCacheManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares lookups of a checksum cache backed by a single file store, as set up by {@link Caches}, with and without
+ * the near cache in front of it. Only a tenth of the keys fit in memory, as with a large persistent cache. Run
+ * through {@link #main} from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class NearCachedCacheBenchmark {
+    @Param({ "10000" })
+    int keys;
+
+    private Path location;
+
+    private DefaultCacheManager manager;
+
+    private Cache<Object, Object> store;
+
+    private Cache<Object, Object> nearCached;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        location = Files.createTempDirectory("near-cache-benchmark");
+        manager = new DefaultCacheManager();
+        manager.defineConfiguration(
+                "checksums-md5",
+                new ConfigurationBuilder().memory()
+                        .size(keys / 10L)
+                        .persistence()
+                        .passivation(false)
+                        .addSingleFileStore()
+                        .location(location.toString())
+                        .build());
+        store = manager.getCache("checksums-md5");
+
+        for (var i = 0; i < keys; i++) {
+            store.put(key(i), "archive-" + i);
+        }
+
+        nearCached = new NearCache(keys, Duration.ofHours(1L)).decorate("checksums-md5", store);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        manager.close();
+
+        try (var paths = Files.walk(location)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    private static String key(int i) {
+        return String.format("%032x", i);
+    }
+
+    private String randomKey() {
+        return key(ThreadLocalRandom.current().nextInt(keys));
+    }
+
+    @Benchmark
+    public Object storeGet() {
+        return store.get(randomKey());
+    }
+
+    @Benchmark
+    public Object nearCachedGet() {
+        return nearCached.get(randomKey());
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(NearCachedCacheBenchmark.class.getSimpleName()).build()).run();
+    }
+}
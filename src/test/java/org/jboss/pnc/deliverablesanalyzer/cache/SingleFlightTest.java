@@ -0,0 +1,293 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.cache;
+
+import static org.awaitility.Awaitility.await;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.eclipse.microprofile.metrics.Counter;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.jboss.pnc.deliverablesanalyzer.resilience.Deadline;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.smallrye.metrics.MetricRegistries;
+
+class SingleFlightTest {
+    private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+    private ExecutorService executor;
+
+    private Counter coalesced;
+
+    private SingleFlight<String, String> singleFlight;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newCachedThreadPool();
+        coalesced = MetricRegistries.get(MetricRegistry.Type.APPLICATION)
+                .counter("testCoalescedCalls" + SEQUENCE.incrementAndGet());
+        singleFlight = new SingleFlight<>(coalesced);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private static IOException aborted(String violation) {
+        return new IOException("aborted: " + violation);
+    }
+
+    private static void block(CountDownLatch release) throws IOException {
+        try {
+            release.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+    }
+
+    private String executeNow(String key, Deadline deadline, SingleFlight.Call<String, IOException> call)
+            throws IOException {
+        return singleFlight.execute(key, deadline, IOException.class, SingleFlightTest::aborted, call);
+    }
+
+    private Future<String> execute(String key, Deadline deadline, SingleFlight.Call<String, IOException> call) {
+        return executor.submit(() -> executeNow(key, deadline, call));
+    }
+
+    private Future<String> startLeader(String key, CountDownLatch release, String value) {
+        return execute(key, Deadline.none(), () -> {
+            block(release);
+            return value;
+        });
+    }
+
+    @Test
+    void testWaiterSharesResult() throws Exception {
+        var release = new CountDownLatch(1);
+        var calls = new AtomicInteger();
+        var leader = execute("key", Deadline.none(), () -> {
+            calls.incrementAndGet();
+            block(release);
+            return "value";
+        });
+
+        await().until(() -> singleFlight.size() == 1);
+
+        var waiter = execute("key", Deadline.none(), () -> {
+            calls.incrementAndGet();
+            return "other";
+        });
+
+        await().until(() -> coalesced.getCount() == 1L);
+        release.countDown();
+
+        assertThat(leader.get(10L, TimeUnit.SECONDS), is("value"));
+        assertThat(waiter.get(10L, TimeUnit.SECONDS), is("value"));
+        assertThat(calls.get(), is(1));
+        assertThat(singleFlight.size(), is(0));
+    }
+
+    @Test
+    void testLeaderFailure() throws Exception {
+        var release = new CountDownLatch(1);
+        var failure = new IOException("leader failed");
+        var leader = execute("key", Deadline.none(), () -> {
+            block(release);
+            throw failure;
+        });
+
+        await().until(() -> singleFlight.size() == 1);
+
+        var waiter = execute("key", Deadline.none(), () -> "other");
+
+        await().until(() -> coalesced.getCount() == 1L);
+        release.countDown();
+
+        var leaderError = assertThrows(ExecutionException.class, () -> leader.get(10L, TimeUnit.SECONDS));
+        var waiterError = assertThrows(ExecutionException.class, () -> waiter.get(10L, TimeUnit.SECONDS));
+
+        assertThat(leaderError.getCause(), is(sameInstance(failure)));
+        assertThat(waiterError.getCause(), is(sameInstance(failure)));
+
+        // The failed call is not remembered
+        assertThat(singleFlight.size(), is(0));
+        assertThat(execute("key", Deadline.none(), () -> "again").get(10L, TimeUnit.SECONDS), is("again"));
+    }
+
+    @Test
+    void testWaiterCancellation() throws Exception {
+        var release = new CountDownLatch(1);
+        var leader = startLeader("key", release, "value");
+
+        await().until(() -> singleFlight.size() == 1);
+
+        var deadline = new Deadline(0L);
+
+        deadline.start();
+
+        var waiter = execute("key", deadline, () -> "other");
+
+        await().until(() -> coalesced.getCount() == 1L);
+        deadline.cancel();
+
+        var error = assertThrows(ExecutionException.class, () -> waiter.get(10L, TimeUnit.SECONDS));
+
+        assertThat(error.getCause(), is(instanceOf(IOException.class)));
+        assertThat(error.getCause().getMessage(), containsString("cancelled"));
+
+        // The leader is not affected by the waiter giving up
+        assertThat(leader.isDone(), is(false));
+        release.countDown();
+        assertThat(leader.get(10L, TimeUnit.SECONDS), is("value"));
+    }
+
+    @Test
+    void testLeaderCancellationReleadsWaiter() throws Exception {
+        var release = new CountDownLatch(1);
+        var deadline = new Deadline(0L);
+
+        deadline.start();
+
+        var leader = execute("key", deadline, () -> {
+            block(release);
+            throw new IOException("aborted: " + deadline.getViolation());
+        });
+
+        await().until(() -> singleFlight.size() == 1);
+
+        var waiter = execute("key", Deadline.none(), () -> "waiter");
+
+        await().until(() -> coalesced.getCount() == 1L);
+        deadline.cancel();
+        release.countDown();
+
+        assertThrows(ExecutionException.class, () -> leader.get(10L, TimeUnit.SECONDS));
+
+        // The waiter runs the call itself instead of failing with the leader's cancellation
+        assertThat(waiter.get(10L, TimeUnit.SECONDS), is("waiter"));
+        assertThat(singleFlight.size(), is(0));
+    }
+
+    @Test
+    void testExecuteAllLeaderCancellationReleadsWaiter() throws Exception {
+        var release = new CountDownLatch(1);
+        var deadline = new Deadline(0L);
+
+        deadline.start();
+
+        var leader = execute("b", deadline, () -> {
+            block(release);
+            throw new IOException("aborted: " + deadline.getViolation());
+        });
+
+        await().until(() -> singleFlight.size() == 1);
+
+        Future<List<String>> batch = executor.submit(
+                () -> singleFlight.executeAll(
+                        List.of("a", "b"),
+                        key -> key,
+                        Deadline.none(),
+                        IOException.class,
+                        SingleFlightTest::aborted,
+                        keys -> keys.stream().map(key -> "value-" + key).collect(Collectors.toList())));
+
+        await().until(() -> coalesced.getCount() == 1L);
+        deadline.cancel();
+        release.countDown();
+
+        assertThrows(ExecutionException.class, () -> leader.get(10L, TimeUnit.SECONDS));
+        assertThat(batch.get(10L, TimeUnit.SECONDS), contains("value-a", "value-b"));
+        assertThat(singleFlight.size(), is(0));
+    }
+
+    @Test
+    void testWaiterDeadlineExpires() throws Exception {
+        var release = new CountDownLatch(1);
+        var leader = startLeader("key", release, "value");
+
+        await().until(() -> singleFlight.size() == 1);
+
+        var deadline = new Deadline(100L);
+
+        deadline.start();
+
+        var error = assertThrows(IOException.class, () -> executeNow("key", deadline, () -> "other"));
+
+        assertThat(error.getMessage(), containsString("deadline"));
+        release.countDown();
+        assertThat(leader.get(10L, TimeUnit.SECONDS), is("value"));
+    }
+
+    @Test
+    void testExecuteAllLeaderFailure() throws Exception {
+        var release = new CountDownLatch(1);
+        var failure = new IOException("leader failed");
+        var leader = execute("b", Deadline.none(), () -> {
+            block(release);
+            throw failure;
+        });
+
+        await().until(() -> singleFlight.size() == 1);
+
+        Future<List<String>> batch = executor.submit(
+                () -> singleFlight.executeAll(
+                        List.of("a", "b"),
+                        key -> key,
+                        Deadline.none(),
+                        IOException.class,
+                        SingleFlightTest::aborted,
+                        keys -> keys.stream().map(key -> "value-" + key).collect(Collectors.toList())));
+
+        await().until(() -> coalesced.getCount() == 1L);
+        release.countDown();
+
+        var error = assertThrows(ExecutionException.class, () -> batch.get(10L, TimeUnit.SECONDS));
+
+        assertThat(error.getCause(), is(sameInstance(failure)));
+        assertThrows(ExecutionException.class, () -> leader.get(10L, TimeUnit.SECONDS));
+        assertThat(singleFlight.size(), is(0));
+        assertThat(
+                singleFlight.executeAll(
+                        List.of("a"),
+                        key -> key,
+                        Deadline.none(),
+                        IOException.class,
+                        SingleFlightTest::aborted,
+                        keys -> List.of("value-a")),
+                contains("value-a"));
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.cache;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.microprofile.metrics.Counter;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.infinispan.AdvancedCache;
+import org.infinispan.Cache;
+import org.infinispan.cache.impl.AbstractDelegatingCache;
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.infinispan.manager.DefaultCacheManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.smallrye.metrics.MetricRegistries;
+
+class WriteBehindQueueTest {
+    private static final long NEVER = 3600000L;
+
+    private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+    private DefaultCacheManager manager;
+
+    private StoreCache cache;
+
+    private Counter failures;
+
+    @BeforeEach
+    void setUp() {
+        manager = new DefaultCacheManager();
+        manager.defineConfiguration("test", new ConfigurationBuilder().build());
+        cache = new StoreCache(manager.getCache("test"));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        manager.close();
+    }
+
+    private WriteBehindQueue newQueue(int queueSize) {
+        var registry = MetricRegistries.get(MetricRegistry.Type.APPLICATION);
+        var sequence = SEQUENCE.incrementAndGet();
+
+        failures = registry.counter("testFlushFailures" + sequence);
+
+        return new WriteBehindQueue(queueSize, 100, NEVER, registry.timer("testFlushLatency" + sequence), failures);
+    }
+
+    private void put(WriteBehindQueue queue, String key) {
+        cache.getDelegate().put(key, "value-" + key);
+        queue.offer(cache, key);
+    }
+
+    @Test
+    void testQueueFull() {
+        var queue = newQueue(2);
+
+        put(queue, "a");
+        put(queue, "b");
+
+        cache.getDelegate().put("c", "value-c");
+
+        assertThat(queue.offer(cache, "c"), is(false));
+        assertThat(queue.size(), is(2));
+        assertThat(queue.flush(), is(true));
+        assertThat(cache.stored, containsInAnyOrder("a", "b"));
+        assertThat(queue.size(), is(0));
+
+        queue.close();
+    }
+
+    @Test
+    void testFlushFailureRequeues() {
+        var queue = newQueue(10);
+
+        put(queue, "a");
+        put(queue, "b");
+
+        cache.failBatches = true;
+
+        assertThat(queue.flush(), is(false));
+        assertThat(failures.getCount(), is(1L));
+        assertThat(queue.size(), is(2));
+        assertThat(cache.stored, is(empty()));
+
+        cache.failBatches = false;
+
+        assertThat(queue.flush(), is(true));
+        assertThat(cache.stored, containsInAnyOrder("a", "b"));
+
+        queue.close();
+    }
+
+    @Test
+    void testCloseWritesFailedBatchSynchronously() {
+        var queue = newQueue(10);
+
+        put(queue, "a");
+        put(queue, "b");
+
+        cache.failBatches = true;
+
+        queue.close();
+
+        assertThat(queue.size(), is(0));
+        assertThat(cache.stored, containsInAnyOrder("a", "b"));
+    }
+
+    /**
+     * Records the keys written to the store, and can refuse batch writes as a failing store would.
+     */
+    private static final class StoreCache extends AbstractDelegatingCache<Object, Object> {
+        private final List<Object> stored = new ArrayList<>();
+
+        private volatile boolean failBatches;
+
+        StoreCache(Cache<Object, Object> cache) {
+            super(cache);
+        }
+
+        @Override
+        public AdvancedCache<Object, Object> getAdvancedCache() {
+            return getDelegate().getAdvancedCache();
+        }
+
+        @Override
+        public Object put(Object key, Object value) {
+            stored.add(key);
+            return getDelegate().put(key, value);
+        }
+
+        @Override
+        public void putAll(Map<? extends Object, ? extends Object> map) {
+            if (failBatches) {
+                throw new IllegalStateException("Store is failing");
+            }
+
+            stored.addAll(map.keySet());
+            getDelegate().putAll(map);
+        }
+    }
+}
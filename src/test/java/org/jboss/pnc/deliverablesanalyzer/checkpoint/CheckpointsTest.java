@@ -0,0 +1,295 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.checkpoint;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.collections4.MultiValuedMap;
+import org.apache.commons.collections4.multimap.ArrayListValuedHashMap;
+import org.jboss.pnc.build.finder.core.BuildSystem;
+import org.jboss.pnc.build.finder.core.ChecksumType;
+import org.jboss.pnc.deliverablesanalyzer.index.ChecksumIndexEntry;
+import org.jboss.pnc.deliverablesanalyzer.remote.RemoteFileInfo;
+import org.jboss.pnc.dto.Artifact;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class CheckpointsTest {
+    private static final long TTL = 3600000L;
+
+    private static final String DIGEST = "digest";
+
+    private static final String FOUND = "0123456789abcdef0123456789abcdef0123456789abcdef0123456789abcdef";
+
+    private static final String MISSING = "fedcba9876543210fedcba9876543210fedcba9876543210fedcba9876543210";
+
+    private static final String OTHER = "00112233445566778899aabbccddeeff00112233445566778899aabbccddeeff";
+
+    @TempDir
+    Path directory;
+
+    private Checkpoints newCheckpoints() {
+        var checkpoints = new Checkpoints();
+
+        checkpoints.enabled = true;
+        checkpoints.ttl = TTL;
+        checkpoints.directory = directory;
+
+        return checkpoints;
+    }
+
+    private static RemoteFileInfo remote(String etag, String lastModified, long size) {
+        var remote = new RemoteFileInfo();
+
+        remote.setEtag(etag);
+        remote.setLastModified(lastModified);
+        remote.setSize(size);
+
+        return remote;
+    }
+
+    private static ChecksumIndexEntry archive(String checksum, int archiveId) {
+        var entry = new ChecksumIndexEntry();
+
+        entry.setChecksumType(ChecksumType.sha256);
+        entry.setChecksum(checksum);
+        entry.setBuildSystem(BuildSystem.koji);
+        entry.setArchiveId(archiveId);
+        entry.setBuildId(2);
+        entry.setFilename(checksum + ".jar");
+
+        return entry;
+    }
+
+    private static Checkpoint newBaseline() {
+        var baseline = new Checkpoint();
+
+        baseline.putArchives(FOUND, List.of(archive(FOUND, 3)));
+        baseline.putArchives(OTHER, List.of(archive(OTHER, 4)));
+        baseline.putPncArtifacts(FOUND, List.of(Artifact.builder().id("5").sha256(FOUND).build()));
+        baseline.putPncArtifacts(OTHER, List.of(Artifact.builder().id("6").sha256(OTHER).build()));
+
+        return baseline;
+    }
+
+    private static Checkpoint newCheckpoint() {
+        var checksums = new EnumMap<ChecksumType, MultiValuedMap<String, String>>(ChecksumType.class);
+        var sha256 = new ArrayListValuedHashMap<String, String>();
+
+        sha256.put(FOUND, "found.jar");
+        sha256.put(MISSING, "missing.jar");
+        checksums.put(ChecksumType.sha256, sha256);
+
+        var entry = new ChecksumIndexEntry();
+
+        entry.setChecksumType(ChecksumType.sha256);
+        entry.setChecksum(FOUND);
+        entry.setBuildSystem(BuildSystem.koji);
+        entry.setArchiveId(1);
+        entry.setBuildId(2);
+        entry.setFilename("found.jar");
+
+        var checkpoint = new Checkpoint();
+
+        checkpoint.setConfigDigest(DIGEST);
+        checkpoint.setRemote(remote("\"etag\"", "Mon, 05 Oct 2026 10:00:00 GMT", 100L));
+        checkpoint.setChecksums(checksums);
+        checkpoint.putArchives(FOUND, List.of(entry));
+        checkpoint.putArchives(MISSING, List.of());
+        checkpoint.putPncArtifacts(MISSING, List.of());
+
+        return checkpoint;
+    }
+
+    @Test
+    void testSaveAndLoad() {
+        var checkpoints = newCheckpoints();
+
+        checkpoints.save("id", newCheckpoint());
+
+        var loaded = checkpoints.load("id", DIGEST);
+
+        assertThat(loaded, is(notNullValue()));
+        assertThat(loaded.getConfigDigest(), is(DIGEST));
+        assertThat(loaded.getRemote(), is(newCheckpoint().getRemote()));
+        assertThat(loaded.getChecksums().get(ChecksumType.sha256).get(FOUND), contains("found.jar"));
+        assertThat(loaded.getChecksums().get(ChecksumType.sha256).get(MISSING), contains("missing.jar"));
+        assertThat(loaded.getArchives(FOUND), hasSize(1));
+        assertThat(loaded.getArchives(FOUND).get(0).getArchiveId(), is(1));
+        assertThat(loaded.getArchives(FOUND).get(0).getBuildId(), is(2));
+        assertThat(loaded.getArchives(MISSING), is(empty()));
+        assertThat(loaded.getPncArtifacts(MISSING), is(empty()));
+        assertThat(loaded.getPncArtifacts(FOUND), is(nullValue()));
+    }
+
+    @Test
+    void testEmptyCheckpointIsNotSaved() {
+        var checkpoints = newCheckpoints();
+
+        checkpoints.save("id", new Checkpoint());
+
+        assertThat(Files.exists(directory.resolve("id")), is(false));
+        assertThat(checkpoints.load("id", DIGEST), is(nullValue()));
+    }
+
+    @Test
+    void testExpiredCheckpointIsDiscarded() throws Exception {
+        var checkpoints = newCheckpoints();
+
+        checkpoints.save("id", newCheckpoint());
+        Files.setLastModifiedTime(
+                directory.resolve("id"),
+                FileTime.fromMillis(System.currentTimeMillis() - TTL - 60000L));
+
+        assertThat(checkpoints.load("id", DIGEST), is(nullValue()));
+        assertThat(Files.exists(directory.resolve("id")), is(false));
+    }
+
+    @Test
+    void testConfigDigestMismatchDiscards() {
+        var checkpoints = newCheckpoints();
+
+        checkpoints.save("id", newCheckpoint());
+
+        assertThat(checkpoints.load("id", "other"), is(nullValue()));
+        assertThat(Files.exists(directory.resolve("id")), is(false));
+    }
+
+    @Test
+    void testDelete() {
+        var checkpoints = newCheckpoints();
+
+        checkpoints.save("id", newCheckpoint());
+        checkpoints.delete("id");
+
+        assertThat(Files.exists(directory.resolve("id")), is(false));
+        assertThat(checkpoints.load("id", DIGEST), is(nullValue()));
+    }
+
+    @Test
+    void testDisabled() {
+        var checkpoints = newCheckpoints();
+
+        checkpoints.enabled = false;
+        checkpoints.save("id", newCheckpoint());
+
+        assertThat(Files.exists(directory.resolve("id")), is(false));
+        assertThat(checkpoints.load("id", DIGEST), is(nullValue()));
+    }
+
+    @Test
+    void testIsForSameFile() {
+        var checkpoint = newCheckpoint();
+
+        assertThat(checkpoint.isFor(remote("\"etag\"", "Mon, 05 Oct 2026 10:00:00 GMT", 100L)), is(true));
+        assertThat(checkpoint.isFor(remote("\"etag\"", "Tue, 06 Oct 2026 10:00:00 GMT", 200L)), is(true));
+        assertThat(checkpoint.isFor(remote("\"other\"", "Mon, 05 Oct 2026 10:00:00 GMT", 100L)), is(false));
+
+        checkpoint.setRemote(remote(null, "Mon, 05 Oct 2026 10:00:00 GMT", 100L));
+
+        assertThat(checkpoint.isFor(remote("\"etag\"", "Mon, 05 Oct 2026 10:00:00 GMT", 100L)), is(true));
+        assertThat(checkpoint.isFor(remote(null, "Mon, 05 Oct 2026 10:00:00 GMT", 101L)), is(false));
+        assertThat(checkpoint.isFor(remote(null, "Tue, 06 Oct 2026 10:00:00 GMT", 100L)), is(false));
+    }
+
+    @Test
+    void testIsForUnknownFile() {
+        var checkpoint = newCheckpoint();
+
+        assertThat(checkpoint.isFor(RemoteFileInfo.unknown()), is(false));
+
+        checkpoint.setRemote(null);
+
+        assertThat(checkpoint.isFor(remote("\"etag\"", "Mon, 05 Oct 2026 10:00:00 GMT", 100L)), is(false));
+
+        checkpoint.setRemote(RemoteFileInfo.unknown());
+
+        assertThat(checkpoint.isFor(RemoteFileInfo.unknown()), is(false));
+    }
+
+    @Test
+    void testRemoteSurvivesReadWrite() throws Exception {
+        var checkpoint = newCheckpoint();
+        var checkpointDirectory = Files.createDirectories(directory.resolve("written"));
+
+        Checkpoints.write(checkpointDirectory, checkpoint);
+
+        var read = Checkpoints.read(checkpointDirectory);
+
+        assertThat(read.isFor(checkpoint.getRemote()), is(true));
+        assertThat(read.getRemote().getChecksums(), is(Map.of()));
+    }
+
+    @Test
+    void testSeedKeepsOwnLookups() {
+        var checkpoint = newCheckpoint();
+
+        checkpoint.seed("baseline", newBaseline());
+
+        assertThat(checkpoint.getBaseline(), is("baseline"));
+        assertThat(checkpoint.getArchives(FOUND).get(0).getArchiveId(), is(1));
+        assertThat(checkpoint.getArchives(MISSING), is(empty()));
+        assertThat(checkpoint.getArchives(OTHER).get(0).getArchiveId(), is(4));
+        assertThat(checkpoint.getPncArtifacts(FOUND).get(0).getId(), is("5"));
+        assertThat(checkpoint.getPncArtifacts(MISSING), is(empty()));
+        assertThat(checkpoint.getHits(), is(0));
+    }
+
+    @Test
+    void testSeededLookupsArePrunedToFileChecksums() throws Exception {
+        var checkpoint = newCheckpoint();
+        var checkpointDirectory = Files.createDirectories(directory.resolve("written"));
+
+        checkpoint.seed("baseline", newBaseline());
+        Checkpoints.write(checkpointDirectory, checkpoint);
+
+        var read = Checkpoints.read(checkpointDirectory);
+
+        assertThat(read.getArchives().keySet(), containsInAnyOrder(FOUND, MISSING));
+        assertThat(read.getPncArtifacts().keySet(), containsInAnyOrder(FOUND, MISSING));
+        assertThat(read.getPncArtifacts(FOUND).get(0).getSha256(), is(FOUND));
+        assertThat(read.getBaseline(), is(nullValue()));
+    }
+
+    @Test
+    void testSeededLookupsAreKeptBeforeChecksumsAreKnown() throws Exception {
+        var checkpoint = new Checkpoint();
+        var checkpointDirectory = Files.createDirectories(directory.resolve("written"));
+
+        checkpoint.setConfigDigest(DIGEST);
+        checkpoint.seed("baseline", newBaseline());
+        Checkpoints.write(checkpointDirectory, checkpoint);
+
+        var read = Checkpoints.read(checkpointDirectory);
+
+        assertThat(read.getArchives().keySet(), containsInAnyOrder(FOUND, OTHER));
+        assertThat(read.getPncArtifacts().keySet(), containsInAnyOrder(FOUND, OTHER));
+    }
+}
@@ -0,0 +1,260 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.diff;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.pnc.deliverablesanalyzer.model.Artifact;
+import org.jboss.pnc.deliverablesanalyzer.model.Build;
+import org.jboss.pnc.deliverablesanalyzer.model.BuildSystemType;
+import org.jboss.pnc.deliverablesanalyzer.model.FinderResult;
+import org.jboss.pnc.deliverablesanalyzer.model.MavenArtifact;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class ResultDiffTest {
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+    private static final int LARGE_BUILDS = 1000;
+
+    private static final int LARGE_ARTIFACTS_PER_BUILD = 100;
+
+    private static String checksum(String prefix, int i) {
+        return String.format(Locale.ROOT, "%s%060x", prefix, i);
+    }
+
+    private static Build build(String identifier, long kojiId) {
+        var build = new Build();
+
+        build.setIdentifier(identifier);
+        build.setBuildSystemType(BuildSystemType.KOJI);
+        build.setKojiId(kojiId);
+        build.setBuiltFromSource(Boolean.TRUE);
+
+        return build;
+    }
+
+    private static Artifact artifact(Build build, String artifactId, String sha256) {
+        var mavenArtifact = new MavenArtifact();
+
+        mavenArtifact.setGroupId("org.example");
+        mavenArtifact.setArtifactId(artifactId);
+        mavenArtifact.setType("jar");
+        mavenArtifact.setVersion("1.0.0");
+
+        var artifact = new Artifact();
+
+        artifact.setIdentifier(mavenArtifact.getIdentifier());
+        artifact.setType(Artifact.Type.MAVEN);
+        artifact.setMavenArtifact(mavenArtifact);
+        artifact.setBuildSystemType(BuildSystemType.KOJI);
+        artifact.setBuiltFromSource(Boolean.TRUE);
+        artifact.setSha256(sha256);
+        build.getArtifacts().add(artifact);
+
+        return artifact;
+    }
+
+    private static Artifact notFound(String sha256, String sha1, String md5, String filename) {
+        var artifact = new Artifact();
+
+        artifact.setSha256(sha256);
+        artifact.setSha1(sha1);
+        artifact.setMd5(md5);
+        artifact.setBuiltFromSource(Boolean.FALSE);
+        artifact.getFilesNotBuiltFromSource().add(filename);
+
+        return artifact;
+    }
+
+    private static FinderResult result(String id, Collection<Build> builds, Collection<Artifact> notFoundArtifacts)
+            throws Exception {
+        var node = MAPPER.createObjectNode();
+
+        node.put("id", id);
+        node.set("builds", MAPPER.valueToTree(builds));
+        node.set("notFoundArtifacts", MAPPER.valueToTree(notFoundArtifacts));
+        node.set("statistics", MAPPER.valueToTree(new FinderResult().getStatistics()));
+
+        return MAPPER.treeToValue(node, FinderResult.class);
+    }
+
+    private static JsonNode write(ResultDiff diff) throws Exception {
+        var writer = new StringWriter();
+
+        try (var generator = MAPPER.getFactory().createGenerator(writer)) {
+            diff.write(generator);
+        }
+
+        return MAPPER.readTree(writer.toString());
+    }
+
+    @Test
+    void testBuilds() throws Exception {
+        var kept = build("kept-1.0-1", 1L);
+        var removed = build("removed-1.0-1", 2L);
+        var changedFrom = build("changed-1.0-1", 3L);
+        var changedTo = build("changed-1.0-1", 4L);
+        var added = build("added-1.0-1", 5L);
+        var diff = write(
+                ResultDiff.compute(
+                        result("a", List.of(kept, removed, changedFrom), List.of()),
+                        result("b", List.of(kept, changedTo, added), List.of())));
+
+        assertThat(diff.at("/summary/added_builds").asInt(), is(1));
+        assertThat(diff.at("/summary/removed_builds").asInt(), is(1));
+        assertThat(diff.at("/summary/changed_builds").asInt(), is(1));
+        assertThat(diff.at("/builds/added/0/identifier").asText(), is("added-1.0-1"));
+        assertThat(diff.at("/builds/removed/0/identifier").asText(), is("removed-1.0-1"));
+        assertThat(diff.at("/builds/changed/0/from/koji_id").asLong(), is(3L));
+        assertThat(diff.at("/builds/changed/0/to/koji_id").asLong(), is(4L));
+    }
+
+    @Test
+    void testFoundArtifacts() throws Exception {
+        var fromBuild = build("example-1.0-1", 1L);
+        var toBuild = build("example-1.0-1", 1L);
+
+        artifact(fromBuild, "kept", checksum("a", 1));
+        artifact(fromBuild, "removed", checksum("a", 2));
+        artifact(fromBuild, "changed", checksum("a", 3));
+        artifact(toBuild, "kept", checksum("a", 1));
+        artifact(toBuild, "changed", checksum("b", 3));
+        artifact(toBuild, "added", checksum("a", 4));
+
+        var diff = write(
+                ResultDiff.compute(
+                        result("a", List.of(fromBuild), List.of()),
+                        result("b", List.of(toBuild), List.of())));
+
+        assertThat(diff.at("/summary/changed_builds").asInt(), is(0));
+        assertThat(diff.at("/summary/added_artifacts").asInt(), is(1));
+        assertThat(diff.at("/summary/removed_artifacts").asInt(), is(1));
+        assertThat(diff.at("/summary/changed_artifacts").asInt(), is(1));
+        assertThat(diff.at("/artifacts/added/0/build").asText(), is("example-1.0-1"));
+        assertThat(diff.at("/artifacts/added/0/artifact/identifier").asText(), is("org.example:added:jar:1.0.0"));
+        assertThat(diff.at("/artifacts/removed/0/artifact/identifier").asText(), is("org.example:removed:jar:1.0.0"));
+        assertThat(diff.at("/artifacts/changed/0/from/artifact/sha256").asText(), is(checksum("a", 3)));
+        assertThat(diff.at("/artifacts/changed/0/to/artifact/sha256").asText(), is(checksum("b", 3)));
+    }
+
+    @Test
+    void testNotFoundArtifactsAreMatchedByChecksum() throws Exception {
+        var sha256Only = notFound(checksum("a", 1), null, null, "a.jar");
+        var sha1Only = notFound(null, "da39a3ee5e6b4b0d3255bfef95601890afd80709", null, "b.jar");
+        var md5Only = notFound(null, null, "d41d8cd98f00b204e9800998ecf8427e", "c.jar");
+        var removed = notFound(checksum("a", 2), null, null, "removed.jar");
+        var added = notFound(checksum("a", 3), null, null, "added.jar");
+        var moved = notFound(checksum("a", 1), null, null, "moved/a.jar");
+        var diff = write(
+                ResultDiff.compute(
+                        result("a", List.of(), List.of(sha256Only, sha1Only, md5Only, removed)),
+                        result("b", List.of(), List.of(moved, sha1Only, md5Only, added))));
+
+        // Every artifact is compared, rather than all of them sharing one missing identifier
+        assertThat(diff.at("/summary/added_artifacts").asInt(), is(1));
+        assertThat(diff.at("/summary/removed_artifacts").asInt(), is(1));
+        assertThat(diff.at("/summary/changed_artifacts").asInt(), is(1));
+        assertThat(diff.at("/artifacts/added/0/build").asText(), is(""));
+        assertThat(diff.at("/artifacts/added/0/artifact/sha256").asText(), is(checksum("a", 3)));
+        assertThat(diff.at("/artifacts/removed/0/artifact/sha256").asText(), is(checksum("a", 2)));
+        assertThat(
+                diff.at("/artifacts/changed/0/to/artifact/filesNotBuiltFromSource/0").asText(),
+                is("moved/a.jar"));
+    }
+
+    @Test
+    void testFoundAndNotFoundArtifactsAreSorted() throws Exception {
+        var build = build("example-1.0-1", 1L);
+
+        artifact(build, "found", checksum("a", 1));
+
+        // Sorting found artifacts together with ones without an identifier must not fail
+        var diff = write(
+                ResultDiff.compute(
+                        result("a", List.of(), List.of()),
+                        result(
+                                "b",
+                                List.of(build),
+                                List.of(
+                                        notFound(checksum("a", 2), null, null, "x.jar"),
+                                        notFound(null, null, "d41d8cd98f00b204e9800998ecf8427e", "y.jar")))));
+
+        assertThat(diff.at("/summary/added_builds").asInt(), is(1));
+        assertThat(diff.at("/summary/added_artifacts").asInt(), is(3));
+        assertThat(diff.at("/artifacts/added/0/artifact/md5").asText(), is("d41d8cd98f00b204e9800998ecf8427e"));
+        assertThat(diff.at("/artifacts/added/1/artifact/identifier").asText(), is("org.example:found:jar:1.0.0"));
+        assertThat(diff.at("/artifacts/added/2/artifact/sha256").asText(), is(checksum("a", 2)));
+    }
+
+    private static FinderResult largeResult(String id, String changedPrefix) throws Exception {
+        var builds = new ArrayList<Build>(LARGE_BUILDS);
+        var notFoundArtifacts = new ArrayList<Artifact>(LARGE_BUILDS);
+
+        for (var i = 0; i < LARGE_BUILDS; i++) {
+            var build = build("example-" + i + "-1.0-1", i);
+
+            for (var j = 0; j < LARGE_ARTIFACTS_PER_BUILD; j++) {
+                var n = i * LARGE_ARTIFACTS_PER_BUILD + j;
+
+                // Every hundredth artifact has a different checksum in the other result
+                artifact(build, "artifact-" + n, checksum(n % 100 == 0 ? changedPrefix : "a", n));
+            }
+
+            builds.add(build);
+            notFoundArtifacts.add(notFound(checksum(changedPrefix, i), null, null, "unknown-" + i + ".jar"));
+        }
+
+        return result(id, builds, notFoundArtifacts);
+    }
+
+    @Test
+    void testLargeResults() throws Exception {
+        var from = largeResult("a", "b");
+        var to = largeResult("b", "c");
+
+        // Warm up, so that the timing does not include class loading and compilation
+        ResultDiff.compute(from, to);
+
+        var start = System.nanoTime();
+        var diff = ResultDiff.compute(from, to);
+
+        try (var generator = MAPPER.getFactory().createGenerator(OutputStream.nullOutputStream(), JsonEncoding.UTF8)) {
+            diff.write(generator);
+        }
+
+        var elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        var artifacts = LARGE_BUILDS * LARGE_ARTIFACTS_PER_BUILD;
+
+        assertThat(diff.getChanges(), is(artifacts / 100 + 2 * LARGE_BUILDS));
+        assertThat(elapsed, is(lessThan(1000L)));
+    }
+}
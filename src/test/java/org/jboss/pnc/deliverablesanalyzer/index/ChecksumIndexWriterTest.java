@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.index;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.jboss.pnc.build.finder.core.ChecksumType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ChecksumIndexWriterTest {
+    private static final String MD5_A = DigestUtils.md5Hex("a");
+
+    private static final String MD5_B = DigestUtils.md5Hex("b");
+
+    private static final String SHA1_C = DigestUtils.sha1Hex("c");
+
+    private static String line(ChecksumType checksumType, String checksum, int archiveId) {
+        return String.format(
+                "{\"checksum_type\": \"%s\", \"checksum\": \"%s\", \"build_system\": \"koji\", \"archive_id\": %d}",
+                checksumType,
+                checksum,
+                archiveId);
+    }
+
+    private static BufferedReader reader(String... lines) {
+        return new BufferedReader(new StringReader(String.join("\n", lines)));
+    }
+
+    private static List<Path> list(Path directory) throws IOException {
+        try (var paths = Files.list(directory)) {
+            return paths.collect(Collectors.toList());
+        }
+    }
+
+    private static List<Integer> find(List<Path> segments, ChecksumType checksumType, String checksum)
+            throws IOException {
+        var archiveIds = new ArrayList<Integer>();
+        var key = ChecksumIndexWriter.toKey(checksumType, checksum);
+
+        for (var path : segments) {
+            try (var segment = ChecksumIndexSegment.open(path)) {
+                var payload = segment.getKeyLength() == key.length ? segment.find(key) : null;
+
+                if (payload != null) {
+                    ChecksumIndexWriter.parsePayload(payload).forEach(entry -> archiveIds.add(entry.getArchiveId()));
+                }
+            }
+        }
+
+        return archiveIds;
+    }
+
+    @Test
+    void testRoundTrip(@TempDir Path directory) throws IOException {
+        var writer = new ChecksumIndexWriter(directory, 100);
+        var imported = writer.importAll(
+                reader(
+                        line(ChecksumType.md5, MD5_A, 1),
+                        "",
+                        line(ChecksumType.md5, MD5_B, 2),
+                        line(ChecksumType.md5, MD5_A, 3),
+                        line(ChecksumType.sha1, SHA1_C, 4)));
+        var segments = writer.getSegments();
+
+        assertThat(imported, is(4L));
+        assertThat(segments, hasSize(2));
+        assertThat(find(segments, ChecksumType.md5, MD5_A), containsInAnyOrder(1, 3));
+        assertThat(find(segments, ChecksumType.md5, MD5_B), containsInAnyOrder(2));
+        assertThat(find(segments, ChecksumType.sha1, SHA1_C), containsInAnyOrder(4));
+        assertThat(find(segments, ChecksumType.md5, DigestUtils.md5Hex("missing")), is(empty()));
+        assertThat(list(directory), containsInAnyOrder(segments.toArray()));
+    }
+
+    @Test
+    void testSplitIntoSegments(@TempDir Path directory) throws IOException {
+        var writer = new ChecksumIndexWriter(directory, 2);
+
+        writer.importAll(
+                reader(
+                        line(ChecksumType.md5, MD5_A, 1),
+                        line(ChecksumType.md5, MD5_B, 2),
+                        line(ChecksumType.md5, MD5_A, 3)));
+
+        var segments = writer.getSegments();
+
+        assertThat(segments, hasSize(2));
+        assertThat(find(segments, ChecksumType.md5, MD5_A), containsInAnyOrder(1, 3));
+        assertThat(find(segments, ChecksumType.md5, MD5_B), containsInAnyOrder(2));
+    }
+
+    @Test
+    void testSkipsInvalidEntries(@TempDir Path directory) throws IOException {
+        var writer = new ChecksumIndexWriter(directory, 100);
+        var imported = writer.importAll(
+                reader(
+                        line(ChecksumType.md5, MD5_A, 1),
+                        line(ChecksumType.md5, SHA1_C, 2),
+                        "{\"checksum_type\": \"md5\", \"checksum\": \"" + MD5_B + "\", \"archive_id\": 3}"));
+
+        assertThat(imported, is(1L));
+        assertThat(find(writer.getSegments(), ChecksumType.md5, MD5_B), is(empty()));
+    }
+
+    @Test
+    void testFailedImportLeavesNoSegments(@TempDir Path directory) throws IOException {
+        var writer = new ChecksumIndexWriter(directory, 1);
+
+        assertThrows(
+                IOException.class,
+                () -> writer.importAll(
+                        reader(
+                                line(ChecksumType.md5, MD5_A, 1),
+                                line(ChecksumType.md5, MD5_B, 2),
+                                line(ChecksumType.sha1, SHA1_C, 3),
+                                "{not json")));
+
+        assertThat(writer.getSegments(), is(empty()));
+        assertThat(list(directory), is(empty()));
+    }
+
+    @Test
+    void testInvalidKey() {
+        assertThat(ChecksumIndexWriter.toKey(ChecksumType.md5, SHA1_C), is(nullValue()));
+        assertThat(ChecksumIndexWriter.toKey(ChecksumType.md5, "not hex"), is(nullValue()));
+    }
+}
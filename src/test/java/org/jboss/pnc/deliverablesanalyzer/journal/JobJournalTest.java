@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.journal;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class JobJournalTest {
+    @TempDir
+    Path directory;
+
+    private JobJournal newJournal() {
+        var journal = new JobJournal();
+
+        journal.enabled = true;
+        journal.sync = false;
+        journal.file = directory.resolve("journal").resolve("jobs.jsonl");
+
+        return journal;
+    }
+
+    private static List<String> ids(List<JournalEntry> entries) {
+        return entries.stream().map(JournalEntry::getId).collect(Collectors.toList());
+    }
+
+    private List<String> lines() throws IOException {
+        return Files.readAllLines(directory.resolve("journal").resolve("jobs.jsonl"), UTF_8);
+    }
+
+    @Test
+    void testRecoverUnfinished() {
+        var journal = newJournal();
+
+        assertThat(journal.recover(), is(empty()));
+
+        journal.submitted("a", "http://host/a.zip", "client", "{}", null);
+        journal.submitted("b", "http://host/b.zip", "client", "{}", null);
+        journal.submitted("c", "http://host/c.zip", "other", "{}", "a");
+        journal.submitted("d", "http://host/d.zip", "client", "{}", null);
+        journal.completed("a");
+        journal.failed("b");
+        journal.cancelled("d");
+
+        assertThat(journal.getUnfinished(), is(1));
+
+        journal.close();
+
+        var recovered = newJournal().recover();
+
+        assertThat(ids(recovered), contains("c"));
+
+        var entry = recovered.get(0);
+
+        assertThat(entry.getEvent(), is(JournalEntry.Event.SUBMITTED));
+        assertThat(entry.getUrl(), is("http://host/c.zip"));
+        assertThat(entry.getClient(), is("other"));
+        assertThat(entry.getConfig(), is("{}"));
+        assertThat(entry.getBaseline(), is("a"));
+    }
+
+    @Test
+    void testRecoverOldestFirst() {
+        var journal = newJournal();
+
+        journal.recover();
+        journal.submitted("b", "http://host/b.zip", "client", "{}", null);
+        journal.submitted("a", "http://host/a.zip", "client", "{}", null);
+        journal.submitted("c", "http://host/c.zip", "client", "{}", null);
+        journal.close();
+
+        assertThat(ids(newJournal().recover()), contains("b", "a", "c"));
+    }
+
+    @Test
+    void testRecoveryCompacts() throws IOException {
+        var journal = newJournal();
+
+        journal.recover();
+        journal.submitted("a", "http://host/a.zip", "client", "{}", null);
+        journal.submitted("b", "http://host/b.zip", "client", "{}", null);
+        journal.completed("a");
+        journal.close();
+
+        assertThat(lines(), hasSize(3));
+
+        var recovering = newJournal();
+
+        assertThat(ids(recovering.recover()), contains("b"));
+        assertThat(lines(), hasSize(1));
+        assertThat(Files.exists(directory.resolve("journal").resolve("jobs.jsonl.tmp")), is(false));
+
+        // The compacted journal is appended to
+        recovering.completed("b");
+        recovering.close();
+
+        assertThat(lines(), hasSize(2));
+        assertThat(newJournal().recover(), is(empty()));
+        assertThat(lines(), is(empty()));
+    }
+
+    @Test
+    void testRecoverSkipsTruncatedLine() throws IOException {
+        var journal = newJournal();
+
+        journal.recover();
+        journal.submitted("a", "http://host/a.zip", "client", "{}", null);
+        journal.submitted("b", "http://host/b.zip", "client", "{}", null);
+        journal.close();
+
+        var file = directory.resolve("journal").resolve("jobs.jsonl");
+
+        // A crash while appending the completion of b
+        Files.writeString(file, "{\"event\":\"COMPLETED\",\"id\":\"b", UTF_8, StandardOpenOption.APPEND);
+
+        assertThat(ids(newJournal().recover()), contains("a", "b"));
+        assertThat(lines(), hasSize(2));
+    }
+
+    @Test
+    void testDisabled() {
+        var journal = newJournal();
+
+        journal.enabled = false;
+
+        assertThat(journal.recover(), is(empty()));
+
+        journal.submitted("a", "http://host/a.zip", "client", "{}", null);
+
+        assertThat(journal.getUnfinished(), is(0));
+        assertThat(Files.exists(directory.resolve("journal")), is(false));
+    }
+}
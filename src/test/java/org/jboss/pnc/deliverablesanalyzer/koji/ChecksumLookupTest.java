@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.koji;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Arrays;
+import java.util.List;
+
+import javax.ws.rs.BadRequestException;
+
+import org.jboss.pnc.build.finder.core.ChecksumType;
+import org.jboss.pnc.deliverablesanalyzer.model.BuildSystemType;
+import org.junit.jupiter.api.Test;
+
+import com.redhat.red.build.koji.model.xmlrpc.KojiBuildInfo;
+
+class ChecksumLookupTest {
+    private static final String MD5 = "d41d8cd98f00b204e9800998ecf8427e";
+
+    private static final String SHA1 = "da39a3ee5e6b4b0d3255bfef95601890afd80709";
+
+    private static final String SHA256 = "e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855";
+
+    private static ChecksumLookup newLookup(int maxChecksums) {
+        var lookup = new ChecksumLookup();
+
+        lookup.maxChecksums = maxChecksums;
+
+        return lookup;
+    }
+
+    @Test
+    void testParseNormalizesAndDeduplicates() {
+        var results = newLookup(10).parse(List.of(SHA256, " " + MD5.toUpperCase() + "\n", SHA1, MD5, SHA256));
+
+        assertThat(results.keySet(), contains(SHA256, MD5, SHA1));
+        assertThat(results.get(MD5).getChecksumType(), is(ChecksumType.md5));
+        assertThat(results.get(SHA1).getChecksumType(), is(ChecksumType.sha1));
+        assertThat(results.get(SHA256).getChecksumType(), is(ChecksumType.sha256));
+
+        for (var result : results.values()) {
+            assertThat(result.getArchives(), is(empty()));
+            assertThat(result.getBuilds(), is(empty()));
+        }
+    }
+
+    @Test
+    void testParseRejectsInvalidChecksums() {
+        var lookup = newLookup(10);
+
+        assertThrows(BadRequestException.class, () -> lookup.parse(List.of(MD5, MD5.substring(1))));
+        assertThrows(BadRequestException.class, () -> lookup.parse(List.of(MD5.replace('d', 'x'))));
+        assertThrows(BadRequestException.class, () -> lookup.parse(List.of("")));
+        assertThrows(BadRequestException.class, () -> lookup.parse(Arrays.asList(MD5, null)));
+    }
+
+    @Test
+    void testParseLimitsDistinctChecksums() {
+        var lookup = newLookup(2);
+
+        assertThat(lookup.parse(List.of(MD5, SHA1, MD5, SHA1.toUpperCase())).size(), is(2));
+        assertThrows(BadRequestException.class, () -> lookup.parse(List.of(MD5, SHA1, SHA256)));
+    }
+
+    @Test
+    void testToBuild() {
+        var buildInfo = new KojiBuildInfo();
+
+        buildInfo.setId(1);
+        buildInfo.setNvr("example-1.0.0-1");
+        buildInfo.setSource("git+https://example.org/example.git#0123456");
+        buildInfo.setTaskId(2);
+
+        var build = ChecksumLookup.toBuild(buildInfo);
+
+        assertThat(build.getIdentifier(), is("example-1.0.0-1"));
+        assertThat(build.getKojiId(), is(1L));
+        assertThat(build.getBuildSystemType(), is(BuildSystemType.KOJI));
+        assertThat(build.getSource(), is("git+https://example.org/example.git#0123456"));
+        assertThat(build.getBuiltFromSource(), is(true));
+
+        buildInfo.setTaskId(null);
+
+        assertThat(ChecksumLookup.toBuild(buildInfo).getBuiltFromSource(), is(false));
+    }
+}
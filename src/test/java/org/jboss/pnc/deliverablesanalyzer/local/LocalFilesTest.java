@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.local;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.ForbiddenException;
+
+import org.jboss.pnc.deliverablesanalyzer.upload.Uploads;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class LocalFilesTest {
+    private static final String SHA256 = "2cf24dba5fb0a30e26e83b2ac5b9e29e1b161e5c1fa7425e73043362938b9824";
+
+    @TempDir
+    Path directory;
+
+    private Path root;
+
+    private Path outside;
+
+    private LocalFiles localFiles;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        root = Files.createDirectories(directory.resolve("root")).toRealPath();
+        outside = Files.createDirectories(directory.resolve("outside")).toRealPath();
+        localFiles = newLocalFiles(List.of(root.toString(), directory.resolve("missing").toString()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        localFiles.destroy();
+    }
+
+    private LocalFiles newLocalFiles(List<String> roots) {
+        var uploads = new Uploads();
+
+        uploads.directory = root.resolve("uploads");
+
+        var files = new LocalFiles();
+
+        files.allowedRoots = Optional.of(roots);
+        files.walkParallelism = 2;
+        files.uploads = uploads;
+        files.init();
+
+        return files;
+    }
+
+    private static Path write(Path file) throws Exception {
+        Files.createDirectories(file.getParent());
+
+        return Files.writeString(file, "hello", UTF_8);
+    }
+
+    @Test
+    void testResolveFileUnderRoot() throws Exception {
+        var file = write(root.resolve("dist").resolve("dist.zip"));
+
+        assertThat(localFiles.resolve(file.toUri()), is(file));
+        assertThat(localFiles.resolve(root.resolve("dist").toUri()), is(file.getParent()));
+    }
+
+    @Test
+    void testResolveMissingFile() {
+        assertThrows(BadRequestException.class, () -> localFiles.resolve(root.resolve("missing.zip").toUri()));
+    }
+
+    @Test
+    void testResolveOutsideRoots() throws Exception {
+        var file = write(outside.resolve("dist.zip"));
+
+        assertThrows(ForbiddenException.class, () -> localFiles.resolve(file.toUri()));
+        assertThrows(
+                ForbiddenException.class,
+                () -> localFiles.resolve(root.resolve("..").resolve("outside").resolve("dist.zip").toUri()));
+    }
+
+    @Test
+    void testResolveFollowsSymbolicLinks() throws Exception {
+        var inside = write(root.resolve("dist.zip"));
+        var escape = Files.createSymbolicLink(root.resolve("escape.zip"), write(outside.resolve("dist.zip")));
+        var link = Files.createSymbolicLink(root.resolve("link.zip"), inside);
+
+        assertThrows(ForbiddenException.class, () -> localFiles.resolve(escape.toUri()));
+        assertThat(localFiles.resolve(link.toUri()), is(inside));
+    }
+
+    @Test
+    void testResolveUpload() throws Exception {
+        var upload = write(root.resolve("uploads").resolve(SHA256).resolve("dist.zip"));
+
+        assertThrows(ForbiddenException.class, () -> localFiles.resolve(upload.toUri()));
+    }
+
+    @Test
+    void testDisabledWithoutRoots() throws Exception {
+        var file = write(root.resolve("dist.zip"));
+        var disabled = newLocalFiles(List.of(directory.resolve("missing").toString()));
+
+        try {
+            assertThrows(ForbiddenException.class, () -> disabled.resolve(file.toUri()));
+        } finally {
+            disabled.destroy();
+        }
+    }
+
+    @Test
+    void testList() throws Exception {
+        var a = write(root.resolve("a.zip"));
+        var b = write(root.resolve("b").resolve("b.jar"));
+        var c = write(root.resolve("b").resolve("c").resolve("c.tar.gz"));
+
+        Files.createDirectories(root.resolve("empty"));
+        Files.createSymbolicLink(root.resolve("link"), outside);
+        Files.createSymbolicLink(root.resolve("link.zip"), write(outside.resolve("dist.zip")));
+
+        assertThat(
+                localFiles.list(root),
+                contains(a.toUri().toString(), b.toUri().toString(), c.toUri().toString()));
+    }
+
+    @Test
+    void testSha256() throws Exception {
+        assertThat(LocalFiles.sha256(write(root.resolve("dist.zip"))), is(SHA256));
+        assertThat(
+                LocalFiles.sha256(Files.createFile(root.resolve("empty.zip"))),
+                is("e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855"));
+    }
+}
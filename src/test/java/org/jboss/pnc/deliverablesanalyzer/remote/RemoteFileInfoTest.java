@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.remote;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import org.junit.jupiter.api.Test;
+
+class RemoteFileInfoTest {
+    private static final String MONDAY = "Mon, 05 Oct 2026 10:00:00 GMT";
+
+    private static final String TUESDAY = "Tue, 06 Oct 2026 10:00:00 GMT";
+
+    private static RemoteFileInfo remote(String etag, String lastModified, long size) {
+        var remote = new RemoteFileInfo();
+
+        remote.setEtag(etag);
+        remote.setLastModified(lastModified);
+        remote.setSize(size);
+
+        return remote;
+    }
+
+    @Test
+    void testStrongEtags() {
+        var stored = remote("\"a\"", MONDAY, 100L);
+
+        assertThat(stored.isUnchanged(remote("\"a\"", TUESDAY, 200L)), is(true));
+        assertThat(stored.isUnchanged(remote("\"b\"", MONDAY, 100L)), is(false));
+    }
+
+    @Test
+    void testWeakEtagFallsBackToLastModified() {
+        var stored = remote("W/\"a\"", MONDAY, 100L);
+
+        assertThat(stored.isUnchanged(remote("W/\"a\"", MONDAY, 100L)), is(true));
+        assertThat(stored.isUnchanged(remote("W/\"a\"", TUESDAY, 100L)), is(false));
+        assertThat(stored.isUnchanged(remote("\"a\"", MONDAY, 101L)), is(false));
+    }
+
+    @Test
+    void testLastModifiedAndSize() {
+        var stored = remote(null, MONDAY, 100L);
+
+        assertThat(stored.isUnchanged(remote(null, MONDAY, 100L)), is(true));
+        assertThat(stored.isUnchanged(remote("\"a\"", MONDAY, 100L)), is(true));
+        assertThat(stored.isUnchanged(remote(null, MONDAY, 101L)), is(false));
+        assertThat(stored.isUnchanged(remote(null, TUESDAY, 100L)), is(false));
+    }
+
+    @Test
+    void testUnknownIsNeverUnchanged() {
+        var stored = remote("\"a\"", MONDAY, 100L);
+
+        assertThat(stored.isUnchanged(null), is(false));
+        assertThat(stored.isUnchanged(RemoteFileInfo.unknown()), is(false));
+        assertThat(RemoteFileInfo.unknown().isUnchanged(stored), is(false));
+        assertThat(RemoteFileInfo.unknown().isUnchanged(RemoteFileInfo.unknown()), is(false));
+    }
+}
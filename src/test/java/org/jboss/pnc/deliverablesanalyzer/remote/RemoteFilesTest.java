@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.remote;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.anEmptyMap;
+import static org.hamcrest.Matchers.hasEntry;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Base64;
+import java.util.TreeMap;
+
+import org.apache.commons.codec.binary.Hex;
+import org.jboss.pnc.build.finder.core.ChecksumType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class RemoteFilesTest {
+    private static final String MD5 = "d41d8cd98f00b204e9800998ecf8427e";
+
+    private static final String SHA256 = "e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855";
+
+    @TempDir
+    Path directory;
+
+    private static String base64(String hex) throws Exception {
+        return Base64.getEncoder().encodeToString(Hex.decodeHex(hex));
+    }
+
+    @Test
+    void testParseDigest() throws Exception {
+        var checksums = new TreeMap<String, String>();
+
+        RemoteFiles.parseDigest("SHA-256=" + base64(SHA256) + ", MD5=" + base64(MD5), checksums);
+
+        assertThat(checksums, hasEntry("sha256", SHA256));
+        assertThat(checksums, hasEntry("md5", MD5));
+    }
+
+    @Test
+    void testParseDigestIgnoresUnknownAndMalformed() throws Exception {
+        var checksums = new TreeMap<String, String>();
+
+        RemoteFiles.parseDigest("SHA-512=" + base64(SHA256 + SHA256) + ", SHA-256=not base64!, MD5", checksums);
+        RemoteFiles.parseDigest("SHA-256=" + base64(MD5), checksums);
+
+        assertThat(checksums, is(anEmptyMap()));
+    }
+
+    @Test
+    void testParseDigestKeepsFirst() throws Exception {
+        var checksums = new TreeMap<String, String>();
+
+        checksums.put("sha256", SHA256);
+        RemoteFiles.parseDigest("SHA-256=" + base64("00" + SHA256.substring(2)), checksums);
+
+        assertThat(checksums, hasEntry("sha256", SHA256));
+    }
+
+    @Test
+    void testParseSidecar() {
+        assertThat(RemoteFiles.parseSidecar(SHA256, ChecksumType.sha256), is(SHA256));
+        assertThat(RemoteFiles.parseSidecar(SHA256.toUpperCase() + "\n", ChecksumType.sha256), is(SHA256));
+        assertThat(RemoteFiles.parseSidecar(SHA256 + "  file.zip\n", ChecksumType.sha256), is(SHA256));
+        assertThat(RemoteFiles.parseSidecar(MD5 + " *file.zip", ChecksumType.md5), is(MD5));
+    }
+
+    @Test
+    void testParseInvalidSidecar() {
+        assertThat(RemoteFiles.parseSidecar("", ChecksumType.sha256), is(nullValue()));
+        assertThat(RemoteFiles.parseSidecar(MD5, ChecksumType.sha256), is(nullValue()));
+        assertThat(RemoteFiles.parseSidecar("<html>Not Found</html>", ChecksumType.sha256), is(nullValue()));
+        assertThat(RemoteFiles.parseSidecar(SHA256.replace('e', 'g'), ChecksumType.sha256), is(nullValue()));
+    }
+
+    @Test
+    void testHeadLocalFile() throws Exception {
+        var remoteFiles = new RemoteFiles();
+
+        remoteFiles.headCacheTtl = 60000L;
+        remoteFiles.init();
+
+        var file = Files.write(directory.resolve("file.zip"), new byte[] { 1, 2, 3 });
+
+        Files.setLastModifiedTime(file, FileTime.fromMillis(1000000L));
+
+        var info = remoteFiles.head(file.toUri());
+
+        assertThat(info.getSize(), is(3L));
+        assertThat(info.getLastModified(), is(FileTime.fromMillis(1000000L).toString()));
+        assertThat(info.isUnchanged(remoteFiles.revalidate(file.toUri())), is(true));
+
+        Files.write(file, new byte[] { 1, 2, 3, 4 });
+
+        assertThat(info.isUnchanged(remoteFiles.revalidate(file.toUri())), is(false));
+        assertThat(remoteFiles.head(directory.toUri()), is(RemoteFileInfo.unknown()));
+        assertThat(remoteFiles.head(directory.resolve("missing.zip").toUri()), is(RemoteFileInfo.unknown()));
+    }
+}
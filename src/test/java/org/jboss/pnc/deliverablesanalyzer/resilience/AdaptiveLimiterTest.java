@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.resilience;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.is;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class AdaptiveLimiterTest {
+    private static final long TARGET_LATENCY = 100L;
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(TARGET_LATENCY / 2L);
+
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(TARGET_LATENCY * 2L);
+
+    private static final double EPSILON = 0.0001D;
+
+    @Test
+    void testInitialLimitIsClamped() {
+        assertThat(new AdaptiveLimiter(1, 2, 8, TARGET_LATENCY).getLimit(), is(closeTo(2.0D, EPSILON)));
+        assertThat(new AdaptiveLimiter(20, 2, 8, TARGET_LATENCY).getLimit(), is(closeTo(8.0D, EPSILON)));
+    }
+
+    @Test
+    void testAcquireUpToLimit() throws InterruptedException {
+        var limiter = new AdaptiveLimiter(2, 1, 8, TARGET_LATENCY);
+
+        assertThat(limiter.acquire(0L), is(true));
+        assertThat(limiter.acquire(0L), is(true));
+        assertThat(limiter.acquire(10L), is(false));
+        assertThat(limiter.getInFlight(), is(2));
+
+        limiter.release(FAST, false);
+
+        assertThat(limiter.acquire(0L), is(true));
+    }
+
+    @Test
+    void testReleaseWakesWaiter() throws Exception {
+        var limiter = new AdaptiveLimiter(1, 1, 8, TARGET_LATENCY);
+
+        assertThat(limiter.acquire(0L), is(true));
+
+        var waiter = CompletableFuture.supplyAsync(() -> {
+            try {
+                return limiter.acquire(10000L);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        });
+
+        limiter.release(FAST, false);
+
+        assertThat(waiter.get(10L, TimeUnit.SECONDS), is(true));
+        assertThat(limiter.getInFlight(), is(1));
+    }
+
+    @Test
+    void testFailureBacksOff() throws InterruptedException {
+        var limiter = new AdaptiveLimiter(8, 2, 16, TARGET_LATENCY);
+
+        assertThat(limiter.acquire(0L), is(true));
+
+        limiter.release(FAST, true);
+
+        assertThat(limiter.getLimit(), is(closeTo(6.0D, EPSILON)));
+    }
+
+    @Test
+    void testSlowCallBacksOff() throws InterruptedException {
+        var limiter = new AdaptiveLimiter(8, 2, 16, TARGET_LATENCY);
+
+        assertThat(limiter.acquire(0L), is(true));
+
+        limiter.release(SLOW, false);
+
+        assertThat(limiter.getLimit(), is(closeTo(6.0D, EPSILON)));
+    }
+
+    @Test
+    void testBackoffStopsAtMinimum() throws InterruptedException {
+        var limiter = new AdaptiveLimiter(8, 2, 16, TARGET_LATENCY);
+
+        for (var i = 0; i < 20; i++) {
+            assertThat(limiter.acquire(0L), is(true));
+            limiter.release(SLOW, true);
+        }
+
+        assertThat(limiter.getLimit(), is(closeTo(2.0D, EPSILON)));
+    }
+
+    @Test
+    void testGrowsOnlyWhenSaturated() throws InterruptedException {
+        var limiter = new AdaptiveLimiter(2, 1, 16, TARGET_LATENCY);
+
+        // A fast call that did not use the whole limit says nothing about a higher one
+        assertThat(limiter.acquire(0L), is(true));
+        limiter.release(FAST, false);
+
+        assertThat(limiter.getLimit(), is(closeTo(2.0D, EPSILON)));
+
+        assertThat(limiter.acquire(0L), is(true));
+        assertThat(limiter.acquire(0L), is(true));
+        limiter.release(FAST, false);
+
+        assertThat(limiter.getLimit(), is(closeTo(2.5D, EPSILON)));
+        assertThat(limiter.getInFlight(), is(1));
+    }
+
+    @Test
+    void testGrowthStopsAtMaximum() throws InterruptedException {
+        var limiter = new AdaptiveLimiter(3, 1, 3, TARGET_LATENCY);
+
+        for (var i = 0; i < 3; i++) {
+            assertThat(limiter.acquire(0L), is(true));
+        }
+
+        limiter.release(FAST, false);
+
+        assertThat(limiter.getLimit(), is(closeTo(3.0D, EPSILON)));
+    }
+}
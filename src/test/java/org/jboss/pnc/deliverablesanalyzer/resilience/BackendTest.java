@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.resilience;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.net.SocketTimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.smallrye.metrics.MetricRegistries;
+
+class BackendTest {
+    private static final int FAILURE_THRESHOLD = 2;
+
+    private Backend backend;
+
+    private final AtomicInteger attempts = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        var settings = new BackendSettings();
+
+        settings.setInitialLimit(4);
+        settings.setMinLimit(1);
+        settings.setMaxLimit(8);
+        settings.setTargetLatency(10000L);
+        settings.setMaxWait(1000L);
+        settings.setFailureThreshold(FAILURE_THRESHOLD);
+        settings.setOpenDuration(3600000L);
+        settings.setRetries(1);
+        settings.setRetryBackoff(1L);
+        settings.setRetryMaxBackoff(1L);
+
+        backend = new Backend("test", settings, MetricRegistries.get(MetricRegistry.Type.APPLICATION));
+    }
+
+    @AfterEach
+    void tearDown() {
+        MetricRegistries.dropAll();
+    }
+
+    private String call(Deadline deadline, Backend.Call<String, Exception> call) throws Exception {
+        return backend.call(deadline, () -> {
+            attempts.incrementAndGet();
+            return call.call();
+        }, Exception::new);
+    }
+
+    @Test
+    void testRetriesTransportError() throws Exception {
+        var value = call(Deadline.none(), () -> {
+            if (attempts.get() == 1) {
+                throw new Exception("Koji call failed", new SocketTimeoutException("Read timed out"));
+            }
+
+            return "value";
+        });
+
+        assertThat(value, is("value"));
+        assertThat(attempts.get(), is(2));
+        assertThat(backend.isAvailable(), is(true));
+    }
+
+    @Test
+    void testTransportErrorsOpenCircuitBreaker() {
+        for (var i = 0; i < FAILURE_THRESHOLD; i++) {
+            assertThrows(
+                    Exception.class,
+                    () -> call(Deadline.none(), () -> {
+                        throw new Exception("Koji call failed", new SocketTimeoutException("Read timed out"));
+                    }));
+        }
+
+        assertThat(backend.isAvailable(), is(false));
+    }
+
+    @Test
+    void testDoesNotRetryFault() {
+        for (var i = 0; i < FAILURE_THRESHOLD * 2; i++) {
+            assertThrows(Exception.class, () -> call(Deadline.none(), () -> {
+                throw new Exception("XML-RPC fault: no such method");
+            }));
+        }
+
+        assertThat(attempts.get(), is(FAILURE_THRESHOLD * 2));
+        assertThat(backend.isAvailable(), is(true));
+    }
+
+    @Test
+    void testAbortsDoNotOpenCircuitBreaker() {
+        for (var i = 0; i < FAILURE_THRESHOLD * 2; i++) {
+            var deadline = new Deadline(0L);
+
+            deadline.start();
+
+            assertThrows(Exception.class, () -> call(deadline, () -> {
+                // The analysis is cancelled while its call runs, which fails the call in transport
+                deadline.cancel();
+                throw new Exception("Koji call failed", new SocketTimeoutException("Read timed out"));
+            }));
+        }
+
+        assertThat(attempts.get(), is(FAILURE_THRESHOLD * 2));
+        assertThat(backend.isAvailable(), is(true));
+    }
+
+    @Test
+    void testAbortReleasesCapacity() throws Exception {
+        for (var i = 0; i < 10; i++) {
+            assertThrows(Exception.class, () -> call(Deadline.none(), () -> {
+                throw new Exception("Interrupted", new InterruptedException());
+            }));
+        }
+
+        assertThat(call(Deadline.none(), () -> "value"), is("value"));
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.resilience;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+
+import org.jboss.pnc.deliverablesanalyzer.resilience.CircuitBreaker.State;
+import org.junit.jupiter.api.Test;
+
+class CircuitBreakerTest {
+    private static final long LONG_OPEN_DURATION = 3600000L;
+
+    private static final long SHORT_OPEN_DURATION = 50L;
+
+    private static void fail(CircuitBreaker breaker, int times) {
+        for (var i = 0; i < times; i++) {
+            assertThat(breaker.allowRequest(), is(true));
+            breaker.onFailure();
+        }
+    }
+
+    private static void waitUntilHalfOpen(CircuitBreaker breaker) throws InterruptedException {
+        Thread.sleep(SHORT_OPEN_DURATION * 2L);
+        assertThat(breaker.getState(), is(State.HALF_OPEN));
+    }
+
+    @Test
+    void testOpensAfterConsecutiveFailures() {
+        var breaker = new CircuitBreaker(3, LONG_OPEN_DURATION);
+
+        fail(breaker, 2);
+
+        assertThat(breaker.getState(), is(State.CLOSED));
+        assertThat(breaker.getConsecutiveFailures(), is(2));
+        assertThat(breaker.getRetryAfterMillis(), is(0L));
+
+        fail(breaker, 1);
+
+        assertThat(breaker.getState(), is(State.OPEN));
+        assertThat(breaker.allowRequest(), is(false));
+        assertThat(breaker.getRetryAfterMillis(), is(greaterThan(0L)));
+    }
+
+    @Test
+    void testSuccessResetsFailures() {
+        var breaker = new CircuitBreaker(3, LONG_OPEN_DURATION);
+
+        fail(breaker, 2);
+        breaker.onSuccess();
+        fail(breaker, 2);
+
+        assertThat(breaker.getState(), is(State.CLOSED));
+        assertThat(breaker.getConsecutiveFailures(), is(2));
+    }
+
+    @Test
+    void testHalfOpenAllowsSingleProbe() throws InterruptedException {
+        var breaker = new CircuitBreaker(1, SHORT_OPEN_DURATION);
+
+        fail(breaker, 1);
+
+        assertThat(breaker.allowRequest(), is(false));
+
+        waitUntilHalfOpen(breaker);
+
+        assertThat(breaker.allowRequest(), is(true));
+        assertThat(breaker.allowRequest(), is(false));
+        assertThat(breaker.getState(), is(State.HALF_OPEN));
+    }
+
+    @Test
+    void testSuccessfulProbeCloses() throws InterruptedException {
+        var breaker = new CircuitBreaker(1, SHORT_OPEN_DURATION);
+
+        fail(breaker, 1);
+        waitUntilHalfOpen(breaker);
+
+        assertThat(breaker.allowRequest(), is(true));
+
+        breaker.onSuccess();
+
+        assertThat(breaker.getState(), is(State.CLOSED));
+        assertThat(breaker.getConsecutiveFailures(), is(0));
+        assertThat(breaker.allowRequest(), is(true));
+        assertThat(breaker.allowRequest(), is(true));
+    }
+
+    @Test
+    void testFailedProbeReopens() throws InterruptedException {
+        var breaker = new CircuitBreaker(3, SHORT_OPEN_DURATION);
+
+        fail(breaker, 3);
+        waitUntilHalfOpen(breaker);
+
+        // A single failed probe is enough, whatever the threshold
+        assertThat(breaker.allowRequest(), is(true));
+
+        breaker.onFailure();
+
+        assertThat(breaker.getState(), is(State.OPEN));
+        assertThat(breaker.allowRequest(), is(false));
+        assertThat(breaker.getRetryAfterMillis(), is(greaterThan(0L)));
+    }
+
+    @Test
+    void testCancelledProbeAllowsAnother() throws InterruptedException {
+        var breaker = new CircuitBreaker(1, SHORT_OPEN_DURATION);
+
+        fail(breaker, 1);
+        waitUntilHalfOpen(breaker);
+
+        assertThat(breaker.allowRequest(), is(true));
+
+        breaker.onCancel();
+
+        assertThat(breaker.getState(), is(State.HALF_OPEN));
+        assertThat(breaker.allowRequest(), is(true));
+        assertThat(breaker.allowRequest(), is(false));
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.scheduler;
+
+import static org.awaitility.Awaitility.await;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.microprofile.context.ManagedExecutor;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.smallrye.metrics.MetricRegistries;
+
+class AnalysisSchedulerTest {
+    private static final long NO_AGING = 3600000L;
+
+    private final List<String> started = new CopyOnWriteArrayList<>();
+
+    private final Map<String, CountDownLatch> releases = new ConcurrentHashMap<>();
+
+    private ManagedExecutor pool;
+
+    private MetricRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        pool = ManagedExecutor.builder().build();
+        registry = MetricRegistries.get(MetricRegistry.Type.APPLICATION);
+    }
+
+    @AfterEach
+    void tearDown() {
+        releases.values().forEach(CountDownLatch::countDown);
+        pool.shutdownNow();
+        MetricRegistries.dropAll();
+    }
+
+    private AnalysisScheduler newScheduler(int maxConcurrent, int smallReserved, long aging) {
+        var scheduler = new AnalysisScheduler();
+
+        scheduler.maxConcurrent = maxConcurrent;
+        scheduler.smallReserved = smallReserved;
+        scheduler.mediumReserved = 0;
+        scheduler.largeReserved = 0;
+        scheduler.aging = aging;
+        scheduler.pool = pool;
+        scheduler.registry = registry;
+        scheduler.init();
+
+        return scheduler;
+    }
+
+    private Client newClient(String id) {
+        return new Client(
+                id,
+                1.0D,
+                0,
+                0,
+                0,
+                registry.counter("testSubmitted"),
+                registry.counter("testRejected"),
+                registry.counter("testKojiCalls"));
+    }
+
+    private CompletableFuture<String> submit(AnalysisScheduler scheduler, Client client, String name) {
+        var release = new CountDownLatch(1);
+
+        releases.put(name, release);
+
+        return scheduler.submit(Lane.SMALL, client, () -> {
+            started.add(name);
+
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            return name;
+        });
+    }
+
+    private void finish(CompletableFuture<String> future, String name) throws Exception {
+        releases.get(name).countDown();
+        assertThat(future.get(10L, TimeUnit.SECONDS), is(name));
+    }
+
+    @Test
+    void testSharedSlots() {
+        var scheduler = newScheduler(2, 1, NO_AGING);
+        var client = newClient("client");
+
+        submit(scheduler, client, "a");
+        submit(scheduler, client, "b");
+        submit(scheduler, client, "c");
+
+        await().until(() -> started.size() == 2);
+
+        assertThat(started, contains("a", "b"));
+        assertThat(scheduler.getRunning(), is(2));
+        assertThat(scheduler.getQueued(Lane.SMALL), is(1));
+        assertThat(client.getQueued(), is(1));
+    }
+
+    @Test
+    void testReservedSlotFreedWhileSharedSlotInUse() throws Exception {
+        var scheduler = newScheduler(2, 1, NO_AGING);
+        var client = newClient("client");
+        var a = submit(scheduler, client, "a");
+
+        submit(scheduler, client, "b");
+        submit(scheduler, client, "c");
+
+        await().until(() -> started.size() == 2);
+
+        // a held the reserved slot and b holds the shared one, so c gets the reserved slot back
+        finish(a, "a");
+
+        await().until(() -> started.size() == 3);
+
+        assertThat(started, contains("a", "b", "c"));
+        assertThat(scheduler.getRunning(), is(2));
+    }
+
+    @Test
+    void testCancelledJobLeavesQueue() {
+        var scheduler = newScheduler(1, 0, NO_AGING);
+        var client = newClient("client");
+
+        submit(scheduler, client, "a");
+
+        var b = submit(scheduler, client, "b");
+
+        await().until(() -> started.size() == 1);
+
+        assertThat(client.getQueued(), is(1));
+
+        b.cancel(true);
+
+        assertThat(scheduler.getQueued(Lane.SMALL), is(0));
+        assertThat(client.getQueued(), is(0));
+        assertThat(client.getRunning(), is(1));
+    }
+
+    @Test
+    void testFairShare() throws Exception {
+        var scheduler = newScheduler(1, 0, NO_AGING);
+        var busy = newClient("busy");
+        var other = newClient("other");
+        var a = submit(scheduler, busy, "a");
+
+        submit(scheduler, busy, "b");
+
+        await().until(() -> started.size() == 1);
+
+        submit(scheduler, other, "c");
+
+        // c was submitted last, but its client has not had a turn yet
+        finish(a, "a");
+
+        await().until(() -> started.size() == 2);
+
+        assertThat(started, contains("a", "c"));
+    }
+
+    @Test
+    void testAging() throws Exception {
+        var aging = 200L;
+        var scheduler = newScheduler(1, 0, aging);
+        var busy = newClient("busy");
+        var other = newClient("other");
+        var a = submit(scheduler, busy, "a");
+
+        submit(scheduler, busy, "b");
+
+        await().until(() -> started.size() == 1);
+
+        Thread.sleep(aging * 2L);
+
+        submit(scheduler, other, "c");
+
+        // b has waited longer than the aging threshold, so it goes ahead of the fair share order
+        finish(a, "a");
+
+        await().until(() -> started.size() == 2);
+
+        assertThat(started, contains("a", "b"));
+    }
+}
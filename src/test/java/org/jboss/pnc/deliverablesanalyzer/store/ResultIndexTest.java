@@ -0,0 +1,171 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.store;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import org.jboss.pnc.deliverablesanalyzer.store.ResultIndex.Kind;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ResultIndexTest {
+    private static final String SHA256 = "0123456789abcdef0123456789abcdef0123456789abcdef0123456789abcdef";
+
+    private static final String MD5 = "d41d8cd98f00b204e9800998ecf8427e";
+
+    private static final String GAV = "org.example:example:1.0.0.redhat-00001";
+
+    private static final String BUILD = "org.example-example-1.0.0.redhat_00001-1";
+
+    @TempDir
+    Path directory;
+
+    private ResultIndex newIndex() {
+        var index = new ResultIndex();
+
+        index.enabled = true;
+        index.file = directory.resolve("results-index").resolve("results.jsonl");
+        index.init();
+
+        return index;
+    }
+
+    private List<String> lines() throws Exception {
+        return Files.readAllLines(directory.resolve("results-index").resolve("results.jsonl"), UTF_8);
+    }
+
+    @Test
+    void testFind() throws Exception {
+        var index = newIndex();
+
+        index.add("a", ResultStoreTest.newResult("a"));
+
+        assertThat(index.find(Kind.CHECKSUM, SHA256), contains("a"));
+        assertThat(index.find(Kind.CHECKSUM, SHA256.toUpperCase()), contains("a"));
+        assertThat(index.find(Kind.CHECKSUM, MD5), contains("a"));
+        assertThat(index.find(Kind.GAV, GAV), contains("a"));
+        assertThat(index.find(Kind.BUILD, BUILD), contains("a"));
+        assertThat(index.find(Kind.NPM, "example@1.0.0"), is(empty()));
+        assertThat(index.find(Kind.GAV, SHA256), is(empty()));
+        assertThat(index.getKeyCount(), is(4));
+
+        index.close();
+    }
+
+    @Test
+    void testFindSortsIds() throws Exception {
+        var index = newIndex();
+
+        index.add("c", ResultStoreTest.newResult("c"));
+        index.add("a", ResultStoreTest.newResult("a"));
+        index.add("b", ResultStoreTest.newResult("b"));
+
+        assertThat(index.find(Kind.CHECKSUM, SHA256), contains("a", "b", "c"));
+
+        index.close();
+    }
+
+    @Test
+    void testRemove() throws Exception {
+        var index = newIndex();
+
+        index.add("a", ResultStoreTest.newResult("a"));
+        index.remove("a");
+        index.remove("missing");
+
+        assertThat(index.contains("a"), is(false));
+        assertThat(index.find(Kind.CHECKSUM, SHA256), is(empty()));
+        assertThat(index.getKeyCount(), is(0));
+        assertThat(lines(), hasSize(2));
+
+        index.close();
+    }
+
+    @Test
+    void testReplayAndCompact() throws Exception {
+        var index = newIndex();
+
+        index.add("a", ResultStoreTest.newResult("a"));
+        index.add("b", ResultStoreTest.newResult("b"));
+        index.add("b", ResultStoreTest.newResult("b"));
+        index.remove("a");
+        index.close();
+
+        assertThat(lines(), hasSize(4));
+
+        var replayed = newIndex();
+
+        assertThat(replayed.contains("a"), is(false));
+        assertThat(replayed.contains("b"), is(true));
+        assertThat(replayed.find(Kind.GAV, GAV), contains("b"));
+        assertThat(replayed.getKeyCount(), is(4));
+        assertThat(lines(), hasSize(1));
+
+        replayed.close();
+    }
+
+    @Test
+    void testTruncatedLineIsSkipped() throws Exception {
+        var index = newIndex();
+
+        index.add("a", ResultStoreTest.newResult("a"));
+        index.close();
+
+        Files.writeString(
+                directory.resolve("results-index").resolve("results.jsonl"),
+                "{\"id\":\"b\",\"keys\":[\"checksum:" + SHA256.substring(0, 10),
+                UTF_8,
+                StandardOpenOption.APPEND);
+
+        var replayed = newIndex();
+
+        assertThat(replayed.contains("a"), is(true));
+        assertThat(replayed.contains("b"), is(false));
+        assertThat(lines(), hasSize(1));
+
+        replayed.add("c", ResultStoreTest.newResult("c"));
+        replayed.close();
+
+        var reopened = newIndex();
+
+        assertThat(reopened.find(Kind.CHECKSUM, SHA256), contains("a", "c"));
+
+        reopened.close();
+    }
+
+    @Test
+    void testDisabled() throws Exception {
+        var index = new ResultIndex();
+
+        index.enabled = false;
+        index.file = directory.resolve("results-index").resolve("results.jsonl");
+        index.init();
+        index.add("a", ResultStoreTest.newResult("a"));
+
+        assertThat(index.contains("a"), is(false));
+        assertThat(Files.exists(index.file), is(false));
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.store;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.jboss.pnc.deliverablesanalyzer.model.Artifact;
+import org.jboss.pnc.deliverablesanalyzer.model.Build;
+import org.jboss.pnc.deliverablesanalyzer.model.BuildSystemType;
+import org.jboss.pnc.deliverablesanalyzer.model.FinderResult;
+import org.jboss.pnc.deliverablesanalyzer.model.MavenArtifact;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class ResultStoreTest {
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+    private static final long TTL = 3600000L;
+
+    private static final String DIGEST = "digest";
+
+    private static final String SHA256 = "0123456789abcdef0123456789abcdef0123456789abcdef0123456789abcdef";
+
+    @TempDir
+    Path directory;
+
+    private ResultStore newStore() {
+        var resultIndex = new ResultIndex();
+
+        resultIndex.enabled = false;
+
+        var store = new ResultStore();
+
+        store.enabled = true;
+        store.ttl = TTL;
+        store.directory = directory;
+        store.resultIndex = resultIndex;
+
+        return store;
+    }
+
+    static FinderResult newResult(String id) throws Exception {
+        var mavenArtifact = new MavenArtifact();
+
+        mavenArtifact.setGroupId("org.example");
+        mavenArtifact.setArtifactId("example");
+        mavenArtifact.setType("jar");
+        mavenArtifact.setVersion("1.0.0.redhat-00001");
+
+        var artifact = new Artifact();
+
+        artifact.setIdentifier(mavenArtifact.getIdentifier());
+        artifact.setType(Artifact.Type.MAVEN);
+        artifact.setMavenArtifact(mavenArtifact);
+        artifact.setBuildSystemType(BuildSystemType.KOJI);
+        artifact.setKojiId(2L);
+        artifact.setBuiltFromSource(Boolean.TRUE);
+        artifact.setSha256(SHA256);
+
+        var build = new Build();
+
+        build.setIdentifier("org.example-example-1.0.0.redhat_00001-1");
+        build.setBuildSystemType(BuildSystemType.KOJI);
+        build.setKojiId(1L);
+        build.setBuiltFromSource(Boolean.TRUE);
+        build.getArtifacts().add(artifact);
+
+        var notFound = new Artifact();
+
+        notFound.setMd5("d41d8cd98f00b204e9800998ecf8427e");
+        notFound.setBuiltFromSource(Boolean.FALSE);
+        notFound.getFilesNotBuiltFromSource().add("dist.zip!/lib/unknown.jar");
+
+        var node = MAPPER.createObjectNode();
+
+        node.put("id", id);
+        node.set("builds", MAPPER.valueToTree(List.of(build)));
+        node.set("notFoundArtifacts", MAPPER.valueToTree(List.of(notFound)));
+        node.set("statistics", MAPPER.valueToTree(new FinderResult().getStatistics()));
+
+        return MAPPER.treeToValue(node, FinderResult.class);
+    }
+
+    private static StoredResult newMeta(String id, long storedAt, Map<String, String> contentChecksums) {
+        var meta = new StoredResult();
+
+        meta.setId(id);
+        meta.setUrl("https://example.org/" + id + ".zip");
+        meta.setConfigDigest(DIGEST);
+        meta.setContentChecksums(contentChecksums);
+        meta.setStoredAt(storedAt);
+        meta.setRefreshedAt(storedAt);
+
+        return meta;
+    }
+
+    private static StoredResult newMeta(String id) {
+        return newMeta(id, System.currentTimeMillis(), Map.of("sha256", SHA256));
+    }
+
+    @Test
+    void testResultRoundTrip() throws Exception {
+        var store = newStore();
+
+        store.save(newMeta("a"), newResult("a"), null);
+
+        var result = store.getResult("a");
+
+        assertThat(result, is(notNullValue()));
+        assertThat(result.getId(), is("a"));
+        assertThat(result.getBuilds(), hasSize(1));
+
+        var build = result.getBuilds().iterator().next();
+
+        assertThat(build.getIdentifier(), is("org.example-example-1.0.0.redhat_00001-1"));
+        assertThat(build.getKojiId(), is(1L));
+        assertThat(build.getArtifacts(), hasSize(1));
+
+        var artifact = build.getArtifacts().iterator().next();
+
+        assertThat(artifact.getIdentifier(), is("org.example:example:jar:1.0.0.redhat-00001"));
+        assertThat(artifact.getSha256(), is(SHA256));
+        assertThat(artifact.getMavenArtifact().getVersion(), is("1.0.0.redhat-00001"));
+        assertThat(result.getNotFoundArtifacts(), hasSize(1));
+
+        var notFound = result.getNotFoundArtifacts().iterator().next();
+
+        assertThat(notFound.getMd5(), is("d41d8cd98f00b204e9800998ecf8427e"));
+        assertThat(notFound.getFilesNotBuiltFromSource(), contains("dist.zip!/lib/unknown.jar"));
+        assertThat(store.getMeta("a").getUrl(), is("https://example.org/a.zip"));
+    }
+
+    @Test
+    void testFindByContent() throws Exception {
+        var store = newStore();
+
+        store.save(newMeta("a"), newResult("a"), null);
+
+        assertThat(store.findByContent(Map.of("sha256", SHA256), DIGEST).getId(), is("a"));
+        assertThat(store.findByContent(Map.of("sha256", SHA256), "other"), is(nullValue()));
+        assertThat(store.findByContent(Map.of("md5", "d41d8cd98f00b204e9800998ecf8427e"), DIGEST), is(nullValue()));
+    }
+
+    @Test
+    void testDeletingCopyKeepsOriginalFoundByContent() throws Exception {
+        var store = newStore();
+
+        store.save(newMeta("a"), newResult("a"), null);
+        store.save(newMeta("b"), newResult("b"), null);
+
+        assertThat(store.delete("b"), is(true));
+        assertThat(store.findByContent(Map.of("sha256", SHA256), DIGEST).getId(), is("a"));
+        assertThat(store.getContentIndexSize(), is(1));
+
+        assertThat(store.delete("a"), is(true));
+        assertThat(store.findByContent(Map.of("sha256", SHA256), DIGEST), is(nullValue()));
+        assertThat(store.getContentIndexSize(), is(0));
+    }
+
+    @Test
+    void testEvictsExpiredResults() throws Exception {
+        var store = newStore();
+        var old = System.currentTimeMillis() - 2L * TTL;
+
+        store.save(newMeta("old", old, Map.of("sha256", SHA256)), newResult("old"), null);
+        store.save(newMeta("new"), newResult("new"), null);
+
+        // An expired result is not reused even before it is evicted
+        assertThat(store.findByContent(Map.of("sha256", SHA256), DIGEST).getId(), is("new"));
+
+        store.evictExpired();
+
+        assertThat(store.getMeta("old"), is(nullValue()));
+        assertThat(Files.exists(directory.resolve("old")), is(false));
+        assertThat(store.getMeta("new"), is(notNullValue()));
+    }
+
+    @Test
+    void testKeepsRefreshedResults() throws Exception {
+        var store = newStore();
+        var meta = newMeta("a", System.currentTimeMillis() - 2L * TTL, Map.of("sha256", SHA256));
+
+        meta.setRefreshedAt(System.currentTimeMillis());
+        store.save(meta, newResult("a"), null);
+        store.evictExpired();
+
+        assertThat(store.getMeta("a"), is(notNullValue()));
+    }
+
+    @Test
+    void testStartupDeletesExpiredAndIndexesRest() throws Exception {
+        var store = newStore();
+
+        var sha1 = "da39a3ee5e6b4b0d3255bfef95601890afd80709";
+
+        store.save(newMeta("old", 0L, Map.of("sha1", sha1)), newResult("old"), null);
+        store.save(newMeta("a"), newResult("a"), null);
+
+        var restarted = newStore();
+
+        restarted.init();
+
+        try {
+            assertThat(Set.of(directory.toFile().list()), is(Set.of("a")));
+            assertThat(restarted.findByContent(Map.of("sha256", SHA256), DIGEST).getId(), is("a"));
+            assertThat(restarted.getContentIndexSize(), is(1));
+        } finally {
+            restarted.close();
+        }
+    }
+}
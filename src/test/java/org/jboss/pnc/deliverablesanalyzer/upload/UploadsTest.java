@@ -0,0 +1,231 @@
+/*
+ * Copyright (C) 2019 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.deliverablesanalyzer.upload;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.hasEntry;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import javax.ws.rs.ClientErrorException;
+import javax.ws.rs.ServiceUnavailableException;
+import javax.ws.rs.core.Response;
+
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.smallrye.metrics.MetricRegistries;
+
+class UploadsTest {
+    private static final byte[] CONTENT = "hello".getBytes(UTF_8);
+
+    private static final String MD5 = "5d41402abc4b2a76b9719d911017c592";
+
+    private static final String SHA1 = "aaf4c61ddcc5e8a2dabede0f3b482cd9aea9434d";
+
+    private static final String SHA256 = "2cf24dba5fb0a30e26e83b2ac5b9e29e1b161e5c1fa7425e73043362938b9824";
+
+    @TempDir
+    Path directory;
+
+    @AfterEach
+    void tearDown() {
+        MetricRegistries.dropAll();
+    }
+
+    private Uploads newUploads(long maxSize, int maxConcurrent) {
+        var uploads = new Uploads();
+
+        uploads.maxSize = maxSize;
+        uploads.maxConcurrent = maxConcurrent;
+        uploads.wait = 100L;
+        uploads.registry = MetricRegistries.get(MetricRegistry.Type.APPLICATION);
+        uploads.directory = directory.resolve("uploads");
+        uploads.init();
+
+        return uploads;
+    }
+
+    private static Upload receive(Uploads uploads, String filename) throws IOException {
+        return uploads.receive(new ByteArrayInputStream(CONTENT), filename);
+    }
+
+    private Path uploadDirectory() {
+        return directory.resolve("uploads");
+    }
+
+    @Test
+    void testReceive() throws Exception {
+        var uploads = newUploads(1024L, 1);
+        var upload = receive(uploads, "dist.zip");
+
+        assertThat(upload.getPath(), is(uploadDirectory().resolve(SHA256).resolve("dist.zip")));
+        assertThat(upload.getSize(), is((long) CONTENT.length));
+        assertThat(upload.getChecksums(), hasEntry("md5", MD5));
+        assertThat(upload.getChecksums(), hasEntry("sha1", SHA1));
+        assertThat(upload.getChecksums(), hasEntry("sha256", SHA256));
+        assertThat(Files.readAllBytes(upload.getPath()), is(CONTENT));
+        assertThat(uploads.isUpload(upload.getPath().toUri()), is(true));
+        assertThat(uploads.isUpload(directory.resolve("dist.zip").toUri()), is(false));
+        assertThat(uploads.registry.counter("uploadedBytes").getCount(), is((long) CONTENT.length));
+        assertThat(uploads.getInProgress(), is(0));
+    }
+
+    @Test
+    void testTooLarge() throws Exception {
+        var uploads = newUploads(CONTENT.length - 1L, 1);
+        var e = assertThrows(ClientErrorException.class, () -> receive(uploads, "dist.zip"));
+
+        assertThat(e.getResponse().getStatus(), is(Response.Status.REQUEST_ENTITY_TOO_LARGE.getStatusCode()));
+
+        try (var files = Files.list(uploadDirectory())) {
+            assertThat(files.collect(Collectors.toList()), is(empty()));
+        }
+
+        assertThat(uploads.getInProgress(), is(0));
+    }
+
+    @Test
+    void testTooManyConcurrent() throws Exception {
+        var uploads = newUploads(1024L, 1);
+        var reading = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        var in = new InputStream() {
+            private int position;
+
+            @Override
+            public int read() throws IOException {
+                reading.countDown();
+
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+
+                return position < CONTENT.length ? CONTENT[position++] : -1;
+            }
+        };
+        var executor = Executors.newSingleThreadExecutor();
+
+        try {
+            var first = executor.submit(() -> uploads.receive(in, "first.zip"));
+
+            assertThat(reading.await(10L, TimeUnit.SECONDS), is(true));
+            assertThat(uploads.getInProgress(), is(1));
+            assertThrows(ServiceUnavailableException.class, () -> receive(uploads, "second.zip"));
+
+            release.countDown();
+
+            assertThat(first.get(10L, TimeUnit.SECONDS).getChecksums(), hasEntry("sha256", SHA256));
+            assertThat(receive(uploads, "second.zip").getSize(), is((long) CONTENT.length));
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testSharedUploadIsDeletedByLastAnalysis() throws Exception {
+        var uploads = newUploads(1024L, 1);
+        var first = receive(uploads, "dist.zip");
+        var second = receive(uploads, "dist.zip");
+
+        assertThat(second.getPath(), is(first.getPath()));
+
+        uploads.delete(first.getPath().toUri());
+
+        assertThat(Files.exists(first.getPath()), is(true));
+
+        uploads.delete(second.getPath().toUri());
+
+        assertThat(Files.exists(first.getPath()), is(false));
+        assertThat(Files.exists(first.getPath().getParent()), is(false));
+    }
+
+    @Test
+    void testSameContentUnderOtherNameKeepsDirectory() throws Exception {
+        var uploads = newUploads(1024L, 1);
+        var zip = receive(uploads, "dist.zip");
+        var jar = receive(uploads, "dist.jar");
+
+        assertThat(jar.getPath().getParent(), is(zip.getPath().getParent()));
+
+        uploads.delete(zip.getPath().toUri());
+
+        assertThat(Files.exists(zip.getPath()), is(false));
+        assertThat(Files.exists(jar.getPath()), is(true));
+
+        uploads.delete(jar.getPath().toUri());
+
+        assertThat(Files.exists(jar.getPath().getParent()), is(false));
+    }
+
+    @Test
+    void testRetainAfterRestart() throws Exception {
+        var upload = receive(newUploads(1024L, 1), "dist.zip");
+        var uri = upload.getPath().toUri();
+        var restarted = newUploads(1024L, 1);
+
+        assertThat(restarted.retain(uri), is(true));
+        assertThat(restarted.retain(uri), is(true));
+
+        restarted.delete(uri);
+
+        assertThat(Files.exists(upload.getPath()), is(true));
+
+        restarted.delete(uri);
+
+        assertThat(Files.exists(upload.getPath()), is(false));
+        assertThat(restarted.retain(uri), is(false));
+    }
+
+    @Test
+    void testUnretainedUploadIsDeleted() throws Exception {
+        var upload = receive(newUploads(1024L, 1), "dist.zip");
+        var restarted = newUploads(1024L, 1);
+
+        restarted.delete(upload.getPath().toUri());
+
+        assertThat(Files.exists(upload.getPath()), is(false));
+    }
+
+    @Test
+    void testOtherFilesAreNotTouched() throws Exception {
+        var uploads = newUploads(1024L, 1);
+        var file = Files.write(directory.resolve("dist.zip"), CONTENT);
+
+        assertThat(uploads.retain(file.toUri()), is(false));
+
+        uploads.delete(file.toUri());
+
+        assertThat(Files.exists(file), is(true));
+    }
+}